@@ -0,0 +1,229 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaHttpHeaders;
+import com.joyent.manta.client.MantaObject;
+import com.joyent.manta.fs.attributes.MantaFileAttributesProvider;
+import com.joyent.manta.fs.driver.MantaFileSystemDriver;
+import com.joyent.manta.fs.driver.MantaOperation;
+import com.joyent.manta.fs.util.AbortableFuture;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous versions of common file operations on Manta paths.
+ *
+ * <p>Each operation runs on the bounded executor of the path's filesystem
+ * ({@link MantaFileSystemDriver#getAsyncExecutor()}) and returns a
+ * {@link CompletableFuture}, so that callers can compose many operations
+ * without blocking their own threads. Dependent stages that don't specify
+ * an executor run on the thread that completed the operation.</p>
+ *
+ * <p>Cancelling a returned future stops the operation: an operation that
+ * hasn't started is skipped, a running read or listing has its response
+ * stream closed, and a running write has its request body closed, which
+ * aborts the HTTP request. The other operations are stopped while they wait
+ * to send a request, but a request they have already sent runs to
+ * completion, so a cancelled {@link #delete(Path)} may still delete the
+ * path and a cancelled {@link #copy(Path, Path, CopyOption...)} may still
+ * copy the object.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public final class MantaAsyncFiles {
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private MantaAsyncFiles() {
+    }
+
+    /**
+     * @param path path on a Manta filesystem
+     * @return executor that runs the operations on the path's filesystem,
+     *         for callers that want to run their own stages on it
+     */
+    public static Executor executor(final Path path) {
+        return MantaFileSystemDriver.fromPath(path).getAsyncExecutor();
+    }
+
+    /**
+     * Reads the attributes of an object or directory with a HEAD request.
+     *
+     * @param path path to read
+     * @return future of the attributes
+     */
+    public static CompletableFuture<BasicFileAttributes> readAttributes(final Path path) {
+        final MantaFileSystemDriver driver = MantaFileSystemDriver.fromPath(path);
+
+        return AbortableFuture.supplyAsync(future -> {
+            final MantaObject object = driver.head(driver.findRealPath(path));
+            return new MantaFileAttributesProvider(object);
+        }, driver.getAsyncExecutor());
+    }
+
+    /**
+     * Reads the content of an object.
+     *
+     * @param path object to read
+     * @return future of the content
+     */
+    public static CompletableFuture<byte[]> readAllBytes(final Path path) {
+        final MantaFileSystemDriver driver = MantaFileSystemDriver.fromPath(path);
+
+        return AbortableFuture.supplyAsync(future -> {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[READ_BUFFER_SIZE];
+
+            try (InputStream in = future.register(
+                    driver.newInputStream(path, Collections.emptySet()))) {
+                int read;
+
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+
+            return out.toByteArray();
+        }, driver.getAsyncExecutor());
+    }
+
+    /**
+     * Writes an object, replacing it if it exists.
+     *
+     * @param path object to write
+     * @param bytes content of the object
+     * @return future completed when the object has been written
+     */
+    public static CompletableFuture<Void> write(final Path path, final byte[] bytes) {
+        Objects.requireNonNull(bytes, "Content must be present");
+
+        final MantaFileSystemDriver driver = MantaFileSystemDriver.fromPath(path);
+
+        return AbortableFuture.supplyAsync(future -> {
+            final String target = driver.findRealPath(path);
+            final MantaHttpHeaders headers = new MantaHttpHeaders();
+            headers.setContentLength((long) bytes.length);
+
+            try (InputStream body = future.register(new UploadBody(bytes))) {
+                driver.getDispatcher().execute(MantaOperation.PUT, target,
+                        client -> client.put(target, body, headers));
+            }
+
+            return null;
+        }, driver.getAsyncExecutor());
+    }
+
+    /**
+     * Lists the entries of a directory.
+     *
+     * @param dir directory to list
+     * @return future of the entries in listing order
+     */
+    public static CompletableFuture<List<Path>> list(final Path dir) {
+        final MantaFileSystemDriver driver = MantaFileSystemDriver.fromPath(dir);
+
+        return AbortableFuture.supplyAsync(future -> {
+            final List<Path> entries = new ArrayList<>();
+
+            try (DirectoryStream<Path> stream = future.register(
+                    driver.newDirectoryStream(dir, null))) {
+                for (Path entry : stream) {
+                    if (future.isCancelled()) {
+                        break;
+                    }
+
+                    entries.add(entry);
+                }
+            }
+
+            return Collections.unmodifiableList(entries);
+        }, driver.getAsyncExecutor());
+    }
+
+    /**
+     * Copies a file in the same way as
+     * {@link Files#copy(Path, Path, CopyOption...)}. The target may be on
+     * any filesystem.
+     *
+     * @param source object to copy
+     * @param target path to copy to
+     * @param options copy options
+     * @return future completed when the copy has finished
+     */
+    public static CompletableFuture<Void> copy(final Path source, final Path target,
+                                               final CopyOption... options) {
+        Objects.requireNonNull(target, "Target must be present");
+
+        final MantaFileSystemDriver driver = MantaFileSystemDriver.fromPath(source);
+
+        return AbortableFuture.supplyAsync(future -> {
+            Files.copy(source, target, options);
+            return null;
+        }, driver.getAsyncExecutor());
+    }
+
+    /**
+     * Deletes an object, or a directory together with its contents, in the
+     * same way as {@link Files#delete(Path)} on a Manta filesystem.
+     *
+     * @param path path to delete
+     * @return future completed when the path has been deleted
+     */
+    public static CompletableFuture<Void> delete(final Path path) {
+        final MantaFileSystemDriver driver = MantaFileSystemDriver.fromPath(path);
+
+        return AbortableFuture.supplyAsync(future -> {
+            driver.delete(path);
+            return null;
+        }, driver.getAsyncExecutor());
+    }
+
+    /**
+     * Body of an upload that fails once it has been closed, so that closing
+     * it aborts the request that is sending it.
+     */
+    static final class UploadBody extends FilterInputStream {
+        private volatile boolean closed = false;
+
+        UploadBody(final byte[] bytes) {
+            super(new ByteArrayInputStream(bytes));
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkOpen();
+            return super.read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            checkOpen();
+            return super.read(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private void checkOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Upload was aborted");
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.joyent.manta.fs;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * Entry of a directory listing: the path of the entry together with the
+ * attributes that the listing returned for it.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaDirectoryEntry {
+    private final Path path;
+    private final BasicFileAttributes attributes;
+
+    public MantaDirectoryEntry(final Path path, final BasicFileAttributes attributes) {
+        this.path = Objects.requireNonNull(path);
+        this.attributes = Objects.requireNonNull(attributes);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public BasicFileAttributes getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
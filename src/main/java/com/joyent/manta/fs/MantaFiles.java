@@ -0,0 +1,375 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaDirectoryListingIterator;
+import com.joyent.manta.client.MantaObject;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.fs.attributes.MantaListingAttributes;
+import com.joyent.manta.fs.driver.MantaCopyOptions;
+import com.joyent.manta.fs.driver.MantaFileSystemDriver;
+import com.joyent.manta.fs.driver.MantaGlob;
+import com.joyent.manta.fs.driver.MantaLane;
+import com.joyent.manta.fs.driver.MantaOperation;
+import com.joyent.manta.fs.driver.MantaRequestDispatcher;
+import com.joyent.manta.fs.util.BoundedTaskRunner;
+
+import java.io.IOException;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk operations on every entry of a Manta directory tree that matches a
+ * glob pattern.
+ *
+ * <p>Unlike applying a {@link java.nio.file.PathMatcher} to a full tree walk,
+ * the leading literal directories of the pattern are resolved up front, so
+ * only the subtree that can contain matches is listed. While walking, any
+ * directory that can't contain a match is skipped. The operation on each
+ * matched entry is run in parallel with bounded concurrency.</p>
+ *
+ * <p>The operations run in the {@link MantaLane#BULK} lane, unless the
+ * calling thread has entered another lane.</p>
+ *
+ * <p>Patterns are relative to the base path passed in, unless they start
+ * with the separator, in which case they are relative to the root
+ * directory.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public final class MantaFiles {
+    private MantaFiles() {
+    }
+
+    /**
+     * Callback invoked for each entry matched by a walk.
+     */
+    @FunctionalInterface
+    private interface MatchVisitor {
+        /**
+         * @param match path of the matched entry relative to the base
+         * @param realPath path of the entry on Manta
+         * @param attributes attributes of the entry from its listing
+         * @return true to descend into a matched directory
+         * @throws IOException thrown when the operation can't be scheduled
+         */
+        boolean visit(String match, String realPath, MantaListingAttributes attributes)
+                throws IOException;
+    }
+
+    /**
+     * Finds all entries matching a glob pattern.
+     *
+     * @param base directory the pattern is relative to
+     * @param glob glob pattern
+     * @return matched paths in listing order
+     * @throws IOException thrown when listing fails
+     */
+    public static List<Path> find(final Path base, final String glob) throws IOException {
+        final MantaGlob pattern = MantaGlob.compile(glob);
+        final Path start = startingPath(base, pattern);
+        final List<Path> matches = new ArrayList<>();
+
+        walk(MantaFileSystemDriver.fromPath(base), start, pattern, (match, realPath, attributes) -> {
+            matches.add(resolve(start, match));
+            return true;
+        });
+
+        return matches;
+    }
+
+    /**
+     * Deletes all entries matching a glob pattern. Matched directories are
+     * deleted recursively.
+     *
+     * @param base directory the pattern is relative to
+     * @param glob glob pattern
+     * @return number of entries deleted
+     * @throws IOException thrown when listing or any of the deletes fail
+     */
+    public static long delete(final Path base, final String glob) throws IOException {
+        final MantaFileSystemDriver driver = MantaFileSystemDriver.fromPath(base);
+        return delete(base, glob, driver.getDefaultConcurrency());
+    }
+
+    /**
+     * Deletes all entries matching a glob pattern. Matched directories are
+     * deleted recursively.
+     *
+     * @param base directory the pattern is relative to
+     * @param glob glob pattern
+     * @param concurrency maximum number of deletes in flight
+     * @return number of entries deleted
+     * @throws IOException thrown when listing or any of the deletes fail
+     */
+    public static long delete(final Path base, final String glob,
+                              final int concurrency) throws IOException {
+        final MantaGlob pattern = MantaGlob.compile(glob);
+        final MantaFileSystemDriver driver = MantaFileSystemDriver.fromPath(base);
+        final MantaRequestDispatcher requests = driver.getDispatcher();
+        final MantaLane lane = MantaLane.currentOr(MantaLane.BULK);
+        final BoundedTaskRunner runner = new BoundedTaskRunner(driver.getExecutor(), concurrency);
+        final AtomicLong deleted = new AtomicLong();
+
+        try {
+            walk(driver, startingPath(base, pattern), pattern, (match, realPath, attributes) -> {
+                runner.submit(() -> {
+                    try {
+                        if (attributes.isDirectory()) {
+                            // The time of a recursive delete depends on the size of the tree
+                            requests.executeUntimed(MantaOperation.DELETE, realPath, lane,
+                                    client -> {
+                                        client.deleteRecursive(realPath);
+                                        return null;
+                                    });
+                        } else {
+                            requests.execute(MantaOperation.DELETE, realPath, lane, client -> {
+                                client.delete(realPath);
+                                return null;
+                            });
+                        }
+
+                        deleted.incrementAndGet();
+                    } catch (MantaClientHttpResponseException e) {
+                        // Removed concurrently by someone else
+                        if (e.getStatusCode() != 404) {
+                            throw e;
+                        }
+                    }
+                });
+
+                // There is no need to look inside of a directory being deleted
+                return false;
+            });
+        } finally {
+            runner.drain();
+        }
+
+        runner.await();
+        return deleted.get();
+    }
+
+    /**
+     * Copies all objects matching a glob pattern into a target directory,
+     * keeping their paths relative to the base directory. Matched
+     * directories aren't copied themselves, but the objects within them
+     * that match are. The target may be on any filesystem.
+     *
+     * <p>The concurrency can be set by passing
+     * {@link MantaCopyOptions#concurrency(int)}. All other options are
+     * passed to {@link Files#copy(Path, Path, CopyOption...)}.</p>
+     *
+     * @param base directory the pattern is relative to
+     * @param glob glob pattern
+     * @param target directory to copy to
+     * @param options copy options
+     * @return number of objects copied
+     * @throws IOException thrown when listing or any of the copies fail
+     */
+    public static long copy(final Path base, final String glob, final Path target,
+                            final CopyOption... options) throws IOException {
+        Objects.requireNonNull(target, "Target must be present");
+
+        final MantaGlob pattern = MantaGlob.compile(glob);
+        final MantaFileSystemDriver driver = MantaFileSystemDriver.fromPath(base);
+        final Path start = startingPath(base, pattern);
+
+        int concurrency = driver.getDefaultConcurrency();
+        final List<CopyOption> copyOptions = new ArrayList<>(options.length);
+
+        for (CopyOption option : options) {
+            if (option instanceof MantaCopyOptions.ConcurrencyOption) {
+                concurrency = ((MantaCopyOptions.ConcurrencyOption) option).getConcurrency();
+            } else {
+                copyOptions.add(option);
+            }
+        }
+
+        final CopyOption[] passedOptions = copyOptions.toArray(new CopyOption[0]);
+        final MantaLane lane = MantaLane.currentOr(MantaLane.BULK);
+        final BoundedTaskRunner runner = new BoundedTaskRunner(driver.getExecutor(), concurrency);
+        final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+        final AtomicLong copied = new AtomicLong();
+
+        try {
+            walk(driver, start, pattern, (match, realPath, attributes) -> {
+                if (attributes.isDirectory()) {
+                    return true;
+                }
+
+                final Path source = resolve(start, match);
+                final Path destination = resolve(target, match);
+
+                runner.submit(() -> {
+                    final Path parent = destination.getParent();
+
+                    if (parent != null && createdDirectories.add(parent)) {
+                        Files.createDirectories(parent);
+                    }
+
+                    try (MantaLane.Scope ignored = lane.enter()) {
+                        Files.copy(source, destination, passedOptions);
+                    }
+
+                    copied.incrementAndGet();
+                });
+
+                return true;
+            });
+        } finally {
+            runner.drain();
+        }
+
+        runner.await();
+        return copied.get();
+    }
+
+    /**
+     * Reads the attributes of all entries matching a glob pattern. The
+     * attributes come from the directory listings, so no request is sent
+     * per matched entry.
+     *
+     * @param base directory the pattern is relative to
+     * @param glob glob pattern
+     * @return attributes keyed by matched path
+     * @throws IOException thrown when listing fails
+     */
+    public static Map<Path, BasicFileAttributes> stat(final Path base, final String glob)
+            throws IOException {
+        final MantaGlob pattern = MantaGlob.compile(glob);
+        final Path start = startingPath(base, pattern);
+        final Map<Path, BasicFileAttributes> attributes = new LinkedHashMap<>();
+
+        walk(MantaFileSystemDriver.fromPath(base), start, pattern, (match, realPath, entry) -> {
+            attributes.put(resolve(start, match), entry);
+            return true;
+        });
+
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * Walks the subtree below the literal prefix of the pattern, calling the
+     * visitor for each matching entry. Directories whose paths can't lead
+     * to a match aren't listed.
+     */
+    private static void walk(final MantaFileSystemDriver driver,
+                             final Path start,
+                             final MantaGlob pattern,
+                             final MatchVisitor visitor) throws IOException {
+        final MantaRequestDispatcher requests = driver.getDispatcher();
+        final MantaLane lane = MantaLane.currentOr(MantaLane.BULK);
+        final String prefix = pattern.getLiteralPrefix();
+        final String startReal = driver.findRealPath(start);
+        final String root = prefix.isEmpty() ? startReal : join(startReal, prefix);
+
+        final Deque<PendingDirectory> pending = new ArrayDeque<>();
+        pending.push(new PendingDirectory(root, prefix, pattern.prefixState()));
+
+        while (!pending.isEmpty()) {
+            final PendingDirectory dir = pending.pop();
+            final List<PendingDirectory> subdirectories = new ArrayList<>();
+
+            /* We descend into subdirectories only after the listing is closed
+             * so that nested listings don't hold on to connections that the
+             * scheduled operations need. */
+            try (MantaDirectoryListingIterator itr = requests.list(dir.realPath, lane)) {
+                while (itr.hasNext()) {
+                    final Map<String, Object> properties = itr.next();
+
+                    if (properties == null) {
+                        continue;
+                    }
+
+                    final String name = Objects.toString(properties.get("name"));
+                    final long state = pattern.step(dir.state, name);
+
+                    if (state == 0L) {
+                        continue;
+                    }
+
+                    final boolean directory = MantaObject.MANTA_OBJECT_TYPE_DIRECTORY.equals(
+                            Objects.toString(properties.get("type")));
+                    final String realPath = join(dir.realPath, name);
+                    final String relativePath = dir.relativePath.isEmpty()
+                            ? name : join(dir.relativePath, name);
+
+                    boolean descend = directory && pattern.canMatchDeeper(state);
+
+                    if (pattern.isAccepting(state)) {
+                        descend &= visitor.visit(relativePath, realPath,
+                                new MantaListingAttributes(properties));
+                    }
+
+                    if (descend) {
+                        subdirectories.add(new PendingDirectory(realPath, relativePath, state));
+                    }
+                }
+            } catch (MantaClientHttpResponseException e) {
+                // A literal prefix that doesn't exist simply has no matches
+                if (e.getStatusCode() != 404) {
+                    throw e;
+                }
+            }
+
+            for (int i = subdirectories.size() - 1; i >= 0; i--) {
+                pending.push(subdirectories.get(i));
+            }
+        }
+    }
+
+    private static Path startingPath(final Path base, final MantaGlob pattern) {
+        if (pattern.isAbsolute()) {
+            return base.getFileSystem().getPath(MantaFileSystemDriver.SEPARATOR);
+        }
+
+        return base;
+    }
+
+    private static Path resolve(final Path base, final String relativePath) {
+        Path path = base;
+
+        for (String name : relativePath.split(MantaFileSystemDriver.SEPARATOR)) {
+            path = path.resolve(name);
+        }
+
+        return path;
+    }
+
+    private static String join(final String parent, final String child) {
+        if (parent.endsWith(MantaFileSystemDriver.SEPARATOR)) {
+            return parent + child;
+        }
+
+        return parent + MantaFileSystemDriver.SEPARATOR_CHAR + child;
+    }
+
+    /**
+     * Directory that still needs to be listed along with the state of the
+     * pattern after matching its path.
+     */
+    private static class PendingDirectory {
+        private final String realPath;
+        private final String relativePath;
+        private final long state;
+
+        private PendingDirectory(final String realPath, final String relativePath,
+                                 final long state) {
+            this.realPath = realPath;
+            this.relativePath = relativePath;
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaDirectoryListingIterator;
+import com.joyent.manta.client.MantaObject;
+import com.joyent.manta.fs.attributes.MantaListingAttributes;
+import com.joyent.manta.fs.driver.MantaFileSystemDriver;
+import com.joyent.manta.fs.driver.MantaLane;
+import com.joyent.manta.fs.driver.MantaOperation;
+import com.joyent.manta.fs.driver.MantaRequestDispatcher;
+import com.joyent.manta.fs.driver.ResumableInputStream;
+import com.joyent.manta.fs.util.BlockingSourcePublisher;
+import org.reactivestreams.Publisher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Reactive Streams {@link Publisher}s for the content of Manta objects and
+ * for directory listings.
+ *
+ * <p>Nothing is requested from Manta until a subscriber signals demand, and
+ * only as much is requested as the subscriber asks for: each content chunk
+ * is fetched with its own ranged request when it is requested, and listing
+ * pages are fetched as the entries on them are requested. The requests run
+ * on the bounded async executor of the path's filesystem.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public final class MantaPublishers {
+    /**
+     * Default number of bytes in each buffer published for object content.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private MantaPublishers() {
+    }
+
+    /**
+     * Publishes the content of an object in chunks of the default size.
+     *
+     * @param path object to read
+     * @return publisher of the object's content
+     */
+    public static Publisher<ByteBuffer> content(final Path path) {
+        return content(path, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Publishes the content of an object. Each requested buffer is fetched
+     * with one ranged request. When the object is replaced while it is being
+     * published, the subscriber receives a
+     * {@link ResumableInputStream.ObjectChangedException}.
+     *
+     * @param path object to read
+     * @param chunkSize number of bytes in each buffer, the last one may be
+     *                  smaller
+     * @return publisher of the object's content
+     */
+    public static Publisher<ByteBuffer> content(final Path path, final int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
+        }
+
+        final MantaFileSystemDriver driver = MantaFileSystemDriver.fromPath(path);
+
+        return new BlockingSourcePublisher<>(
+                () -> new ContentSource(driver, driver.findRealPath(path), chunkSize),
+                driver.getAsyncExecutor());
+    }
+
+    /**
+     * Publishes the entries of a directory with the attributes returned by
+     * the listing.
+     *
+     * @param dir directory to list
+     * @return publisher of the directory's entries
+     */
+    public static Publisher<MantaDirectoryEntry> list(final Path dir) {
+        final MantaFileSystemDriver driver = MantaFileSystemDriver.fromPath(dir);
+        final Path parent = dir.toAbsolutePath();
+
+        return new BlockingSourcePublisher<>(() -> {
+            final MantaDirectoryListingIterator iterator = driver.getDispatcher()
+                    .list(driver.findRealPath(dir), MantaLane.current());
+            return new ListingSource(parent, iterator);
+        }, driver.getAsyncExecutor());
+    }
+
+    /**
+     * Reads an object one ranged request at a time. Every chunk is read
+     * from the version of the object whose size was read first.
+     */
+    private static final class ContentSource implements BlockingSourcePublisher.Source<ByteBuffer> {
+        private final MantaFileSystemDriver driver;
+        private final String path;
+        private final int chunkSize;
+        private long size = -1L;
+        private long offset = 0L;
+        private String etag;
+
+        ContentSource(final MantaFileSystemDriver driver, final String path,
+                      final int chunkSize) {
+            this.driver = driver;
+            this.path = path;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public ByteBuffer next() throws IOException {
+            if (size < 0) {
+                final MantaObject object = driver.head(path);
+                final Long contentLength = object.getContentLength();
+                size = contentLength == null ? 0L : contentLength;
+                etag = object.getEtag();
+            }
+
+            if (offset >= size) {
+                return null;
+            }
+
+            final int length = (int) Math.min(chunkSize, size - offset);
+            final byte[] chunk = new byte[length];
+            int read = 0;
+
+            final MantaRequestDispatcher requests = driver.getDispatcher();
+            final InputStream body = requests.execute(MantaOperation.GET, path,
+                    client -> ResumableInputStream.sent(client.getSeekableByteChannel(path, offset)));
+
+            /* The ranged request is open ended, so we stop reading once the
+             * chunk is full and closing the stream drops the rest. */
+            try (InputStream in = ResumableInputStream.pinned(body, path, etag,
+                    () -> requests.execute(MantaOperation.HEAD, path, client -> client.head(path)))) {
+                while (read < length) {
+                    final int count = in.read(chunk, read, length - read);
+
+                    if (count == -1) {
+                        break;
+                    }
+
+                    read += count;
+                }
+            }
+
+            if (read < length) {
+                throw new IOException(String.format(
+                        "Object %s ended at %d bytes, expected %d bytes",
+                        path, offset + read, size));
+            }
+
+            offset += length;
+
+            return ByteBuffer.wrap(chunk);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Reads a listing one entry at a time, which fetches the next page only
+     * once the entries of the current one have been published.
+     */
+    private static final class ListingSource
+            implements BlockingSourcePublisher.Source<MantaDirectoryEntry> {
+        private final Path parent;
+        private final MantaDirectoryListingIterator iterator;
+
+        ListingSource(final Path parent, final MantaDirectoryListingIterator iterator) {
+            this.parent = parent;
+            this.iterator = iterator;
+        }
+
+        @Override
+        public MantaDirectoryEntry next() {
+            while (iterator.hasNext()) {
+                final Map<String, Object> properties = iterator.next();
+
+                if (properties == null) {
+                    continue;
+                }
+
+                final String name = Objects.toString(properties.get("name"));
+
+                return new MantaDirectoryEntry(parent.resolve(name),
+                        new MantaListingAttributes(properties));
+            }
+
+            return null;
+        }
+
+        @Override
+        public void close() {
+            iterator.close();
+        }
+    }
+}
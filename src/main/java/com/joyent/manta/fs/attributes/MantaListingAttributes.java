@@ -0,0 +1,97 @@
+package com.joyent.manta.fs.attributes;
+
+import com.joyent.manta.client.MantaObject;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * {@link BasicFileAttributes} built from the properties of an entry of a
+ * directory listing, so that listing entries come with their attributes
+ * without a HEAD request per entry.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaListingAttributes implements BasicFileAttributes {
+    private final boolean directory;
+    private final long size;
+    private final FileTime lastModifiedTime;
+    private final Object etag;
+
+    public MantaListingAttributes(final Map<String, Object> properties) {
+        Objects.requireNonNull(properties, "Properties must be present");
+
+        this.directory = MantaObject.MANTA_OBJECT_TYPE_DIRECTORY.equals(
+                Objects.toString(properties.get("type")));
+
+        final Object sizeProperty = properties.get("size");
+        this.size = sizeProperty instanceof Number ? ((Number) sizeProperty).longValue() : 0L;
+        this.lastModifiedTime = parseTime(properties.get("mtime"));
+        this.etag = properties.get("etag");
+    }
+
+    private static FileTime parseTime(final Object mtime) {
+        if (mtime == null) {
+            return FileTime.fromMillis(0L);
+        }
+
+        try {
+            return FileTime.from(Instant.parse(mtime.toString()));
+        } catch (DateTimeParseException e) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+        return lastModifiedTime;
+    }
+
+    @Override
+    public FileTime creationTime() {
+        return lastModifiedTime;
+    }
+
+    @Override
+    public boolean isRegularFile() {
+        return !directory;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+        return false;
+    }
+
+    @Override
+    public boolean isOther() {
+        return false;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the object's etag, or null for directories
+     */
+    @Override
+    public Object fileKey() {
+        return etag;
+    }
+}
@@ -0,0 +1,153 @@
+package com.joyent.manta.fs.driver;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Concurrency limit that adapts to the load Manta tolerates using additive
+ * increase and multiplicative decrease (AIMD), the scheme TCP uses for its
+ * congestion window.
+ *
+ * <p>While responses arrive with a healthy latency, the limit grows by
+ * about one request per round trip. When Manta throttles a request (429 or
+ * 503) or the latency of a request exceeds the smoothed latency by the
+ * tolerance factor, the limit is multiplied by the backoff ratio. A burst of
+ * throttling responses to requests that were sent together causes a single
+ * decrease, because further decreases are ignored until one smoothed round
+ * trip has passed. This lets throughput settle just below the point where
+ * Manta starts throttling, instead of collapsing under a retry storm.</p>
+ *
+ * <p>Requests that exceed the limit wait in their lane's queue, see
+ * {@link QueuedConcurrencyLimit}.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class AimdConcurrencyLimit extends QueuedConcurrencyLimit {
+    /**
+     * Default factor the limit is multiplied by on a decrease.
+     */
+    public static final double DEFAULT_BACKOFF_RATIO = 0.5;
+
+    /**
+     * Default factor by which the latency of a request must exceed the
+     * smoothed latency to count as a latency spike.
+     */
+    public static final double DEFAULT_LATENCY_TOLERANCE = 3.0;
+
+    /**
+     * Weight of a new sample in the smoothed latency.
+     */
+    private static final double SMOOTHING = 0.1;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    private double limit;
+    private volatile double smoothedLatencyNanos = -1.0;
+    private long lastDecreaseNanos;
+    private boolean decreased = false;
+
+    /**
+     * Creates a limit with the default backoff ratio and latency tolerance
+     * that starts at its maximum.
+     *
+     * @param minLimit limit never goes below this
+     * @param maxLimit limit never goes above this
+     */
+    public AimdConcurrencyLimit(final int minLimit, final int maxLimit) {
+        this(maxLimit, minLimit, maxLimit, DEFAULT_BACKOFF_RATIO,
+                DEFAULT_LATENCY_TOLERANCE, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param initialLimit starting limit
+     * @param minLimit limit never goes below this
+     * @param maxLimit limit never goes above this
+     * @param backoffRatio factor the limit is multiplied by on a decrease,
+     *                     between 0 and 1 exclusive
+     * @param latencyTolerance factor by which a request's latency must
+     *                         exceed the smoothed latency to decrease the
+     *                         limit, greater than 1
+     * @param weights share of the permits of each lane
+     */
+    public AimdConcurrencyLimit(final int initialLimit, final int minLimit,
+                                final int maxLimit, final double backoffRatio,
+                                final double latencyTolerance,
+                                final Map<MantaLane, Integer> weights) {
+        super(weights);
+
+        if (minLimit < 1 || maxLimit < minLimit) {
+            String msg = String.format("Invalid limit range: [%d, %d]", minLimit, maxLimit);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (!(backoffRatio > 0.0 && backoffRatio < 1.0)) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+        }
+
+        if (!(latencyTolerance > 1.0)) {
+            throw new IllegalArgumentException("Latency tolerance must be greater than 1");
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    @Override
+    protected void adjust(final Outcome outcome, final long latencyNanos) {
+        final long now = System.nanoTime();
+
+        if (outcome == Outcome.DROPPED) {
+            decrease(now);
+        } else if (outcome == Outcome.SUCCESS && latencyNanos >= 0) {
+            final boolean spike = smoothedLatencyNanos >= 0
+                    && latencyNanos > smoothedLatencyNanos * latencyTolerance;
+
+            /* Spikes are part of the average too, so that a lasting change
+             * in latency becomes the new normal instead of pinning the
+             * limit to its minimum. */
+            smoothedLatencyNanos = smoothedLatencyNanos < 0 ? latencyNanos
+                    : smoothedLatencyNanos + SMOOTHING * (latencyNanos - smoothedLatencyNanos);
+
+            if (spike) {
+                decrease(now);
+            } else {
+                // Grows by one for a full window of healthy responses
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+
+    private void decrease(final long now) {
+        final long roundTrip = smoothedLatencyNanos < 0 ? 0L : (long) smoothedLatencyNanos;
+
+        if (decreased && now - lastDecreaseNanos < roundTrip) {
+            return;
+        }
+
+        limit = Math.max(minLimit, limit * backoffRatio);
+        lastDecreaseNanos = now;
+        decreased = true;
+    }
+
+    @Override
+    protected int limit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return smoothed latency of healthy requests in nanoseconds, or -1
+     *         before the first sample
+     */
+    public long getSmoothedLatencyNanos() {
+        return (long) smoothedLatencyNanos;
+    }
+}
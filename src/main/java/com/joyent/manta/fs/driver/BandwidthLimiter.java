@@ -0,0 +1,128 @@
+package com.joyent.manta.fs.driver;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket that caps the number of bytes per second transferred by the
+ * streams it wraps. Up to one second worth of unused bandwidth can be saved
+ * up, which allows short bursts. Streams block when they transfer faster
+ * than the cap.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class BandwidthLimiter {
+    private final long bytesPerSecond;
+    private double available;
+    private long refilledNanos;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bytesPerSecond maximum average number of bytes per second
+     */
+    public BandwidthLimiter(final long bytesPerSecond) {
+        if (bytesPerSecond < 1L) {
+            throw new IllegalArgumentException("Bandwidth must be at least 1 byte per second");
+        }
+
+        this.bytesPerSecond = bytesPerSecond;
+        this.available = bytesPerSecond;
+        this.refilledNanos = System.nanoTime();
+    }
+
+    /**
+     * @return maximum average number of bytes per second
+     */
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Accounts for bytes that are about to be transferred, waiting until the
+     * bucket holds enough tokens. Transfers larger than the bucket take the
+     * bucket into debt, which following transfers wait for.
+     *
+     * @param bytes number of bytes
+     * @throws InterruptedIOException thrown when interrupted while waiting
+     */
+    public void acquire(final int bytes) throws InterruptedIOException {
+        final long wait;
+
+        synchronized (this) {
+            final long now = System.nanoTime();
+            available = Math.min(bytesPerSecond,
+                    available + (now - refilledNanos) * bytesPerSecond / 1e9);
+            refilledNanos = now;
+            available -= bytes;
+
+            wait = available >= 0 ? 0L
+                    : (long) (-available * 1e9 / bytesPerSecond);
+        }
+
+        if (wait > 0L) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling bandwidth");
+            }
+        }
+    }
+
+    /**
+     * @param in stream to throttle
+     * @return stream whose reads count against this limiter
+     */
+    public InputStream throttle(final InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                final int value = super.read();
+
+                if (value != -1) {
+                    acquire(1);
+                }
+
+                return value;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                final int count = super.read(b, off, len);
+
+                if (count > 0) {
+                    acquire(count);
+                }
+
+                return count;
+            }
+        };
+    }
+
+    /**
+     * @param out stream to throttle
+     * @return stream whose writes count against this limiter
+     */
+    public OutputStream throttle(final OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(final int b) throws IOException {
+                acquire(1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                acquire(len);
+                out.write(b, off, len);
+            }
+        };
+    }
+}
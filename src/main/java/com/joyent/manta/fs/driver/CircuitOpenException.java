@@ -0,0 +1,54 @@
+package com.joyent.manta.fs.driver;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thrown instead of sending a request while the {@link MantaCircuitBreaker}
+ * of a filesystem is open, because recent requests show that Manta is
+ * failing or too slow to answer. The request was never sent, so it is safe
+ * to retry once the breaker has closed again.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 4620617815924311783L;
+
+    private final MantaCircuitBreaker.State state;
+    private final long retryAfterNanos;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param operation kind of request that was rejected
+     * @param path Manta path of the request
+     * @param state state of the breaker when the request was rejected
+     * @param retryAfterNanos nanoseconds until the breaker probes Manta next,
+     *                        zero when a probe is running
+     */
+    public CircuitOpenException(final MantaOperation operation,
+                                final String path,
+                                final MantaCircuitBreaker.State state,
+                                final long retryAfterNanos) {
+        super(String.format("Circuit breaker is %s, rejected %s %s (retry in %dms)",
+                state, operation, path, TimeUnit.NANOSECONDS.toMillis(retryAfterNanos)));
+        this.state = state;
+        this.retryAfterNanos = retryAfterNanos;
+    }
+
+    /**
+     * @return state of the breaker when the request was rejected
+     */
+    public MantaCircuitBreaker.State getState() {
+        return state;
+    }
+
+    /**
+     * @return nanoseconds until the breaker probes Manta next, zero when a
+     *         probe was already running
+     */
+    public long getRetryAfterNanos() {
+        return retryAfterNanos;
+    }
+}
@@ -0,0 +1,44 @@
+package com.joyent.manta.fs.driver;
+
+import java.util.Locale;
+
+/**
+ * Kind of threads that run the blocking requests of a filesystem.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public enum ExecutionMode {
+    /**
+     * Pooled platform threads. Parallel operations are limited by the
+     * number of threads the JVM can afford.
+     */
+    PLATFORM,
+
+    /**
+     * A new virtual thread per task. Blocking on a request parks the virtual
+     * thread instead of holding a platform thread, so the number of
+     * concurrent requests is only limited by the in-flight permits. Only
+     * available on Java 21 and later; older runtimes use
+     * {@link #PLATFORM} instead.
+     */
+    VIRTUAL;
+
+    /**
+     * Parses a mode by name, ignoring case.
+     *
+     * @param value name of the mode
+     * @return matching mode
+     * @throws IllegalArgumentException thrown when no mode matches
+     */
+    public static ExecutionMode parse(final String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @return true if threads of this mode can be created on this runtime
+     */
+    public boolean isSupported() {
+        return this != VIRTUAL || VirtualThreads.isSupported();
+    }
+}
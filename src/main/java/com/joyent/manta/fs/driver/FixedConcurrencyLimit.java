@@ -0,0 +1,49 @@
+package com.joyent.manta.fs.driver;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Concurrency limit that never changes.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class FixedConcurrencyLimit extends QueuedConcurrencyLimit {
+    private final int limit;
+
+    /**
+     * Creates a new instance whose lanes have their default weights.
+     *
+     * @param limit maximum number of requests in flight
+     */
+    public FixedConcurrencyLimit(final int limit) {
+        this(limit, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param limit maximum number of requests in flight
+     * @param weights share of the permits of each lane
+     */
+    public FixedConcurrencyLimit(final int limit, final Map<MantaLane, Integer> weights) {
+        super(weights);
+
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+
+        this.limit = limit;
+    }
+
+    @Override
+    protected int limit() {
+        return limit;
+    }
+
+    @Override
+    protected void adjust(final Outcome outcome, final long latencyNanos) {
+        // The limit is fixed
+    }
+}
@@ -0,0 +1,124 @@
+package com.joyent.manta.fs.driver;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * Queue of requests waiting for an in-flight permit, ordered by weighted
+ * fair scheduling between lanes and FIFO within a lane. Each waiter is the
+ * condition it waits on, so that only the head of the queue is signalled.
+ *
+ * <p>This uses stride scheduling: each lane has a pass value that advances
+ * by the inverse of its weight whenever one of its waiters is admitted, and
+ * the waiting lane with the lowest pass goes next. A lane that starts
+ * waiting after being idle catches up with the others, so it can't save
+ * up credit while idle.</p>
+ *
+ * <p>Not thread safe; callers hold the lock of the owning limit.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+class LaneQueue {
+    private final Map<MantaLane, Deque<Condition>> waiters = new EnumMap<>(MantaLane.class);
+    private final double[] stride = new double[MantaLane.values().length];
+    private final double[] pass = new double[MantaLane.values().length];
+    private double virtualTime = 0.0;
+    private int size = 0;
+
+    /**
+     * @param weights share of the permits of each lane, lanes without a
+     *                weight use their default weight
+     */
+    LaneQueue(final Map<MantaLane, Integer> weights) {
+        for (MantaLane lane : MantaLane.values()) {
+            final Integer weight = weights.get(lane);
+            final int value = weight == null ? lane.getDefaultWeight() : weight;
+
+            if (value < 1) {
+                throw new IllegalArgumentException(String.format(
+                        "Weight of lane %s must be at least 1", lane.settingName()));
+            }
+
+            waiters.put(lane, new ArrayDeque<>());
+            stride[lane.ordinal()] = 1.0 / value;
+        }
+    }
+
+    void add(final MantaLane lane, final Condition waiter) {
+        final Deque<Condition> queue = waiters.get(lane);
+
+        if (queue.isEmpty()) {
+            pass[lane.ordinal()] = Math.max(pass[lane.ordinal()], virtualTime);
+        }
+
+        queue.addLast(waiter);
+        size++;
+    }
+
+    void remove(final MantaLane lane, final Condition waiter) {
+        if (waiters.get(lane).remove(waiter)) {
+            size--;
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return waiter that should be admitted next, or null if none is waiting
+     */
+    Condition peek() {
+        final MantaLane lane = nextLane();
+        return lane == null ? null : waiters.get(lane).peekFirst();
+    }
+
+    /**
+     * Removes the waiter returned by {@link #peek()} and charges its lane.
+     */
+    void admit() {
+        final MantaLane lane = nextLane();
+
+        if (lane == null) {
+            return;
+        }
+
+        waiters.get(lane).removeFirst();
+        size--;
+        charge(lane);
+    }
+
+    /**
+     * Charges a lane for a request admitted without waiting, so lanes that
+     * never have to wait still count against their share.
+     *
+     * @param lane lane of the admitted request
+     */
+    void charge(final MantaLane lane) {
+        final int index = lane.ordinal();
+        pass[index] = Math.max(pass[index], virtualTime);
+        virtualTime = pass[index];
+        pass[index] += stride[index];
+    }
+
+    private MantaLane nextLane() {
+        MantaLane next = null;
+
+        for (MantaLane lane : MantaLane.values()) {
+            if (!waiters.get(lane).isEmpty()
+                    && (next == null || pass[lane.ordinal()] < pass[next.ordinal()])) {
+                next = lane;
+            }
+        }
+
+        return next;
+    }
+}
@@ -0,0 +1,133 @@
+package com.joyent.manta.fs.driver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent histogram of latencies with log-linear buckets, in the style of
+ * HdrHistogram. Latencies are kept in microseconds with two significant
+ * binary digits of sub-bucket precision: each power of two range is split
+ * into 32 buckets, so a reported percentile is at most about 3% above the
+ * recorded value. Latencies above about twelve days are clamped.
+ *
+ * <p>Recording only increments preallocated counters and never allocates,
+ * so it can be done on every request. Reading a summary copies the counters
+ * and is meant for monitoring, not for the hot path.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 40;
+    private static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1L;
+
+    /**
+     * Number of buckets: a linear range up to twice the sub-bucket count,
+     * then one range of sub-buckets per power of two.
+     */
+    static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos latency in nanoseconds, negative values are ignored
+     */
+    public void record(final long nanos) {
+        if (nanos < 0L) {
+            return;
+        }
+
+        final long micros = Math.min(MAX_VALUE, nanos / 1000L);
+        counts.incrementAndGet(bucketOf(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+
+        long max = maxMicros.get();
+
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+
+    static int bucketOf(final long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * @param bucket index of a bucket
+     * @return highest value that is recorded in the bucket
+     */
+    static long highestValueOf(final int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+
+        final int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+        final long subBucket = bucket - ((long) shift << SUB_BUCKET_BITS);
+
+        return (subBucket << shift) + (1L << shift) - 1L;
+    }
+
+    /**
+     * @return number of recorded latencies
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Summarizes the latencies recorded so far. Latencies recorded while
+     * the summary is computed may or may not be part of it.
+     *
+     * @return summary of the recorded latencies
+     */
+    public LatencySummary summarize() {
+        final long[] snapshot = new long[BUCKETS];
+        long total = 0L;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0L) {
+            return new LatencySummary(0L, 0L, 0L, 0L, 0L, 0L, 0L);
+        }
+
+        return new LatencySummary(total,
+                totalMicros.get() / Math.max(1L, count.get()),
+                percentile(snapshot, total, 50.0),
+                percentile(snapshot, total, 90.0),
+                percentile(snapshot, total, 99.0),
+                percentile(snapshot, total, 99.9),
+                maxMicros.get());
+    }
+
+    private static long percentile(final long[] snapshot, final long total,
+                                   final double percentile) {
+        final long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0L;
+
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+
+            if (seen >= rank) {
+                return highestValueOf(i);
+            }
+        }
+
+        return highestValueOf(snapshot.length - 1);
+    }
+}
@@ -0,0 +1,99 @@
+package com.joyent.manta.fs.driver;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Summary of a {@link LatencyHistogram}, in microseconds. Exposed through
+ * JMX as composite data.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class LatencySummary {
+    private final long count;
+    private final long mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param count number of recorded latencies
+     * @param mean mean latency
+     * @param p50 median latency
+     * @param p90 90th percentile
+     * @param p99 99th percentile
+     * @param p999 99.9th percentile
+     * @param max highest latency
+     */
+    @ConstructorProperties({"count", "mean", "p50", "p90", "p99", "p999", "max"})
+    public LatencySummary(final long count, final long mean, final long p50,
+                          final long p90, final long p99, final long p999,
+                          final long max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    /**
+     * @return number of recorded latencies
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return mean latency in microseconds
+     */
+    public long getMean() {
+        return mean;
+    }
+
+    /**
+     * @return median latency in microseconds
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * @return 90th percentile latency in microseconds
+     */
+    public long getP90() {
+        return p90;
+    }
+
+    /**
+     * @return 99th percentile latency in microseconds
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * @return 99.9th percentile latency in microseconds
+     */
+    public long getP999() {
+        return p999;
+    }
+
+    /**
+     * @return highest latency in microseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%dus p50=%dus p90=%dus p99=%dus p99.9=%dus max=%dus",
+                count, mean, p50, p90, p99, p999, max);
+    }
+}
@@ -0,0 +1,261 @@
+package com.joyent.manta.fs.driver;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaObject;
+import com.joyent.manta.fs.util.AbortableFuture;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonWritableChannelException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Read only {@link AsynchronousFileChannel} for a Manta object. Each
+ * positional read is served by a ranged GET that runs on an executor, so
+ * callers are never blocked and the number of threads is bound by the
+ * executor instead of by the number of outstanding reads.
+ *
+ * <p>Channels opened for writing are staged in a local file instead; see
+ * {@link MantaFileSystemDriver#newAsynchronousFileChannel}.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaAsynchronousFileChannel extends AsynchronousFileChannel {
+    /**
+     * Size of the buffer used to copy into buffers without a backing array.
+     */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final MantaRequestDispatcher dispatcher;
+    private final String path;
+    private final long size;
+    private final ExecutorService executor;
+    private final AtomicBoolean open = new AtomicBoolean(true);
+
+    /**
+     * Opens a channel for an existing object.
+     *
+     * @param mantaClient client used for the ranged requests
+     * @param path Manta path of the object
+     * @param executor executor that runs the requests and completion handlers
+     * @throws IOException thrown when the object can't be found
+     */
+    public MantaAsynchronousFileChannel(final MantaClient mantaClient,
+                                        final String path,
+                                        final ExecutorService executor)
+            throws IOException {
+        this(new MantaRequestDispatcher(MantaClientSource.of(mantaClient)), path, executor);
+    }
+
+    /**
+     * Opens a channel for an existing object whose requests are sent through
+     * a dispatcher.
+     *
+     * @param dispatcher dispatcher that sends the ranged requests
+     * @param path Manta path of the object
+     * @param executor executor that runs the requests and completion handlers
+     * @throws IOException thrown when the object can't be found
+     */
+    public MantaAsynchronousFileChannel(final MantaRequestDispatcher dispatcher,
+                                        final String path,
+                                        final ExecutorService executor)
+            throws IOException {
+        this.dispatcher = Objects.requireNonNull(dispatcher);
+        this.path = Objects.requireNonNull(path);
+        this.executor = Objects.requireNonNull(executor);
+
+        final MantaObject object = dispatcher.execute(MantaOperation.HEAD, path,
+                client -> client.head(path));
+        final Long contentLength = object.getContentLength();
+        this.size = contentLength == null ? 0L : contentLength;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    @Override
+    public AsynchronousFileChannel truncate(final long newSize) throws IOException {
+        ensureOpen();
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public void force(final boolean metaData) throws IOException {
+        ensureOpen();
+    }
+
+    @Override
+    public <A> void lock(final long position, final long lockSize, final boolean shared,
+                         final A attachment,
+                         final CompletionHandler<FileLock, ? super A> handler) {
+        throw new UnsupportedOperationException("Manta objects can't be locked");
+    }
+
+    @Override
+    public Future<FileLock> lock(final long position, final long lockSize,
+                                 final boolean shared) {
+        throw new UnsupportedOperationException("Manta objects can't be locked");
+    }
+
+    @Override
+    public FileLock tryLock(final long position, final long lockSize,
+                            final boolean shared) throws IOException {
+        throw new UnsupportedOperationException("Manta objects can't be locked");
+    }
+
+    @Override
+    public <A> void read(final ByteBuffer dst, final long position, final A attachment,
+                         final CompletionHandler<Integer, ? super A> handler) {
+        Objects.requireNonNull(handler, "Handler must be present");
+
+        readAsync(dst, position).whenComplete((count, error) -> {
+            if (error == null) {
+                handler.completed(count, attachment);
+            } else {
+                handler.failed(unwrap(error), attachment);
+            }
+        });
+    }
+
+    @Override
+    public Future<Integer> read(final ByteBuffer dst, final long position) {
+        return readAsync(dst, position);
+    }
+
+    /**
+     * Starts a positional read.
+     *
+     * @param dst buffer to read into
+     * @param position position in the object to read from
+     * @return future completed with the number of bytes read, or -1 when
+     *         the position is at or past the end of the object
+     */
+    public CompletableFuture<Integer> readAsync(final ByteBuffer dst, final long position) {
+        Objects.requireNonNull(dst, "Buffer must be present");
+
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+
+        if (dst.isReadOnly()) {
+            throw new IllegalArgumentException("Read-only buffer");
+        }
+
+        if (!isOpen()) {
+            final CompletableFuture<Integer> closed = new CompletableFuture<>();
+            closed.completeExceptionally(new ClosedChannelException());
+            return closed;
+        }
+
+        if (position >= size) {
+            return CompletableFuture.completedFuture(-1);
+        }
+
+        if (!dst.hasRemaining()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        return AbortableFuture.supplyAsync(future -> readRange(dst, position), executor);
+    }
+
+    private int readRange(final ByteBuffer dst, final long position) throws IOException {
+        /* The permit is only held until the response has arrived, so that
+         * the time it takes to read the body isn't taken as latency. */
+        final InputStream body = dispatcher.execute(MantaOperation.GET, path,
+                client -> ResumableInputStream.sent(client.getSeekableByteChannel(path, position)));
+
+        return copyRange(body, dst, position);
+    }
+
+    private int copyRange(final InputStream body, final ByteBuffer dst,
+                          final long position) throws IOException {
+        final int length = (int) Math.min(dst.remaining(), size - position);
+        int read = 0;
+
+        /* The ranged request is open ended, so we stop reading once the
+         * buffer is full and closing the stream drops the rest. */
+        try (InputStream in = body) {
+            if (dst.hasArray()) {
+                final byte[] array = dst.array();
+                final int offset = dst.arrayOffset() + dst.position();
+
+                while (read < length) {
+                    final int count = in.read(array, offset + read, length - read);
+
+                    if (count == -1) {
+                        break;
+                    }
+
+                    read += count;
+                }
+
+                dst.position(dst.position() + read);
+            } else {
+                final byte[] buffer = new byte[Math.min(length, COPY_BUFFER_SIZE)];
+
+                while (read < length) {
+                    final int count = in.read(buffer, 0,
+                            Math.min(buffer.length, length - read));
+
+                    if (count == -1) {
+                        break;
+                    }
+
+                    dst.put(buffer, 0, count);
+                    read += count;
+                }
+            }
+        }
+
+        return read == 0 ? -1 : read;
+    }
+
+    @Override
+    public <A> void write(final ByteBuffer src, final long position, final A attachment,
+                          final CompletionHandler<Integer, ? super A> handler) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public Future<Integer> write(final ByteBuffer src, final long position) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open.get();
+    }
+
+    @Override
+    public void close() {
+        open.set(false);
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    private static Throwable unwrap(final Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+
+        return error;
+    }
+}
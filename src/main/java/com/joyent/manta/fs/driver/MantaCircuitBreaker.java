@@ -0,0 +1,433 @@
+package com.joyent.manta.fs.driver;
+
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.org.apache.http.ConnectionClosedException;
+import com.joyent.manta.org.apache.http.MalformedChunkCodingException;
+import com.joyent.manta.org.apache.http.NoHttpResponseException;
+import com.joyent.manta.org.apache.http.TruncatedChunkException;
+import com.joyent.manta.org.apache.http.conn.ConnectTimeoutException;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops a filesystem from sending requests to Manta while Manta is failing
+ * or too slow to answer, so that callers fail fast with a
+ * {@link CircuitOpenException} instead of each waiting for the HTTP timeout
+ * and tying up their threads.
+ *
+ * <p>The breaker keeps the outcomes of the last <code>window</code>
+ * requests. A request fails when it can't get a response (connection
+ * errors and timeouts) or gets a 5xx response other than a throttling 503,
+ * and it is slow when it takes
+ * longer than the slow call threshold. Once at least
+ * <code>minimumCalls</code> requests were recorded and either the failure
+ * rate or the slow call rate reaches its threshold, the breaker opens.</p>
+ *
+ * <p>While open, no request is sent. After the open duration the breaker
+ * goes half-open and sends a single probe request in the background; if it
+ * succeeds the breaker closes, otherwise it opens again for another open
+ * duration. Callers are never used as probes, so they keep failing fast
+ * until the probe has succeeded.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaCircuitBreaker {
+    /**
+     * Default fraction of failed requests at which the breaker opens.
+     */
+    public static final double DEFAULT_FAILURE_RATE = 0.5;
+
+    /**
+     * Default fraction of slow requests at which the breaker opens.
+     */
+    public static final double DEFAULT_SLOW_CALL_RATE = 0.8;
+
+    /**
+     * Default duration in milliseconds after which a request is slow.
+     */
+    public static final long DEFAULT_SLOW_CALL_MILLIS = 10_000L;
+
+    /**
+     * Default number of recent requests the rates are computed over.
+     */
+    public static final int DEFAULT_WINDOW = 50;
+
+    /**
+     * Default number of requests recorded before the breaker may open.
+     */
+    public static final int DEFAULT_MINIMUM_CALLS = 20;
+
+    /**
+     * Default duration in milliseconds the breaker stays open before it
+     * probes Manta.
+     */
+    public static final long DEFAULT_OPEN_MILLIS = 10_000L;
+
+    /**
+     * State of a breaker.
+     */
+    public enum State {
+        /**
+         * Requests are sent and their outcomes recorded.
+         */
+        CLOSED,
+
+        /**
+         * Requests are rejected until the next probe.
+         */
+        OPEN,
+
+        /**
+         * A probe is running; requests are rejected until it succeeds.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Request sent to find out whether Manta has recovered.
+     */
+    @FunctionalInterface
+    public interface Probe {
+        /**
+         * Sends the probe request.
+         *
+         * @throws IOException thrown when the request fails
+         */
+        void send() throws IOException;
+    }
+
+    private static final byte OK = 0;
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final boolean enabled;
+    private final double failureRate;
+    private final double slowCallRate;
+    private final long slowCallNanos;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final MantaExecutors executors;
+    private final Probe probe;
+
+    private final byte[] outcomes;
+    private int next = 0;
+    private int calls = 0;
+    private int failures = 0;
+    private int slowCalls = 0;
+
+    private volatile State state = State.CLOSED;
+    private volatile long stateChangedAt = System.currentTimeMillis();
+    private volatile long probeAt = 0L;
+    private final long[] stateChanges = new long[State.values().length];
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Creates a breaker that never opens.
+     */
+    public MantaCircuitBreaker() {
+        this(false, DEFAULT_FAILURE_RATE, DEFAULT_SLOW_CALL_RATE,
+                TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_CALL_MILLIS),
+                DEFAULT_WINDOW, DEFAULT_MINIMUM_CALLS,
+                TimeUnit.MILLISECONDS.toNanos(DEFAULT_OPEN_MILLIS), null, null);
+    }
+
+    /**
+     * Creates a breaker.
+     *
+     * @param enabled false to never open the breaker
+     * @param failureRate fraction of failed requests at which the breaker opens
+     * @param slowCallRate fraction of slow requests at which the breaker opens
+     * @param slowCallNanos duration after which a request is slow
+     * @param window number of recent requests the rates are computed over
+     * @param minimumCalls number of requests recorded before the breaker may open
+     * @param openNanos duration the breaker stays open before it probes Manta
+     * @param executors executors whose scheduler runs the probes
+     * @param probe request sent to find out whether Manta has recovered
+     */
+    public MantaCircuitBreaker(final boolean enabled,
+                               final double failureRate,
+                               final double slowCallRate,
+                               final long slowCallNanos,
+                               final int window,
+                               final int minimumCalls,
+                               final long openNanos,
+                               final MantaExecutors executors,
+                               final Probe probe) {
+        if (failureRate <= 0.0 || failureRate > 1.0) {
+            throw new IllegalArgumentException("Failure rate must be above 0 and at most 1");
+        }
+
+        if (slowCallRate <= 0.0 || slowCallRate > 1.0) {
+            throw new IllegalArgumentException("Slow call rate must be above 0 and at most 1");
+        }
+
+        if (window < 1 || minimumCalls < 1 || minimumCalls > window) {
+            throw new IllegalArgumentException(
+                    "Minimum calls must be at least 1 and at most the window");
+        }
+
+        if (openNanos < 0L) {
+            throw new IllegalArgumentException("Open duration must not be negative");
+        }
+
+        if (enabled && (executors == null || probe == null)) {
+            throw new IllegalArgumentException("An enabled breaker needs executors and a probe");
+        }
+
+        this.enabled = enabled;
+        this.failureRate = failureRate;
+        this.slowCallRate = slowCallRate;
+        this.slowCallNanos = slowCallNanos;
+        this.minimumCalls = minimumCalls;
+        this.openNanos = openNanos;
+        this.executors = executors;
+        this.probe = probe;
+        this.outcomes = new byte[enabled ? window : 0];
+    }
+
+    /**
+     * Fails fast unless the breaker is closed.
+     *
+     * @param operation kind of request about to be sent
+     * @param path Manta path of the request
+     * @throws CircuitOpenException thrown when the breaker is open or half-open
+     */
+    public void check(final MantaOperation operation, final String path)
+            throws CircuitOpenException {
+        final State current = state;
+
+        if (current == State.CLOSED) {
+            return;
+        }
+
+        rejected.incrementAndGet();
+
+        final long retryAfter = current == State.OPEN
+                ? Math.max(0L, probeAt - System.nanoTime()) : 0L;
+
+        throw new CircuitOpenException(operation, path, current, retryAfter);
+    }
+
+    /**
+     * Records the outcome of a request that was sent. Outcomes of requests
+     * that end while the breaker isn't closed are ignored, since they were
+     * sent before it opened.
+     *
+     * @param failed true if the request failed, see {@link #isFailure(IOException)}
+     * @param latencyNanos time the request took, or a negative number when
+     *                     it isn't representative of the endpoint's latency
+     */
+    public void record(final boolean failed, final long latencyNanos) {
+        if (!enabled || state != State.CLOSED) {
+            return;
+        }
+
+        final byte outcome;
+
+        if (failed) {
+            outcome = FAILED;
+        } else if (latencyNanos > slowCallNanos) {
+            outcome = SLOW;
+        } else {
+            outcome = OK;
+        }
+
+        synchronized (this) {
+            if (state != State.CLOSED) {
+                return;
+            }
+
+            if (calls == outcomes.length) {
+                count(outcomes[next], -1);
+            } else {
+                calls++;
+            }
+
+            outcomes[next] = outcome;
+            count(outcome, 1);
+            next = (next + 1) % outcomes.length;
+
+            if (calls >= minimumCalls
+                    && (failures >= failureRate * calls || slowCalls >= slowCallRate * calls)) {
+                open();
+            }
+        }
+    }
+
+    private void count(final byte outcome, final int delta) {
+        if (outcome == FAILED) {
+            failures += delta;
+        } else if (outcome == SLOW) {
+            slowCalls += delta;
+        }
+    }
+
+    private void transition(final State to) {
+        state = to;
+        stateChanges[to.ordinal()]++;
+        stateChangedAt = System.currentTimeMillis();
+    }
+
+    private void reset() {
+        next = 0;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    /**
+     * Opens the breaker and schedules the next probe. Called with the lock
+     * held.
+     */
+    private void open() {
+        transition(State.OPEN);
+        reset();
+        probeAt = System.nanoTime() + openNanos;
+
+        try {
+            executors.getScheduler().schedule(this::runProbe, openNanos, TimeUnit.NANOSECONDS);
+        } catch (IllegalStateException | RejectedExecutionException e) {
+            // The filesystem is closing, so there is nothing left to probe for
+        }
+    }
+
+    private void runProbe() {
+        synchronized (this) {
+            if (state != State.OPEN) {
+                return;
+            }
+
+            transition(State.HALF_OPEN);
+        }
+
+        boolean failed;
+
+        try {
+            probe.send();
+            failed = false;
+        } catch (IOException e) {
+            failed = isFailure(e);
+        } catch (RuntimeException e) {
+            failed = true;
+        }
+
+        synchronized (this) {
+            if (failed) {
+                open();
+            } else {
+                transition(State.CLOSED);
+            }
+        }
+    }
+
+    /**
+     * @param error error thrown by a request
+     * @return true if the error shows that Manta is unhealthy: it didn't
+     *         answer in time, couldn't be reached, broke off the connection,
+     *         or answered with a 5xx status other than the throttling 503.
+     *         Throttling is left to the concurrency limit, and errors raised
+     *         on the caller's side of a request, such as a local file that
+     *         can't be read, don't count.
+     */
+    public static boolean isFailure(final IOException error) {
+        if (error instanceof CircuitOpenException || error instanceof MantaThrottledException) {
+            return false;
+        }
+
+        if (error instanceof MantaClientHttpResponseException) {
+            final int status = ((MantaClientHttpResponseException) error).getStatusCode();
+            return status >= 500 && !MantaRequestDispatcher.isThrottling(status);
+        }
+
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (isTransportError(t)) {
+                return true;
+            }
+
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param error error or the cause of one
+     * @return true if the error was raised by the connection to Manta
+     */
+    private static boolean isTransportError(final Throwable error) {
+        if (error instanceof InterruptedIOException) {
+            // Only timeouts, interrupting the caller says nothing about Manta
+            return error instanceof SocketTimeoutException
+                    || error instanceof ConnectTimeoutException;
+        }
+
+        return error instanceof SocketException
+                || error instanceof UnknownHostException
+                || error instanceof SSLException
+                || error instanceof NoHttpResponseException
+                || error instanceof ConnectionClosedException
+                || error instanceof TruncatedChunkException
+                || error instanceof MalformedChunkCodingException;
+    }
+
+    /**
+     * @return true if the breaker can open
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return current state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return time in epoch milliseconds of the last state change
+     */
+    public long getStateChangedAt() {
+        return stateChangedAt;
+    }
+
+    /**
+     * @param to state
+     * @return number of times the breaker changed to the state
+     */
+    public synchronized long getStateChanges(final State to) {
+        return stateChanges[to.ordinal()];
+    }
+
+    /**
+     * @return number of requests rejected without being sent
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return fraction of the recorded requests that failed
+     */
+    public synchronized double getFailureRate() {
+        return calls == 0 ? 0.0 : (double) failures / calls;
+    }
+
+    /**
+     * @return fraction of the recorded requests that were slow
+     */
+    public synchronized double getSlowCallRate() {
+        return calls == 0 ? 0.0 : (double) slowCalls / calls;
+    }
+}
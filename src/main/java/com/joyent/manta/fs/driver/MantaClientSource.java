@@ -0,0 +1,58 @@
+package com.joyent.manta.fs.driver;
+
+import com.joyent.manta.client.MantaClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Provides the {@link MantaClient} of a driver. Sources may create the
+ * client on first use, so that creating a filesystem doesn't pay for key
+ * loading and the HTTP stack until the first request.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public interface MantaClientSource extends Closeable {
+    /**
+     * Returns the client, creating it if needed.
+     *
+     * @return the client
+     * @throws IOException thrown when the client can't be created or the
+     *                     source has been closed
+     */
+    MantaClient getClient() throws IOException;
+
+    /**
+     * @return true if the client has been created
+     */
+    boolean isCreated();
+
+    /**
+     * Wraps a client that has already been created. Closing the source
+     * closes the client.
+     *
+     * @param client client to wrap, may be null
+     * @return source that always returns the client
+     */
+    static MantaClientSource of(final MantaClient client) {
+        return new MantaClientSource() {
+            @Override
+            public MantaClient getClient() {
+                return client;
+            }
+
+            @Override
+            public boolean isCreated() {
+                return client != null;
+            }
+
+            @Override
+            public void close() {
+                if (client != null) {
+                    client.closeQuietly();
+                }
+            }
+        };
+    }
+}
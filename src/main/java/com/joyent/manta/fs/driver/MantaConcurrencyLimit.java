@@ -0,0 +1,62 @@
+package com.joyent.manta.fs.driver;
+
+/**
+ * Limits the number of requests that a {@link MantaRequestDispatcher} has in
+ * flight. Requests that can't be sent right away wait in their priority
+ * lane.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public interface MantaConcurrencyLimit {
+    /**
+     * How a request that held a permit ended, which adaptive limits use to
+     * adjust themselves.
+     */
+    enum Outcome {
+        /** A response was received and it wasn't a throttling response. */
+        SUCCESS,
+
+        /** Manta rejected the request because it is overloaded (429 or 503). */
+        DROPPED,
+
+        /** The request failed for a reason that says nothing about load. */
+        IGNORED
+    }
+
+    /**
+     * Waits until a request of the current thread's lane may be sent.
+     *
+     * @throws InterruptedException thrown when interrupted while waiting
+     */
+    default void acquire() throws InterruptedException {
+        acquire(MantaLane.current());
+    }
+
+    /**
+     * Waits until a request may be sent.
+     *
+     * @param lane priority lane of the request
+     * @throws InterruptedException thrown when interrupted while waiting
+     */
+    void acquire(MantaLane lane) throws InterruptedException;
+
+    /**
+     * Returns the permit of a request that has ended.
+     *
+     * @param outcome how the request ended
+     * @param latencyNanos time the request took, or a negative number when
+     *                     it isn't representative of the endpoint's latency
+     */
+    void release(Outcome outcome, long latencyNanos);
+
+    /**
+     * @return number of requests currently allowed in flight
+     */
+    int getLimit();
+
+    /**
+     * @return number of requests currently in flight
+     */
+    int getInFlight();
+}
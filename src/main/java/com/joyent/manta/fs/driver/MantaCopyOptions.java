@@ -0,0 +1,100 @@
+package com.joyent.manta.fs.driver;
+
+import java.nio.file.CopyOption;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Manta specific {@link CopyOption} implementations that can be passed to
+ * {@link java.nio.file.Files#copy(Path, Path, CopyOption...)} and
+ * {@link java.nio.file.Files#move(Path, Path, CopyOption...)}.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public final class MantaCopyOptions {
+    private MantaCopyOptions() {
+    }
+
+    /**
+     * Option that sets the maximum number of objects that are processed
+     * concurrently when copying or moving a directory tree.
+     */
+    public static final class ConcurrencyOption implements CopyOption {
+        private final int concurrency;
+
+        private ConcurrencyOption(final int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("Concurrency must be at least 1");
+            }
+
+            this.concurrency = concurrency;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("concurrency=%d", concurrency);
+        }
+    }
+
+    /**
+     * Option that points to a local journal file in which the progress of a
+     * directory move is recorded. When the same journal is passed to a move
+     * that was previously interrupted, finished entries are not redone.
+     */
+    public static final class CheckpointOption implements CopyOption {
+        private final Path journal;
+
+        private CheckpointOption(final Path journal) {
+            this.journal = Objects.requireNonNull(journal, "Journal path must be present");
+        }
+
+        public Path getJournal() {
+            return journal;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("checkpoint=%s", journal);
+        }
+    }
+
+    /**
+     * @param concurrency maximum number of objects processed at once
+     * @return option limiting the concurrency of tree operations
+     */
+    public static CopyOption concurrency(final int concurrency) {
+        return new ConcurrencyOption(concurrency);
+    }
+
+    /**
+     * @param journal local file used to record progress
+     * @return option enabling resumable tree operations
+     */
+    public static CopyOption checkpoint(final Path journal) {
+        return new CheckpointOption(journal);
+    }
+
+    /**
+     * Finds the first option of the specified type.
+     *
+     * @param options options to search
+     * @param type class of the option to find
+     * @param <T> type of the option to find
+     * @return matching option or null if not present
+     */
+    static <T> T find(final Collection<?> options, final Class<T> type) {
+        for (Object option : options) {
+            if (type.isInstance(option)) {
+                return type.cast(option);
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,157 @@
+package com.joyent.manta.fs.driver;
+
+import com.joyent.manta.client.MantaDirectoryListingIterator;
+import com.joyent.manta.client.MantaObject;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.fs.util.BoundedTaskRunner;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Moves a Manta directory tree by streaming through the source listing,
+ * snaplinking each object to the target and then deleting the source object.
+ * Objects are processed in a pipeline with bounded concurrency, so that a
+ * move of a large tree is a metadata-only operation whose duration is bound
+ * by the number of requests that can be in flight.
+ *
+ * <p>Source directories are removed once all of the objects beneath them
+ * have been moved. Progress is recorded in a {@link MoveCheckpoint}. Every
+ * request is sent through a {@link MantaRequestDispatcher}, so that the move
+ * shares the concurrency limit and circuit breaker of its filesystem. The
+ * requests run in the lane that was current when the mover was created,
+ * including those sent from the executor's threads.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaDirectoryMover {
+    private final MantaRequestDispatcher dispatcher;
+    private final BoundedTaskRunner runner;
+    private final MoveCheckpoint checkpoint;
+    private final MantaLane lane;
+
+    /**
+     * Stack of source directories that were visited. Because parents are
+     * pushed before their children, popping yields the deepest first.
+     */
+    private final Deque<String> sourceDirectories = new ArrayDeque<>();
+
+    public MantaDirectoryMover(final MantaRequestDispatcher dispatcher,
+                               final Executor executor,
+                               final int concurrency,
+                               final MoveCheckpoint checkpoint) {
+        this.dispatcher = Objects.requireNonNull(dispatcher);
+        this.runner = new BoundedTaskRunner(executor, concurrency);
+        this.checkpoint = Objects.requireNonNull(checkpoint);
+        this.lane = MantaLane.current();
+    }
+
+    /**
+     * Moves the directory tree.
+     *
+     * @param from Manta path of the source directory
+     * @param to Manta path of the target directory
+     * @throws IOException thrown when any part of the move fails
+     */
+    public void move(final String from, final String to) throws IOException {
+        try {
+            moveTree(from, to);
+        } finally {
+            // Running tasks write to the checkpoint, which closes when we return
+            runner.drain();
+        }
+
+        runner.await();
+
+        while (!sourceDirectories.isEmpty()) {
+            final String dir = sourceDirectories.pop();
+            deleteIfExists(dir);
+            checkpoint.markDone(dir);
+        }
+    }
+
+    private void moveTree(final String from, final String to) throws IOException {
+        if (runner.hasFailed()) {
+            return;
+        }
+
+        if (!checkpoint.isMade(to)) {
+            dispatcher.execute(MantaOperation.PUT_DIRECTORY, to, lane, client -> {
+                client.putDirectory(to);
+                return null;
+            });
+            checkpoint.markMade(to);
+        }
+
+        sourceDirectories.push(from);
+
+        /* We descend into subdirectories only after the listing is closed so
+         * that nested listings don't hold on to connections that the object
+         * tasks need. */
+        final List<String> subdirectories = new ArrayList<>();
+
+        try (MantaDirectoryListingIterator itr = dispatcher.list(from, lane)) {
+            while (itr.hasNext()) {
+                final Map<String, Object> properties = itr.next();
+
+                if (properties == null) {
+                    continue;
+                }
+
+                final String name = Objects.toString(properties.get("name"));
+                final String type = Objects.toString(properties.get("type"));
+
+                if (MantaObject.MANTA_OBJECT_TYPE_DIRECTORY.equals(type)) {
+                    subdirectories.add(name);
+                } else {
+                    final String source = from + MantaFileSystemDriver.SEPARATOR + name;
+                    final String target = to + MantaFileSystemDriver.SEPARATOR + name;
+                    runner.submit(() -> moveObject(source, target));
+                }
+            }
+        }
+
+        for (String name : subdirectories) {
+            moveTree(from + MantaFileSystemDriver.SEPARATOR + name,
+                     to + MantaFileSystemDriver.SEPARATOR + name);
+        }
+    }
+
+    private void moveObject(final String source, final String target) throws IOException {
+        if (checkpoint.isDone(source)) {
+            return;
+        }
+
+        if (!checkpoint.isLinked(source)) {
+            dispatcher.execute(MantaOperation.PUT_SNAPLINK, target, lane, client -> {
+                client.putSnapLink(target, source, null);
+                return null;
+            });
+            checkpoint.markLinked(source);
+        }
+
+        deleteIfExists(source);
+        checkpoint.markDone(source);
+    }
+
+    private void deleteIfExists(final String path) throws IOException {
+        try {
+            dispatcher.execute(MantaOperation.DELETE, path, lane, client -> {
+                client.delete(path);
+                return null;
+            });
+        } catch (MantaClientHttpResponseException e) {
+            // Already removed by a previous attempt
+            if (e.getStatusCode() != 404) {
+                throw e;
+            }
+        }
+    }
+}
@@ -4,9 +4,11 @@ import com.joyent.manta.client.MantaClient;
 import com.joyent.manta.client.MantaDirectoryListingIterator;
 
 import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Path;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * {@link DirectoryStream} implementation that wraps a {@link MantaObjectPathIterator}
@@ -19,23 +21,92 @@ import java.util.Iterator;
 public class MantaDirectoryStream implements DirectoryStream<Path> {
     private final Path mantaPath;
     private final MantaObjectPathIterator iterator;
+    private final DirectoryStream.Filter<? super Path> filter;
 
     public MantaDirectoryStream(final Path dirPath,
                                 final MantaClient mantaClient,
                                 final MantaFileSystemDriver driver) throws IOException {
+        this(dirPath, mantaClient, driver, null);
+    }
+
+    /**
+     * Creates a stream that only returns the entries accepted by a filter.
+     * Entries are filtered as the listing is streamed, so that they are never
+     * collected. The first page of the listing is fetched before the
+     * constructor returns.
+     *
+     * @param dirPath directory to list
+     * @param mantaClient client used for the listing
+     * @param driver driver that owns the directory
+     * @param filter filter for the entries, null to return all entries
+     * @throws IOException thrown when the listing can't be started
+     */
+    public MantaDirectoryStream(final Path dirPath,
+                                final MantaClient mantaClient,
+                                final MantaFileSystemDriver driver,
+                                final DirectoryStream.Filter<? super Path> filter)
+            throws IOException {
         this.mantaPath = dirPath;
+        this.filter = filter;
         String realPath = driver.findRealPath(dirPath);
         MantaDirectoryListingIterator mantaIterator = mantaClient.streamingIterator(realPath);
         this.iterator = new MantaObjectPathIterator(mantaPath, driver, mantaIterator);
+
+        try {
+            iterator.start();
+        } catch (IOException | RuntimeException e) {
+            mantaIterator.close();
+            throw e;
+        }
     }
 
     @Override
     public Iterator<Path> iterator() {
-        return iterator;
+        if (filter == null) {
+            return iterator;
+        }
+
+        return new FilteringIterator();
     }
 
     @Override
     public void close() throws IOException {
         iterator.close();
     }
+
+    /**
+     * Iterator that reads ahead to the next entry accepted by the filter.
+     */
+    private class FilteringIterator implements Iterator<Path> {
+        private Path next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && iterator.hasNext()) {
+                final Path candidate = iterator.next();
+
+                try {
+                    if (candidate != null && filter.accept(candidate)) {
+                        next = candidate;
+                    }
+                } catch (IOException e) {
+                    throw new DirectoryIteratorException(e);
+                }
+            }
+
+            return next != null;
+        }
+
+        @Override
+        public Path next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            final Path result = next;
+            next = null;
+
+            return result;
+        }
+    }
 }
@@ -0,0 +1,177 @@
+package com.joyent.manta.fs.driver;
+
+import com.joyent.manta.client.MantaClient;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * One of the Manta front-end endpoints of a {@link MantaEndpointPool},
+ * together with the statistics the pool balances and ejects endpoints by.
+ * The statistics are updated by the pool while it holds its lock and may be
+ * read at any time.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaEndpoint {
+    /**
+     * Weight of the newest sample in the latency average.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private final String url;
+    private final MantaClientSource clientSource;
+
+    private volatile int outstanding = 0;
+    private volatile double latencyNanos = 0.0;
+    private volatile long requests = 0L;
+    private volatile long failures = 0L;
+    private volatile int consecutiveFailures = 0;
+    private volatile int ejections = 0;
+    private volatile long ejectedUntil = 0L;
+    private volatile boolean ejected = false;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param url URL of the endpoint
+     * @param clientSource source of the client connected to the endpoint
+     */
+    public MantaEndpoint(final String url, final MantaClientSource clientSource) {
+        this.url = Objects.requireNonNull(url);
+        this.clientSource = Objects.requireNonNull(clientSource);
+    }
+
+    /**
+     * @return client connected to the endpoint
+     * @throws IOException thrown when the client can't be created
+     */
+    public MantaClient getClient() throws IOException {
+        return clientSource.getClient();
+    }
+
+    MantaClientSource getClientSource() {
+        return clientSource;
+    }
+
+    void start() {
+        outstanding++;
+        requests++;
+    }
+
+    void end() {
+        outstanding--;
+    }
+
+    void recordLatency(final long nanos) {
+        latencyNanos = latencyNanos == 0.0 ? nanos
+                : latencyNanos + SMOOTHING * (nanos - latencyNanos);
+    }
+
+    /**
+     * Records a failure.
+     *
+     * @return number of failures in a row
+     */
+    int recordFailure() {
+        failures++;
+        return ++consecutiveFailures;
+    }
+
+    void recordSuccess() {
+        consecutiveFailures = 0;
+
+        // Only a request sent after re-admission shows the endpoint recovered
+        if (!ejected) {
+            ejections = 0;
+        }
+    }
+
+    /**
+     * Ejects the endpoint. The failures in a row are kept, so that a single
+     * failure after re-admission ejects the endpoint again.
+     *
+     * @param until value of {@link System#nanoTime()} at which the endpoint
+     *              may be re-admitted
+     */
+    void eject(final long until) {
+        ejected = true;
+        ejectedUntil = until;
+        ejections++;
+    }
+
+    /**
+     * Re-admits the endpoint if its ejection has ended.
+     *
+     * @param now current value of {@link System#nanoTime()}
+     * @return true if the endpoint can be selected
+     */
+    boolean readmit(final long now) {
+        if (ejected && now - ejectedUntil >= 0L) {
+            ejected = false;
+        }
+
+        return !ejected;
+    }
+
+    long getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    /**
+     * @return URL of the endpoint
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return number of requests currently sent to the endpoint
+     */
+    public int getOutstanding() {
+        return outstanding;
+    }
+
+    /**
+     * @return moving average of the latency of the endpoint, zero before
+     *         the first sample
+     */
+    public long getLatencyNanos() {
+        return (long) latencyNanos;
+    }
+
+    /**
+     * @return number of requests sent to the endpoint
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return number of requests to the endpoint that failed
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return number of times in a row the endpoint has been ejected
+     *         without recovering in between
+     */
+    public int getEjections() {
+        return ejections;
+    }
+
+    /**
+     * @return true if the endpoint is ejected and hasn't been re-admitted
+     */
+    public boolean isEjected() {
+        return ejected;
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
@@ -0,0 +1,290 @@
+package com.joyent.manta.fs.driver;
+
+import com.joyent.manta.client.MantaClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Front-end endpoints serving the same Manta namespace, between which the
+ * requests of a filesystem are spread. Each request is sent to the endpoint
+ * chosen by the {@link Balancing} policy when it leaves the
+ * {@link MantaRequestDispatcher}, so a hedged request usually goes to a
+ * different endpoint than the request it hedges.
+ *
+ * <p>An endpoint whose requests fail several times in a row, as defined by
+ * {@link MantaCircuitBreaker#isFailure(IOException)}, is ejected and gets no
+ * requests until its ejection ends. It is then re-admitted and its next
+ * request decides whether it stays. Each ejection in a row doubles the
+ * ejection time, up to ten times the base time. When every endpoint is
+ * ejected, the one whose ejection ends first is used anyway, so the pool
+ * never refuses a request.</p>
+ *
+ * <p>The pool is also the {@link MantaClientSource} of the filesystem:
+ * {@link #getClient()} returns the client of the endpoint a request would
+ * be sent to next, for the operations that use the client directly.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaEndpointPool implements MantaClientSource {
+    /**
+     * Default number of failures in a row after which an endpoint is ejected.
+     */
+    public static final int DEFAULT_EJECT_AFTER_FAILURES = 5;
+
+    /**
+     * Default milliseconds an endpoint stays ejected the first time.
+     */
+    public static final long DEFAULT_EJECT_MILLIS = 30_000L;
+
+    /**
+     * Maximum multiple of the base ejection time an endpoint is ejected for.
+     */
+    private static final int MAX_EJECTION_MULTIPLE = 10;
+
+    /**
+     * How the endpoint of a request is chosen.
+     */
+    public enum Balancing {
+        /**
+         * The endpoint with the fewest requests in flight. Ties are broken
+         * round-robin.
+         */
+        LEAST_OUTSTANDING,
+
+        /**
+         * The endpoint with the lowest average latency weighted by the
+         * requests it has in flight. Endpoints without samples are tried
+         * first.
+         */
+        LATENCY;
+
+        /**
+         * Parses a policy by name, ignoring case.
+         *
+         * @param value name of the policy
+         * @return matching policy
+         * @throws IllegalArgumentException thrown when no policy matches
+         */
+        public static Balancing parse(final String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+        }
+    }
+
+    private final List<MantaEndpoint> endpoints;
+    private final Balancing balancing;
+    private final int ejectAfterFailures;
+    private final long ejectNanos;
+    private int rotation = 0;
+
+    /**
+     * Creates a pool of a single endpoint, which is never ejected.
+     *
+     * @param clientSource source of the client of the endpoint
+     * @return new pool
+     */
+    public static MantaEndpointPool of(final MantaClientSource clientSource) {
+        if (clientSource instanceof MantaEndpointPool) {
+            return (MantaEndpointPool) clientSource;
+        }
+
+        return new MantaEndpointPool(Collections.singletonList(
+                new MantaEndpoint("default", clientSource)),
+                Balancing.LEAST_OUTSTANDING, Integer.MAX_VALUE, 0L);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param endpoints endpoints of the pool
+     * @param balancing how the endpoint of a request is chosen
+     * @param ejectAfterFailures number of failures in a row after which an
+     *                           endpoint is ejected
+     * @param ejectNanos time an endpoint stays ejected the first time
+     */
+    public MantaEndpointPool(final List<MantaEndpoint> endpoints,
+                             final Balancing balancing,
+                             final int ejectAfterFailures,
+                             final long ejectNanos) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is required");
+        }
+
+        if (ejectAfterFailures < 1) {
+            throw new IllegalArgumentException("Failures before ejection must be at least 1");
+        }
+
+        if (ejectNanos < 0L) {
+            throw new IllegalArgumentException("Ejection time must not be negative");
+        }
+
+        this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+        this.balancing = balancing;
+        this.ejectAfterFailures = ejectAfterFailures;
+        this.ejectNanos = ejectNanos;
+    }
+
+    /**
+     * Chooses the endpoint of a request and counts the request as in flight
+     * on it. Every call must be followed by a call to
+     * {@link #release(MantaEndpoint, boolean, long)}.
+     *
+     * @return endpoint to send the request to
+     */
+    public synchronized MantaEndpoint select() {
+        final MantaEndpoint endpoint = choose();
+        endpoint.start();
+
+        return endpoint;
+    }
+
+    /**
+     * Records the outcome of a request and ends it.
+     *
+     * @param endpoint endpoint returned by {@link #select()}
+     * @param failed true if the request failed, see
+     *               {@link MantaCircuitBreaker#isFailure(IOException)}
+     * @param latencyNanos time the request took, or a negative number when
+     *                     it isn't representative of the endpoint's latency
+     */
+    public synchronized void release(final MantaEndpoint endpoint,
+                                     final boolean failed,
+                                     final long latencyNanos) {
+        endpoint.end();
+
+        if (failed) {
+            /* Requests that were in flight when the endpoint was ejected
+             * don't extend the ejection. */
+            if (endpoint.recordFailure() >= ejectAfterFailures && endpoints.size() > 1
+                    && !endpoint.isEjected()) {
+                final int multiple = Math.min(MAX_EJECTION_MULTIPLE,
+                        1 << Math.min(endpoint.getEjections(), 4));
+                endpoint.eject(System.nanoTime() + ejectNanos * multiple);
+            }
+
+            return;
+        }
+
+        endpoint.recordSuccess();
+
+        if (latencyNanos >= 0L) {
+            endpoint.recordLatency(latencyNanos);
+        }
+    }
+
+    private MantaEndpoint choose() {
+        final int size = endpoints.size();
+
+        if (size == 1) {
+            return endpoints.get(0);
+        }
+
+        final long now = System.nanoTime();
+        final int first = rotation;
+        rotation = (rotation + 1) % size;
+
+        MantaEndpoint best = null;
+        double bestScore = Double.MAX_VALUE;
+
+        for (int i = 0; i < size; i++) {
+            final MantaEndpoint endpoint = endpoints.get((first + i) % size);
+
+            if (!endpoint.readmit(now)) {
+                continue;
+            }
+
+            final double score = balancing == Balancing.LATENCY
+                    ? endpoint.getLatencyNanos() * (endpoint.getOutstanding() + 1.0)
+                    : endpoint.getOutstanding();
+
+            if (score < bestScore) {
+                best = endpoint;
+                bestScore = score;
+            }
+        }
+
+        if (best != null) {
+            return best;
+        }
+
+        // Everything is ejected, so use the endpoint that comes back first
+        for (MantaEndpoint endpoint : endpoints) {
+            if (best == null || endpoint.getEjectedUntil() - best.getEjectedUntil() < 0L) {
+                best = endpoint;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @return client of the endpoint a request would be sent to next
+     * @throws IOException thrown when the client can't be created
+     */
+    @Override
+    public MantaClient getClient() throws IOException {
+        final MantaEndpoint endpoint;
+
+        synchronized (this) {
+            endpoint = choose();
+        }
+
+        return endpoint.getClient();
+    }
+
+    @Override
+    public boolean isCreated() {
+        for (MantaEndpoint endpoint : endpoints) {
+            if (endpoint.getClientSource().isCreated()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Closes the client sources of all endpoints.
+     *
+     * @throws IOException thrown when a source fails to close, after all
+     *                     sources have been closed
+     */
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+
+        for (MantaEndpoint endpoint : endpoints) {
+            try {
+                endpoint.getClientSource().close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * @return endpoints of the pool
+     */
+    public List<MantaEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return how the endpoint of a request is chosen
+     */
+    public Balancing getBalancing() {
+        return balancing;
+    }
+}
@@ -0,0 +1,51 @@
+package com.joyent.manta.fs.driver;
+
+/**
+ * Flight recorder event of a driver operation. This is the variant for
+ * runtimes without JDK Flight Recorder, which records nothing; the jar
+ * contains a variant for Java 11 and later under
+ * <code>META-INF/versions/11</code>.
+ *
+ * <p>Callers create an event on the stack, call {@link #begin()} and end
+ * with {@link #finish(String, String, long)}. Nothing escapes unless the
+ * event is committed, so the JIT removes the event when it is disabled.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+final class MantaEvent {
+    /**
+     * HTTP status of the error response that failed the operation, or 0.
+     */
+    int status;
+
+    /**
+     * Number of requests sent for the operation, counting hedges, or 0
+     * when they weren't counted.
+     */
+    int attempts;
+
+    /**
+     * Starts timing the operation.
+     */
+    void begin() {
+    }
+
+    /**
+     * @return true if the event will be recorded, so that extra work to fill
+     *         it in is worth doing
+     */
+    boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * Stops timing the operation and records the event.
+     *
+     * @param operation name of the operation
+     * @param path Manta path of the object
+     * @param bytes number of bytes transferred, or 0
+     */
+    void finish(final String operation, final String path, final long bytes) {
+    }
+}
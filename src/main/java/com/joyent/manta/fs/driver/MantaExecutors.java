@@ -0,0 +1,253 @@
+package com.joyent.manta.fs.driver;
+
+import com.joyent.manta.fs.util.DroppableTask;
+
+import java.io.Closeable;
+import java.nio.file.ClosedFileSystemException;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors of a single filesystem. Each executor is created on first use,
+ * so that filesystems that never run a parallel operation don't start any
+ * threads, and all of them are shut down when the filesystem is closed.
+ *
+ * <p>In {@link ExecutionMode#PLATFORM} mode parallel operations run on a
+ * cached pool and asynchronous channels on a fixed pool. In
+ * {@link ExecutionMode#VIRTUAL} mode both start a virtual thread per task,
+ * and concurrency is only bound by the callers and by the in-flight
+ * permits of the {@link MantaRequestDispatcher}.</p>
+ *
+ * <p>Closing interrupts the running tasks and drops the queued ones. Queued
+ * tasks that are {@link DroppableTask}s, and the futures returned by
+ * <code>submit</code>, fail with a {@link ClosedFileSystemException}
+ * instead of never completing.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaExecutors implements Closeable {
+    private final ExecutionMode mode;
+    private final int asyncThreads;
+
+    private ExecutorService workers;
+    private ExecutorService async;
+    private ScheduledExecutorService scheduler;
+    private boolean closed = false;
+
+    /**
+     * Creates the executors of a filesystem.
+     *
+     * @param requested requested mode, {@link ExecutionMode#VIRTUAL} falls
+     *                  back to {@link ExecutionMode#PLATFORM} when the
+     *                  runtime doesn't support virtual threads
+     * @param asyncThreads number of platform threads that run the requests
+     *                     of asynchronous channels
+     */
+    public MantaExecutors(final ExecutionMode requested, final int asyncThreads) {
+        if (asyncThreads < 1) {
+            throw new IllegalArgumentException("Async threads must be at least 1");
+        }
+
+        this.mode = requested.isSupported() ? requested : ExecutionMode.PLATFORM;
+        this.asyncThreads = asyncThreads;
+    }
+
+    /**
+     * @return mode actually used, which differs from the requested mode
+     *         when virtual threads aren't supported
+     */
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return executor used to run parallel operations
+     */
+    public synchronized ExecutorService getWorkers() {
+        if (workers == null) {
+            workers = newExecutor("manta-nio-worker-", 0);
+        }
+
+        return workers;
+    }
+
+    /**
+     * @return executor that runs the requests of asynchronous channels
+     */
+    public synchronized ExecutorService getAsync() {
+        if (async == null) {
+            async = newExecutor("manta-nio-async-", asyncThreads);
+        }
+
+        return async;
+    }
+
+    /**
+     * @return single platform thread that runs delayed background tasks,
+     *         such as the probes of the circuit breaker
+     */
+    public synchronized ScheduledExecutorService getScheduler() {
+        if (closed) {
+            throw new IllegalStateException("Executors have been shut down");
+        }
+
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(
+                    newThreadFactory("manta-nio-scheduler-"));
+        }
+
+        return scheduler;
+    }
+
+    private ExecutorService newExecutor(final String prefix, final int threads) {
+        if (closed) {
+            throw new IllegalStateException("Executors have been shut down");
+        }
+
+        final ExecutorService executor;
+
+        if (mode == ExecutionMode.VIRTUAL) {
+            executor = VirtualThreads.newThreadPerTaskExecutor(prefix);
+        } else if (threads > 0) {
+            executor = Executors.newFixedThreadPool(threads, newThreadFactory(prefix));
+        } else {
+            executor = Executors.newCachedThreadPool(newThreadFactory(prefix));
+        }
+
+        return new DroppingExecutorService(executor);
+    }
+
+    /**
+     * Creates a factory of daemon platform threads.
+     *
+     * @param prefix prefix of the thread names
+     * @return new thread factory
+     */
+    public static ThreadFactory newThreadFactory(final String prefix) {
+        final AtomicInteger count = new AtomicInteger();
+
+        return runnable -> {
+            final Thread thread = new Thread(runnable,
+                    prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Interrupts running tasks, fails the queued ones and shuts down all
+     * executors.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+
+        if (async != null) {
+            async.shutdownNow();
+        }
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Executor that fails the tasks it drops when it is shut down.
+     */
+    private static final class DroppingExecutorService extends AbstractExecutorService {
+        private final ExecutorService delegate;
+
+        DroppingExecutorService(final ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(final Runnable runnable, final T value) {
+            return new DroppableFuture<>(runnable, value);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(final Callable<T> callable) {
+            return new DroppableFuture<>(callable);
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            delegate.execute(command);
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            final List<Runnable> dropped = delegate.shutdownNow();
+
+            for (Runnable task : dropped) {
+                if (task instanceof DroppableTask) {
+                    ((DroppableTask) task).drop(new ClosedFileSystemException());
+                }
+            }
+
+            return dropped;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit)
+                throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+
+    /**
+     * Future of a submitted task, which fails when the task is dropped.
+     */
+    private static final class DroppableFuture<T> extends FutureTask<T> implements DroppableTask {
+        private final Object task;
+
+        DroppableFuture(final Runnable runnable, final T value) {
+            super(runnable, value);
+            this.task = runnable;
+        }
+
+        DroppableFuture(final Callable<T> callable) {
+            super(callable);
+            this.task = callable;
+        }
+
+        @Override
+        public void drop(final Exception reason) {
+            setException(reason);
+
+            if (task instanceof DroppableTask) {
+                ((DroppableTask) task).drop(reason);
+            }
+        }
+    }
+}
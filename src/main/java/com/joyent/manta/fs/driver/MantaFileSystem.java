@@ -2,7 +2,6 @@ package com.joyent.manta.fs.driver;
 
 import com.joyent.manta.fs.util.ImmutableCollector;
 import com.github.fge.filesystem.attributes.FileAttributesFactory;
-import com.github.fge.filesystem.driver.FileSystemDriver;
 import com.github.fge.filesystem.path.matchers.PathMatcherFactory;
 import com.github.fge.filesystem.provider.FileSystemFactoryProvider;
 import com.github.fge.filesystem.provider.FileSystemRepository;
@@ -30,6 +29,7 @@ public class MantaFileSystem extends FileSystem {
     private final FileSystemProvider provider;
     private final PathMatcherFactory pathMatcherFactory;
     private final FileAttributesFactory attributesFactory;
+    private final MantaPath.Context pathContext;
 
 
     /**
@@ -53,13 +53,15 @@ public class MantaFileSystem extends FileSystem {
                 = repository.getFactoryProvider();
         pathMatcherFactory = factoryProvider.getPathMatcherFactory();
         attributesFactory = factoryProvider.getAttributesFactory();
+        pathContext = new MantaPath.Context(this, driver.getClientSource(),
+                driver.getHomeDirectory());
     }
 
     public URI getUri() {
         return uri;
     }
 
-    public FileSystemDriver getDriver() {
+    public MantaFileSystemDriver getDriver() {
         return driver;
     }
 
@@ -104,10 +106,7 @@ public class MantaFileSystem extends FileSystem {
 
     @Override
     public Iterable<Path> getRootDirectories() {
-        final Path rootPath = MantaPath.rootDirectory(
-                this,
-                driver.getMantaClient(),
-                driver.getConfig().getMantaHomeDirectory());
+        final Path rootPath = MantaPath.rootDirectory(pathContext);
 
         return Collections.singletonList(rootPath);
     }
@@ -129,8 +128,7 @@ public class MantaFileSystem extends FileSystem {
 
     @Override
     public Path getPath(final String first, final String... more) {
-        return new MantaPath(first, this, driver.getMantaClient(),
-                driver.getConfig().getMantaHomeDirectory(), more);
+        return new MantaPath(pathContext, first, more);
     }
 
     @Override
@@ -147,6 +145,14 @@ public class MantaFileSystem extends FileSystem {
             arg = syntaxAndPattern.substring(index + 1);
         }
 
+        if ("glob".equalsIgnoreCase(type)) {
+            final MantaPathMatcher matcher = MantaPathMatcher.compileStandard(arg);
+
+            if (matcher != null) {
+                return matcher;
+            }
+        }
+
         return pathMatcherFactory.getPathMatcher(type, arg);
     }
 
@@ -4,22 +4,39 @@ import com.joyent.manta.fs.config.ConfigContext;
 import com.github.fge.filesystem.driver.UnixLikeFileSystemDriverBase;
 import com.github.fge.filesystem.provider.FileSystemFactoryProvider;
 import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaHttpHeaders;
 import com.joyent.manta.client.MantaObject;
+import com.joyent.manta.client.MantaSeekableByteChannel;
 import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.exception.MantaErrorCode;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import com.joyent.manta.org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.ParametersAreNonnullByDefault;
+import javax.management.JMException;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.*;
 import java.nio.file.attribute.FileAttribute;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Elijah Zupancic
@@ -31,17 +48,204 @@ public class MantaFileSystemDriver extends UnixLikeFileSystemDriverBase {
     public static final String SEPARATOR = new String(new char[] { SEPARATOR_CHAR });
     public static final String HOME_DIR_ALIAS = "~~";
 
-    protected final MantaClient mantaClient;
+    /**
+     * Number of objects processed concurrently by tree operations when
+     * the configuration doesn't specify a maximum number of connections.
+     */
+    public static final int DEFAULT_CONCURRENCY = 24;
+
+    /**
+     * Number of bytes fetched by each ranged request when copying an object
+     * between two different Manta filesystems.
+     */
+    public static final int CROSS_COPY_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * Maximum number of chunks in flight per object when copying between
+     * two different Manta filesystems, which bounds the memory used by a
+     * copy to <code>CROSS_COPY_WINDOW * CROSS_COPY_CHUNK_SIZE</code>.
+     */
+    public static final int CROSS_COPY_WINDOW = 8;
+
     protected final ConfigContext config;
 
+    /**
+     * Normalized home directory of the configured user, resolved once so
+     * that paths don't look it up in the configuration.
+     */
+    private final String homeDirectory;
+
+    /**
+     * Threads used for parallel operations and asynchronous channels,
+     * shut down when the driver is closed.
+     */
+    private final MantaExecutors executors;
+
+    /**
+     * Sends all requests of the driver, limiting how many are in flight.
+     */
+    private final MantaRequestDispatcher dispatcher;
+
+    /**
+     * Sends idempotent requests, hedging them when enabled.
+     */
+    private final MantaRequestHedger hedger;
+
+    /**
+     * Number of consecutive attempts read streams make to resume.
+     */
+    private final int readRetries;
+
+    /**
+     * Wait before the first attempt of a read stream to resume.
+     */
+    private final long readRetryBackoffMillis;
+
+    /**
+     * Source of the client. The client may be created on first use and may
+     * be shared with other drivers, in which case closing the source only
+     * closes the client when the last of them releases it.
+     */
+    private final MantaClientSource clientSource;
+
+    /**
+     * Exposes the metrics of the driver over JMX.
+     */
+    private final MantaFileSystemMonitor monitor;
+
+    /**
+     * Whether {@link #registerMBean(String)} registers the monitor.
+     */
+    private final boolean jmx;
 
     public MantaFileSystemDriver(final ConfigContext config,
                                  final FileStore fileStore,
                                  final FileSystemFactoryProvider provider,
                                  final MantaClient mantaClient) {
+        this(config, fileStore, provider, MantaClientSource.of(mantaClient));
+    }
+
+    /**
+     * Creates a driver whose client comes from a source, which is closed
+     * when the driver is closed.
+     *
+     * @param config filesystem configuration
+     * @param fileStore file store of the filesystem
+     * @param provider factory provider of the filesystem
+     * @param clientSource source of the client used for all requests
+     */
+    public MantaFileSystemDriver(final ConfigContext config,
+                                 final FileStore fileStore,
+                                 final FileSystemFactoryProvider provider,
+                                 final MantaClientSource clientSource) {
+        this(config, fileStore, provider, clientSource, MantaNioSettings.defaults());
+    }
+
+    /**
+     * Creates a driver tuned by the <code>manta.nio.*</code> settings of
+     * the environment map.
+     *
+     * @param config filesystem configuration
+     * @param fileStore file store of the filesystem
+     * @param provider factory provider of the filesystem
+     * @param clientSource source of the client used for all requests
+     * @param settings driver settings, see {@link MantaNioSettings}
+     */
+    public MantaFileSystemDriver(final ConfigContext config,
+                                 final FileStore fileStore,
+                                 final FileSystemFactoryProvider provider,
+                                 final MantaClientSource clientSource,
+                                 final MantaNioSettings settings) {
         super(fileStore, provider);
         this.config = config;
-        this.mantaClient = mantaClient;
+        this.clientSource = Objects.requireNonNull(clientSource);
+        this.homeDirectory = resolveHomeDirectory(config);
+
+        final int concurrency = getDefaultConcurrency();
+        this.executors = new MantaExecutors(settings.getExecutionMode(), concurrency);
+        this.dispatcher = new MantaRequestDispatcher(clientSource,
+                newConcurrencyLimit(settings, concurrency), newBandwidthLimiters(settings),
+                newCircuitBreaker(settings));
+        this.hedger = new MantaRequestHedger(dispatcher, executors,
+                settings.getBoolean(MantaNioSettings.HEDGING_KEY, false),
+                settings.getDouble(MantaNioSettings.HEDGE_PERCENTILE_KEY,
+                        MantaRequestHedger.DEFAULT_PERCENTILE),
+                TimeUnit.MILLISECONDS.toNanos(
+                        settings.getLong(MantaNioSettings.HEDGE_MIN_DELAY_KEY, 0L)),
+                settings.getDouble(MantaNioSettings.HEDGE_BUDGET_KEY,
+                        MantaRequestHedger.DEFAULT_BUDGET_RATIO));
+        this.readRetries = settings.getInt(MantaNioSettings.READ_RETRIES_KEY,
+                ResumableInputStream.DEFAULT_MAX_RETRIES);
+        this.readRetryBackoffMillis = settings.getLong(MantaNioSettings.READ_RETRY_BACKOFF_KEY,
+                ResumableInputStream.DEFAULT_BACKOFF_MILLIS);
+        this.monitor = new MantaFileSystemMonitor(dispatcher, hedger);
+        this.jmx = settings.getBoolean(MantaNioSettings.JMX_KEY, true);
+    }
+
+    private static MantaConcurrencyLimit newConcurrencyLimit(final MantaNioSettings settings,
+                                                             final int concurrency) {
+        final int max = settings.getInt(MantaNioSettings.MAX_IN_FLIGHT_KEY, concurrency);
+
+        final Map<MantaLane, Integer> weights = settings.getLaneWeights();
+
+        if (!settings.getBoolean(MantaNioSettings.ADAPTIVE_CONCURRENCY_KEY, true)) {
+            return new FixedConcurrencyLimit(max, weights);
+        }
+
+        final int min = settings.getInt(MantaNioSettings.MIN_IN_FLIGHT_KEY, 1);
+        return new AimdConcurrencyLimit(max, Math.min(min, max), max,
+                AimdConcurrencyLimit.DEFAULT_BACKOFF_RATIO,
+                AimdConcurrencyLimit.DEFAULT_LATENCY_TOLERANCE, weights);
+    }
+
+    private MantaCircuitBreaker newCircuitBreaker(final MantaNioSettings settings) {
+        final int window = settings.getInt(MantaNioSettings.CIRCUIT_WINDOW_KEY,
+                MantaCircuitBreaker.DEFAULT_WINDOW);
+        final String home = homeDirectory;
+
+        // The probe skips the breaker and the limit, which would hold it back
+        return new MantaCircuitBreaker(
+                settings.getBoolean(MantaNioSettings.CIRCUIT_BREAKER_KEY, true),
+                settings.getDouble(MantaNioSettings.CIRCUIT_FAILURE_RATE_KEY,
+                        MantaCircuitBreaker.DEFAULT_FAILURE_RATE),
+                settings.getDouble(MantaNioSettings.CIRCUIT_SLOW_CALL_RATE_KEY,
+                        MantaCircuitBreaker.DEFAULT_SLOW_CALL_RATE),
+                TimeUnit.MILLISECONDS.toNanos(settings.getLong(
+                        MantaNioSettings.CIRCUIT_SLOW_CALL_KEY,
+                        MantaCircuitBreaker.DEFAULT_SLOW_CALL_MILLIS)),
+                window,
+                Math.min(window, settings.getInt(MantaNioSettings.CIRCUIT_MINIMUM_CALLS_KEY,
+                        MantaCircuitBreaker.DEFAULT_MINIMUM_CALLS)),
+                TimeUnit.MILLISECONDS.toNanos(settings.getLong(
+                        MantaNioSettings.CIRCUIT_OPEN_KEY,
+                        MantaCircuitBreaker.DEFAULT_OPEN_MILLIS)),
+                executors,
+                () -> clientSource.getClient().head(home));
+    }
+
+    private static Map<MantaLane, BandwidthLimiter> newBandwidthLimiters(
+            final MantaNioSettings settings) {
+        final Map<MantaLane, BandwidthLimiter> limiters = new EnumMap<>(MantaLane.class);
+
+        for (Map.Entry<MantaLane, Long> cap : settings.getLaneBandwidth().entrySet()) {
+            limiters.put(cap.getKey(), new BandwidthLimiter(cap.getValue()));
+        }
+
+        return limiters;
+    }
+
+    private static String resolveHomeDirectory(final ConfigContext config) {
+        String home = config.getMantaHomeDirectory();
+
+        if (home == null) {
+            home = com.joyent.manta.config.ConfigContext.deriveHomeDirectoryFromUser(
+                    config.getMantaUser());
+        }
+
+        final String normalized = FilenameUtils.normalizeNoEndSeparator(
+                StringUtils.stripStart(home, SEPARATOR), true);
+
+        return SEPARATOR + normalized;
     }
 
     @Nonnull
@@ -50,7 +254,63 @@ public class MantaFileSystemDriver extends UnixLikeFileSystemDriverBase {
                                       final Set<OpenOption> options)
             throws IOException {
         final String target = findRealPath(path);
-        return mantaClient.getAsInputStream(target);
+        final MantaLane lane = MantaLane.from(options);
+        final MantaEvent event = new MantaEvent();
+        event.begin();
+        final long start = System.nanoTime();
+
+        long bytes = 0L;
+
+        try {
+            final ResumableInputStream in = openStream(target, 0L, lane);
+            bytes = Math.max(0L, in.getContentLength());
+            return dispatcher.throttle(lane, in);
+        } catch (IOException e) {
+            event.status = MantaRequestDispatcher.statusOf(e);
+            throw e;
+        } finally {
+            dispatcher.getMetrics().recordAction(MantaMetrics.Action.NEW_INPUT_STREAM,
+                    System.nanoTime() - start);
+            event.finish(MantaMetrics.Action.NEW_INPUT_STREAM.name(), target, bytes);
+        }
+    }
+
+    /**
+     * Opens an object for reading with a stream that resumes from where it
+     * left off when the connection fails. See {@link ResumableInputStream}.
+     *
+     * @param path Manta path of the object
+     * @param offset number of bytes to skip at the start of the object
+     * @param lane priority lane of the stream's requests
+     * @return new stream
+     * @throws IOException thrown when the object can't be opened
+     */
+    public ResumableInputStream openStream(final String path, final long offset,
+                                           final MantaLane lane)
+            throws IOException {
+        return openStream(path, offset, null, lane);
+    }
+
+    /**
+     * Opens an object for reading like {@link #openStream(String, long, MantaLane)},
+     * checking that the object still has the ETag of an earlier read.
+     *
+     * @param path Manta path of the object
+     * @param offset number of bytes to skip at the start of the object
+     * @param expectedEtag ETag of the object when the bytes before the
+     *                     offset were read, or null to accept any ETag
+     * @param lane priority lane of the stream's requests
+     * @return new stream
+     * @throws ResumableInputStream.ObjectChangedException thrown when the
+     *         object no longer has the expected ETag
+     * @throws IOException thrown when the object can't be opened
+     */
+    public ResumableInputStream openStream(final String path, final long offset,
+                                           final String expectedEtag,
+                                           final MantaLane lane)
+            throws IOException {
+        return new ResumableInputStream(ResumableInputStream.opener(hedger, path, lane),
+                path, offset, expectedEtag, readRetries, readRetryBackoffMillis);
     }
 
     @Nonnull
@@ -59,7 +319,10 @@ public class MantaFileSystemDriver extends UnixLikeFileSystemDriverBase {
                                         final Set<OpenOption> options)
             throws IOException {
         final String target = findRealPath(path);
-        return mantaClient.putAsOutputStream(target);
+        final MantaLane lane = MantaLane.from(options);
+        final OutputStream out = dispatcher.execute(MantaOperation.PUT, target, lane,
+                client -> client.putAsOutputStream(target));
+        return dispatcher.throttle(lane, out);
     }
 
     @Nonnull
@@ -67,35 +330,122 @@ public class MantaFileSystemDriver extends UnixLikeFileSystemDriverBase {
     public DirectoryStream<Path> newDirectoryStream(final Path dir,
                                                     final DirectoryStream.Filter<? super Path> filter)
             throws IOException {
-        return new MantaDirectoryStream(dir, mantaClient, this);
+        return dispatcher.execute(MantaOperation.LIST, findRealPath(dir),
+                client -> new MantaDirectoryStream(dir, client, this, filter));
     }
 
     @Override
     public void createDirectory(final Path dir, final FileAttribute<?>... attrs)
             throws IOException {
         final String target = findRealPath(dir);
-        mantaClient.putDirectory(target, null);
+        final MantaEvent event = new MantaEvent();
+        event.begin();
+
+        try {
+            dispatcher.execute(MantaOperation.PUT_DIRECTORY, target, counted(event, client -> {
+                client.putDirectory(target, null);
+                return null;
+            }));
+        } catch (IOException e) {
+            event.status = MantaRequestDispatcher.statusOf(e);
+            throw e;
+        } finally {
+            event.finish(MantaOperation.PUT_DIRECTORY.name(), target, 0L);
+        }
     }
 
     @Override
     public void delete(final Path path) throws IOException {
         final String target = findRealPath(path);
-        mantaClient.deleteRecursive(target);
+        final MantaEvent event = new MantaEvent();
+        event.begin();
+
+        try {
+            // The time of a recursive delete depends on the size of the tree
+            dispatcher.executeUntimed(MantaOperation.DELETE, target, MantaLane.current(),
+                    counted(event, client -> {
+                        client.deleteRecursive(target);
+                        return null;
+                    }));
+        } catch (IOException e) {
+            event.status = MantaRequestDispatcher.statusOf(e);
+            throw e;
+        } finally {
+            event.finish(MantaOperation.DELETE.name(), target, 0L);
+        }
     }
 
     @Override
     public void copy(Path source, Path target, Set<CopyOption> options) throws IOException {
+        final MantaEvent event = new MantaEvent();
+        event.begin();
+        final long start = System.nanoTime();
+        long bytes = 0L;
+
+        try (MantaLane.Scope ignored = MantaLane.from(options).enter()) {
+            bytes = copyInLane(source, target, options);
+        } catch (IOException e) {
+            event.status = MantaRequestDispatcher.statusOf(e);
+            throw e;
+        } finally {
+            dispatcher.getMetrics().recordAction(MantaMetrics.Action.COPY,
+                    System.nanoTime() - start);
+            event.finish(MantaMetrics.Action.COPY.name(), mantaSideOf(source, target), bytes);
+        }
+    }
+
+    /**
+     * Finds the Manta path that a copy is recorded under, which is the
+     * target when it is on Manta and otherwise the source.
+     *
+     * @param source source of the copy
+     * @param target target of the copy
+     * @return Manta path of the copy
+     */
+    private String mantaSideOf(final Path source, final Path target) {
+        if (target instanceof MantaPath) {
+            return ((MantaPath) target).absolutePathString();
+        } else if (source instanceof MantaPath) {
+            return ((MantaPath) source).absolutePathString();
+        }
+
+        return target.toString();
+    }
+
+    /**
+     * @return number of bytes copied, or 0 when unknown
+     */
+    private long copyInLane(Path source, Path target, Set<CopyOption> options) throws IOException {
         if (isMantaPath(source) && isMantaPath(target)) {
-            copyFromMantaFileToMantaFile(source, target, options);
+            return copyFromMantaFileToMantaFile(source, target, options);
         } else if (!isMantaPath(source) && isMantaPath(target)) {
-            copyFromAnyPathToMantaFile(source, target, options);
+            return copyFromAnyPathToMantaFile(source, target, options);
         } else if (isMantaPath(source) && !isMantaPath(target)) {
-            copyFromMantaFileToAnyPath(source, target, options);
+            return copyFromMantaFileToAnyPath(source, target, options);
         } else {
             CopyOption[] copyOptions = new CopyOption[options.size()];
             options.toArray(copyOptions);
             Files.copy(source, target, copyOptions);
+            return 0L;
+        }
+    }
+
+    /**
+     * Finds the driver that backs a path on a Manta filesystem.
+     *
+     * @param path path belonging to a {@link MantaFileSystem}
+     * @return driver for the path's filesystem
+     * @throws ProviderMismatchException thrown when the path isn't a Manta path
+     */
+    public static MantaFileSystemDriver fromPath(final Path path) {
+        final FileSystem fileSystem = Objects.requireNonNull(path).getFileSystem();
+
+        if (!(fileSystem instanceof MantaFileSystem)) {
+            throw new ProviderMismatchException(String.format(
+                    "Path doesn't belong to a Manta filesystem: %s", path));
         }
+
+        return ((MantaFileSystem) fileSystem).getDriver();
     }
 
     public boolean isMantaPath(final Path path) {
@@ -108,42 +458,336 @@ public class MantaFileSystemDriver extends UnixLikeFileSystemDriverBase {
         }
     }
 
-    protected void copyFromMantaFileToAnyPath(Path source, Path target, Set<CopyOption> options) throws IOException {
+    protected long copyFromMantaFileToAnyPath(Path source, Path target, Set<CopyOption> options) throws IOException {
         final String from = findRealPath(source);
 
-        try (InputStream is = mantaClient.getAsInputStream(from)) {
-            Files.copy(is, target);
+        if (!options.contains(StandardCopyOption.REPLACE_EXISTING) && Files.exists(target)) {
+            throw new FileAlreadyExistsException(target.toString());
         }
+
+        return download(from, target, 0L);
     }
 
-    protected void copyFromAnyPathToMantaFile(Path source, Path target, Set<CopyOption> options) throws IOException {
+    /**
+     * Downloads a Manta object to a path on any filesystem. When an offset is
+     * specified, only the bytes from the offset onwards are requested (using
+     * a ranged request) and they are appended to the existing target, which
+     * allows an interrupted download to resume from its partial length.
+     * Connection failures during the download are resumed in place.
+     *
+     * @param from Manta path of the object to download
+     * @param target path to write to
+     * @param offset number of bytes already present in the target
+     * @return number of bytes written to the target
+     * @throws IOException thrown when the object can't be downloaded
+     */
+    public long download(final String from, final Path target, final long offset)
+            throws IOException {
+        return download(from, target, offset, null);
+    }
+
+    /**
+     * Downloads a Manta object like {@link #download(String, Path, long)},
+     * checking that the object still has the ETag it had when the bytes
+     * already present in the target were downloaded. The target is left
+     * untouched when it doesn't.
+     *
+     * @param from Manta path of the object to download
+     * @param target path to write to
+     * @param offset number of bytes already present in the target
+     * @param expectedEtag ETag of the object that the target holds the
+     *                     start of, or null to accept any ETag
+     * @return number of bytes written to the target
+     * @throws ResumableInputStream.ObjectChangedException thrown when the
+     *         object no longer has the expected ETag
+     * @throws IOException thrown when the object can't be downloaded
+     */
+    public long download(final String from, final Path target, final long offset,
+                         final String expectedEtag)
+            throws IOException {
+        final MantaLane lane = MantaLane.current();
+
+        if (offset <= 0) {
+            try (InputStream is = dispatcher.throttle(lane,
+                    openStream(from, 0L, expectedEtag, lane))) {
+                return Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        try (InputStream is = dispatcher.throttle(lane,
+                openStream(from, offset, expectedEtag, lane));
+             OutputStream os = Files.newOutputStream(target,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            return IOUtils.copyLarge(is, os);
+        }
+    }
+
+    protected long copyFromAnyPathToMantaFile(Path source, Path target, Set<CopyOption> options) throws IOException {
         final String to = findRealPath(target);
 
-        try (InputStream fs = Files.newInputStream(source);
-             InputStream is = new BufferedInputStream(fs)) {
+        try (CountingInputStream fs = new CountingInputStream(Files.newInputStream(source));
+             InputStream is = new BufferedInputStream(
+                     dispatcher.throttleUpload(MantaLane.current(), fs))) {
 
-            mantaClient.put(to, is);
+            dispatcher.execute(MantaOperation.PUT, to, client -> client.put(to, is));
+            return fs.getByteCount();
         }
     }
 
-    protected void copyFromMantaFileToMantaFile(Path source, Path target, Set<CopyOption> options) throws IOException {
+    protected long copyFromMantaFileToMantaFile(Path source, Path target, Set<CopyOption> options) throws IOException {
+        final MantaFileSystemDriver targetDriver = fromPath(target);
+
+        if (!isSameStore(targetDriver)) {
+            return copyAcrossFileSystems(source, target, targetDriver, options);
+        }
+
         final String from = findRealPath(source);
         final String link = findRealPath(target);
 
-        MantaObject sourceObject = mantaClient.head(from);
+        MantaObject sourceObject = head(from);
 
         if (sourceObject.isDirectory()) {
             // TODO: Write directory copy logic
             throw new UnsupportedOperationException("Implement me");
-        } else {
-            mantaClient.putSnapLink(link, from, null);
         }
+
+        putSnapLink(link, from);
+
+        final Long size = sourceObject.getContentLength();
+        return size == null ? 0L : size;
+    }
+
+    /**
+     * Copies an object to a Manta filesystem that belongs to a different
+     * account or endpoint, where a snaplink can't be used. The object is read
+     * with parallel ranged requests whose chunks are streamed in order into
+     * a single upload, so nothing is staged on local disk.
+     *
+     * @param source Manta path on this filesystem
+     * @param target Manta path on the other filesystem
+     * @param targetDriver driver of the target's filesystem
+     * @param options copy options that may contain Manta specific options
+     * @return number of bytes copied
+     * @throws IOException thrown when the copy fails
+     */
+    protected long copyAcrossFileSystems(Path source, Path target,
+                                         MantaFileSystemDriver targetDriver,
+                                         Set<CopyOption> options) throws IOException {
+        final String from = findRealPath(source);
+        final String to = targetDriver.findRealPath(target);
+        final MantaRequestDispatcher targetDispatcher = targetDriver.getDispatcher();
+        final MantaLane lane = MantaLane.current();
+
+        if (!options.contains(StandardCopyOption.REPLACE_EXISTING)
+                && targetDriver.exists(to)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+
+        final MantaObject sourceObject = head(from);
+
+        if (sourceObject.isDirectory()) {
+            targetDispatcher.execute(MantaOperation.PUT_DIRECTORY, to, lane, client -> {
+                client.putDirectory(to);
+                return null;
+            });
+            return 0L;
+        }
+
+        final Long size = sourceObject.getContentLength();
+        final MantaHttpHeaders headers = new MantaHttpHeaders();
+        headers.setContentType(sourceObject.getContentType());
+
+        if (size == null || size <= CROSS_COPY_CHUNK_SIZE) {
+            try (CountingInputStream is = new CountingInputStream(
+                    targetDispatcher.throttleUpload(lane, hedger.execute(MantaOperation.GET,
+                            from, lane, client -> client.getAsInputStream(from))))) {
+                targetDispatcher.execute(MantaOperation.PUT, to, lane,
+                        client -> client.put(to, is, headers));
+                return is.getByteCount();
+            }
+        }
+
+        final MantaCopyOptions.ConcurrencyOption concurrencyOption =
+                MantaCopyOptions.find(options, MantaCopyOptions.ConcurrencyOption.class);
+        final int window = concurrencyOption == null ?
+                Math.min(CROSS_COPY_WINDOW, getDefaultConcurrency())
+                : concurrencyOption.getConcurrency();
+
+        headers.setContentLength(size);
+
+        try (InputStream is = targetDispatcher.throttleUpload(lane,
+                new ParallelRangeInputStream(dispatcher, from, sourceObject.getEtag(),
+                        size, CROSS_COPY_CHUNK_SIZE, window, getExecutor()))) {
+            targetDispatcher.execute(MantaOperation.PUT, to, lane,
+                    client -> client.put(to, is, headers));
+        }
+
+        return size;
+    }
+
+    /**
+     * Checks if another driver stores its objects in the same place as this
+     * driver, in which case server side operations like snaplinks work
+     * between them.
+     *
+     * @param other driver to compare to
+     * @return true if both drivers use the same endpoint and account
+     */
+    public boolean isSameStore(final MantaFileSystemDriver other) {
+        if (other == this) {
+            return true;
+        }
+
+        return Objects.equals(config.getMantaURL(), other.config.getMantaURL())
+                && Objects.equals(config.getMantaUser(), other.config.getMantaUser());
     }
 
     @Override
     public void move(Path source, Path target, Set<CopyOption> options) throws IOException {
-        copy(source, target, options);
-        delete(source);
+        try (MantaLane.Scope ignored = MantaLane.from(options).enter()) {
+            moveInLane(source, target, options);
+        }
+    }
+
+    private void moveInLane(Path source, Path target, Set<CopyOption> options) throws IOException {
+        if (!isMantaPath(source) || !isMantaPath(target)
+                || !isSameStore(fromPath(target))) {
+            moveAcrossStores(source, target, options);
+            return;
+        }
+
+        final String from = findRealPath(source);
+        final String to = findRealPath(target);
+
+        /* We optimistically assume that the source is an object, so that
+         * moving a single file costs only a snaplink and a delete. */
+        try {
+            putSnapLink(to, from);
+        } catch (MantaClientHttpResponseException e) {
+            if (e.getStatusCode() == 404 && completeResumedMove(to, options)) {
+                return;
+            }
+
+            if (!MantaErrorCode.LINK_NOT_OBJECT_ERROR.equals(e.getServerCode())) {
+                throw e;
+            }
+
+            moveDirectory(from, to, options);
+            return;
+        }
+
+        dispatcher.execute(MantaOperation.DELETE, from, client -> {
+            client.delete(from);
+            return null;
+        });
+    }
+
+    /**
+     * Moves a path to a different store by copying it and then deleting the
+     * source. As with {@link Files#move(Path, Path, CopyOption...)} on the
+     * default filesystem, a directory is only moved this way when it is
+     * empty, because its entries aren't copied with it. The
+     * source is deleted without recursing, so that entries created while
+     * the move runs are never lost.
+     *
+     * @param source path to move
+     * @param target path on a different store
+     * @param options copy options
+     * @throws DirectoryNotEmptyException thrown when the source is a
+     *         directory that has entries
+     * @throws IOException thrown when the copy or the delete fails
+     */
+    private void moveAcrossStores(Path source, Path target, Set<CopyOption> options)
+            throws IOException {
+        final boolean manta = isMantaPath(source);
+        final boolean directory = manta ? head(findRealPath(source)).isDirectory()
+                : Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS);
+
+        if (directory) {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(source)) {
+                if (entries.iterator().hasNext()) {
+                    throw new DirectoryNotEmptyException(source.toString());
+                }
+            }
+
+            // Copying would download the listing of the directory as a file
+            if (!options.contains(StandardCopyOption.REPLACE_EXISTING)
+                    || !Files.isDirectory(target)) {
+                Files.createDirectory(target);
+            }
+        } else {
+            copy(source, target, options);
+        }
+
+        if (!manta) {
+            Files.delete(source);
+            return;
+        }
+
+        final String from = findRealPath(source);
+
+        dispatcher.execute(MantaOperation.DELETE, from, client -> {
+            client.delete(from);
+            return null;
+        });
+    }
+
+    /**
+     * Moves a directory tree by snaplinking and deleting each object in a
+     * pipeline. See {@link MantaDirectoryMover}.
+     *
+     * @param from Manta path of the source directory
+     * @param to Manta path of the target directory
+     * @param options copy options that may contain Manta specific options
+     * @throws IOException thrown when the move fails
+     */
+    protected void moveDirectory(String from, String to, Set<CopyOption> options) throws IOException {
+        final MantaCopyOptions.ConcurrencyOption concurrencyOption =
+                MantaCopyOptions.find(options, MantaCopyOptions.ConcurrencyOption.class);
+        final MantaCopyOptions.CheckpointOption checkpointOption =
+                MantaCopyOptions.find(options, MantaCopyOptions.CheckpointOption.class);
+
+        final int concurrency = concurrencyOption == null ?
+                getDefaultConcurrency() : concurrencyOption.getConcurrency();
+        final Path journal = checkpointOption == null ?
+                null : checkpointOption.getJournal();
+
+        try (MoveCheckpoint checkpoint = new MoveCheckpoint(journal)) {
+            new MantaDirectoryMover(dispatcher, getExecutor(), concurrency, checkpoint)
+                    .move(from, to);
+            checkpoint.complete();
+        }
+    }
+
+    /**
+     * Checks if a directory move whose source is gone was already finished
+     * by an earlier run that stopped before removing its checkpoint. The
+     * source directory is deleted last, so a checkpoint that shows the
+     * target directory as made means that the whole tree was moved. The
+     * checkpoint is removed when that is the case.
+     *
+     * @param to Manta path of the target directory
+     * @param options copy options that may contain a checkpoint
+     * @return true if the checkpoint shows that the move was finished
+     * @throws IOException thrown when the checkpoint can't be read or removed
+     */
+    private boolean completeResumedMove(final String to, final Set<CopyOption> options)
+            throws IOException {
+        final MantaCopyOptions.CheckpointOption checkpointOption =
+                MantaCopyOptions.find(options, MantaCopyOptions.CheckpointOption.class);
+
+        if (checkpointOption == null || !Files.exists(checkpointOption.getJournal())) {
+            return false;
+        }
+
+        try (MoveCheckpoint checkpoint = new MoveCheckpoint(checkpointOption.getJournal())) {
+            if (!checkpoint.isMade(to)) {
+                return false;
+            }
+
+            checkpoint.complete();
+            return true;
+        }
     }
 
     @Override
@@ -151,7 +795,7 @@ public class MantaFileSystemDriver extends UnixLikeFileSystemDriverBase {
         final String target = findRealPath(path);
 
         try {
-            mantaClient.head(target);
+            head(target);
 
             for (final AccessMode mode : modes) {
                 switch (mode) {
@@ -186,7 +830,7 @@ public class MantaFileSystemDriver extends UnixLikeFileSystemDriverBase {
     @Override
     public Object getPathMetadata(Path path) throws IOException {
         String target = findRealPath(path);
-        return mantaClient.head(target);
+        return head(target);
 
     }
 
@@ -198,9 +842,32 @@ public class MantaFileSystemDriver extends UnixLikeFileSystemDriverBase {
             throws IOException
     {
         final String target = findRealPath(path);
+        final MantaEvent event = new MantaEvent();
+        event.begin();
+        final long start = System.nanoTime();
+
+        try {
+            return new MeteredByteChannel(openByteChannel(path, options),
+                    dispatcher.getMetrics());
+        } catch (IOException e) {
+            event.status = MantaRequestDispatcher.statusOf(e);
+            throw e;
+        } finally {
+            dispatcher.getMetrics().recordAction(MantaMetrics.Action.OPEN_BYTE_CHANNEL,
+                    System.nanoTime() - start);
+            event.finish(MantaMetrics.Action.OPEN_BYTE_CHANNEL.name(), target, 0L);
+        }
+    }
+
+    private SeekableByteChannel openByteChannel(final Path path,
+                                                final Set<? extends OpenOption> options)
+            throws IOException {
+        final String target = findRealPath(path);
+        final MantaLane lane = MantaLane.from(options);
 
         if (options.contains(StandardOpenOption.CREATE_NEW)) {
-            if (mantaClient.existsAndIsAccessible(target)) {
+            if (hedger.execute(MantaOperation.HEAD, target, lane,
+                    client -> client.existsAndIsAccessible(target))) {
                 String msg = String.format("File already exists: %s", target);
                 throw new IOException(msg);
             }
@@ -208,48 +875,307 @@ public class MantaFileSystemDriver extends UnixLikeFileSystemDriverBase {
 
         if (options.contains(StandardOpenOption.READ) &&
             !options.contains(StandardOpenOption.WRITE)) {
-            return mantaClient.getSeekableByteChannel(target);
+            return hedger.execute(MantaOperation.GET, target, lane, client -> {
+                final MantaSeekableByteChannel channel = client.getSeekableByteChannel(target);
+
+                try {
+                    // The channel is lazy, so this is what sends the GET
+                    channel.available();
+                } catch (IOException | RuntimeException e) {
+                    channel.close();
+                    throw e;
+                }
+
+                return channel;
+            });
         }
 
-        return new MantaTempSeekableByteChannel(target, mantaClient, options);
+        return new MantaTempSeekableByteChannel(target, dispatcher, options);
     }
 
     /**
-     * Converts a NIO2 path to a Manta filesystem path.
+     * Opens an asynchronous channel. Channels opened only for reading serve
+     * each positional read with a ranged GET; channels opened for writing
+     * are staged in a temp file that is uploaded when they are closed.
+     *
+     * @param path path of the object
+     * @param options options specifying how the object is opened
+     * @param executor executor that runs the requests and completion
+     *                 handlers, or null for the driver's async executor
+     * @param attrs ignored
+     * @return new channel
+     * @throws IOException thrown when the object can't be opened
+     */
+    public AsynchronousFileChannel newAsynchronousFileChannel(final Path path,
+                                                              final Set<? extends OpenOption> options,
+                                                              final ExecutorService executor,
+                                                              final FileAttribute<?>... attrs)
+            throws IOException {
+        if (options.contains(StandardOpenOption.APPEND)) {
+            throw new IllegalArgumentException("APPEND is not allowed");
+        }
+
+        final String target = findRealPath(path);
+        final ExecutorService workers = executor == null ? getAsyncExecutor() : executor;
+        final boolean write = options.contains(StandardOpenOption.WRITE);
+
+        if (!write) {
+            return new MantaAsynchronousFileChannel(dispatcher, target, workers);
+        }
+
+        final boolean exists = exists(target);
+
+        if (exists && options.contains(StandardOpenOption.CREATE_NEW)) {
+            throw new FileAlreadyExistsException(path.toString());
+        }
+
+        if (!exists && !options.contains(StandardOpenOption.CREATE)
+                && !options.contains(StandardOpenOption.CREATE_NEW)) {
+            throw new NoSuchFileException(path.toString());
+        }
+
+        return new MantaTempAsynchronousFileChannel(target, dispatcher, options, workers);
+    }
+
+    /**
+     * Converts a NIO2 path to a Manta filesystem path. For a {@link MantaPath}
+     * the result is cached on the path, except for the entries of a
+     * directory listing, which build it from their parent's each time.
      * @param path NIO2 path object
      * @return relative filesystem path used to identify an object on Manta
      * @throws IOException thrown when NIO2 can't convert to a real path
      */
     public String findRealPath(final Path path) throws IOException {
-        final Path real = path.toRealPath();
-        final String pathString = real.toString();
+        if (path instanceof MantaPath) {
+            return ((MantaPath) path).absolutePathString();
+        }
+
+        final String pathString = path.toRealPath().toString();
 
         final String realpath;
 
         if (pathString.startsWith(HOME_DIR_ALIAS)) {
-            final String relative = pathString.substring(HOME_DIR_ALIAS.length());
-            realpath = String.format("/%s/%s", config.getMantaUser(), relative);
+            realpath = homeDirectory + SEPARATOR
+                    + pathString.substring(HOME_DIR_ALIAS.length());
         } else if (pathString.startsWith(SEPARATOR + HOME_DIR_ALIAS)) {
-            final String relative = pathString.substring(SEPARATOR.length()
-                    + HOME_DIR_ALIAS.length());
-            realpath = String.format("/%s/%s", config.getMantaUser(), relative);
+            realpath = homeDirectory + SEPARATOR
+                    + pathString.substring(SEPARATOR.length() + HOME_DIR_ALIAS.length());
         } else {
             realpath = pathString;
         }
 
-        return FilenameUtils.normalizeNoEndSeparator(realpath);
+        return FilenameUtils.normalizeNoEndSeparator(realpath, true);
+    }
+
+    /**
+     * @return normalized home directory of the configured user
+     */
+    public String getHomeDirectory() {
+        return homeDirectory;
+    }
+
+    /**
+     * @return number of requests run concurrently by tree operations
+     */
+    public int getDefaultConcurrency() {
+        final Integer maxConnections = config.getMaximumConnections();
+        return maxConnections == null || maxConnections < 1 ?
+                DEFAULT_CONCURRENCY : maxConnections;
+    }
+
+    /**
+     * @return executor used to run parallel operations
+     */
+    public ExecutorService getExecutor() {
+        return executors.getWorkers();
+    }
+
+    /**
+     * Creates the client and opens connections to Manta in the background,
+     * so that the first request doesn't pay for key loading, connection
+     * setup and TLS handshakes. The requests are sent concurrently, which
+     * makes the connection pool open one connection for each of them and
+     * keep it alive afterwards. Failures are ignored; they will surface
+     * again on the first real request.
+     *
+     * @param connections number of connections to open, nothing is done
+     *                    when less than one
+     * @return future that completes when warming up has finished
+     */
+    public Future<?> prewarm(final int connections) {
+        if (connections < 1) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final ExecutorService workers = getExecutor();
+
+        return workers.submit(() -> {
+            getMantaClient();
+            final List<Future<Boolean>> requests = new ArrayList<>(connections);
+
+            for (int i = 0; i < connections; i++) {
+                requests.add(workers.submit(() -> exists(homeDirectory)));
+            }
+
+            for (Future<Boolean> request : requests) {
+                try {
+                    request.get();
+                } catch (ExecutionException e) {
+                    // Only the connection matters, not the result
+                }
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * @return executor used by asynchronous channels when the caller doesn't
+     *         provide one; a fixed pool sized to the default concurrency, or
+     *         a virtual thread per task in {@link ExecutionMode#VIRTUAL} mode
+     */
+    public ExecutorService getAsyncExecutor() {
+        return executors.getAsync();
+    }
+
+    /**
+     * @return executors of this driver
+     */
+    public MantaExecutors getExecutors() {
+        return executors;
+    }
+
+    /**
+     * @return dispatcher that sends all requests of this driver
+     */
+    public MantaRequestDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * @return hedger of the idempotent requests of this driver, which also
+     *         reports how often hedging fired and won
+     */
+    public MantaRequestHedger getHedger() {
+        return hedger;
+    }
+
+    /**
+     * @return monitor exposing the metrics of this driver
+     */
+    public MantaFileSystemMonitor getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * Registers the monitor of this driver with the platform MBean server,
+     * unless disabled with {@link MantaNioSettings#JMX_KEY}. It is
+     * unregistered when the driver is closed. Failures are ignored; the
+     * filesystem works the same without its MBean.
+     *
+     * @param name name of the filesystem
+     */
+    public void registerMBean(final String name) {
+        if (!jmx) {
+            return;
+        }
+
+        try {
+            monitor.register(name);
+        } catch (JMException | SecurityException e) {
+            // Monitoring is optional
+        }
+    }
+
+    /**
+     * Reads the metadata of an object or directory.
+     *
+     * @param path Manta path
+     * @return metadata of the path
+     * @throws IOException thrown when the request fails
+     */
+    public MantaObject head(final String path) throws IOException {
+        final MantaEvent event = new MantaEvent();
+        event.begin();
+
+        try {
+            return hedger.execute(MantaOperation.HEAD, path,
+                    counted(event, client -> client.head(path)));
+        } catch (IOException e) {
+            event.status = MantaRequestDispatcher.statusOf(e);
+            throw e;
+        } finally {
+            event.finish(MantaOperation.HEAD.name(), path, 0L);
+        }
+    }
+
+    /**
+     * Counts the requests sent for an event, including hedges, when the
+     * event is recorded. Otherwise the request is returned as it is.
+     *
+     * @param event event of the operation sending the request
+     * @param request call to the client
+     * @param <T> type of the result
+     * @return request counting its calls
+     */
+    private static <T> MantaRequestDispatcher.Request<T> counted(
+            final MantaEvent event, final MantaRequestDispatcher.Request<T> request) {
+        if (!event.isEnabled()) {
+            return request;
+        }
+
+        return client -> {
+            synchronized (event) {
+                event.attempts++;
+            }
+
+            return request.send(client);
+        };
+    }
+
+    /**
+     * @param path Manta path
+     * @return true if the path exists and can be accessed
+     * @throws IOException thrown when the client can't be created
+     */
+    public boolean exists(final String path) throws IOException {
+        return hedger.execute(MantaOperation.HEAD, path,
+                client -> client.existsAndIsAccessible(path));
+    }
+
+    private void putSnapLink(final String link, final String from) throws IOException {
+        dispatcher.execute(MantaOperation.PUT_SNAPLINK, link, client -> {
+            client.putSnapLink(link, from, null);
+            return null;
+        });
     }
 
     @Override
     public void close() throws IOException {
-        mantaClient.closeQuietly();
+        monitor.unregister();
+        executors.close();
+        clientSource.close();
     }
 
     public ConfigContext getConfig() {
         return config;
     }
 
-    public MantaClient getMantaClient() {
-        return mantaClient;
+    /**
+     * Returns the client, creating it on the first call when the driver was
+     * created with a lazy source.
+     *
+     * @return client used for all requests
+     * @throws IOException thrown when the client can't be created
+     */
+    public MantaClient getMantaClient() throws IOException {
+        return clientSource.getClient();
+    }
+
+    /**
+     * @return source of the client used for all requests
+     */
+    public MantaClientSource getClientSource() {
+        return clientSource;
     }
 }
@@ -0,0 +1,84 @@
+package com.joyent.manta.fs.driver;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management interface of a filesystem, registered with the platform MBean
+ * server under <code>com.joyent.manta.fs:type=MantaFileSystem</code> while
+ * the filesystem is open. Latencies are in microseconds.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public interface MantaFileSystemMXBean {
+    /**
+     * @return latencies of the requests sent to Manta, by {@link MantaOperation}
+     */
+    Map<String, LatencySummary> getRequestLatencies();
+
+    /**
+     * @return latencies of the driver operations, by {@link MantaMetrics.Action}
+     */
+    Map<String, LatencySummary> getOperationLatencies();
+
+    /**
+     * @return number of object bytes read
+     */
+    long getBytesRead();
+
+    /**
+     * @return number of object bytes written
+     */
+    long getBytesWritten();
+
+    /**
+     * @return number of error responses by HTTP status code
+     */
+    Map<Integer, Long> getErrorsByStatus();
+
+    /**
+     * @return number of requests that failed without a response
+     */
+    long getConnectionErrors();
+
+    /**
+     * @return number of requests currently in flight
+     */
+    int getInFlight();
+
+    /**
+     * @return maximum number of requests currently allowed in flight
+     */
+    int getConcurrencyLimit();
+
+    /**
+     * @return state of the circuit breaker
+     */
+    String getCircuitState();
+
+    /**
+     * @return number of times the circuit breaker opened
+     */
+    long getCircuitOpened();
+
+    /**
+     * @return number of requests rejected by the open circuit breaker
+     */
+    long getCircuitRejected();
+
+    /**
+     * @return number of requests that were hedged
+     */
+    long getHedgedRequests();
+
+    /**
+     * @return number of hedges that answered before the request they hedged
+     */
+    long getHedgesWon();
+
+    /**
+     * @return URLs of the endpoints that are currently ejected
+     */
+    List<String> getEjectedEndpoints();
+}
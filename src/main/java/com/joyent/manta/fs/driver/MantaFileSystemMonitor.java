@@ -0,0 +1,212 @@
+package com.joyent.manta.fs.driver;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exposes the metrics of a driver's {@link MantaRequestDispatcher} and
+ * {@link MantaRequestHedger} as a {@link MantaFileSystemMXBean}. Reading an
+ * attribute computes it from the live counters.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaFileSystemMonitor implements MantaFileSystemMXBean {
+    /**
+     * Domain of the object names of filesystems.
+     */
+    public static final String DOMAIN = "com.joyent.manta.fs";
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    private final MantaRequestDispatcher dispatcher;
+    private final MantaRequestHedger hedger;
+    private ObjectName registeredName;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param dispatcher dispatcher of the driver
+     * @param hedger hedger of the driver
+     */
+    public MantaFileSystemMonitor(final MantaRequestDispatcher dispatcher,
+                                  final MantaRequestHedger hedger) {
+        this.dispatcher = Objects.requireNonNull(dispatcher);
+        this.hedger = Objects.requireNonNull(hedger);
+    }
+
+    /**
+     * Registers this monitor with the platform MBean server. When another
+     * filesystem is already registered under the name, a unique id is
+     * added to the object name.
+     *
+     * @param name name of the filesystem, such as its URI
+     * @return object name this monitor is registered under
+     * @throws JMException thrown when the monitor can't be registered
+     */
+    public synchronized ObjectName register(final String name) throws JMException {
+        if (registeredName != null) {
+            return registeredName;
+        }
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final String base = DOMAIN + ":type=MantaFileSystem,name=" + ObjectName.quote(name);
+        ObjectName objectName = new ObjectName(base);
+
+        try {
+            server.registerMBean(this, objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            objectName = new ObjectName(base + ",id=" + IDS.incrementAndGet());
+            server.registerMBean(this, objectName);
+        }
+
+        registeredName = objectName;
+        return objectName;
+    }
+
+    /**
+     * Unregisters this monitor if it has been registered. Failures are
+     * ignored since this is called when the filesystem closes.
+     */
+    public synchronized void unregister() {
+        if (registeredName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException | SecurityException e) {
+            // Already unregistered by someone else, or not allowed to
+        } finally {
+            registeredName = null;
+        }
+    }
+
+    /**
+     * @return object name this monitor is registered under, or null
+     */
+    public synchronized ObjectName getObjectName() {
+        return registeredName;
+    }
+
+    @Override
+    public Map<String, LatencySummary> getRequestLatencies() {
+        final MantaMetrics metrics = dispatcher.getMetrics();
+        final Map<String, LatencySummary> latencies = new LinkedHashMap<>();
+
+        for (MantaOperation operation : MantaOperation.values()) {
+            final LatencyHistogram histogram = metrics.getRequestLatency(operation);
+
+            if (histogram.getCount() > 0L) {
+                latencies.put(operation.name(), histogram.summarize());
+            }
+        }
+
+        return latencies;
+    }
+
+    @Override
+    public Map<String, LatencySummary> getOperationLatencies() {
+        final MantaMetrics metrics = dispatcher.getMetrics();
+        final Map<String, LatencySummary> latencies = new LinkedHashMap<>();
+
+        for (MantaMetrics.Action action : MantaMetrics.Action.values()) {
+            final LatencyHistogram histogram = metrics.getActionLatency(action);
+
+            if (histogram.getCount() > 0L) {
+                latencies.put(action.name(), histogram.summarize());
+            }
+        }
+
+        return latencies;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return dispatcher.getMetrics().getBytesRead();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return dispatcher.getMetrics().getBytesWritten();
+    }
+
+    @Override
+    public Map<Integer, Long> getErrorsByStatus() {
+        final MantaMetrics metrics = dispatcher.getMetrics();
+        final Map<Integer, Long> errors = new TreeMap<>();
+
+        for (int status = 400; status < 600; status++) {
+            final long count = metrics.getStatusCount(status);
+
+            if (count > 0L) {
+                errors.put(status, count);
+            }
+        }
+
+        return errors;
+    }
+
+    @Override
+    public long getConnectionErrors() {
+        return dispatcher.getMetrics().getConnectionErrors();
+    }
+
+    @Override
+    public int getInFlight() {
+        return dispatcher.getInFlight();
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return dispatcher.getMaxInFlight();
+    }
+
+    @Override
+    public String getCircuitState() {
+        return dispatcher.getBreaker().getState().name();
+    }
+
+    @Override
+    public long getCircuitOpened() {
+        return dispatcher.getBreaker().getStateChanges(MantaCircuitBreaker.State.OPEN);
+    }
+
+    @Override
+    public long getCircuitRejected() {
+        return dispatcher.getBreaker().getRejected();
+    }
+
+    @Override
+    public long getHedgedRequests() {
+        return hedger.getHedged();
+    }
+
+    @Override
+    public long getHedgesWon() {
+        return hedger.getHedgesWon();
+    }
+
+    @Override
+    public List<String> getEjectedEndpoints() {
+        final List<String> ejected = new ArrayList<>();
+
+        for (MantaEndpoint endpoint : dispatcher.getEndpoints().getEndpoints()) {
+            if (endpoint.isEjected()) {
+                ejected.add(endpoint.getUrl());
+            }
+        }
+
+        return ejected;
+    }
+}
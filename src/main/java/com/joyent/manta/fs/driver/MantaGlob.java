@@ -0,0 +1,903 @@
+package com.joyent.manta.fs.driver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Glob pattern that is parsed into path segments, so that it can be matched
+ * one path segment at a time while walking a directory tree.
+ *
+ * <p>The supported syntax is the same as
+ * {@link java.nio.file.FileSystem#getPathMatcher(String)}: <code>*</code>,
+ * <code>?</code>, <code>[...]</code>, <code>{a,b}</code>, backslash escapes
+ * and <code>**</code>. Groups may not contain the path separator. Patterns
+ * compiled with {@link #compile(String)} treat a <code>**</code> segment as
+ * zero or more whole path segments, which is what the bulk operations of
+ * {@link com.joyent.manta.fs.MantaFiles} want. Patterns compiled with
+ * {@link #compileStandard(String)} match exactly like the glob matchers of
+ * the default filesystem, where <code>**</code> matches any characters,
+ * separators included.</p>
+ *
+ * <p>Matching is expressed as a small automaton whose states are positions
+ * in the pattern at which the next path segment can start. The state set is
+ * kept in a <code>long</code> bit mask, which allows callers to match
+ * incrementally while descending a tree without allocating.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaGlob {
+    /**
+     * Maximum number of automaton states of a pattern. One bit of the state
+     * mask is needed for each of them plus one for the accepting state. A
+     * segment takes one state, unless it contains <code>**</code> and the
+     * pattern was compiled with {@link #compileStandard(String)}.
+     */
+    public static final int MAX_SEGMENTS = 63;
+
+    private static final String GLOB_META_CHARS = "\\*?[{";
+
+    private final String pattern;
+    private final boolean absolute;
+    private final boolean standard;
+    private final int segmentCount;
+    private final boolean firstRecursive;
+    private final int literalPrefixCount;
+    private final String literalPrefix;
+
+    /**
+     * States that match any path segment and stay where they are.
+     */
+    private final boolean[] loops;
+
+    /**
+     * States that are entered along with each state without consuming a
+     * path segment. They always point forward.
+     */
+    private final long[] epsilons;
+
+    /**
+     * Transitions that consume one path segment, ordered by the state they
+     * leave. Those of state <code>i</code> are at the indexes from
+     * <code>firstEdge[i]</code> up to <code>firstEdge[i + 1]</code>. Each
+     * matches either a literal or a {@link SegmentMatcher}.
+     */
+    private final int[] firstEdge;
+    private final int[] edgeTargets;
+    private final String[] edgeLiterals;
+    private final SegmentMatcher[] edgeMatchers;
+
+    private final long acceptState;
+
+    private MantaGlob(final String pattern, final boolean absolute,
+                      final List<String> segments, final boolean standard) {
+        this.pattern = pattern;
+        this.absolute = absolute;
+        this.standard = standard;
+        this.segmentCount = segments.size();
+        this.firstRecursive = !segments.isEmpty() && segments.get(0).equals("**");
+
+        final Automaton automaton = new Automaton();
+        final StringBuilder prefix = new StringBuilder();
+        int prefixCount = 0;
+        boolean inPrefix = true;
+
+        for (int i = 0; i < segments.size(); i++) {
+            final String segment = segments.get(i);
+            final List<int[]> recursive = standard
+                    ? findRecursive(pattern, segment) : Collections.emptyList();
+
+            if (!standard && segment.equals("**")) {
+                final int state = automaton.addState(true);
+                automaton.addEpsilon(state, state + 1);
+            } else if (recursive.isEmpty()) {
+                final int state = automaton.addState(false);
+                automaton.addEdge(state + 1, segment);
+            } else {
+                automaton.addRecursive(segment, recursive);
+            }
+
+            // The final segment is what is matched, so it is never a prefix
+            inPrefix &= i < segments.size() - 1 && !segment.isEmpty() && isLiteral(segment);
+
+            if (inPrefix) {
+                if (prefixCount > 0) {
+                    prefix.append(MantaFileSystemDriver.SEPARATOR_CHAR);
+                }
+
+                prefix.append(unescape(segment));
+                prefixCount++;
+            }
+        }
+
+        if (automaton.stateCount > MAX_SEGMENTS) {
+            throw new PatternSyntaxException(String.format(
+                    "Pattern has more than %d segments", MAX_SEGMENTS), pattern, -1);
+        }
+
+        this.literalPrefixCount = prefixCount;
+        this.literalPrefix = prefix.toString();
+        this.loops = Arrays.copyOf(automaton.loops, automaton.stateCount);
+        this.epsilons = Arrays.copyOf(automaton.epsilons, automaton.stateCount);
+        this.firstEdge = Arrays.copyOf(automaton.firstEdge, automaton.stateCount + 1);
+        this.firstEdge[automaton.stateCount] = automaton.edgeCount;
+        this.edgeTargets = Arrays.copyOf(automaton.edgeTargets, automaton.edgeCount);
+        this.edgeLiterals = Arrays.copyOf(automaton.edgeLiterals, automaton.edgeCount);
+        this.edgeMatchers = Arrays.copyOf(automaton.edgeMatchers, automaton.edgeCount);
+        this.acceptState = 1L << automaton.stateCount;
+    }
+
+    /**
+     * Parses a glob pattern whose <code>**</code> segments match zero or
+     * more whole path segments.
+     *
+     * @param pattern glob pattern without the <code>glob:</code> prefix
+     * @return parsed pattern
+     * @throws PatternSyntaxException thrown when the pattern is invalid
+     */
+    public static MantaGlob compile(final String pattern) {
+        return compile(pattern, false);
+    }
+
+    /**
+     * Parses a glob pattern that matches exactly like the glob matchers of
+     * the default filesystem: <code>**</code> matches any characters
+     * including separators, wherever it appears, and a path without elements
+     * is matched as a single empty element.
+     *
+     * @param pattern glob pattern without the <code>glob:</code> prefix
+     * @return parsed pattern
+     * @throws PatternSyntaxException thrown when the pattern is invalid or
+     *         has a group containing <code>**</code>
+     */
+    public static MantaGlob compileStandard(final String pattern) {
+        return compile(pattern, true);
+    }
+
+    private static MantaGlob compile(final String pattern, final boolean standard) {
+        Objects.requireNonNull(pattern, "Pattern must be present");
+
+        final boolean absolute = !pattern.isEmpty()
+                && pattern.charAt(0) == MantaFileSystemDriver.SEPARATOR_CHAR;
+        final List<String> segments = split(pattern, absolute ? 1 : 0, standard);
+
+        if (segments.size() > MAX_SEGMENTS) {
+            throw new PatternSyntaxException(String.format(
+                    "Pattern has more than %d segments", MAX_SEGMENTS), pattern, -1);
+        }
+
+        return new MantaGlob(pattern, absolute, segments, standard);
+    }
+
+    private static List<String> split(final String pattern, final int start,
+                                      final boolean standard) {
+        final List<String> segments = new ArrayList<>();
+        int depth = 0;
+        boolean inBrackets = false;
+        int segmentStart = start;
+
+        for (int i = start; i < pattern.length(); i++) {
+            final char c = pattern.charAt(i);
+
+            if (c == '\\') {
+                i++;
+            } else if (c == '[' && !inBrackets) {
+                inBrackets = true;
+            } else if (c == ']' && inBrackets) {
+                inBrackets = false;
+            } else if (c == '{' && !inBrackets) {
+                depth++;
+            } else if (c == '}' && !inBrackets && depth > 0) {
+                depth--;
+            } else if (c == MantaFileSystemDriver.SEPARATOR_CHAR) {
+                if (inBrackets || depth > 0) {
+                    throw new PatternSyntaxException(
+                            "Groups may not contain the path separator", pattern, i);
+                }
+
+                addSegment(segments, pattern.substring(segmentStart, i), standard);
+                segmentStart = i + 1;
+            }
+        }
+
+        if (inBrackets) {
+            throw new PatternSyntaxException("Missing ']'", pattern, pattern.length() - 1);
+        }
+
+        if (depth > 0) {
+            throw new PatternSyntaxException("Missing '}'", pattern, pattern.length() - 1);
+        }
+
+        addSegment(segments, pattern.substring(segmentStart), standard);
+
+        return segments;
+    }
+
+    private static void addSegment(final List<String> segments, final String segment,
+                                   final boolean standard) {
+        /* The default filesystem matches the pattern against the path string,
+         * so an empty segment only matches the empty element before the root
+         * or of an empty path. */
+        if (standard) {
+            segments.add(segment);
+            return;
+        }
+
+        // Repeated separators are collapsed like they are in paths
+        if (segment.isEmpty()) {
+            return;
+        }
+
+        // Consecutive ** segments are equivalent to a single one
+        if (segment.equals("**") && !segments.isEmpty()
+                && segments.get(segments.size() - 1).equals("**")) {
+            return;
+        }
+
+        segments.add(segment);
+    }
+
+    /**
+     * Finds the runs of two or more stars in a segment, each of which
+     * matches like a single <code>**</code>.
+     *
+     * @return start and end index of each run
+     */
+    private static List<int[]> findRecursive(final String pattern, final String segment) {
+        List<int[]> runs = Collections.emptyList();
+        int depth = 0;
+
+        for (int i = 0; i < segment.length(); i++) {
+            final char c = segment.charAt(i);
+
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                i = SegmentMatcher.findClose(segment, i);
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && depth > 0) {
+                depth--;
+            } else if (c == '*' && i + 1 < segment.length() && segment.charAt(i + 1) == '*') {
+                if (depth > 0) {
+                    throw new PatternSyntaxException(
+                            "Groups may not contain **", pattern, -1);
+                }
+
+                final int start = i;
+
+                while (i + 1 < segment.length() && segment.charAt(i + 1) == '*') {
+                    i++;
+                }
+
+                if (runs.isEmpty()) {
+                    runs = new ArrayList<>();
+                }
+
+                runs.add(new int[] {start, i + 1});
+            }
+        }
+
+        return runs;
+    }
+
+    private static boolean isLiteral(final String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            final char c = segment.charAt(i);
+
+            if (c == '\\') {
+                i++;
+            } else if (GLOB_META_CHARS.indexOf(c) >= 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static String unescape(final String segment) {
+        if (segment.indexOf('\\') < 0) {
+            return segment;
+        }
+
+        final StringBuilder builder = new StringBuilder(segment.length());
+
+        for (int i = 0; i < segment.length(); i++) {
+            final char c = segment.charAt(i);
+
+            if (c == '\\' && i + 1 < segment.length()) {
+                builder.append(segment.charAt(++i));
+            } else {
+                builder.append(c);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @return the pattern as originally given
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return true if the pattern starts at the root directory
+     */
+    public boolean isAbsolute() {
+        return absolute;
+    }
+
+    /**
+     * @return true if the pattern was compiled with
+     *         {@link #compileStandard(String)}
+     */
+    public boolean isStandard() {
+        return standard;
+    }
+
+    /**
+     * @return number of segments in the pattern
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * @return number of leading literal segments, which name the deepest
+     *         directory under which all matches must live
+     */
+    public int getLiteralPrefixCount() {
+        return literalPrefixCount;
+    }
+
+    /**
+     * @return leading literal directories joined by the separator, or an
+     *         empty string if the pattern starts with a wildcard
+     */
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /**
+     * @param absolutePath true if the path to match is absolute
+     * @return the state before any element of the path has been consumed,
+     *         zero if no path of that kind can match
+     */
+    public long initialState(final boolean absolutePath) {
+        if (absolutePath == absolute) {
+            return closure(1L);
+        }
+
+        if (!absolutePath) {
+            return 0L;
+        }
+
+        /* The default filesystem sees the root of an absolute path as an
+         * empty element in front of the others. */
+        if (standard) {
+            return step(closure(1L), "", 0, 0);
+        }
+
+        return firstRecursive ? closure(1L) : 0L;
+    }
+
+    /**
+     * @return the state after the literal prefix has been consumed
+     */
+    public long prefixState() {
+        return closure(1L << literalPrefixCount);
+    }
+
+    /**
+     * Advances the automaton past a path that has no elements, such as the
+     * root directory. Patterns compiled with {@link #compileStandard(String)}
+     * see such a path as a single empty element.
+     *
+     * @param state state before the path
+     * @return state after the path
+     */
+    public long stepEmptyPath(final long state) {
+        return standard ? step(state, "", 0, 0) : state;
+    }
+
+    /**
+     * Advances the automaton by one path segment.
+     *
+     * @param state current state
+     * @param segment path segment
+     * @return next state, zero if nothing can match anymore
+     */
+    public long step(final long state, final String segment) {
+        return step(state, segment, 0, segment.length());
+    }
+
+    /**
+     * Advances the automaton by one path segment that is a region of a
+     * larger string, so that callers don't need to cut it out.
+     *
+     * @param state current state
+     * @param path string containing the segment
+     * @param start index of the first character of the segment
+     * @param end index after the last character of the segment
+     * @return next state, zero if nothing can match anymore
+     */
+    public long step(final long state, final String path, final int start, final int end) {
+        long next = 0L;
+        long remaining = state & ~acceptState;
+
+        while (remaining != 0L) {
+            final int i = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+
+            if (loops[i]) {
+                next |= 1L << i;
+            }
+
+            for (int edge = firstEdge[i]; edge < firstEdge[i + 1]; edge++) {
+                if (matchesEdge(edge, path, start, end)) {
+                    next |= 1L << edgeTargets[edge];
+                }
+            }
+        }
+
+        return closure(next);
+    }
+
+    private boolean matchesEdge(final int edge, final String path,
+                                final int start, final int end) {
+        final String literal = edgeLiterals[edge];
+
+        if (literal != null) {
+            return literal.length() == end - start
+                    && path.regionMatches(start, literal, 0, literal.length());
+        }
+
+        return edgeMatchers[edge].matches(path, start, end);
+    }
+
+    /**
+     * Adds the states that are entered without consuming a path segment,
+     * such as those after a <code>**</code> that matches zero segments.
+     */
+    private long closure(final long state) {
+        long result = state;
+
+        for (int i = 0; i < epsilons.length; i++) {
+            if ((result & (1L << i)) != 0L) {
+                result |= epsilons[i];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param state current state
+     * @return true if the segments consumed so far match the whole pattern
+     */
+    public boolean isAccepting(final long state) {
+        return (state & acceptState) != 0L;
+    }
+
+    /**
+     * @param state current state
+     * @return true if a path with more segments could still match
+     */
+    public boolean canMatchDeeper(final long state) {
+        return (state & ~acceptState) != 0L;
+    }
+
+    /**
+     * @return true if the first segment of the pattern is <code>**</code>,
+     *         which can also match the root of an absolute path
+     */
+    public boolean startsWithRecursive() {
+        return firstRecursive;
+    }
+
+    /**
+     * Matches a path string against the pattern. Like the glob matchers of
+     * the default filesystem, a relative pattern doesn't match an absolute
+     * path unless its first segment can match the root.
+     *
+     * @param path path whose segments are separated by the separator
+     * @return true if the path matches
+     */
+    public boolean matches(final String path) {
+        final boolean absolutePath = !path.isEmpty()
+                && path.charAt(0) == MantaFileSystemDriver.SEPARATOR_CHAR;
+
+        long state = initialState(absolutePath);
+        boolean hasElements = false;
+        int start = 0;
+
+        for (int i = 0; i <= path.length() && state != 0L; i++) {
+            if (i == path.length()
+                    || path.charAt(i) == MantaFileSystemDriver.SEPARATOR_CHAR) {
+                if (i > start) {
+                    state = step(state, path, start, i);
+                    hasElements = true;
+                }
+
+                start = i + 1;
+            }
+        }
+
+        if (!hasElements) {
+            state = stepEmptyPath(state);
+        }
+
+        return isAccepting(state);
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    /**
+     * Collects the states and transitions of a pattern while it is parsed.
+     * States are added in pattern order, and each state's transitions are
+     * added right after it, so that they end up ordered by state.
+     */
+    private static final class Automaton {
+        private boolean[] loops = new boolean[8];
+        private long[] epsilons = new long[8];
+        private int[] firstEdge = new int[9];
+        private int[] edgeTargets = new int[8];
+        private String[] edgeLiterals = new String[8];
+        private SegmentMatcher[] edgeMatchers = new SegmentMatcher[8];
+        private int stateCount = 0;
+        private int edgeCount = 0;
+
+        int addState(final boolean loop) {
+            if (stateCount == loops.length) {
+                loops = Arrays.copyOf(loops, stateCount * 2);
+                epsilons = Arrays.copyOf(epsilons, stateCount * 2);
+                firstEdge = Arrays.copyOf(firstEdge, stateCount * 2 + 1);
+            }
+
+            loops[stateCount] = loop;
+            firstEdge[stateCount] = edgeCount;
+            return stateCount++;
+        }
+
+        void addEpsilon(final int from, final int to) {
+            // States past the limit are rejected once the pattern is parsed
+            if (to < Long.SIZE) {
+                epsilons[from] |= 1L << to;
+            }
+        }
+
+        /**
+         * Adds a transition from the most recently added state.
+         */
+        void addEdge(final int target, final String segment) {
+            if (edgeCount == edgeTargets.length) {
+                edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+                edgeLiterals = Arrays.copyOf(edgeLiterals, edgeCount * 2);
+                edgeMatchers = Arrays.copyOf(edgeMatchers, edgeCount * 2);
+            }
+
+            edgeTargets[edgeCount] = target;
+
+            if (isLiteral(segment)) {
+                edgeLiterals[edgeCount] = unescape(segment);
+            } else {
+                edgeMatchers[edgeCount] = SegmentMatcher.compile(segment);
+            }
+
+            edgeCount++;
+        }
+
+        /**
+         * Adds a segment whose <code>**</code> runs can span separators.
+         * There is one state for the start of the segment and one for each
+         * run, in which the run has crossed at least one separator. From a
+         * run's state, whole path segments are absorbed by the run, or the
+         * rest of the pattern segment starts with a star that finishes the
+         * run. A path segment that stays within the pattern segment matches
+         * it with each run taken as a single star.
+         */
+        void addRecursive(final String segment, final List<int[]> runs) {
+            final int first = stateCount;
+            final int next = first + runs.size() + 1;
+
+            addState(false);
+            addEdge(next, collapse(segment, 0, segment.length(), runs));
+
+            for (int m = 0; m < runs.size(); m++) {
+                addEdge(first + m + 1, collapse(segment, 0, runs.get(m)[0], runs) + "*");
+            }
+
+            for (int j = 0; j < runs.size(); j++) {
+                final int from = runs.get(j)[1];
+
+                addState(true);
+                addEdge(next, "*" + collapse(segment, from, segment.length(), runs));
+
+                for (int m = j + 1; m < runs.size(); m++) {
+                    addEdge(first + m + 1,
+                            "*" + collapse(segment, from, runs.get(m)[0], runs) + "*");
+                }
+            }
+        }
+
+        /**
+         * @return the part of a segment between two indexes, with each
+         *         <code>**</code> run in it turned into a single star
+         */
+        private static String collapse(final String segment, final int start,
+                                       final int end, final List<int[]> runs) {
+            final StringBuilder builder = new StringBuilder(end - start);
+            int position = start;
+
+            for (int[] run : runs) {
+                if (run[0] >= start && run[1] <= end) {
+                    builder.append(segment, position, run[0]).append('*');
+                    position = run[1];
+                }
+            }
+
+            return builder.append(segment, position, end).toString();
+        }
+    }
+
+    /**
+     * Matcher for a single segment containing wildcards, compiled to a small
+     * token program instead of a regular expression. Groups are expanded into
+     * one program per alternative, since groups can't be nested.
+     */
+    static final class SegmentMatcher {
+        private static final char ANY = 0;
+        private static final char STAR = 1;
+        private static final char LITERAL = 2;
+        private static final char CLASS = 3;
+
+        /**
+         * One token program per alternative. Each token is a kind and an
+         * argument: the literal character or an index into the classes.
+         */
+        private final char[][] programs;
+        private final CharClass[] classes;
+
+        private SegmentMatcher(final char[][] programs, final CharClass[] classes) {
+            this.programs = programs;
+            this.classes = classes;
+        }
+
+        static SegmentMatcher compile(final String segment) {
+            final List<StringBuilder> programs = new ArrayList<>();
+            final List<CharClass> classes = new ArrayList<>();
+            programs.add(new StringBuilder());
+
+            List<StringBuilder> groupStart = null;
+            List<StringBuilder> alternatives = null;
+            StringBuilder current = null;
+
+            for (int i = 0; i < segment.length(); i++) {
+                final char c = segment.charAt(i);
+                final List<StringBuilder> targets = current == null ?
+                        programs : Collections.singletonList(current);
+
+                switch (c) {
+                    case '\\':
+                        if (i + 1 == segment.length()) {
+                            throw new PatternSyntaxException("No character to escape", segment, i);
+                        }
+
+                        append(targets, LITERAL, segment.charAt(++i));
+                        break;
+                    case '*':
+                        append(targets, STAR, (char) 0);
+                        break;
+                    case '?':
+                        append(targets, ANY, (char) 0);
+                        break;
+                    case '[':
+                        final int close = findClose(segment, i);
+                        classes.add(CharClass.parse(segment, i + 1, close));
+                        append(targets, CLASS, (char) (classes.size() - 1));
+                        i = close;
+                        break;
+                    case '{':
+                        if (groupStart != null) {
+                            throw new PatternSyntaxException("Cannot nest groups", segment, i);
+                        }
+
+                        groupStart = new ArrayList<>(programs);
+                        alternatives = new ArrayList<>();
+                        current = new StringBuilder();
+                        break;
+                    case ',':
+                        if (current == null) {
+                            append(targets, LITERAL, c);
+                        } else {
+                            alternatives.add(current);
+                            current = new StringBuilder();
+                        }
+                        break;
+                    case '}':
+                        if (current == null) {
+                            append(targets, LITERAL, c);
+                            break;
+                        }
+
+                        alternatives.add(current);
+                        programs.clear();
+
+                        for (StringBuilder prefix : groupStart) {
+                            for (StringBuilder alternative : alternatives) {
+                                programs.add(new StringBuilder(prefix).append(alternative));
+                            }
+                        }
+
+                        groupStart = null;
+                        alternatives = null;
+                        current = null;
+                        break;
+                    default:
+                        append(targets, LITERAL, c);
+                }
+            }
+
+            if (current != null) {
+                throw new PatternSyntaxException("Missing '}'", segment, segment.length() - 1);
+            }
+
+            final char[][] compiled = new char[programs.size()][];
+
+            for (int i = 0; i < compiled.length; i++) {
+                compiled[i] = programs.get(i).toString().toCharArray();
+            }
+
+            return new SegmentMatcher(compiled, classes.toArray(new CharClass[0]));
+        }
+
+        private static void append(final List<StringBuilder> targets,
+                                   final char kind, final char argument) {
+            for (StringBuilder program : targets) {
+                program.append(kind).append(argument);
+            }
+        }
+
+        private static int findClose(final String segment, final int open) {
+            // A ']' right after the opening bracket (or '!') is a literal
+            int i = open + 1;
+
+            if (i < segment.length() && segment.charAt(i) == '!') {
+                i++;
+            }
+
+            if (i < segment.length() && segment.charAt(i) == ']') {
+                i++;
+            }
+
+            final int close = segment.indexOf(']', i);
+
+            if (close < 0) {
+                throw new PatternSyntaxException("Missing ']'", segment, segment.length() - 1);
+            }
+
+            return close;
+        }
+
+        boolean matches(final String path, final int start, final int end) {
+            for (char[] program : programs) {
+                if (matches(program, path, start, end)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Wildcard matching that backtracks only to the most recent star,
+         * which is sufficient because a star can absorb any characters.
+         */
+        private boolean matches(final char[] program, final String path,
+                                final int start, final int end) {
+            int token = 0;
+            int index = start;
+            int starToken = -1;
+            int starIndex = -1;
+
+            while (index < end) {
+                if (token < program.length && program[token] != STAR
+                        && matchesToken(program, token, path.charAt(index))) {
+                    token += 2;
+                    index++;
+                } else if (token < program.length && program[token] == STAR) {
+                    starToken = token;
+                    starIndex = index;
+                    token += 2;
+                } else if (starToken >= 0) {
+                    token = starToken + 2;
+                    index = ++starIndex;
+                } else {
+                    return false;
+                }
+            }
+
+            while (token < program.length && program[token] == STAR) {
+                token += 2;
+            }
+
+            return token == program.length;
+        }
+
+        private boolean matchesToken(final char[] program, final int token, final char c) {
+            switch (program[token]) {
+                case ANY:
+                    return true;
+                case LITERAL:
+                    return program[token + 1] == c;
+                case CLASS:
+                    return classes[program[token + 1]].matches(c);
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * Bracket expression such as <code>[a-z]</code> or <code>[!0-9]</code>.
+     */
+    static final class CharClass {
+        private final char[] ranges;
+        private final boolean negated;
+
+        private CharClass(final char[] ranges, final boolean negated) {
+            this.ranges = ranges;
+            this.negated = negated;
+        }
+
+        static CharClass parse(final String segment, final int start, final int end) {
+            int i = start;
+            final boolean negated = i < end && segment.charAt(i) == '!';
+
+            if (negated) {
+                i++;
+            }
+
+            final StringBuilder ranges = new StringBuilder();
+
+            while (i < end) {
+                final char first = segment.charAt(i);
+
+                if (i + 2 < end && segment.charAt(i + 1) == '-') {
+                    final char last = segment.charAt(i + 2);
+
+                    if (last < first) {
+                        throw new PatternSyntaxException("Invalid range", segment, i);
+                    }
+
+                    ranges.append(first).append(last);
+                    i += 3;
+                } else {
+                    ranges.append(first).append(first);
+                    i++;
+                }
+            }
+
+            return new CharClass(ranges.toString().toCharArray(), negated);
+        }
+
+        boolean matches(final char c) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (c >= ranges[i] && c <= ranges[i + 1]) {
+                    return !negated;
+                }
+            }
+
+            return negated;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.joyent.manta.fs.driver;
+
+import java.nio.file.CopyOption;
+import java.nio.file.OpenOption;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Priority lanes that requests are scheduled in. When requests have to wait
+ * for an in-flight permit, each lane gets a share of the permits in
+ * proportion to its weight, so bulk traffic can't starve interactive
+ * requests and interactive requests can't completely starve bulk traffic.
+ * A lane may also have a bandwidth cap.
+ *
+ * <p>The lane of a request is taken from a {@link Option} passed to the
+ * call, e.g. <code>Files.newInputStream(path, MantaLane.INTERACTIVE.option())</code>,
+ * or else from the lane the current thread has entered with
+ * {@link #enter()}. Requests without either run in {@link #NORMAL}. Bulk
+ * operations such as {@link com.joyent.manta.fs.MantaFiles} and
+ * {@link com.joyent.manta.fs.sync.MantaSync} default to {@link #BULK}.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public enum MantaLane {
+    /** Latency sensitive requests made on behalf of a user. */
+    INTERACTIVE(8),
+
+    /** Requests that don't specify a lane. */
+    NORMAL(4),
+
+    /** Background bulk jobs like syncs, walks and bulk deletes. */
+    BULK(1);
+
+    private static final ThreadLocal<MantaLane> CURRENT = new ThreadLocal<>();
+
+    private final int defaultWeight;
+    private final Option option = new Option(this);
+
+    MantaLane(final int defaultWeight) {
+        this.defaultWeight = defaultWeight;
+    }
+
+    /**
+     * @return share of the permits given to this lane unless configured
+     *         otherwise
+     */
+    public int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    /**
+     * @return name of the lane used in settings
+     */
+    public String settingName() {
+        return name().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @return option that runs the requests of a call in this lane
+     */
+    public Option option() {
+        return option;
+    }
+
+    /**
+     * Runs the requests made by the current thread in this lane until the
+     * returned scope is closed.
+     *
+     * @return scope that restores the previous lane when closed
+     */
+    public Scope enter() {
+        final MantaLane previous = CURRENT.get();
+        CURRENT.set(this);
+        return new Scope(previous);
+    }
+
+    /**
+     * @return lane the current thread has entered, or {@link #NORMAL}
+     */
+    public static MantaLane current() {
+        return currentOr(NORMAL);
+    }
+
+    /**
+     * @param fallback lane returned when the current thread hasn't entered one
+     * @return lane the current thread has entered, or the fallback
+     */
+    public static MantaLane currentOr(final MantaLane fallback) {
+        final MantaLane lane = CURRENT.get();
+        return lane == null ? fallback : lane;
+    }
+
+    /**
+     * Finds the lane of a call.
+     *
+     * @param options options passed to the call
+     * @return lane of the first {@link Option}, or the current lane
+     */
+    public static MantaLane from(final Collection<?> options) {
+        final Option option = MantaCopyOptions.find(options, Option.class);
+        return option == null ? current() : option.getLane();
+    }
+
+    /**
+     * Option that runs the requests of a call in a lane. It can be passed
+     * both where {@link OpenOption}s and where {@link CopyOption}s are
+     * accepted.
+     */
+    public static final class Option implements OpenOption, CopyOption {
+        private final MantaLane lane;
+
+        private Option(final MantaLane lane) {
+            this.lane = lane;
+        }
+
+        public MantaLane getLane() {
+            return lane;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("lane=%s", lane.settingName());
+        }
+    }
+
+    /**
+     * Lane entered by a thread, which is left when closed.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final MantaLane previous;
+
+        private Scope(final MantaLane previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
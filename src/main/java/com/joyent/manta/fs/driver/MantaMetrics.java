@@ -0,0 +1,222 @@
+package com.joyent.manta.fs.driver;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of a filesystem. Requests are recorded by
+ * the {@link MantaRequestDispatcher} per {@link MantaOperation}; operations
+ * of the driver that span more than one request, or part of one, are
+ * recorded per {@link Action}. Recording never allocates.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaMetrics {
+    /**
+     * Operations of the driver that are timed on their own.
+     */
+    public enum Action {
+        /**
+         * Opening an input stream, until the response headers arrived.
+         */
+        NEW_INPUT_STREAM,
+
+        /**
+         * Opening a byte channel.
+         */
+        OPEN_BYTE_CHANNEL,
+
+        /**
+         * Closing a byte channel, which uploads channels opened for writing.
+         */
+        CLOSE_BYTE_CHANNEL,
+
+        /**
+         * Fetching the first page of a directory listing.
+         */
+        LIST_PAGE,
+
+        /**
+         * Copying an object, whichever way it is copied.
+         */
+        COPY
+    }
+
+    private static final int MAX_STATUS = 600;
+
+    private final LatencyHistogram[] requests = newHistograms(MantaOperation.values().length);
+    private final LatencyHistogram[] actions = newHistograms(Action.values().length);
+    private final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS);
+    private final LongAdder connectionErrors = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    private static LatencyHistogram[] newHistograms(final int count) {
+        final LatencyHistogram[] histograms = new LatencyHistogram[count];
+
+        for (int i = 0; i < count; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+
+        return histograms;
+    }
+
+    /**
+     * @param operation kind of request
+     * @param nanos time the request took
+     */
+    public void recordRequest(final MantaOperation operation, final long nanos) {
+        requests[operation.ordinal()].record(nanos);
+    }
+
+    /**
+     * @param action operation of the driver
+     * @param nanos time the operation took
+     */
+    public void recordAction(final Action action, final long nanos) {
+        actions[action.ordinal()].record(nanos);
+    }
+
+    /**
+     * @param status HTTP status code of an error response
+     */
+    public void recordStatus(final int status) {
+        if (status >= 0 && status < MAX_STATUS) {
+            statuses.incrementAndGet(status);
+        }
+    }
+
+    /**
+     * Records a request that failed without a response.
+     */
+    public void recordConnectionError() {
+        connectionErrors.increment();
+    }
+
+    /**
+     * @param bytes number of object bytes read
+     */
+    public void addBytesRead(final long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * @param bytes number of object bytes written
+     */
+    public void addBytesWritten(final long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    /**
+     * @param in stream of object content
+     * @return stream whose reads are counted as bytes read
+     */
+    public InputStream count(final InputStream in) {
+        return count(in, bytesRead);
+    }
+
+    /**
+     * @param in stream of object content that is being uploaded
+     * @return stream whose reads are counted as bytes written
+     */
+    public InputStream countUpload(final InputStream in) {
+        return count(in, bytesWritten);
+    }
+
+    private static InputStream count(final InputStream in, final LongAdder bytes) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                final int b = super.read();
+
+                if (b != -1) {
+                    bytes.increment();
+                }
+
+                return b;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                final int count = super.read(b, off, len);
+
+                if (count > 0) {
+                    bytes.add(count);
+                }
+
+                return count;
+            }
+        };
+    }
+
+    /**
+     * @param out stream of object content
+     * @return stream whose writes are counted as bytes written
+     */
+    public OutputStream count(final OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(final int b) throws IOException {
+                out.write(b);
+                bytesWritten.increment();
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+                bytesWritten.add(len);
+            }
+        };
+    }
+
+    /**
+     * @param operation kind of request
+     * @return latencies of the requests of the kind
+     */
+    public LatencyHistogram getRequestLatency(final MantaOperation operation) {
+        return requests[operation.ordinal()];
+    }
+
+    /**
+     * @param action operation of the driver
+     * @return latencies of the operation
+     */
+    public LatencyHistogram getActionLatency(final Action action) {
+        return actions[action.ordinal()];
+    }
+
+    /**
+     * @param status HTTP status code
+     * @return number of error responses with the status code
+     */
+    public long getStatusCount(final int status) {
+        return status >= 0 && status < MAX_STATUS ? statuses.get(status) : 0L;
+    }
+
+    /**
+     * @return number of requests that failed without a response
+     */
+    public long getConnectionErrors() {
+        return connectionErrors.sum();
+    }
+
+    /**
+     * @return number of object bytes read
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return number of object bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+}
@@ -0,0 +1,406 @@
+package com.joyent.manta.fs.driver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed view of the <code>manta.nio.*</code> settings passed in the
+ * environment map when a filesystem is created. These settings tune the
+ * driver and are separate from the client configuration, which is read
+ * through a {@link com.joyent.manta.fs.config.ConfigContext}.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaNioSettings {
+    /**
+     * Environment key selecting the {@link ExecutionMode} of the threads
+     * that run parallel operations and asynchronous requests.
+     */
+    public static final String EXECUTION_MODE_KEY = "manta.nio.execution_mode";
+
+    /**
+     * Environment key for the maximum number of HTTP requests that a
+     * filesystem sends at once. Defaults to the maximum number of
+     * connections, so that requests wait for a permit instead of timing
+     * out while waiting for a pooled connection.
+     */
+    public static final String MAX_IN_FLIGHT_KEY = "manta.nio.max_in_flight_requests";
+
+    /**
+     * Environment key enabling the adaptive concurrency limit, which lowers
+     * the number of requests in flight when Manta throttles requests or its
+     * latency spikes, and raises it back up to the maximum while Manta keeps
+     * up. Enabled by default; when disabled the maximum is a fixed limit.
+     */
+    public static final String ADAPTIVE_CONCURRENCY_KEY = "manta.nio.adaptive_concurrency";
+
+    /**
+     * Environment key for the number of requests in flight below which the
+     * adaptive concurrency limit never goes. Defaults to 1.
+     */
+    public static final String MIN_IN_FLIGHT_KEY = "manta.nio.min_in_flight_requests";
+
+    /**
+     * Environment key enabling registration of a {@link MantaFileSystemMXBean}
+     * for each filesystem. Enabled by default.
+     */
+    public static final String JMX_KEY = "manta.nio.jmx";
+
+    /**
+     * Environment key enabling hedging of HEAD and GET requests, see
+     * {@link MantaRequestHedger}. Disabled by default.
+     */
+    public static final String HEDGING_KEY = "manta.nio.hedging";
+
+    /**
+     * Environment key for the percentile of recent latencies after which a
+     * request is hedged. Defaults to {@link MantaRequestHedger#DEFAULT_PERCENTILE}.
+     */
+    public static final String HEDGE_PERCENTILE_KEY = "manta.nio.hedge_percentile";
+
+    /**
+     * Environment key for the minimum number of milliseconds to wait before
+     * hedging a request. Defaults to 0.
+     */
+    public static final String HEDGE_MIN_DELAY_KEY = "manta.nio.hedge_min_delay_ms";
+
+    /**
+     * Environment key for the fraction of requests that may be hedged.
+     * Defaults to {@link MantaRequestHedger#DEFAULT_BUDGET_RATIO}.
+     */
+    public static final String HEDGE_BUDGET_KEY = "manta.nio.hedge_budget";
+
+    /**
+     * Environment key for the number of consecutive attempts a read stream
+     * makes to resume after a transient error, zero to never resume.
+     * Defaults to {@link ResumableInputStream#DEFAULT_MAX_RETRIES}.
+     */
+    public static final String READ_RETRIES_KEY = "manta.nio.read_retries";
+
+    /**
+     * Environment key for the milliseconds a read stream waits before its
+     * first attempt to resume, doubled for each following attempt. Defaults
+     * to {@link ResumableInputStream#DEFAULT_BACKOFF_MILLIS}.
+     */
+    public static final String READ_RETRY_BACKOFF_KEY = "manta.nio.read_retry_backoff_ms";
+
+    /**
+     * Environment key enabling the circuit breaker, see
+     * {@link MantaCircuitBreaker}. Enabled by default.
+     */
+    public static final String CIRCUIT_BREAKER_KEY = "manta.nio.circuit_breaker";
+
+    /**
+     * Environment key for the fraction of failed requests at which the
+     * circuit breaker opens. Defaults to
+     * {@link MantaCircuitBreaker#DEFAULT_FAILURE_RATE}.
+     */
+    public static final String CIRCUIT_FAILURE_RATE_KEY = "manta.nio.circuit_failure_rate";
+
+    /**
+     * Environment key for the fraction of slow requests at which the
+     * circuit breaker opens. Defaults to
+     * {@link MantaCircuitBreaker#DEFAULT_SLOW_CALL_RATE}.
+     */
+    public static final String CIRCUIT_SLOW_CALL_RATE_KEY = "manta.nio.circuit_slow_call_rate";
+
+    /**
+     * Environment key for the milliseconds after which a request counts as
+     * slow. Defaults to {@link MantaCircuitBreaker#DEFAULT_SLOW_CALL_MILLIS}.
+     */
+    public static final String CIRCUIT_SLOW_CALL_KEY = "manta.nio.circuit_slow_call_ms";
+
+    /**
+     * Environment key for the number of recent requests the circuit breaker
+     * computes its rates over. Defaults to
+     * {@link MantaCircuitBreaker#DEFAULT_WINDOW}.
+     */
+    public static final String CIRCUIT_WINDOW_KEY = "manta.nio.circuit_window";
+
+    /**
+     * Environment key for the number of requests recorded before the
+     * circuit breaker may open. Defaults to
+     * {@link MantaCircuitBreaker#DEFAULT_MINIMUM_CALLS}.
+     */
+    public static final String CIRCUIT_MINIMUM_CALLS_KEY = "manta.nio.circuit_minimum_calls";
+
+    /**
+     * Environment key for the milliseconds the circuit breaker stays open
+     * before it probes Manta. Defaults to
+     * {@link MantaCircuitBreaker#DEFAULT_OPEN_MILLIS}.
+     */
+    public static final String CIRCUIT_OPEN_KEY = "manta.nio.circuit_open_ms";
+
+    /**
+     * Environment key for the Manta endpoints serving the namespace of the
+     * filesystem, as a collection or a comma separated string of URLs or
+     * <code>host[:port]</code> values. When set, requests are spread
+     * between these endpoints, see {@link MantaEndpointPool}, instead of
+     * going to the single endpoint of the filesystem URI or configuration.
+     */
+    public static final String ENDPOINTS_KEY = "manta.nio.endpoints";
+
+    /**
+     * Environment key selecting the {@link MantaEndpointPool.Balancing}
+     * policy between endpoints. Defaults to
+     * {@link MantaEndpointPool.Balancing#LEAST_OUTSTANDING}.
+     */
+    public static final String ENDPOINT_BALANCING_KEY = "manta.nio.endpoint_balancing";
+
+    /**
+     * Environment key for the number of failed requests in a row after
+     * which an endpoint is ejected. Defaults to
+     * {@link MantaEndpointPool#DEFAULT_EJECT_AFTER_FAILURES}.
+     */
+    public static final String ENDPOINT_EJECT_AFTER_KEY = "manta.nio.endpoint_eject_after_failures";
+
+    /**
+     * Environment key for the milliseconds an endpoint stays ejected the
+     * first time. Defaults to {@link MantaEndpointPool#DEFAULT_EJECT_MILLIS}.
+     */
+    public static final String ENDPOINT_EJECT_KEY = "manta.nio.endpoint_eject_ms";
+
+    /**
+     * Prefix of the settings of a {@link MantaLane}, followed by the lane's
+     * name and then {@link #LANE_WEIGHT_SUFFIX} or
+     * {@link #LANE_BANDWIDTH_SUFFIX}, e.g.
+     * <code>manta.nio.lane.bulk.max_bytes_per_second</code>.
+     */
+    public static final String LANE_PREFIX = "manta.nio.lane.";
+
+    /**
+     * Suffix of the setting for the share of the in-flight permits a lane
+     * gets while requests are waiting. Defaults to
+     * {@link MantaLane#getDefaultWeight()}.
+     */
+    public static final String LANE_WEIGHT_SUFFIX = ".weight";
+
+    /**
+     * Suffix of the setting for the maximum number of bytes per second the
+     * streams of a lane transfer. Unset means no cap.
+     */
+    public static final String LANE_BANDWIDTH_SUFFIX = ".max_bytes_per_second";
+
+    private final Map<String, ?> env;
+
+    /**
+     * Creates a view over an environment map.
+     *
+     * @param env environment map, may be null
+     */
+    public MantaNioSettings(final Map<String, ?> env) {
+        this.env = env == null ? Collections.emptyMap() : env;
+    }
+
+    /**
+     * @return settings where every value has its default
+     */
+    public static MantaNioSettings defaults() {
+        return new MantaNioSettings(null);
+    }
+
+    /**
+     * @param key environment key
+     * @return true if a value is set for the key
+     */
+    public boolean contains(final String key) {
+        return env.get(key) != null;
+    }
+
+    /**
+     * @param key environment key
+     * @param defaultValue value returned when the key isn't set
+     * @return trimmed value of the key
+     */
+    public String getString(final String key, final String defaultValue) {
+        final Object setting = env.get(key);
+        return setting == null ? defaultValue : setting.toString().trim();
+    }
+
+    /**
+     * @param key environment key
+     * @param defaultValue value returned when the key isn't set
+     * @return value of the key parsed as an integer
+     * @throws IllegalArgumentException thrown when the value isn't an integer
+     */
+    public int getInt(final String key, final int defaultValue) {
+        final String setting = getString(key, null);
+
+        if (setting == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(setting);
+        } catch (NumberFormatException e) {
+            throw invalid(key, setting, e);
+        }
+    }
+
+    /**
+     * @param key environment key
+     * @param defaultValue value returned when the key isn't set
+     * @return value of the key parsed as a long
+     * @throws IllegalArgumentException thrown when the value isn't a long
+     */
+    public long getLong(final String key, final long defaultValue) {
+        final String setting = getString(key, null);
+
+        if (setting == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(setting);
+        } catch (NumberFormatException e) {
+            throw invalid(key, setting, e);
+        }
+    }
+
+    /**
+     * @param key environment key
+     * @param defaultValue value returned when the key isn't set
+     * @return value of the key parsed as a double
+     * @throws IllegalArgumentException thrown when the value isn't a number
+     */
+    public double getDouble(final String key, final double defaultValue) {
+        final String setting = getString(key, null);
+
+        if (setting == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Double.parseDouble(setting);
+        } catch (NumberFormatException e) {
+            throw invalid(key, setting, e);
+        }
+    }
+
+    /**
+     * @param key environment key
+     * @param defaultValue value returned when the key isn't set
+     * @return value of the key parsed as a boolean
+     * @throws IllegalArgumentException thrown when the value is neither
+     *         <code>true</code> nor <code>false</code>
+     */
+    public boolean getBoolean(final String key, final boolean defaultValue) {
+        final String setting = getString(key, null);
+
+        if (setting == null) {
+            return defaultValue;
+        }
+
+        if ("true".equalsIgnoreCase(setting)) {
+            return true;
+        } else if ("false".equalsIgnoreCase(setting)) {
+            return false;
+        }
+
+        throw invalid(key, setting, null);
+    }
+
+    /**
+     * @return requested execution mode, {@link ExecutionMode#PLATFORM} by default
+     */
+    public ExecutionMode getExecutionMode() {
+        final String setting = getString(EXECUTION_MODE_KEY, null);
+
+        if (setting == null) {
+            return ExecutionMode.PLATFORM;
+        }
+
+        try {
+            return ExecutionMode.parse(setting);
+        } catch (IllegalArgumentException e) {
+            throw invalid(EXECUTION_MODE_KEY, setting, e);
+        }
+    }
+
+    /**
+     * @return configured endpoints, empty when there are none
+     */
+    public List<String> getEndpoints() {
+        final Object setting = env.get(ENDPOINTS_KEY);
+        final List<String> endpoints = new ArrayList<>();
+
+        if (setting instanceof Collection) {
+            for (Object endpoint : (Collection<?>) setting) {
+                endpoints.add(endpoint.toString().trim());
+            }
+        } else if (setting != null) {
+            for (String endpoint : setting.toString().split(",")) {
+                endpoints.add(endpoint.trim());
+            }
+        }
+
+        endpoints.removeIf(String::isEmpty);
+
+        return endpoints;
+    }
+
+    /**
+     * @return policy used to balance requests between endpoints,
+     *         {@link MantaEndpointPool.Balancing#LEAST_OUTSTANDING} by default
+     */
+    public MantaEndpointPool.Balancing getEndpointBalancing() {
+        final String setting = getString(ENDPOINT_BALANCING_KEY, null);
+
+        if (setting == null) {
+            return MantaEndpointPool.Balancing.LEAST_OUTSTANDING;
+        }
+
+        try {
+            return MantaEndpointPool.Balancing.parse(setting);
+        } catch (IllegalArgumentException e) {
+            throw invalid(ENDPOINT_BALANCING_KEY, setting, e);
+        }
+    }
+
+    /**
+     * @return configured weights of the lanes that have one
+     */
+    public Map<MantaLane, Integer> getLaneWeights() {
+        final Map<MantaLane, Integer> weights = new EnumMap<>(MantaLane.class);
+
+        for (MantaLane lane : MantaLane.values()) {
+            final String key = LANE_PREFIX + lane.settingName() + LANE_WEIGHT_SUFFIX;
+
+            if (contains(key)) {
+                weights.put(lane, getInt(key, lane.getDefaultWeight()));
+            }
+        }
+
+        return weights;
+    }
+
+    /**
+     * @return configured bandwidth caps in bytes per second of the lanes
+     *         that have one
+     */
+    public Map<MantaLane, Long> getLaneBandwidth() {
+        final Map<MantaLane, Long> caps = new EnumMap<>(MantaLane.class);
+
+        for (MantaLane lane : MantaLane.values()) {
+            final String key = LANE_PREFIX + lane.settingName() + LANE_BANDWIDTH_SUFFIX;
+
+            if (contains(key)) {
+                caps.put(lane, getLong(key, 0L));
+            }
+        }
+
+        return caps;
+    }
+
+    private static IllegalArgumentException invalid(final String key,
+                                                     final String setting,
+                                                     final Exception cause) {
+        String msg = String.format("Invalid value for %s: %s", key, setting);
+        return new IllegalArgumentException(msg, cause);
+    }
+}
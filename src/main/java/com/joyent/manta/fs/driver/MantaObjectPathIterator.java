@@ -1,9 +1,11 @@
 package com.joyent.manta.fs.driver;
 
 import com.joyent.manta.client.MantaDirectoryListingIterator;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.Map;
@@ -19,6 +21,18 @@ public class MantaObjectPathIterator implements Iterator<Path>, Closeable {
     protected final MantaFileSystemDriver driver;
     protected final MantaDirectoryListingIterator internalIterator;
 
+    /**
+     * Absolute form of the directory that all entries share as their
+     * parent, or null when the directory isn't a {@link MantaPath}.
+     */
+    private final MantaPath parent;
+
+    /**
+     * Whether the first page of the listing has been fetched, which
+     * happens on the first call to {@link #hasNext()}.
+     */
+    private boolean started;
+
     public MantaObjectPathIterator(final Path dir,
                                    final MantaFileSystemDriver driver,
                                    final MantaDirectoryListingIterator iterator)
@@ -27,11 +41,49 @@ public class MantaObjectPathIterator implements Iterator<Path>, Closeable {
         this.driver = driver;
         this.realDirPath = driver.findRealPath(dir);
         this.internalIterator = iterator;
+        this.parent = dir instanceof MantaPath ?
+                (MantaPath) dir.toAbsolutePath() : null;
     }
 
     @Override
     public boolean hasNext() {
-        return internalIterator.hasNext();
+        if (started) {
+            return internalIterator.hasNext();
+        }
+
+        final MantaEvent event = new MantaEvent();
+        event.begin();
+        event.attempts = 1;
+        final long start = System.nanoTime();
+
+        try {
+            return internalIterator.hasNext();
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof MantaClientHttpResponseException) {
+                event.status = ((MantaClientHttpResponseException) e.getCause()).getStatusCode();
+            }
+
+            throw e;
+        } finally {
+            started = true;
+            driver.getDispatcher().getMetrics().recordAction(
+                    MantaMetrics.Action.LIST_PAGE, System.nanoTime() - start);
+            event.finish(MantaMetrics.Action.LIST_PAGE.name(), realDirPath, 0L);
+        }
+    }
+
+    /**
+     * Fetches the first page of the listing now rather than on the first
+     * call to {@link #hasNext()}, so that the request is sent by the caller.
+     *
+     * @throws IOException thrown when the listing fails
+     */
+    public void start() throws IOException {
+        try {
+            hasNext();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     @Override
@@ -44,8 +96,9 @@ public class MantaObjectPathIterator implements Iterator<Path>, Closeable {
 
         final String name = Objects.toString(properties.get("name"));
 
-        if (properties == null) {
-            return null;
+        // Entries share the directory's path instead of copying it
+        if (parent != null) {
+            return parent.resolveChild(name);
         }
 
         final String objPath = String.format("%s/%s", realDirPath, name);
@@ -0,0 +1,31 @@
+package com.joyent.manta.fs.driver;
+
+/**
+ * Kinds of requests sent to Manta, used to account for requests sent
+ * through a {@link MantaRequestDispatcher}.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public enum MantaOperation {
+    /** Reads the metadata of an object or directory. */
+    HEAD,
+
+    /** Reads the content of an object, or a range of it. */
+    GET,
+
+    /** Writes the content of an object. */
+    PUT,
+
+    /** Creates a directory. */
+    PUT_DIRECTORY,
+
+    /** Creates a snaplink to an object. */
+    PUT_SNAPLINK,
+
+    /** Deletes an object or directory. */
+    DELETE,
+
+    /** Lists a directory. */
+    LIST
+}
@@ -3,7 +3,6 @@ package com.joyent.manta.fs.driver;
 import com.joyent.manta.fs.provider.MantaFileSystemRepository;
 import com.joyent.manta.client.MantaClient;
 import org.apache.commons.io.FilenameUtils;
-import com.joyent.manta.org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
@@ -16,47 +15,301 @@ import java.nio.file.Path;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
-import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 
 /**
  * Implementation of {@link java.nio.file.Path} that is backed by properties
  * relevant to a Manta object.
  *
+ * <p>The path string is normalized once when the path is constructed. At the
+ * same time the start and end offsets of each of its elements are recorded,
+ * so that element access, iteration and parent / file name lookups work on
+ * offsets into the string instead of splitting it again.</p>
+ *
+ * <p>Paths created for the entries of a directory listing use a compact form
+ * instead: they only reference their parent path, which is shared by all of
+ * the entries, and their own name. Their string is built when it is needed
+ * and isn't retained. The filesystem, client and home directory are kept in
+ * a {@link Context} that is shared by all paths of a filesystem.</p>
+ *
  * @author Elijah Zupancic
  * @since 1.0.0
  */
 public class MantaPath implements Path {
-    /* I'm honestly not very proud of this implementation. This whole thing
-     * could be redone with a preparsed elements array. */
-
     public static final char SEPARATOR_CHAR = '/';
     public static final String SEPARATOR = new String(new char[] { SEPARATOR_CHAR });
     public static final String HOME_DIR_ALIAS = "~~";
     private static final String ROOT_DIRECTORY_PATH = "/";
+    private static final int[] NO_OFFSETS = new int[0];
+
+    /**
+     * State shared by all of the paths that belong to a filesystem.
+     */
+    static final class Context {
+        private final MantaFileSystem fileSystem;
+        private final MantaClientSource clientSource;
+        private final String homeDir;
+
+        Context(final MantaFileSystem fileSystem, final MantaClientSource clientSource,
+                final String homeDir) {
+            this.fileSystem = fileSystem;
+            this.clientSource = clientSource;
+            this.homeDir = homeDir;
+        }
+    }
 
-    private final char separatorChar;
-    private final String separator;
+    private final Context context;
+
+    /**
+     * Path string, or null for a compact child path.
+     */
     private final String objectPath;
-    private final String homeDir;
-    private final MantaFileSystem fileSystem;
-    private final MantaClient mantaClient;
+
+    /**
+     * Start and end offsets of each element of the path string. The start
+     * of element <code>i</code> is at <code>2 * i</code> and its exclusive
+     * end is at <code>2 * i + 1</code>. Null for a compact child path.
+     */
+    private final int[] offsets;
+
+    /**
+     * Parent and name of a compact child path, otherwise null.
+     */
+    private final MantaPath parent;
+    private final String name;
+
+    /**
+     * True when the path string is in its canonical form: no empty, "." or
+     * ".." elements and no trailing separator. Any substring of such a path
+     * that spans whole elements is canonical as well, so paths derived from
+     * it don't need to be normalized again.
+     */
+    private final boolean canonical;
+
+    /**
+     * Lazily computed result of {@link #absolutePathString()}. Never set for
+     * compact child paths.
+     */
+    private String absolutePath;
+
+    /**
+     * Lazily computed hash code of a compact child path.
+     */
+    private int hash;
 
     public MantaPath(final String first, final MantaFileSystem fileSystem,
                      final MantaClient mantaClient,
                      final String homeDir, final String... more) {
+        this(new Context(fileSystem, MantaClientSource.of(mantaClient), homeDir),
+                first, more);
+    }
+
+    MantaPath(final Context context, final String first, final String... more) {
         if (first == null) throw new IllegalArgumentException(
                 "Object path must not be null");
 
-        this.fileSystem = fileSystem;
-        this.mantaClient = mantaClient;
-        this.homeDir = homeDir;
-        this.separatorChar = fileSystem == null ?
-                '/' : fileSystem.getSeparator().charAt(0);
-        this.separator = new String(new char[] { separatorChar });
+        this.context = context;
         this.objectPath = buildObjectPath(first, more);
         validatePath(objectPath);
+        this.offsets = parseOffsets(objectPath);
+        this.canonical = isCanonical(objectPath, offsets);
+        this.parent = null;
+        this.name = null;
+    }
+
+    /**
+     * Creates a path from a string that is known to be canonical because it
+     * was cut out of another canonical path.
+     */
+    private MantaPath(final Context context, final String canonicalPath,
+                      final boolean canonical) {
+        this.context = context;
+        this.objectPath = canonicalPath;
+        this.offsets = parseOffsets(canonicalPath);
+        this.canonical = canonical;
+        this.parent = null;
+        this.name = null;
+    }
+
+    /**
+     * Creates a compact child path.
+     */
+    private MantaPath(final MantaPath parent, final String name) {
+        this.context = parent.context;
+        this.objectPath = null;
+        this.offsets = null;
+        this.canonical = true;
+        this.parent = parent;
+        this.name = name;
+    }
+
+    /**
+     * Resolves the name of an entry of this directory. When possible, the
+     * result is a compact path that shares this path instead of copying its
+     * string.
+     *
+     * @param childName name of a directory entry
+     * @return path of the entry
+     */
+    MantaPath resolveChild(final String childName) {
+        final boolean simpleName = !childName.isEmpty()
+                && childName.indexOf(SEPARATOR_CHAR) < 0
+                && childName.indexOf('\u0000') < 0
+                && !childName.equals(".") && !childName.equals("..");
+
+        if (canonical && simpleName) {
+            return new MantaPath(this, childName);
+        }
+
+        return (MantaPath) resolve(childName);
+    }
+
+    private boolean isCompact() {
+        return objectPath == null;
+    }
+
+    /**
+     * @return this path, or for a compact path an equivalent path that has
+     *         a string and element offsets
+     */
+    private MantaPath flat() {
+        if (!isCompact()) {
+            return this;
+        }
+
+        return new MantaPath(context, toString(), true);
+    }
+
+    private static int[] parseOffsets(final String path) {
+        int count = 0;
+        boolean inElement = false;
+
+        for (int i = 0; i < path.length(); i++) {
+            final boolean isSeparator = path.charAt(i) == SEPARATOR_CHAR;
+
+            if (!isSeparator && !inElement) {
+                count++;
+            }
+
+            inElement = !isSeparator;
+        }
+
+        if (count == 0) {
+            return NO_OFFSETS;
+        }
+
+        final int[] result = new int[count * 2];
+        int element = 0;
+        int start = -1;
+
+        for (int i = 0; i <= path.length(); i++) {
+            final boolean isSeparator = i == path.length()
+                    || path.charAt(i) == SEPARATOR_CHAR;
+
+            if (isSeparator && start >= 0) {
+                result[element * 2] = start;
+                result[element * 2 + 1] = i;
+                element++;
+                start = -1;
+            } else if (!isSeparator && start < 0) {
+                start = i;
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean isCanonical(final String path, final int[] offsets) {
+        final int count = offsets.length / 2;
+        final int expectedStart = !path.isEmpty() && path.charAt(0) == SEPARATOR_CHAR ? 1 : 0;
+
+        if (count == 0) {
+            return path.isEmpty() || path.equals(ROOT_DIRECTORY_PATH);
+        }
+
+        if (offsets[0] != expectedStart || offsets[offsets.length - 1] != path.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < count; i++) {
+            final int start = offsets[i * 2];
+            final int length = offsets[i * 2 + 1] - start;
+
+            // Elements must be separated by exactly one separator
+            if (i > 0 && start != offsets[i * 2 - 1] + 1) {
+                return false;
+            }
+
+            if (path.charAt(start) == '.' && (length == 1
+                    || (length == 2 && path.charAt(start + 1) == '.'))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates a path from a part of this path's string.
+     */
+    private MantaPath derive(final String path) {
+        if (canonical) {
+            return new MantaPath(context, path, true);
+        }
+
+        return new MantaPath(context, path);
+    }
+
+    private int elementStart(final int index) {
+        return offsets[index * 2];
+    }
+
+    private int elementEnd(final int index) {
+        return offsets[index * 2 + 1];
+    }
+
+    private int elementCount() {
+        return offsets.length / 2;
+    }
+
+    /**
+     * Runs the elements of this path through a glob automaton without
+     * building any strings.
+     *
+     * @param glob compiled glob pattern
+     * @return state after the last element, zero if nothing can match
+     */
+    long globState(final MantaGlob glob) {
+        if (!isCompact() && elementCount() == 0) {
+            return glob.stepEmptyPath(glob.initialState(isAbsolute()));
+        }
+
+        return elementsGlobState(glob);
+    }
+
+    /**
+     * Compact paths continue from the state of their parent.
+     */
+    private long elementsGlobState(final MantaGlob glob) {
+        if (isCompact()) {
+            final long parentState = parent.elementsGlobState(glob);
+
+            if (parentState == 0L) {
+                return 0L;
+            }
+
+            return glob.step(parentState, name, 0, name.length());
+        }
+
+        long state = glob.initialState(isAbsolute());
+
+        for (int i = 0; i < elementCount() && state != 0L; i++) {
+            state = glob.step(state, objectPath, elementStart(i), elementEnd(i));
+        }
+
+        return state;
     }
 
     protected String buildObjectPath(String first, String... more) {
@@ -67,7 +320,7 @@ public class MantaPath implements Path {
         // Don't pre add first if it is the separator, otherwise we will get a path like //foo
         final StringBuilder builder;
 
-        if (first.equals(separator)) {
+        if (first.equals(SEPARATOR)) {
             builder = new StringBuilder();
         } else {
             builder = new StringBuilder(first);
@@ -78,15 +331,15 @@ public class MantaPath implements Path {
 
             if (part == null) continue;
             if (part.isEmpty()) continue;
-            if (part.equals(this.separator)) continue;
+            if (part.equals(SEPARATOR)) continue;
 
             String normalized = FilenameUtils.normalizeNoEndSeparator(part, true);
 
             boolean emptyFirstValue = i == 0 && first.isEmpty();
-            boolean hasLeadingSeparator = normalized.charAt(0) == separatorChar;
+            boolean hasLeadingSeparator = normalized.charAt(0) == SEPARATOR_CHAR;
 
             if (!hasLeadingSeparator && !emptyFirstValue) {
-                builder.append(this.separatorChar);
+                builder.append(SEPARATOR_CHAR);
             }
 
             builder.append(normalized);
@@ -96,7 +349,7 @@ public class MantaPath implements Path {
 
         // If everything is empty, then we assume we are getting the root directory
         if (first.isEmpty() && builtPath.isEmpty()) {
-            return separator;
+            return SEPARATOR;
             // When we've excluded all of the possible extra parts, we can't append double separators together,
             // so we just return the value of first.
         } else if (builtPath.isEmpty()) {
@@ -122,17 +375,21 @@ public class MantaPath implements Path {
 
     @Override
     public FileSystem getFileSystem() {
-        return fileSystem;
+        return context.fileSystem;
     }
 
     @Override
     public boolean isAbsolute() {
-        return !objectPath.isEmpty() && objectPath.charAt(0) == separatorChar;
+        if (isCompact()) {
+            return parent.isAbsolute();
+        }
+
+        return !objectPath.isEmpty() && objectPath.charAt(0) == SEPARATOR_CHAR;
     }
 
     @Override
     public Path getRoot() {
-        if (!objectPath.isEmpty() && objectPath.charAt(0) == separatorChar) {
+        if (isAbsolute()) {
             return rootDirectory();
         } else {
             return null;
@@ -141,63 +398,94 @@ public class MantaPath implements Path {
 
     @Override
     public Path getFileName() {
+        if (isCompact()) {
+            return new MantaPath(context, name, true);
+        }
+
+        final int count = elementCount();
+
         // There is no filename available for the root directory
-        if (objectPath.equals(ROOT_DIRECTORY_PATH)) return null;
+        if (count == 0) {
+            return objectPath.isEmpty() ? this : null;
+        }
 
-        String normalized = normalizeObjectPath(objectPath);
-        String fileName = FilenameUtils.getBaseName(normalized);
-        return new MantaPath(fileName, fileSystem, mantaClient, homeDir);
+        if (count == 1 && !isAbsolute()) {
+            return this;
+        }
+
+        return derive(objectPath.substring(elementStart(count - 1)));
     }
 
     @Override
     public Path getParent() {
-        // The root directory doesn't have a parent
-        if (objectPath.equals(ROOT_DIRECTORY_PATH)) return null;
-        // We imitate the behavior of UnixPath in these cases
-        if (objectPath.equals(".") || objectPath.equals("..")) return null;
-        // There is no parent when we have an empty path
-        if (objectPath.isEmpty()) return null;
+        if (isCompact()) {
+            final int parentCount = parent.getNameCount();
 
-        String[] subPaths = subPaths();
+            // Like the other paths, a single relative name has no parent
+            if (parentCount == 0 && !parent.isAbsolute()) {
+                return null;
+            }
 
-        if (subPaths.length < 2) return null;
+            return parent;
+        }
 
-        String normalized = normalizeObjectPath(objectPath);
-        String parent = FilenameUtils.getFullPathNoEndSeparator(normalized);
+        final int count = elementCount();
+
+        // The root directory and the empty path don't have a parent
+        if (count == 0) return null;
 
-        return new MantaPath(parent, fileSystem, mantaClient, homeDir);
+        if (count == 1) {
+            return isAbsolute() ? rootDirectory() : null;
+        }
+
+        return derive(objectPath.substring(0, elementEnd(count - 2)));
     }
 
     @Override
     public int getNameCount() {
-        if (this.toString().equals(ROOT_DIRECTORY_PATH)) return 0;
+        if (isCompact()) {
+            return parent.getNameCount() + 1;
+        }
 
-        return subPaths().length;
+        return elementCount();
     }
 
     @Override
     public Path getName(int index) {
+        if (isCompact()) {
+            return flat().getName(index);
+        }
+
         if (index < 0) throw new IllegalArgumentException("index must be above 0");
-        String[] subPaths = subPaths();
-        if (index > subPaths.length) throw new IllegalArgumentException(
-                "index must not be greater than the number of elements available");
 
-        String namePath = subPaths.length > 0 ? subPaths[index] : "";
+        final int count = elementCount();
+
+        // The empty path has a single empty name
+        if (count == 0 && index == 0) {
+            return derive("");
+        }
+
+        if (index >= count) throw new IllegalArgumentException(
+                "index must be less than the number of elements available");
 
-        return new MantaPath(namePath, fileSystem, mantaClient, homeDir);
+        return derive(objectPath.substring(elementStart(index), elementEnd(index)));
     }
 
     @Override
     public Path subpath(int beginIndex, int endIndex) {
+        if (isCompact()) {
+            return flat().subpath(beginIndex, endIndex);
+        }
+
         if (beginIndex < 0) throw new IllegalArgumentException(
                 "beginIndex must be above 0");
 
         if (endIndex < 0) throw new IllegalArgumentException(
                 "endIndex must be above 0");
 
-        String[] subPaths = subPaths();
+        final int count = elementCount();
 
-        if (beginIndex > subPaths.length) throw new IllegalArgumentException(
+        if (beginIndex > count) throw new IllegalArgumentException(
                 "beginIndex is greater than the number of elements available");
 
         if (endIndex <= beginIndex) throw new IllegalArgumentException(
@@ -208,37 +496,27 @@ public class MantaPath implements Path {
             return this;
         }
 
-        if (endIndex > subPaths.length) {
+        if (endIndex > count) {
             throw new IllegalArgumentException(
                     "endIndex must not be greater than the number of elements available");
         }
 
-        StringBuilder builder = new StringBuilder();
-
-        for (int i = beginIndex; i < endIndex; i++) {
-            String part = subPaths[i];
-
-            builder.append(part);
-
-            if (i < endIndex - 1) {
-                builder.append(separator);
-            }
-        }
-
-        return new MantaPath(builder.toString(), fileSystem, mantaClient, homeDir);
-    }
-
-    protected String[] subPaths() {
-        if (objectPath == null) return null;
-
-        return StringUtils.split(objectPath, separatorChar);
+        return derive(objectPath.substring(elementStart(beginIndex),
+                elementEnd(endIndex - 1)));
     }
 
     @Override
     public boolean startsWith(Path other) {
+        Objects.requireNonNull(other);
+
         if (other instanceof MantaPath) {
-            MantaPath otherMantaPath = (MantaPath)other;
-            return startsWith(otherMantaPath.objectPath);
+            final MantaPath that = ((MantaPath) other).flat();
+
+            if (that.objectPath.isEmpty()) {
+                return toString().isEmpty();
+            }
+
+            return flat().startsWith(that);
         } else {
             return startsWith(other.toString());
         }
@@ -246,18 +524,28 @@ public class MantaPath implements Path {
 
     @Override
     public boolean startsWith(String other) {
-        if (objectPath.isEmpty() && other.isEmpty()) return true;
-        if (objectPath.isEmpty() && other.equals(separator)) return false;
-        if (other == null || other.isEmpty()) return false;
+        final boolean empty = !isCompact() && objectPath.isEmpty();
 
-        String resolveOther = resolveObjectPath(other);
-        String resolveOtherWithSeparator = resolveOther.endsWith(separator) ?
-                resolveOther : resolveOther + separator;
-        String resolve = resolveObjectPath(objectPath);
-        String resolveWithSeparator = resolve.endsWith(separator) ?
-                resolve : resolve + separator;
+        if (empty && other.isEmpty()) return true;
+        if (other.isEmpty()) return false;
 
-        return resolveWithSeparator.startsWith(resolveOtherWithSeparator);
+        return flat().startsWith(new MantaPath(context, other));
+    }
+
+    private boolean startsWith(final MantaPath that) {
+        if (isAbsolute() != that.isAbsolute()) return false;
+
+        final int count = that.elementCount();
+
+        if (count > elementCount()) return false;
+
+        for (int i = 0; i < count; i++) {
+            if (!elementEquals(i, that.objectPath, that.elementStart(i), that.elementEnd(i))) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     @Override
@@ -267,8 +555,12 @@ public class MantaPath implements Path {
 
     @Override
     public boolean endsWith(String other) {
+        if (isCompact()) {
+            return flat().endsWith(other);
+        }
+
         if (objectPath.isEmpty() && other.isEmpty()) return true;
-        if (objectPath.isEmpty() && other.equals(separator)) return false;
+        if (objectPath.isEmpty() && other.equals(SEPARATOR)) return false;
         if (other == null || other.isEmpty()) return false;
 
         /* Just do a simple equality if we have a fully specified path on other
@@ -276,52 +568,59 @@ public class MantaPath implements Path {
          *   objectPath: /foo/bar -> other: /bar => false
          *   objectPath: /foo/bar -> other: /foo/bar => true
          */
-        if (other.startsWith(separator)) {
+        if (other.charAt(0) == SEPARATOR_CHAR) {
             return objectPath.equals(other);
         }
 
-        String[] subPaths = subPaths();
-        String[] otherPaths = StringUtils.split(other, separatorChar);
+        // Compare the elements of other with ours starting from the end
+        int index = elementCount() - 1;
+        int end = other.length();
 
-        int sizeDiff = subPaths.length - otherPaths.length;
-
-        // if the other sizes are greater than the subpaths, it's false
-        if (sizeDiff < 0) return false;
-
-        // if there are no path separators, just do a normal ends with [foo, foo]
-        if (subPaths.length == 0 && otherPaths.length == 0) return objectPath.endsWith(other);
-
-        // If there were no path separators in other, but in objectPath [/foo/bar, bar]
-        if (subPaths.length >= 0 && otherPaths.length == 0) {
-            return subPaths[subPaths.length-1].endsWith(other);
-        }
+        while (end > 0) {
+            while (end > 0 && other.charAt(end - 1) == SEPARATOR_CHAR) {
+                end--;
+            }
 
-        int subPathsIndex = subPaths.length - 1;
-        int otherPathsIndex = otherPaths.length - 1;
+            if (end == 0) break;
 
-        while (subPathsIndex >= 0 && otherPathsIndex >= 0) {
-            final String lastSubPath = subPaths[subPathsIndex];
-            final String lastOtherPath = otherPaths[otherPathsIndex];
+            int start = other.lastIndexOf(SEPARATOR_CHAR, end - 1) + 1;
 
-            if (!lastSubPath.equals(lastOtherPath)) return false;
+            if (index < 0 || !elementEquals(index, other, start, end)) {
+                return false;
+            }
 
-            subPathsIndex--;
-            otherPathsIndex--;
+            index--;
+            end = start;
         }
 
         return true;
     }
 
+    /**
+     * Compares one of our elements to a region of another string.
+     */
+    private boolean elementEquals(final int index, final String other,
+                                  final int start, final int end) {
+        final int length = end - start;
+
+        return elementEnd(index) - elementStart(index) == length
+                && objectPath.regionMatches(elementStart(index), other, start, length);
+    }
+
     @Override
     public Path normalize() {
+        if (isCompact()) {
+            return this;
+        }
+
         String normalized = normalizeObjectPath(objectPath);
-        return new MantaPath(normalized, fileSystem, mantaClient, homeDir);
+        return new MantaPath(context, normalized);
     }
 
     protected String normalizeObjectPath(String aObjectPath) {
         final String resolve;
 
-        if (!aObjectPath.isEmpty() && aObjectPath.charAt(0) == separatorChar) {
+        if (!aObjectPath.isEmpty() && aObjectPath.charAt(0) == SEPARATOR_CHAR) {
             resolve = resolveObjectPath(aObjectPath);
         } else {
             resolve = aObjectPath;
@@ -339,53 +638,49 @@ public class MantaPath implements Path {
 
     @Override
     public Path resolve(Path other) {
-        if (other instanceof MantaPath) {
-            MantaPath otherMantaPath = (MantaPath)other;
-            return resolve(otherMantaPath.objectPath);
-        } else {
-            return resolve(other.toString());
-        }
+        return resolve(other.toString());
     }
 
     @Override
     public Path resolve(String other) {
+        final String path = toString();
         final String resolved;
 
-        if (objectPath.isEmpty() && other.isEmpty()) {
+        if (path.isEmpty() && other.isEmpty()) {
             resolved = "";
-        } else if (objectPath.isEmpty() && other.charAt(0) != separatorChar) {
+        } else if (path.isEmpty() && other.charAt(0) != SEPARATOR_CHAR) {
             resolved = resolveObjectPath(other);
-        } else if (objectPath.isEmpty()) {
+        } else if (path.isEmpty()) {
             resolved = resolveObjectPath(other);
         } else if (other.isEmpty()) {
-            resolved = resolveObjectPath(objectPath);
-        } else if (other.charAt(0) != separatorChar) {
-            resolved = resolveObjectPath(objectPath + separator + other);
+            resolved = resolveObjectPath(path);
+        } else if (other.charAt(0) != SEPARATOR_CHAR) {
+            resolved = resolveObjectPath(path + SEPARATOR + other);
         } else {
             resolved = resolveObjectPath(other);
         }
 
-        return new MantaPath(resolved, fileSystem, mantaClient, homeDir);
+        return new MantaPath(context, resolved);
     }
 
     protected String resolveObjectPath(String objectPath) {
         // We don't include this in the switch because separator is not static final
-        if (objectPath.equals(separator)) return separator;
+        if (objectPath.equals(SEPARATOR)) return SEPARATOR;
 
         switch (objectPath) {
             case "":
                 return "";
             case "..":
-                return separator;
+                return SEPARATOR;
             case ".":
-                return separator;
+                return SEPARATOR;
         }
 
-        String[] parts = objectPath.split(separator);
+        String[] parts = objectPath.split(SEPARATOR);
         StringBuilder builder = new StringBuilder();
 
-        boolean startingSeparator = objectPath.startsWith(separator);
-        boolean trailingSeparator = objectPath.endsWith(separator);
+        boolean startingSeparator = objectPath.startsWith(SEPARATOR);
+        boolean trailingSeparator = objectPath.endsWith(SEPARATOR);
         for (int i = 0; i < parts.length; i++) {
             final String part = parts[i];
             final String lastPart = i > 0 ? parts[i-1] : "";
@@ -403,16 +698,16 @@ public class MantaPath implements Path {
             }
 
             if (builder.length() == 0 && startingSeparator) {
-                builder.append(separator);
+                builder.append(SEPARATOR);
             } else if (builder.length() > 0){
-                builder.append(separator);
+                builder.append(SEPARATOR);
             }
 
             builder.append(part);
         }
 
-        if (trailingSeparator) builder.append(separator);
-        if (builder.length() == 0) builder.append(separator);
+        if (trailingSeparator) builder.append(SEPARATOR);
+        if (builder.length() == 0) builder.append(SEPARATOR);
 
         return builder.toString();
     }
@@ -429,8 +724,7 @@ public class MantaPath implements Path {
         /* PathDoc: If this path does not have a parent path but is absolute,
          * then this method returns other from the root path. */
         if (getParent() == null && isAbsolute()) {
-            return new MantaPath(rootDirectory().toString(), this.fileSystem,
-                    this.mantaClient, this.homeDir, other.toString());
+            return new MantaPath(context, rootDirectory().toString(), other.toString());
         /* If this path does not have a parent path, then this method
          * returns other. */
         } else if (getParent() == null) {
@@ -443,8 +737,7 @@ public class MantaPath implements Path {
             return getParent();
         }
 
-        return new MantaPath(getParent().toString(), this.fileSystem, this.mantaClient,
-                this.homeDir, other.toString());
+        return new MantaPath(context, getParent().toString(), other.toString());
     }
 
     @Override
@@ -453,8 +746,7 @@ public class MantaPath implements Path {
 
         /* Since we don't know what type of path other is, we assume it is a
          * MantaPath. */
-        final Path otherPath = new MantaPath(other, this.fileSystem,
-                this.mantaClient, this.homeDir);
+        final Path otherPath = new MantaPath(context, other);
 
         return resolveSibling(otherPath);
     }
@@ -470,29 +762,82 @@ public class MantaPath implements Path {
         return URI.create(
                 String.format("%s://%s",
                         MantaFileSystemRepository.SCHEME,
-                        objectPath)
+                        toString())
         );
     }
 
     @Override
     public Path toAbsolutePath() {
+        final String absolute = absolutePathString();
+
+        if (absolute.equals(toString())) {
+            return this;
+        }
+
+        return new MantaPath(context, absolute);
+    }
+
+    /**
+     * Returns the path string with the home directory alias expanded and
+     * normalized. This is the form used to compare paths. It is computed on
+     * first use and cached; as with {@link String#hashCode()}, a race only
+     * means that the same value is computed more than once. Compact paths
+     * build it from their parent's form each time instead of keeping it.
+     *
+     * @return absolute form of this path's string
+     */
+    String absolutePathString() {
+        if (isCompact()) {
+            final String parentAbsolute = parent.absolutePathString();
+
+            if (parentAbsolute.isEmpty()) {
+                return name;
+            } else if (parentAbsolute.equals(ROOT_DIRECTORY_PATH)) {
+                return SEPARATOR + name;
+            }
+
+            return parentAbsolute + SEPARATOR + name;
+        }
+
+        String absolute = absolutePath;
+
+        if (absolute == null) {
+            absolute = computeAbsolutePath();
+            absolutePath = absolute;
+        }
+
+        return absolute;
+    }
+
+    private String computeAbsolutePath() {
         final String pathString = objectPath;
         final String realpath;
 
         if (pathString.startsWith(HOME_DIR_ALIAS)) {
             final String relative = pathString.substring(HOME_DIR_ALIAS.length());
-            realpath = String.format("/%s/%s", homeDir, relative);
+            realpath = homePrefix() + relative;
         } else if (pathString.startsWith(SEPARATOR + HOME_DIR_ALIAS)) {
             final String relative = pathString.substring(SEPARATOR.length()
                     + HOME_DIR_ALIAS.length());
-            realpath = String.format("/%s/%s", homeDir, relative);
+            realpath = homePrefix() + relative;
+        } else if (canonical) {
+            // Nothing to expand and nothing to normalize
+            return pathString;
         } else {
             realpath = pathString;
         }
 
-        final String normalized = FilenameUtils.normalizeNoEndSeparator(realpath);
+        return normalizeObjectPath(realpath);
+    }
+
+    private String homePrefix() {
+        final String homeDir = context.homeDir;
+
+        if (homeDir.startsWith(SEPARATOR)) {
+            return homeDir + SEPARATOR;
+        }
 
-        return new MantaPath(normalized, fileSystem, mantaClient, homeDir);
+        return SEPARATOR + homeDir + SEPARATOR;
     }
 
     @Override
@@ -504,11 +849,13 @@ public class MantaPath implements Path {
 
     @Override
     public synchronized File toFile() {
-        if (mantaClient == null) {
-            throw new UnsupportedOperationException("toFile is not support with a null MantaClient");
-        }
-
         try {
+            final MantaClient mantaClient = context.clientSource.getClient();
+
+            if (mantaClient == null) {
+                throw new UnsupportedOperationException("toFile is not support with a null MantaClient");
+            }
+
             return mantaClient.getToTempFile(toRealPath().toString());
         } catch (IOException e) {
             throw new UncheckedIOException("Error getting Manta object", e);
@@ -526,53 +873,42 @@ public class MantaPath implements Path {
         throw new UnsupportedOperationException("Not implemented yet");
     }
 
+    /**
+     * Iterates over the path's ancestors from the top down, ending with the
+     * path itself. For absolute paths the root directory is returned first.
+     *
+     * @return iterator of successively longer paths
+     */
     @Override
     public Iterator<Path> iterator() {
-        final String[] subPaths;
-        final MantaPath parent = this;
-        final String rootPath;
-
-        {
-            // If we have absolute paths, iterating is simple as iterating each element
-            if (parent.isAbsolute()) {
-                rootPath = ROOT_DIRECTORY_PATH;
-                subPaths = subPaths();
-            // With a relative path, we have to supply the first element of the
-            } else {
-                final String[] allSubPaths = subPaths();
-
-                if (allSubPaths.length > 0) {
-                    rootPath = allSubPaths[0];
-                    subPaths = Arrays.copyOfRange(allSubPaths, 1, allSubPaths.length);
-                } else {
-                    rootPath = "";
-                    subPaths = allSubPaths;
-                }
-            }
-        }
+        final MantaPath path = flat();
+        final int count = path.elementCount();
+        final boolean absolute = path.isAbsolute();
 
         return new Iterator<Path>() {
-            private volatile int index = 0;
+            /* The iteration is empty for the root directory and the empty
+             * path, otherwise absolute paths start at the root directory. */
+            private int index = count == 0 ? 1 : (absolute ? 0 : 1);
 
             @Override
             public boolean hasNext() {
-                if (subPaths.length == 0) {
-                    return false;
-                }
-
-                return index <= subPaths.length;
+                return index <= count;
             }
 
             @Override
-            public synchronized Path next() {
-                if (subPaths.length < 1 || index > subPaths.length) {
-                    return null;
+            public Path next() {
+                if (index > count) {
+                    throw new NoSuchElementException();
                 }
 
-                return new MantaPath(rootPath, parent.fileSystem,
-                        parent.mantaClient, parent.homeDir, Arrays.copyOf(subPaths, index++));
-            }
+                final int element = index++;
 
+                if (element == 0) {
+                    return rootDirectory();
+                }
+
+                return path.derive(path.objectPath.substring(0, path.elementEnd(element - 1)));
+            }
         };
     }
 
@@ -580,6 +916,8 @@ public class MantaPath implements Path {
     public int compareTo(final Path other) {
         Objects.requireNonNull(other);
 
+        final MantaFileSystem fileSystem = context.fileSystem;
+
         /* PathDoc: This method may not be used to compare paths that are associated
          * with different file system providers. */
         if (!fileSystem.provider().equals(other.getFileSystem().provider())) {
@@ -591,10 +929,19 @@ public class MantaPath implements Path {
             throw new ClassCastException(msg);
         }
 
-        final Path absoluteThis = isAbsolute() ? this : toAbsolutePath();
-        final Path absoluteThat = other.isAbsolute() ? other : other.toAbsolutePath();
+        if (other instanceof MantaPath) {
+            final MantaPath that = (MantaPath) other;
+
+            /* Siblings from the same listing share the parent's string and
+             * separator, so they sort by name without building strings. */
+            if (isCompact() && that.isCompact() && parent.equals(that.parent)) {
+                return name.compareTo(that.name);
+            }
 
-        return absoluteThis.toString().compareTo(absoluteThat.toString());
+            return absolutePathString().compareTo(that.absolutePathString());
+        }
+
+        return absolutePathString().compareTo(other.toAbsolutePath().toString());
     }
 
     @Override
@@ -602,30 +949,74 @@ public class MantaPath implements Path {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         MantaPath that = (MantaPath) o;
-        Path thatAbsolutePath = that.isAbsolute() ? that : that.toAbsolutePath();
-        Path thisAbsolutePath = isAbsolute() ? this : this.toAbsolutePath();
 
-        return thisAbsolutePath.toString().equals(thatAbsolutePath.toString());
+        // Siblings from the same listing compare without building strings
+        if (isCompact() && that.isCompact()) {
+            return name.equals(that.name) && parent.equals(that.parent);
+        }
+
+        if (hashCode() != that.hashCode()) return false;
+
+        return absolutePathString().equals(that.absolutePathString());
     }
 
+    /**
+     * @return hash of the same absolute form that {@link #equals(Object)}
+     *         compares, which is cached by the string itself, or for compact
+     *         paths derived from the parent's hash
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(objectPath);
+        if (!isCompact()) {
+            return absolutePathString().hashCode();
+        }
+
+        int h = hash;
+
+        if (h == 0) {
+            /* Extends the parent's String hash with the separator and name,
+             * which equals the hash of the concatenated string. */
+            final String parentAbsolute = parent.absolutePathString();
+
+            if (parentAbsolute.isEmpty()) {
+                h = 0;
+            } else if (parentAbsolute.equals(ROOT_DIRECTORY_PATH)) {
+                h = SEPARATOR_CHAR;
+            } else {
+                h = 31 * parentAbsolute.hashCode() + SEPARATOR_CHAR;
+            }
+
+            for (int i = 0; i < name.length(); i++) {
+                h = 31 * h + name.charAt(i);
+            }
+
+            hash = h;
+        }
+
+        return h;
     }
 
     public String toString() {
+        if (isCompact()) {
+            final String parentPath = parent.toString();
+
+            if (parentPath.isEmpty()) {
+                return name;
+            } else if (parentPath.equals(ROOT_DIRECTORY_PATH)) {
+                return SEPARATOR + name;
+            }
+
+            return parentPath + SEPARATOR + name;
+        }
+
         return objectPath;
     }
 
     protected MantaPath rootDirectory() {
-        return new MantaPath(ROOT_DIRECTORY_PATH, this.fileSystem, mantaClient,
-                homeDir);
+        return new MantaPath(context, ROOT_DIRECTORY_PATH, true);
     }
 
-    static MantaPath rootDirectory(final MantaFileSystem fileSystem,
-                                   final MantaClient mantaClient,
-                                   final String homeDir) {
-        return new MantaPath(ROOT_DIRECTORY_PATH,
-                fileSystem, mantaClient, homeDir);
+    static MantaPath rootDirectory(final Context context) {
+        return new MantaPath(context, ROOT_DIRECTORY_PATH, true);
     }
 }
@@ -0,0 +1,90 @@
+package com.joyent.manta.fs.driver;
+
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.Objects;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * {@link PathMatcher} for the <code>glob</code> syntax that matches the
+ * elements of a {@link MantaPath} one at a time against a precompiled
+ * {@link MantaGlob}, instead of converting the pattern to a regular
+ * expression and matching it against the path's string.
+ *
+ * <p>Matchers created by {@link #compile(String)} use the
+ * <code>**</code> semantics of {@link com.joyent.manta.fs.MantaFiles},
+ * while those created by {@link #compileStandard(String)} match exactly
+ * like the glob matchers of the default filesystem.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaPathMatcher implements PathMatcher {
+    private final MantaGlob glob;
+
+    /**
+     * Creates a new matcher.
+     *
+     * @param glob compiled glob pattern
+     */
+    public MantaPathMatcher(final MantaGlob glob) {
+        this.glob = Objects.requireNonNull(glob);
+    }
+
+    /**
+     * Compiles a glob pattern into a matcher.
+     *
+     * @param pattern glob pattern without the <code>glob:</code> prefix
+     * @return new matcher
+     * @throws java.util.regex.PatternSyntaxException thrown when the pattern is invalid
+     */
+    public static MantaPathMatcher compile(final String pattern) {
+        return new MantaPathMatcher(MantaGlob.compile(pattern));
+    }
+
+    /**
+     * Compiles a glob pattern into a matcher that matches exactly like the
+     * glob matchers of the default filesystem.
+     *
+     * @param pattern glob pattern without the <code>glob:</code> prefix
+     * @return new matcher, or null when the pattern has a group that spans
+     *         segments or contains <code>**</code>, which must be matched as
+     *         a regular expression instead
+     */
+    public static MantaPathMatcher compileStandard(final String pattern) {
+        try {
+            return new MantaPathMatcher(MantaGlob.compileStandard(pattern));
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the compiled pattern
+     */
+    public MantaGlob getGlob() {
+        return glob;
+    }
+
+    /**
+     * @return leading literal directories of the pattern, which callers can
+     *         use to avoid listing directories that can't contain matches
+     */
+    public String getLiteralPrefix() {
+        return glob.getLiteralPrefix();
+    }
+
+    @Override
+    public boolean matches(final Path path) {
+        if (!(path instanceof MantaPath)) {
+            return glob.matches(path.toString());
+        }
+
+        return glob.isAccepting(((MantaPath) path).globState(glob));
+    }
+
+    @Override
+    public String toString() {
+        return "glob:" + glob.getPattern();
+    }
+}
@@ -0,0 +1,408 @@
+package com.joyent.manta.fs.driver;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaDirectoryListingIterator;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Sends the requests of a filesystem to Manta while limiting how many of
+ * them are in flight at once. A request holds a permit from the moment it is
+ * sent until the call that sends it returns. For calls that return a stream
+ * this is when the response headers have arrived, so reading the body of a
+ * stream doesn't hold a permit and a caller keeping many streams open can't
+ * starve itself.
+ *
+ * <p>Permits come from a {@link MantaConcurrencyLimit} and are handed out
+ * in arrival order, which keeps a burst of tasks running on virtual threads
+ * from starving older requests. Throttling responses (429 and 503) are
+ * reported to the limit and rethrown as {@link MantaThrottledException}, so
+ * callers see throttling the same way regardless of the operation.</p>
+ *
+ * <p>Each request runs in a {@link MantaLane}, which decides its share of
+ * the permits while requests are waiting. Lanes may also have a bandwidth
+ * cap, which applies to the streams passed to
+ * {@link #throttle(MantaLane, InputStream)} and
+ * {@link #throttle(MantaLane, OutputStream)}.</p>
+ *
+ * <p>Requests also pass through a {@link MantaCircuitBreaker}, which
+ * rejects them with a {@link CircuitOpenException} before they wait for a
+ * permit while Manta is unhealthy.</p>
+ *
+ * <p>When the client source is a {@link MantaEndpointPool}, each request
+ * is sent to the endpoint the pool selects once the request has a permit,
+ * and its outcome is reported back to the pool.</p>
+ *
+ * <p>The latency, error status and transferred bytes of requests are
+ * recorded in the dispatcher's {@link MantaMetrics}.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaRequestDispatcher {
+    /**
+     * A single call to the client.
+     *
+     * @param <T> type of the result
+     */
+    @FunctionalInterface
+    public interface Request<T> {
+        /**
+         * Sends the request.
+         *
+         * @param client client to send the request with
+         * @return result of the request
+         * @throws IOException thrown when the request fails
+         */
+        T send(MantaClient client) throws IOException;
+    }
+
+    private final MantaEndpointPool endpoints;
+    private final MantaConcurrencyLimit limit;
+    private final Map<MantaLane, BandwidthLimiter> bandwidth;
+    private final MantaCircuitBreaker breaker;
+    private final MantaMetrics metrics = new MantaMetrics();
+
+    /**
+     * Creates a dispatcher that doesn't limit the number of requests.
+     *
+     * @param clientSource source of the client used for all requests
+     */
+    public MantaRequestDispatcher(final MantaClientSource clientSource) {
+        this(clientSource, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a dispatcher.
+     *
+     * @param clientSource source of the client used for all requests
+     * @param maxInFlight maximum number of requests sent at once
+     */
+    public MantaRequestDispatcher(final MantaClientSource clientSource,
+                                  final int maxInFlight) {
+        this(clientSource, new FixedConcurrencyLimit(maxInFlight));
+    }
+
+    /**
+     * Creates a dispatcher whose requests are limited by a concurrency limit.
+     *
+     * @param clientSource source of the client used for all requests
+     * @param limit limit of the number of requests sent at once
+     */
+    public MantaRequestDispatcher(final MantaClientSource clientSource,
+                                  final MantaConcurrencyLimit limit) {
+        this(clientSource, limit, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a dispatcher whose requests are limited by a concurrency limit
+     * and whose lanes may have bandwidth caps.
+     *
+     * @param clientSource source of the client used for all requests
+     * @param limit limit of the number of requests sent at once
+     * @param bandwidth bandwidth caps of the lanes that have one
+     */
+    public MantaRequestDispatcher(final MantaClientSource clientSource,
+                                  final MantaConcurrencyLimit limit,
+                                  final Map<MantaLane, BandwidthLimiter> bandwidth) {
+        this(clientSource, limit, bandwidth, new MantaCircuitBreaker());
+    }
+
+    /**
+     * Creates a dispatcher whose requests are limited by a concurrency limit
+     * and pass through a circuit breaker, and whose lanes may have bandwidth
+     * caps.
+     *
+     * @param clientSource source of the client used for all requests
+     * @param limit limit of the number of requests sent at once
+     * @param bandwidth bandwidth caps of the lanes that have one
+     * @param breaker breaker that rejects requests while Manta is unhealthy
+     */
+    public MantaRequestDispatcher(final MantaClientSource clientSource,
+                                  final MantaConcurrencyLimit limit,
+                                  final Map<MantaLane, BandwidthLimiter> bandwidth,
+                                  final MantaCircuitBreaker breaker) {
+        this.breaker = Objects.requireNonNull(breaker);
+        this.endpoints = MantaEndpointPool.of(Objects.requireNonNull(clientSource));
+        this.limit = Objects.requireNonNull(limit);
+        this.bandwidth = bandwidth.isEmpty() ? Collections.emptyMap() : new EnumMap<>(bandwidth);
+    }
+
+    /**
+     * Sends a request in the current thread's lane once a permit is available.
+     *
+     * @param operation kind of request
+     * @param path Manta path the request is about
+     * @param request call to the client
+     * @param <T> type of the result
+     * @return result of the request
+     * @throws IOException thrown when the request fails
+     */
+    public <T> T execute(final MantaOperation operation, final String path,
+                         final Request<T> request) throws IOException {
+        return execute(operation, path, MantaLane.current(), request);
+    }
+
+    /**
+     * Sends a request once a permit is available.
+     *
+     * @param operation kind of request
+     * @param path Manta path the request is about
+     * @param lane priority lane of the request
+     * @param request call to the client
+     * @param <T> type of the result
+     * @return result of the request
+     * @throws InterruptedIOException thrown when interrupted while waiting for a permit
+     * @throws MantaThrottledException thrown when Manta throttled the request
+     * @throws CircuitOpenException thrown without sending the request while
+     *                              the circuit breaker is open
+     * @throws IOException thrown when the request fails
+     */
+    public <T> T execute(final MantaOperation operation, final String path,
+                         final MantaLane lane, final Request<T> request)
+            throws IOException {
+        return send(operation, path, lane, request, operation != MantaOperation.PUT);
+    }
+
+    /**
+     * Sends a request whose duration depends on how much work it does, such
+     * as a recursive delete, once a permit is available. Its time is recorded
+     * in the metrics but isn't taken as a sample of how loaded Manta is, so
+     * that it doesn't make the concurrency limit, the circuit breaker or the
+     * endpoint pool back off.
+     *
+     * @param operation kind of request
+     * @param path Manta path the request is about
+     * @param lane priority lane of the request
+     * @param request call to the client
+     * @param <T> type of the result
+     * @return result of the request
+     * @throws IOException thrown when the request fails, see
+     *         {@link #execute(MantaOperation, String, MantaLane, Request)}
+     */
+    public <T> T executeUntimed(final MantaOperation operation, final String path,
+                                final MantaLane lane, final Request<T> request)
+            throws IOException {
+        return send(operation, path, lane, request, false);
+    }
+
+    private <T> T send(final MantaOperation operation, final String path,
+                       final MantaLane lane, final Request<T> request,
+                       final boolean timed) throws IOException {
+        Objects.requireNonNull(operation);
+        Objects.requireNonNull(lane);
+        breaker.check(operation, path);
+
+        try {
+            limit.acquire(lane);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format(
+                    "Interrupted while waiting to send %s %s", operation, path));
+        }
+
+        final MantaEndpoint endpoint = endpoints.select();
+        final MantaClient client;
+
+        try {
+            client = endpoint.getClient();
+        } catch (IOException | RuntimeException e) {
+            endpoints.release(endpoint, false, -1L);
+            limit.release(MantaConcurrencyLimit.Outcome.IGNORED, -1L);
+            throw e;
+        }
+
+        final long start = System.nanoTime();
+        MantaConcurrencyLimit.Outcome outcome = MantaConcurrencyLimit.Outcome.IGNORED;
+        boolean failed = false;
+
+        try {
+            final T result = request.send(client);
+            outcome = MantaConcurrencyLimit.Outcome.SUCCESS;
+            return result;
+        } catch (MantaClientHttpResponseException e) {
+            failed = MantaCircuitBreaker.isFailure(e);
+            metrics.recordStatus(e.getStatusCode());
+
+            if (isThrottling(e.getStatusCode())) {
+                outcome = MantaConcurrencyLimit.Outcome.DROPPED;
+                throw new MantaThrottledException(operation, path, e.getStatusCode(), e);
+            }
+
+            // Any other response still shows that Manta kept up
+            outcome = MantaConcurrencyLimit.Outcome.SUCCESS;
+            throw e;
+        } catch (IOException e) {
+            failed = MantaCircuitBreaker.isFailure(e);
+
+            if (failed) {
+                metrics.recordConnectionError();
+            }
+
+            throw e;
+        } finally {
+            final long elapsed = System.nanoTime() - start;
+
+            /* The time taken by uploads and by untimed requests depends on
+             * how much they transfer, so it says nothing about how loaded
+             * the endpoint is. */
+            final long latency = timed ? elapsed : -1L;
+
+            // Listings are fetched by the iterator, which records them itself
+            if (operation != MantaOperation.LIST) {
+                metrics.recordRequest(operation, elapsed);
+            }
+
+            limit.release(outcome, latency);
+            breaker.record(failed, latency);
+            endpoints.release(endpoint, failed, latency);
+        }
+    }
+
+    /**
+     * Starts a listing of a directory. The iterator only sends its first
+     * request when it is first asked for an entry, so the first page is
+     * fetched here while the request holds a permit. Later pages are
+     * fetched by the iterator as it is read.
+     *
+     * @param path Manta path of the directory
+     * @param lane priority lane of the request
+     * @return iterator over the entries of the directory
+     * @throws IOException thrown when the listing fails
+     */
+    public MantaDirectoryListingIterator list(final String path, final MantaLane lane)
+            throws IOException {
+        return execute(MantaOperation.LIST, path, lane, client -> {
+            final MantaDirectoryListingIterator iterator = client.streamingIterator(path);
+
+            try {
+                iterator.hasNext();
+            } catch (UncheckedIOException e) {
+                iterator.close();
+                throw e.getCause();
+            } catch (RuntimeException e) {
+                iterator.close();
+                throw e;
+            }
+
+            return iterator;
+        });
+    }
+
+    /**
+     * @param lane lane the stream transfers data for
+     * @param in stream of object content
+     * @return stream counted as bytes read and capped to the bandwidth of
+     *         the lane, if it has a cap
+     */
+    public InputStream throttle(final MantaLane lane, final InputStream in) {
+        final BandwidthLimiter limiter = bandwidth.get(lane);
+        return metrics.count(limiter == null ? in : limiter.throttle(in));
+    }
+
+    /**
+     * @param lane lane the stream transfers data for
+     * @param in stream of content that is uploaded as an object
+     * @return stream counted as bytes written and capped to the bandwidth
+     *         of the lane, if it has a cap
+     */
+    public InputStream throttleUpload(final MantaLane lane, final InputStream in) {
+        final BandwidthLimiter limiter = bandwidth.get(lane);
+        return metrics.countUpload(limiter == null ? in : limiter.throttle(in));
+    }
+
+    /**
+     * @param lane lane the stream transfers data for
+     * @param out stream of object content
+     * @return stream counted as bytes written and capped to the bandwidth
+     *         of the lane, if it has a cap
+     */
+    public OutputStream throttle(final MantaLane lane, final OutputStream out) {
+        final BandwidthLimiter limiter = bandwidth.get(lane);
+        return metrics.count(limiter == null ? out : limiter.throttle(out));
+    }
+
+    /**
+     * @param statusCode HTTP status code of a response
+     * @return true if the status code means that Manta is overloaded
+     */
+    public static boolean isThrottling(final int statusCode) {
+        return statusCode == 429 || statusCode == 503;
+    }
+
+    /**
+     * @param e exception thrown by a request
+     * @return HTTP status code of the error response that caused the
+     *         exception, or 0 if there was no response
+     */
+    public static int statusOf(final IOException e) {
+        if (e instanceof MantaClientHttpResponseException) {
+            return ((MantaClientHttpResponseException) e).getStatusCode();
+        }
+
+        if (e instanceof MantaThrottledException) {
+            return ((MantaThrottledException) e).getStatusCode();
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return source of the client used for all requests
+     */
+    public MantaClientSource getClientSource() {
+        return endpoints;
+    }
+
+    /**
+     * @return endpoints the requests are spread between, a single endpoint
+     *         unless the client source is a {@link MantaEndpointPool}
+     */
+    public MantaEndpointPool getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return counters and latency histograms of the requests
+     */
+    public MantaMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return breaker that rejects requests while Manta is unhealthy
+     */
+    public MantaCircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    /**
+     * @return limit of the number of requests sent at once
+     */
+    public MantaConcurrencyLimit getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return maximum number of requests currently allowed in flight
+     */
+    public int getMaxInFlight() {
+        return limit.getLimit();
+    }
+
+    /**
+     * @return number of requests currently in flight
+     */
+    public int getInFlight() {
+        return limit.getInFlight();
+    }
+}
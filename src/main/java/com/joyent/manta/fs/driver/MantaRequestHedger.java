@@ -0,0 +1,453 @@
+package com.joyent.manta.fs.driver;
+
+import com.joyent.manta.fs.util.DroppableTask;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends idempotent requests (HEAD and GET) with hedging: when no response
+ * has arrived after the configured percentile of recent latencies for the
+ * operation, a duplicate request is sent. The first response wins and the
+ * other request is cancelled; if the loser still completes, its result is
+ * closed. This cuts the tail latency caused by an occasional slow storage
+ * node at the cost of a few extra requests.
+ *
+ * <p>The extra load is capped by a budget: each request earns a fraction of
+ * a hedge (the budget ratio) and each hedge spends a whole one, so at most
+ * that fraction of requests is ever duplicated. No hedges are sent for an
+ * operation until enough latencies have been recorded to estimate the
+ * delay.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaRequestHedger {
+    /**
+     * Default percentile of the recent latencies after which a request is
+     * hedged.
+     */
+    public static final double DEFAULT_PERCENTILE = 95.0;
+
+    /**
+     * Default fraction of requests that may be hedged.
+     */
+    public static final double DEFAULT_BUDGET_RATIO = 0.05;
+
+    /**
+     * Number of recent latencies the delay is estimated from.
+     */
+    static final int WINDOW_SIZE = 256;
+
+    /**
+     * Number of latencies recorded before an operation is hedged, and after
+     * which its delay is recomputed.
+     */
+    static final int MIN_SAMPLES = 32;
+
+    /**
+     * Maximum number of unused hedges that can be saved up, which bounds a
+     * burst of hedges after a quiet period.
+     */
+    private static final double MAX_BUDGET = 10.0;
+
+    private final MantaRequestDispatcher dispatcher;
+    private final MantaExecutors executors;
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double budgetRatio;
+
+    private final Map<MantaOperation, LatencyWindow> latencies = new EnumMap<>(MantaOperation.class);
+    private double budget = 0.0;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    /**
+     * Creates a hedger that sends every request only once.
+     *
+     * @param dispatcher dispatcher that sends the requests
+     * @param executors executors that run the requests
+     */
+    public MantaRequestHedger(final MantaRequestDispatcher dispatcher,
+                              final MantaExecutors executors) {
+        this(dispatcher, executors, false, DEFAULT_PERCENTILE, 0L, DEFAULT_BUDGET_RATIO);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param dispatcher dispatcher that sends the requests
+     * @param executors executors that run the requests
+     * @param enabled false to send every request only once
+     * @param percentile percentile of recent latencies after which a
+     *                   request is hedged, between 0 and 100
+     * @param minDelayNanos requests are never hedged sooner than this
+     * @param budgetRatio fraction of requests that may be hedged,
+     *                    between 0 and 1
+     */
+    public MantaRequestHedger(final MantaRequestDispatcher dispatcher,
+                              final MantaExecutors executors,
+                              final boolean enabled,
+                              final double percentile,
+                              final long minDelayNanos,
+                              final double budgetRatio) {
+        if (!(percentile > 0.0 && percentile <= 100.0)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+
+        if (!(budgetRatio >= 0.0 && budgetRatio <= 1.0)) {
+            throw new IllegalArgumentException("Budget ratio must be between 0 and 1");
+        }
+
+        this.dispatcher = Objects.requireNonNull(dispatcher);
+        this.executors = Objects.requireNonNull(executors);
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = Math.max(0L, minDelayNanos);
+        this.budgetRatio = budgetRatio;
+
+        latencies.put(MantaOperation.HEAD, new LatencyWindow());
+        latencies.put(MantaOperation.GET, new LatencyWindow());
+    }
+
+    /**
+     * Sends a request, hedging it when it is idempotent and hedging is
+     * enabled. Other requests are passed to the dispatcher as they are.
+     *
+     * @param operation kind of request
+     * @param path Manta path the request is about
+     * @param request call to the client, which may be made twice
+     * @param <T> type of the result, which is closed when it loses the race
+     *            and is {@link Closeable}
+     * @return result of the first request to succeed
+     * @throws IOException thrown when all requests sent failed
+     */
+    public <T> T execute(final MantaOperation operation, final String path,
+                         final MantaRequestDispatcher.Request<T> request)
+            throws IOException {
+        return execute(operation, path, MantaLane.current(), request);
+    }
+
+    /**
+     * Sends a request in a lane, hedging it when it is idempotent and
+     * hedging is enabled. Hedges are sent in the same lane.
+     *
+     * @param operation kind of request
+     * @param path Manta path the request is about
+     * @param lane priority lane of the request
+     * @param request call to the client, which may be made twice
+     * @param <T> type of the result, which is closed when it loses the race
+     *            and is {@link Closeable}
+     * @return result of the first request to succeed
+     * @throws IOException thrown when all requests sent failed
+     */
+    public <T> T execute(final MantaOperation operation, final String path,
+                         final MantaLane lane,
+                         final MantaRequestDispatcher.Request<T> request)
+            throws IOException {
+        final LatencyWindow window = latencies.get(operation);
+
+        if (!enabled || window == null) {
+            return dispatcher.execute(operation, path, lane, request);
+        }
+
+        requests.incrementAndGet();
+        earnBudget();
+
+        final long delay = window.delayNanos();
+
+        if (delay < 0L) {
+            // Not enough samples yet to know what a slow response is
+            final long start = System.nanoTime();
+            final T result = dispatcher.execute(operation, path, lane, request);
+            window.record(System.nanoTime() - start);
+            return result;
+        }
+
+        final Race<T> race = new Race<>(operation, path, lane, request, window);
+
+        try {
+            race.start(0);
+
+            if (race.await(Math.max(delay, minDelayNanos))) {
+                return race.result();
+            }
+
+            if (spendBudget()) {
+                hedged.incrementAndGet();
+                race.start(1);
+            } else {
+                budgetExhausted.incrementAndGet();
+            }
+
+            race.await(Long.MAX_VALUE);
+
+            if (race.winner() == 1) {
+                hedgesWon.incrementAndGet();
+            }
+
+            return race.result();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format(
+                    "Interrupted while waiting for %s %s", operation, path));
+        } finally {
+            race.abandon();
+        }
+    }
+
+    private synchronized void earnBudget() {
+        budget = Math.min(MAX_BUDGET, budget + budgetRatio);
+    }
+
+    private synchronized boolean spendBudget() {
+        if (budget < 1.0) {
+            return false;
+        }
+
+        budget -= 1.0;
+        return true;
+    }
+
+    /**
+     * @return true if requests are hedged
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return number of requests that could have been hedged
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return number of requests for which a hedge was sent
+     */
+    public long getHedged() {
+        return hedged.get();
+    }
+
+    /**
+     * @return number of hedges that responded before the original request
+     */
+    public long getHedgesWon() {
+        return hedgesWon.get();
+    }
+
+    /**
+     * @return number of slow requests that weren't hedged because the
+     *         budget was spent
+     */
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+
+    /**
+     * @param operation kind of request
+     * @return current delay after which requests of the operation are
+     *         hedged in nanoseconds, or -1 when they aren't hedged
+     */
+    public long getDelayNanos(final MantaOperation operation) {
+        final LatencyWindow window = latencies.get(operation);
+
+        if (!enabled || window == null) {
+            return -1L;
+        }
+
+        final long delay = window.delayNanos();
+        return delay < 0L ? delay : Math.max(delay, minDelayNanos);
+    }
+
+    /**
+     * Recent latencies of an operation, kept in a ring. The percentile is
+     * recomputed every {@link #MIN_SAMPLES} samples rather than on each
+     * request.
+     */
+    private final class LatencyWindow {
+        private final long[] samples = new long[WINDOW_SIZE];
+        private final long[] sorted = new long[WINDOW_SIZE];
+        private int count = 0;
+        private int next = 0;
+        private int sinceUpdate = 0;
+        private long delay = -1L;
+
+        synchronized void record(final long latencyNanos) {
+            samples[next] = latencyNanos;
+            next = (next + 1) % WINDOW_SIZE;
+            count = Math.min(WINDOW_SIZE, count + 1);
+
+            if (++sinceUpdate >= MIN_SAMPLES) {
+                sinceUpdate = 0;
+                System.arraycopy(samples, 0, sorted, 0, count);
+                Arrays.sort(sorted, 0, count);
+
+                final int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+                delay = sorted[Math.max(0, Math.min(count - 1, rank))];
+            }
+        }
+
+        synchronized long delayNanos() {
+            return delay;
+        }
+    }
+
+    /**
+     * Copies of a request racing each other. The first to succeed wins;
+     * the result of any copy that completes after the race has been decided
+     * is closed.
+     */
+    private final class Race<T> {
+        private final MantaOperation operation;
+        private final String path;
+        private final MantaLane lane;
+        private final MantaRequestDispatcher.Request<T> request;
+        private final LatencyWindow window;
+
+        private final Future<?>[] attempts = new Future<?>[2];
+        private int pending = 0;
+        private boolean decided = false;
+        private int winner = -1;
+        private T result;
+        private IOException failure;
+
+        Race(final MantaOperation operation, final String path, final MantaLane lane,
+             final MantaRequestDispatcher.Request<T> request,
+             final LatencyWindow window) {
+            this.operation = operation;
+            this.path = path;
+            this.lane = lane;
+            this.request = request;
+            this.window = window;
+        }
+
+        synchronized void start(final int attempt) {
+            pending++;
+            attempts[attempt] = executors.getWorkers().submit(new DroppableTask() {
+                @Override
+                public void run() {
+                    Race.this.run(attempt);
+                }
+
+                @Override
+                public void drop(final Exception reason) {
+                    finish(attempt, null, new IOException(reason));
+                }
+            });
+        }
+
+        private void run(final int attempt) {
+            final long start = System.nanoTime();
+            T value = null;
+            IOException error = null;
+
+            try {
+                value = dispatcher.execute(operation, path, lane, request);
+                window.record(System.nanoTime() - start);
+            } catch (IOException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                error = new IOException(e);
+            }
+
+            finish(attempt, value, error);
+        }
+
+        private void finish(final int attempt, final T outcome, final IOException error) {
+            T value = outcome;
+
+            synchronized (this) {
+                pending--;
+
+                if (error == null && !decided) {
+                    decided = true;
+                    winner = attempt;
+                    result = value;
+                    value = null;
+                } else if (error != null && !decided) {
+                    if (failure == null) {
+                        failure = error;
+                    } else {
+                        failure.addSuppressed(error);
+                    }
+                }
+
+                notifyAll();
+            }
+
+            closeQuietly(value);
+        }
+
+        /**
+         * Waits until a copy succeeds or all copies sent have failed.
+         *
+         * @param timeoutNanos maximum time to wait
+         * @return true if the race has been decided or can't be won anymore
+         */
+        synchronized boolean await(final long timeoutNanos) throws InterruptedException {
+            final long deadline = System.nanoTime() + timeoutNanos;
+
+            while (!decided && pending > 0) {
+                final long remaining = timeoutNanos == Long.MAX_VALUE ?
+                        Long.MAX_VALUE : deadline - System.nanoTime();
+
+                if (remaining <= 0L) {
+                    return false;
+                }
+
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+
+            return true;
+        }
+
+        synchronized int winner() {
+            return winner;
+        }
+
+        synchronized T result() throws IOException {
+            if (decided && winner >= 0) {
+                return result;
+            }
+
+            throw failure;
+        }
+
+        /**
+         * Ends the race for the caller, cancelling the copies still running.
+         */
+        synchronized void abandon() {
+            decided = true;
+
+            for (int i = 0; i < attempts.length; i++) {
+                if (attempts[i] != null && i != winner) {
+                    attempts[i].cancel(true);
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(final Object value) {
+        if (value instanceof Closeable) {
+            try {
+                ((Closeable) value).close();
+            } catch (IOException e) {
+                // The result lost the race and is discarded either way
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.joyent.manta.fs.driver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link AsynchronousFileChannel} implementation for writing Manta objects.
+ * Positional writes and reads are staged in a local temp file through an
+ * asynchronous channel of the default filesystem, and the temp file is
+ * uploaded when the channel is forced or closed, in the same way as
+ * {@link MantaTempSeekableByteChannel}. Requests are sent through a
+ * {@link MantaRequestDispatcher} in the lane given by the options.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaTempAsynchronousFileChannel extends AsynchronousFileChannel {
+    private final String mantaPath;
+    private final AsynchronousFileChannel inner;
+    private final MantaRequestDispatcher dispatcher;
+    private final MantaLane lane;
+    private final Path temp;
+    private final Set<? extends OpenOption> options;
+    private final AtomicBoolean open = new AtomicBoolean(true);
+
+    public MantaTempAsynchronousFileChannel(final String mantaPath,
+                                            final MantaRequestDispatcher dispatcher,
+                                            final Set<? extends OpenOption> options,
+                                            final ExecutorService executor)
+            throws IOException {
+        this.mantaPath = mantaPath;
+        this.temp = Files.createTempFile("manta_nio", ".tmp");
+        this.dispatcher = dispatcher;
+        this.lane = MantaLane.from(options);
+        this.options = options;
+
+        try {
+            if (!options.contains(StandardOpenOption.TRUNCATE_EXISTING) &&
+                dispatcher.execute(MantaOperation.HEAD, mantaPath, lane,
+                        client -> client.existsAndIsAccessible(mantaPath))) {
+
+                try (InputStream body = dispatcher.execute(MantaOperation.GET, mantaPath, lane,
+                            client -> client.getAsInputStream(mantaPath));
+                     InputStream is = dispatcher.throttle(lane, body)) {
+                    Files.copy(is, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+
+            this.inner = AsynchronousFileChannel.open(temp,
+                    MantaTempSeekableByteChannel.tempOptions(options), executor);
+        } catch (IOException | RuntimeException e) {
+            MantaTempSeekableByteChannel.deleteTemp(temp, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public long size() throws IOException {
+        return inner.size();
+    }
+
+    @Override
+    public AsynchronousFileChannel truncate(final long size) throws IOException {
+        inner.truncate(size);
+        return this;
+    }
+
+    /**
+     * Uploads the current contents of the channel.
+     *
+     * @param metaData ignored
+     * @throws IOException thrown when the upload fails
+     */
+    @Override
+    public void force(final boolean metaData) throws IOException {
+        inner.force(metaData);
+        upload();
+    }
+
+    @Override
+    public <A> void lock(final long position, final long size, final boolean shared,
+                         final A attachment,
+                         final CompletionHandler<FileLock, ? super A> handler) {
+        throw new UnsupportedOperationException("Manta objects can't be locked");
+    }
+
+    @Override
+    public Future<FileLock> lock(final long position, final long size, final boolean shared) {
+        throw new UnsupportedOperationException("Manta objects can't be locked");
+    }
+
+    @Override
+    public FileLock tryLock(final long position, final long size,
+                            final boolean shared) throws IOException {
+        throw new UnsupportedOperationException("Manta objects can't be locked");
+    }
+
+    @Override
+    public <A> void read(final ByteBuffer dst, final long position, final A attachment,
+                         final CompletionHandler<Integer, ? super A> handler) {
+        inner.read(dst, position, attachment, handler);
+    }
+
+    @Override
+    public Future<Integer> read(final ByteBuffer dst, final long position) {
+        return inner.read(dst, position);
+    }
+
+    @Override
+    public <A> void write(final ByteBuffer src, final long position, final A attachment,
+                          final CompletionHandler<Integer, ? super A> handler) {
+        inner.write(src, position, attachment, handler);
+    }
+
+    @Override
+    public Future<Integer> write(final ByteBuffer src, final long position) {
+        return inner.write(src, position);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Only the first of concurrent calls uploads
+        if (!open.compareAndSet(true, false)) {
+            return;
+        }
+
+        inner.close();
+
+        try {
+            // We put the file that has completed all of its writes onto Manta
+            upload();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        if (options.contains(StandardOpenOption.DELETE_ON_CLOSE)) {
+            dispatcher.execute(MantaOperation.DELETE, mantaPath, lane, client -> {
+                client.delete(mantaPath);
+                return null;
+            });
+        }
+    }
+
+    private void upload() throws IOException {
+        dispatcher.execute(MantaOperation.PUT, mantaPath, lane,
+                client -> client.put(mantaPath, temp.toFile()));
+    }
+}
@@ -1,23 +1,25 @@
 package com.joyent.manta.fs.driver;
 
-import com.joyent.manta.client.MantaClient;
-
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * {@link SeekableByteChannel} implementation that downloads an existing file
  * off of Manta to a temp file (if it exists) and then provides a reference
- * to the {@link SeekableByteChannel} for the temp file.
+ * to the {@link SeekableByteChannel} for the temp file. The download and
+ * the upload are sent through a {@link MantaRequestDispatcher} in the lane
+ * given by the options.
  *
  * @author Elijah Zupancic
  * @since 1.0.0
@@ -25,33 +27,91 @@ import java.util.Set;
 public class MantaTempSeekableByteChannel implements SeekableByteChannel {
     private final String mantaPath;
     private final SeekableByteChannel inner;
-    private final MantaClient client;
+    private final MantaRequestDispatcher dispatcher;
+    private final MantaLane lane;
     private final Path temp;
     private final Set<? extends OpenOption> options;
+    private final AtomicBoolean open = new AtomicBoolean(true);
 
     public MantaTempSeekableByteChannel(final String mantaPath,
-                                        final MantaClient client,
+                                        final MantaRequestDispatcher dispatcher,
                                         final Set<? extends OpenOption> options)
             throws IOException {
         this.mantaPath = mantaPath;
         this.temp = Files.createTempFile("manta_nio", ".tmp");
-        this.client = client;
+        this.dispatcher = dispatcher;
+        this.lane = MantaLane.from(options);
         this.options = options;
 
-        if (!options.contains(StandardOpenOption.TRUNCATE_EXISTING) &&
-            client.existsAndIsAccessible(mantaPath)) {
+        try {
+            if (!options.contains(StandardOpenOption.TRUNCATE_EXISTING) &&
+                dispatcher.execute(MantaOperation.HEAD, mantaPath, lane,
+                        client -> client.existsAndIsAccessible(mantaPath))) {
+                download();
+            }
 
-            try (InputStream is = client.getAsInputStream(mantaPath)) {
-                Files.copy(is, temp, StandardCopyOption.REPLACE_EXISTING);
+            this.inner = Files.newByteChannel(temp, tempOptions(options));
+        } catch (IOException | RuntimeException e) {
+            deleteTemp(temp, e);
+            throw e;
+        }
+    }
+
+    private void download() throws IOException {
+        final MantaEvent event = new MantaEvent();
+        event.begin();
+        event.attempts = 1;
+        long bytes = 0L;
+
+        try (InputStream body = dispatcher.execute(MantaOperation.GET, mantaPath, lane,
+                    client -> client.getAsInputStream(mantaPath));
+             InputStream is = dispatcher.throttle(lane, body)) {
+            bytes = Files.copy(is, temp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            event.status = MantaRequestDispatcher.statusOf(e);
+            throw e;
+        } finally {
+            event.finish(MantaOperation.GET.name(), mantaPath, bytes);
+        }
+    }
+
+    /**
+     * Deletes the temp file of a channel that couldn't be opened.
+     *
+     * @param temp temp file
+     * @param failure error that prevented the channel from opening, which
+     *                keeps any error deleting the file as suppressed
+     */
+    static void deleteTemp(final Path temp, final Throwable failure) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Picks the options that apply to the temp file from the options the
+     * channel was opened with.
+     *
+     * @param options options the channel was opened with
+     * @return options for the temp file on the default filesystem
+     */
+    static Set<OpenOption> tempOptions(final Set<? extends OpenOption> options) {
+        final Set<OpenOption> tempOptions = new HashSet<>();
+
+        // The default filesystem rejects options it doesn't know, such as lanes
+        for (OpenOption option : options) {
+            if (option instanceof StandardOpenOption || option instanceof LinkOption) {
+                tempOptions.add(option);
             }
         }
 
         // We honor delete on close explicitly on in our close() method
-        Set<? extends OpenOption> tempOptions = new HashSet<>(options);
         tempOptions.remove(StandardOpenOption.DELETE_ON_CLOSE);
         tempOptions.remove(StandardOpenOption.CREATE_NEW);
 
-        this.inner = Files.newByteChannel(temp, tempOptions);
+        return tempOptions;
     }
 
     @Override
@@ -86,26 +146,40 @@ public class MantaTempSeekableByteChannel implements SeekableByteChannel {
 
     @Override
     public boolean isOpen() {
-        return inner.isOpen();
+        return open.get();
     }
 
     @Override
     public void close() throws IOException {
-        if (!isOpen()) {
+        // Only the first of concurrent calls uploads
+        if (!open.compareAndSet(true, false)) {
             return;
         }
 
+        final long bytes = inner.size();
         inner.close();
 
+        final MantaEvent event = new MantaEvent();
+        event.begin();
+        event.attempts = 1;
+
         // We put the file that has completed all of its writes and reads onto Manta
-        try (InputStream is = Files.newInputStream(temp)) {
-            client.put(mantaPath, is);
+        try (InputStream is = dispatcher.throttle(lane, Files.newInputStream(temp))) {
+            dispatcher.execute(MantaOperation.PUT, mantaPath, lane,
+                    client -> client.put(mantaPath, is));
+        } catch (IOException e) {
+            event.status = MantaRequestDispatcher.statusOf(e);
+            throw e;
+        } finally {
+            event.finish(MantaOperation.PUT.name(), mantaPath, bytes);
+            Files.deleteIfExists(temp);
         }
 
-        Files.deleteIfExists(temp);
-
         if (options.contains(StandardOpenOption.DELETE_ON_CLOSE)) {
-            client.delete(mantaPath);
+            dispatcher.execute(MantaOperation.DELETE, mantaPath, lane, client -> {
+                client.delete(mantaPath);
+                return null;
+            });
         }
     }
 }
@@ -0,0 +1,41 @@
+package com.joyent.manta.fs.driver;
+
+import java.io.IOException;
+
+/**
+ * Thrown when Manta rejects a request because it is overloaded, which it
+ * signals with a 429 or 503 response. The request can be retried later; the
+ * driver has already lowered its concurrency limit in response.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaThrottledException extends IOException {
+    private static final long serialVersionUID = -3719021384402710853L;
+
+    private final int statusCode;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param operation kind of request that was throttled
+     * @param path Manta path of the request
+     * @param statusCode HTTP status code of the response
+     * @param cause exception thrown by the client
+     */
+    public MantaThrottledException(final MantaOperation operation,
+                                   final String path,
+                                   final int statusCode,
+                                   final Throwable cause) {
+        super(String.format("Manta throttled %s %s with status %d",
+                operation, path, statusCode), cause);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return HTTP status code of the response, 429 or 503
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,85 @@
+package com.joyent.manta.fs.driver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Objects;
+
+/**
+ * Byte channel that counts the bytes transferred through it and times its
+ * close, which is when channels opened for writing upload their content.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+class MeteredByteChannel implements SeekableByteChannel {
+    private final SeekableByteChannel delegate;
+    private final MantaMetrics metrics;
+
+    MeteredByteChannel(final SeekableByteChannel delegate, final MantaMetrics metrics) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.metrics = Objects.requireNonNull(metrics);
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+        final int count = delegate.read(dst);
+
+        if (count > 0) {
+            metrics.addBytesRead(count);
+        }
+
+        return count;
+    }
+
+    @Override
+    public int write(final ByteBuffer src) throws IOException {
+        final int count = delegate.write(src);
+        metrics.addBytesWritten(count);
+
+        return count;
+    }
+
+    @Override
+    public long position() throws IOException {
+        return delegate.position();
+    }
+
+    @Override
+    public SeekableByteChannel position(final long newPosition) throws IOException {
+        delegate.position(newPosition);
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return delegate.size();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(final long size) throws IOException {
+        delegate.truncate(size);
+        return this;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!delegate.isOpen()) {
+            delegate.close();
+            return;
+        }
+
+        final long start = System.nanoTime();
+
+        try {
+            delegate.close();
+        } finally {
+            metrics.recordAction(MantaMetrics.Action.CLOSE_BYTE_CHANNEL, System.nanoTime() - start);
+        }
+    }
+}
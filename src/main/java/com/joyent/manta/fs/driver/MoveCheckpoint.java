@@ -0,0 +1,80 @@
+package com.joyent.manta.fs.driver;
+
+import com.joyent.manta.fs.util.Journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Records the progress of a directory move in a {@link Journal} so that an
+ * interrupted move can be resumed without redoing finished entries. The
+ * state of each Manta path is one of:
+ * <ul>
+ *     <li><code>M</code> - target directory has been created</li>
+ *     <li><code>L</code> - source object has been snaplinked to the target</li>
+ *     <li><code>D</code> - source object or directory has been deleted</li>
+ * </ul>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MoveCheckpoint implements Closeable {
+    private static final String MADE = "M";
+    private static final String LINKED = "L";
+    private static final String DONE = "D";
+
+    private final Journal journal;
+
+    /**
+     * Creates a new instance, loading any progress already recorded in the
+     * journal.
+     *
+     * @param journal local journal file or null to track progress in memory
+     * @throws IOException thrown when the journal can't be read or opened
+     */
+    public MoveCheckpoint(final Path journal) throws IOException {
+        this.journal = new Journal(journal, 1);
+    }
+
+    public boolean isMade(final String dir) {
+        return MADE.equals(journal.get(dir));
+    }
+
+    public boolean isLinked(final String path) {
+        final String state = journal.get(path);
+        return LINKED.equals(state) || DONE.equals(state);
+    }
+
+    public boolean isDone(final String path) {
+        return DONE.equals(journal.get(path));
+    }
+
+    public void markMade(final String dir) throws IOException {
+        journal.put(dir, MADE);
+    }
+
+    public void markLinked(final String path) throws IOException {
+        if (!isLinked(path)) {
+            journal.put(path, LINKED);
+        }
+    }
+
+    public void markDone(final String path) throws IOException {
+        journal.put(path, DONE);
+    }
+
+    /**
+     * Removes the journal after the move has completed successfully.
+     *
+     * @throws IOException thrown when the journal can't be removed
+     */
+    public void complete() throws IOException {
+        journal.complete();
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+}
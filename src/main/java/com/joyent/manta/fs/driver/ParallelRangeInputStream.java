@@ -0,0 +1,315 @@
+package com.joyent.manta.fs.driver;
+
+import com.joyent.manta.client.MantaClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a Manta object as a sequence of fixed size chunks that are fetched
+ * with ranged requests in parallel, while presenting them to the reader in
+ * order as a single stream.
+ *
+ * <p>At most <code>window</code> chunks are requested or buffered ahead of
+ * the chunk being read, so memory usage is bound by
+ * <code>(window + 1) * chunkSize</code>. As soon as the reader moves on to
+ * the next chunk, the request for the chunk beyond the window is
+ * started.</p>
+ *
+ * <p>When the ETag of the object is known, each chunk checks that the
+ * object still has it and fails with a
+ * {@link ResumableInputStream.ObjectChangedException} otherwise, so that
+ * chunks of different versions of an object are never stitched
+ * together.</p>
+ *
+ * <p>The ranged requests run in the lane that was current when the stream
+ * was created, even though they are sent from the executor's threads.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class ParallelRangeInputStream extends InputStream {
+    /**
+     * Requests an object from an offset.
+     */
+    @FunctionalInterface
+    public interface RangeOpener {
+        /**
+         * Sends the request. The body is read up to the end of the chunk and
+         * then closed.
+         *
+         * @param offset position of the first byte of the chunk
+         * @return body of the response, whose request has been sent
+         * @throws IOException thrown when the request fails
+         */
+        InputStream open(long offset) throws IOException;
+    }
+
+    private final RangeOpener opener;
+    private final String path;
+    private final long size;
+    private final int chunkSize;
+    private final ExecutorService executor;
+
+    private final Deque<Future<byte[]>> window = new ArrayDeque<>();
+    private long nextOffset = 0L;
+
+    private byte[] current = new byte[0];
+    private int position = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new instance and starts the requests for the first window.
+     *
+     * @param mantaClient client connected to the object's endpoint
+     * @param path Manta path of the object
+     * @param size size of the object in bytes
+     * @param chunkSize bytes requested by each ranged request
+     * @param window maximum number of chunks requested or buffered at once
+     * @param executor executor running the ranged requests
+     */
+    public ParallelRangeInputStream(final MantaClient mantaClient,
+                                    final String path,
+                                    final long size,
+                                    final int chunkSize,
+                                    final int window,
+                                    final ExecutorService executor) {
+        this(new MantaRequestDispatcher(MantaClientSource.of(mantaClient)),
+                path, size, chunkSize, window, executor);
+    }
+
+    /**
+     * Creates a new instance whose ranged requests are sent through a
+     * dispatcher, and starts the requests for the first window. Each chunk
+     * holds an in-flight permit until its response has arrived, while the
+     * window bounds the number of chunks being read.
+     *
+     * @param dispatcher dispatcher that sends the ranged requests
+     * @param path Manta path of the object
+     * @param size size of the object in bytes
+     * @param chunkSize bytes requested by each ranged request
+     * @param window maximum number of chunks requested or buffered at once
+     * @param executor executor running the ranged requests
+     */
+    public ParallelRangeInputStream(final MantaRequestDispatcher dispatcher,
+                                    final String path,
+                                    final long size,
+                                    final int chunkSize,
+                                    final int window,
+                                    final ExecutorService executor) {
+        this(dispatcher, path, null, size, chunkSize, window, executor);
+    }
+
+    /**
+     * Creates a new instance whose chunks are all read from the same version
+     * of the object, and starts the requests for the first window.
+     *
+     * @param dispatcher dispatcher that sends the ranged requests
+     * @param path Manta path of the object
+     * @param etag ETag of the object when its size was read, or null to
+     *             accept any ETag
+     * @param size size of the object in bytes
+     * @param chunkSize bytes requested by each ranged request
+     * @param window maximum number of chunks requested or buffered at once
+     * @param executor executor running the ranged requests
+     */
+    public ParallelRangeInputStream(final MantaRequestDispatcher dispatcher,
+                                    final String path,
+                                    final String etag,
+                                    final long size,
+                                    final int chunkSize,
+                                    final int window,
+                                    final ExecutorService executor) {
+        this(opener(dispatcher, path, etag, MantaLane.current()),
+                path, size, chunkSize, window, executor);
+    }
+
+    /**
+     * Creates a new instance that reads its chunks from an opener, and
+     * starts the requests for the first window.
+     *
+     * @param opener sends the ranged requests
+     * @param path Manta path of the object
+     * @param size size of the object in bytes
+     * @param chunkSize bytes requested by each ranged request
+     * @param window maximum number of chunks requested or buffered at once
+     * @param executor executor running the ranged requests
+     */
+    public ParallelRangeInputStream(final RangeOpener opener,
+                                    final String path,
+                                    final long size,
+                                    final int chunkSize,
+                                    final int window,
+                                    final ExecutorService executor) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
+        }
+
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1");
+        }
+
+        this.opener = Objects.requireNonNull(opener);
+        this.path = Objects.requireNonNull(path);
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.executor = Objects.requireNonNull(executor);
+
+        for (int i = 0; i < window && nextOffset < size; i++) {
+            requestNextChunk();
+        }
+    }
+
+    /**
+     * Creates an opener that sends ranged GETs through a dispatcher. The
+     * permit of each GET is only held until the response has arrived, so
+     * that the time it takes to read a chunk isn't taken as latency.
+     */
+    private static RangeOpener opener(final MantaRequestDispatcher dispatcher,
+                                      final String path, final String etag,
+                                      final MantaLane lane) {
+        Objects.requireNonNull(dispatcher);
+        Objects.requireNonNull(path);
+
+        return offset -> {
+            final InputStream body = dispatcher.execute(MantaOperation.GET, path, lane,
+                    client -> ResumableInputStream.sent(
+                            client.getSeekableByteChannel(path, offset)));
+
+            return ResumableInputStream.pinned(body, path, etag,
+                    () -> dispatcher.execute(MantaOperation.HEAD, path, lane,
+                            client -> client.head(path)));
+        };
+    }
+
+    private void requestNextChunk() {
+        final long offset = nextOffset;
+        final int length = (int) Math.min(chunkSize, size - offset);
+        nextOffset += length;
+
+        window.addLast(executor.submit(() -> readRange(offset, length)));
+    }
+
+    private byte[] readRange(final long offset, final int length) throws IOException {
+        final byte[] buffer = new byte[length];
+        int read = 0;
+
+        /* The ranged request is open ended, so we stop reading once the
+         * chunk is full. Closing the channel drops the remainder of the
+         * response instead of transferring it. */
+        try (InputStream in = opener.open(offset)) {
+            while (read < length && !closed) {
+                final int count = in.read(buffer, read, length - read);
+
+                if (count == -1) {
+                    break;
+                }
+
+                read += count;
+            }
+        }
+
+        if (read < length && !closed) {
+            throw new IOException(String.format(
+                    "Object %s ended at %d bytes, expected %d bytes",
+                    path, offset + read, size));
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Makes the next chunk current, waiting for it to arrive if needed.
+     *
+     * @return false when there are no more chunks
+     */
+    private boolean advance() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+
+        final Future<byte[]> next = window.pollFirst();
+
+        if (next == null) {
+            return false;
+        }
+
+        try {
+            current = next.get();
+            position = 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + path);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            throw new IOException(cause);
+        }
+
+        if (nextOffset < size) {
+            requestNextChunk();
+        }
+
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (position == current.length) {
+            if (!advance()) {
+                return -1;
+            }
+        }
+
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        while (position == current.length) {
+            if (!advance()) {
+                return -1;
+            }
+        }
+
+        final int count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+
+        Future<byte[]> pending;
+
+        while ((pending = window.pollFirst()) != null) {
+            pending.cancel(true);
+        }
+
+        current = new byte[0];
+        position = 0;
+    }
+}
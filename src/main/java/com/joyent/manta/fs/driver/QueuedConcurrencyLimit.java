@@ -0,0 +1,152 @@
+package com.joyent.manta.fs.driver;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Base for concurrency limits that queue the requests exceeding the limit
+ * in priority lanes, see {@link LaneQueue}. Subclasses decide what the
+ * limit is and how it reacts to the outcome of requests.
+ *
+ * <p>Waiting uses a {@link ReentrantLock} with a condition per waiter
+ * instead of monitors, so that waiting virtual threads don't pin their
+ * carrier threads, and only the waiter at the head of the queue is woken
+ * when a permit may be available.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public abstract class QueuedConcurrencyLimit implements MantaConcurrencyLimit {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LaneQueue waiters;
+    private int inFlight = 0;
+
+    /**
+     * Creates a limit whose lanes have their default weights.
+     */
+    protected QueuedConcurrencyLimit() {
+        this(Collections.emptyMap());
+    }
+
+    /**
+     * @param weights share of the permits of each lane, lanes without a
+     *                weight use their default weight
+     */
+    protected QueuedConcurrencyLimit(final Map<MantaLane, Integer> weights) {
+        this.waiters = new LaneQueue(weights);
+    }
+
+    @Override
+    public void acquire(final MantaLane lane) throws InterruptedException {
+        lock.lock();
+
+        try {
+            if (waiters.isEmpty() && inFlight < limit()) {
+                waiters.charge(lane);
+                inFlight++;
+                return;
+            }
+
+            final Condition turn = lock.newCondition();
+            waiters.add(lane, turn);
+
+            try {
+                while (waiters.peek() != turn || inFlight >= limit()) {
+                    turn.await();
+                }
+            } catch (InterruptedException e) {
+                waiters.remove(lane, turn);
+                signalNext();
+                throw e;
+            }
+
+            waiters.admit();
+            inFlight++;
+
+            // The next waiter may fit as well
+            signalNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release(final Outcome outcome, final long latencyNanos) {
+        lock.lock();
+
+        try {
+            inFlight--;
+            adjust(outcome, latencyNanos);
+            signalNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes the waiter at the head of the queue if there is a permit for it.
+     * Called with the lock held.
+     */
+    private void signalNext() {
+        if (inFlight < limit()) {
+            final Condition next = waiters.peek();
+
+            if (next != null) {
+                next.signal();
+            }
+        }
+    }
+
+    /**
+     * Called with the lock held to get the current limit.
+     *
+     * @return number of requests allowed in flight
+     */
+    protected abstract int limit();
+
+    /**
+     * Called with the lock held when a request has ended.
+     *
+     * @param outcome how the request ended
+     * @param latencyNanos time the request took, or a negative number when
+     *                     it isn't representative of the endpoint's latency
+     */
+    protected abstract void adjust(Outcome outcome, long latencyNanos);
+
+    @Override
+    public int getLimit() {
+        lock.lock();
+
+        try {
+            return limit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getInFlight() {
+        lock.lock();
+
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of requests waiting for a permit
+     */
+    public int getQueueLength() {
+        lock.lock();
+
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,553 @@
+package com.joyent.manta.fs.driver;
+
+import com.joyent.manta.client.MantaObject;
+import com.joyent.manta.client.MantaObjectInputStream;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.net.SocketTimeoutException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a Manta object and transparently resumes when the connection fails
+ * part way through. The stream tracks how many bytes it has returned and
+ * the ETag of the object. After a transient error it waits with exponential
+ * backoff, then continues with a ranged request from the current offset.
+ * Each reopened response is checked against the ETag, so the stream never
+ * stitches together bytes from two versions of an object.
+ *
+ * <p>The client doesn't support conditional GETs and doesn't expose the
+ * headers of ranged responses, so instead of <code>If-Match</code> the ETag
+ * is checked with a HEAD request sent after the ranged response has arrived.
+ * Ranged GETs are lazy, so the first byte of the body is read ahead to put
+ * the GET on the wire before the HEAD. ETags are unique to each write, so if
+ * the object still has the same ETag then, the ranged response served the
+ * same version as well.</p>
+ *
+ * <p>The retry budget is reset whenever bytes have been read since the last
+ * resume, so a long read over a flaky link only fails when the link stays
+ * down for all the retries in a row.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class ResumableInputStream extends InputStream {
+    /**
+     * Thrown when the object was overwritten while it was being read, in
+     * which case reading can't be resumed.
+     */
+    public static class ObjectChangedException extends IOException {
+        private static final long serialVersionUID = 6280343934126473203L;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param path Manta path of the object
+         * @param expected ETag of the object when the stream was opened
+         * @param actual current ETag of the object
+         */
+        public ObjectChangedException(final String path, final String expected,
+                                      final String actual) {
+            super(String.format("Object %s changed while it was being read (ETag %s, now %s)",
+                    path, expected, actual));
+        }
+    }
+
+    /**
+     * Default number of consecutive attempts to resume a read.
+     */
+    public static final int DEFAULT_MAX_RETRIES = 5;
+
+    /**
+     * Default wait before the first attempt to resume, in milliseconds.
+     * Each following attempt waits twice as long as the previous one.
+     */
+    public static final long DEFAULT_BACKOFF_MILLIS = 100L;
+
+    /**
+     * Longest wait between two attempts to resume.
+     */
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(10L);
+
+    /**
+     * Response to a request for an object from an offset.
+     */
+    public static final class Part {
+        private final InputStream stream;
+        private final String etag;
+        private final Long contentLength;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param stream body of the response
+         * @param etag ETag of the object that was served
+         * @param contentLength full size of the object, or null if unknown
+         */
+        public Part(final InputStream stream, final String etag, final Long contentLength) {
+            this.stream = Objects.requireNonNull(stream);
+            this.etag = etag;
+            this.contentLength = contentLength;
+        }
+    }
+
+    /**
+     * Requests an object from an offset.
+     */
+    @FunctionalInterface
+    public interface Opener {
+        /**
+         * Sends the request.
+         *
+         * @param offset position of the first byte to read
+         * @return response
+         * @throws IOException thrown when the request fails
+         */
+        Part open(long offset) throws IOException;
+    }
+
+    /**
+     * Requests the metadata of an object.
+     */
+    @FunctionalInterface
+    public interface Head {
+        /**
+         * Sends the request.
+         *
+         * @return metadata of the object
+         * @throws IOException thrown when the request fails
+         */
+        MantaObject send() throws IOException;
+    }
+
+    /**
+     * Stream whose request has been sent by {@link #sent(InputStream)}.
+     */
+    private static final class SentInputStream extends PushbackInputStream {
+        SentInputStream(final InputStream in) {
+            super(in, 1);
+        }
+    }
+
+    private final Opener opener;
+    private final String path;
+    private final int maxRetries;
+    private final long backoffNanos;
+
+    private InputStream delegate;
+    private String etag;
+    private Long contentLength;
+    private long offset;
+    private int retries = 0;
+    private long resumes = 0L;
+    private boolean progressed = true;
+    private boolean closed = false;
+
+    /**
+     * Opens a Manta object for reading from an offset.
+     *
+     * @param requests sends the requests of the stream
+     * @param path Manta path of the object
+     * @param offset number of bytes to skip at the start of the object
+     * @param maxRetries maximum number of consecutive attempts to resume
+     *                   after an error, zero to never resume
+     * @param backoffMillis wait before the first attempt to resume
+     * @throws IOException thrown when the object can't be opened
+     */
+    public ResumableInputStream(final MantaRequestHedger requests,
+                                final String path,
+                                final long offset,
+                                final int maxRetries,
+                                final long backoffMillis) throws IOException {
+        this(opener(requests, path, MantaLane.current()), path, offset, maxRetries, backoffMillis);
+    }
+
+    /**
+     * Opens an object for reading from an offset.
+     *
+     * @param opener sends the requests of the stream
+     * @param path path of the object, used in messages
+     * @param offset number of bytes to skip at the start of the object
+     * @param maxRetries maximum number of consecutive attempts to resume
+     *                   after an error, zero to never resume
+     * @param backoffMillis wait before the first attempt to resume
+     * @throws IOException thrown when the object can't be opened
+     */
+    public ResumableInputStream(final Opener opener,
+                                final String path,
+                                final long offset,
+                                final int maxRetries,
+                                final long backoffMillis) throws IOException {
+        this(opener, path, offset, null, maxRetries, backoffMillis);
+    }
+
+    /**
+     * Opens an object for reading from an offset, checking that it still has
+     * the ETag of an earlier read. This allows a read that was interrupted
+     * by a restart to be resumed safely.
+     *
+     * @param opener sends the requests of the stream
+     * @param path path of the object, used in messages
+     * @param offset number of bytes to skip at the start of the object
+     * @param expectedEtag ETag of the object when the bytes before the
+     *                     offset were read, or null to accept any ETag
+     * @param maxRetries maximum number of consecutive attempts to resume
+     *                   after an error, zero to never resume
+     * @param backoffMillis wait before the first attempt to resume
+     * @throws ObjectChangedException thrown when the object no longer has
+     *                                the expected ETag
+     * @throws IOException thrown when the object can't be opened
+     */
+    public ResumableInputStream(final Opener opener,
+                                final String path,
+                                final long offset,
+                                final String expectedEtag,
+                                final int maxRetries,
+                                final long backoffMillis) throws IOException {
+        if (offset < 0L) {
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+
+        this.opener = Objects.requireNonNull(opener);
+        this.path = Objects.requireNonNull(path);
+        this.offset = offset;
+        this.etag = expectedEtag;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.backoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, backoffMillis));
+        this.delegate = open();
+    }
+
+    /**
+     * Creates an opener for a Manta object. Reads from the start are plain
+     * GETs that return the ETag with the body. Reads from an offset are
+     * ranged GETs, sent before a HEAD for the ETag.
+     *
+     * @param requests sends the requests
+     * @param path Manta path of the object
+     * @param lane priority lane of the requests
+     * @return new opener
+     */
+    public static Opener opener(final MantaRequestHedger requests, final String path,
+                                final MantaLane lane) {
+        Objects.requireNonNull(requests);
+        Objects.requireNonNull(path);
+        Objects.requireNonNull(lane);
+
+        return offset -> {
+            if (offset == 0L) {
+                final MantaObjectInputStream in = requests.execute(MantaOperation.GET, path,
+                        lane, client -> client.getAsInputStream(path));
+                return new Part(in, in.getEtag(), in.getContentLength());
+            }
+
+            // Sent within the request, so that it is accounted for the GET
+            final InputStream in = requests.execute(MantaOperation.GET, path,
+                    lane, client -> sent(client.getSeekableByteChannel(path, offset)));
+
+            return ranged(in, () -> requests.execute(MantaOperation.HEAD, path,
+                    lane, client -> client.head(path)));
+        };
+    }
+
+    /**
+     * Creates the response to a ranged GET, taking the ETag from a HEAD that
+     * is sent after the GET.
+     *
+     * @param in body of the ranged response, which may not have been sent yet
+     * @param head sends the HEAD for the object
+     * @return response
+     * @throws IOException thrown when either request fails
+     */
+    public static Part ranged(final InputStream in, final Head head) throws IOException {
+        Objects.requireNonNull(head);
+        final InputStream body = sent(in);
+
+        try {
+            final MantaObject object = head.send();
+            return new Part(body, object.getEtag(), object.getContentLength());
+        } catch (IOException | RuntimeException e) {
+            body.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks that the object a ranged response was served from still has
+     * the ETag of an earlier request. Ranged responses don't expose their
+     * headers, so the ETag is read with a HEAD once the GET has been sent:
+     * an object that changed before the GET was served can't have its old
+     * ETag again.
+     *
+     * @param in body of the ranged response, which may not have been sent yet
+     * @param path Manta path of the object
+     * @param expectedEtag ETag of the object when it was first read, or null
+     *                     to accept any ETag without sending a HEAD
+     * @param head sends the HEAD for the object
+     * @return body of the ranged response
+     * @throws ObjectChangedException thrown when the object no longer has
+     *                                the expected ETag
+     * @throws IOException thrown when either request fails
+     */
+    public static InputStream pinned(final InputStream in, final String path,
+                                     final String expectedEtag, final Head head)
+            throws IOException {
+        if (expectedEtag == null) {
+            return sent(in);
+        }
+
+        final Part part = ranged(in, head);
+
+        if (!expectedEtag.equals(part.etag)) {
+            part.stream.close();
+            throw new ObjectChangedException(path, expectedEtag, part.etag);
+        }
+
+        return part.stream;
+    }
+
+    /**
+     * Makes a lazy stream send its request now by reading one byte ahead.
+     * Streams such as <code>MantaSeekableByteChannel</code> only send their
+     * GET on the first read.
+     *
+     * @param in stream that may not have sent its request yet
+     * @return stream with the same content whose request has been sent
+     * @throws IOException thrown when the request fails
+     */
+    public static InputStream sent(final InputStream in) throws IOException {
+        if (in instanceof SentInputStream) {
+            return in;
+        }
+
+        final SentInputStream sent = new SentInputStream(Objects.requireNonNull(in));
+
+        try {
+            final byte[] next = new byte[1];
+
+            if (sent.read(next, 0, 1) == 1) {
+                sent.unread(next);
+            }
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+
+        return sent;
+    }
+
+    /**
+     * Requests the object from the current offset and checks that it hasn't
+     * changed since the stream was opened.
+     */
+    private InputStream open() throws IOException {
+        final Part part = opener.open(offset);
+
+        if (etag == null) {
+            etag = part.etag;
+            contentLength = part.contentLength;
+        } else if (!etag.equals(part.etag)) {
+            part.stream.close();
+            throw new ObjectChangedException(path, etag, part.etag);
+        }
+
+        return part.stream;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        final int count = read(single, 0, 1);
+        return count == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        Objects.requireNonNull(b);
+
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (len == 0) {
+            return 0;
+        }
+
+        while (true) {
+            ensureOpen();
+            IOException error;
+
+            try {
+                final int count = delegate.read(b, off, len);
+
+                if (count > 0) {
+                    offset += count;
+                    progressed = true;
+                    return count;
+                }
+
+                if (count == -1 && (contentLength == null || offset >= contentLength)) {
+                    return -1;
+                }
+
+                error = new IOException(String.format(
+                        "Connection for %s ended at %d of %d bytes",
+                        path, offset, contentLength));
+            } catch (IOException e) {
+                error = e;
+            }
+
+            resume(error);
+        }
+    }
+
+    /**
+     * Reopens the object at the current offset after a failure, or rethrows
+     * the failure when it isn't transient or the retries are exhausted.
+     */
+    private void resume(final IOException error) throws IOException {
+        if (closed || !isTransient(error)) {
+            throw error;
+        }
+
+        if (progressed) {
+            retries = 0;
+            progressed = false;
+        }
+
+        closeDelegate();
+
+        while (true) {
+            if (retries >= maxRetries) {
+                throw error;
+            }
+
+            backoff(retries++);
+
+            try {
+                delegate = open();
+                resumes++;
+                return;
+            } catch (IOException e) {
+                if (!isTransient(e)) {
+                    e.addSuppressed(error);
+                    throw e;
+                }
+
+                error.addSuppressed(e);
+            }
+        }
+    }
+
+    private void backoff(final int attempt) throws InterruptedIOException {
+        final long wait = Math.min(MAX_BACKOFF_NANOS, backoffNanos << Math.min(attempt, 20));
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format(
+                    "Interrupted while resuming %s", path));
+        }
+    }
+
+    /**
+     * @param error error thrown by a read or a request
+     * @return true if retrying may succeed
+     */
+    static boolean isTransient(final IOException error) {
+        if (error instanceof ObjectChangedException || error instanceof CircuitOpenException) {
+            return false;
+        }
+
+        if (error instanceof InterruptedIOException) {
+            return error instanceof SocketTimeoutException;
+        }
+
+        if (error instanceof MantaThrottledException) {
+            return true;
+        }
+
+        if (error instanceof MantaClientHttpResponseException) {
+            final int status = ((MantaClientHttpResponseException) error).getStatusCode();
+            return status == 408 || status >= 500;
+        }
+
+        return true;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+
+        if (delegate == null) {
+            throw new IOException(String.format("Stream for %s failed to resume", path));
+        }
+    }
+
+    private void closeDelegate() {
+        final InputStream current = delegate;
+        delegate = null;
+
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // The connection has already failed
+            }
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        return delegate == null || closed ? 0 : delegate.available();
+    }
+
+    /**
+     * @return number of bytes of the object read so far, including the
+     *         starting offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return ETag of the object being read
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * @return full size of the object, or -1 if the response didn't say
+     */
+    public long getContentLength() {
+        return contentLength == null ? -1L : contentLength;
+    }
+
+    /**
+     * @return number of times the stream resumed after an error
+     */
+    public long getResumes() {
+        return resumes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        final InputStream current = delegate;
+        delegate = null;
+
+        if (current != null) {
+            current.close();
+        }
+    }
+}
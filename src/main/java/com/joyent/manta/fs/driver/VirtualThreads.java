@@ -0,0 +1,36 @@
+package com.joyent.manta.fs.driver;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates executors backed by virtual threads. This is the variant for
+ * runtimes without virtual threads; the jar contains a variant for Java 21
+ * and later under <code>META-INF/versions/21</code>.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the runtime supports virtual threads
+     */
+    static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * @param prefix prefix of the thread names
+     * @return new executor
+     * @throws UnsupportedOperationException thrown when the runtime doesn't
+     *         support virtual threads
+     */
+    static ExecutorService newThreadPerTaskExecutor(final String prefix) {
+        throw new UnsupportedOperationException(
+                "Virtual threads require Java 21 or later");
+    }
+}
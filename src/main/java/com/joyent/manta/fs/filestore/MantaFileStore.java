@@ -13,6 +13,16 @@ import java.io.IOException;
 public class MantaFileStore extends FileStoreBase {
     protected final MantaClient mantaClient;
 
+    /**
+     * Creates a file store that doesn't hold a client, so that it can be
+     * created before the driver's client is.
+     *
+     * @param factory attributes factory of the filesystem
+     */
+    public MantaFileStore(final FileAttributesFactory factory) {
+        this(null, factory);
+    }
+
     public MantaFileStore(final MantaClient mantaClient,
                           final FileAttributesFactory factory) {
         super("manta", factory, false);
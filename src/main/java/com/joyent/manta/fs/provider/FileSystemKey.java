@@ -1,30 +1,71 @@
 package com.joyent.manta.fs.provider;
 
-import com.joyent.manta.fs.config.ConfigContext;
-
 import javax.annotation.Nonnull;
 import java.net.URI;
+import java.util.Locale;
 import java.util.Objects;
 
 /**
+ * Key identifying a filesystem in {@link MantaFileSystemRepository}. Only
+ * the parts of a URI that select the Manta endpoint and user are part of the
+ * key, so that any URI pointing into a filesystem maps to the same key.
+ *
  * @author Elijah Zupancic
  * @since 1.0.0
  */
 public class FileSystemKey {
-    private final URI uri;
-    private final ConfigContext config;
+    private static final int DEFAULT_PORT = 443;
+
+    private final String user;
+    private final String host;
+    private final int port;
+    private final int hash;
+
+    private FileSystemKey(final String user, final String host, final int port) {
+        this.user = user;
+        this.host = host;
+        this.port = port;
+        this.hash = Objects.hash(user, host, port);
+    }
 
-    public FileSystemKey(@Nonnull final URI uri, final ConfigContext config) {
-        this.uri = uri;
-        this.config = config;
+    /**
+     * Builds the key for a URI. The path, query and fragment are ignored,
+     * the host is compared case insensitively, a missing port is the default
+     * HTTPS port and a password in the user info is ignored.
+     *
+     * @param uri manta URI
+     * @return key for the filesystem containing the URI
+     */
+    public static FileSystemKey fromURI(@Nonnull final URI uri) {
+        Objects.requireNonNull(uri, "URI must be present");
+
+        final String rawUserInfo = uri.getRawUserInfo();
+        final String user = rawUserInfo == null ? null : rawUserInfo.split(":")[0];
+        final String host = uri.getHost() == null ?
+                null : uri.getHost().toLowerCase(Locale.ROOT);
+        final int port;
+
+        if (host == null) {
+            port = -1;
+        } else if (uri.getPort() >= 0) {
+            port = uri.getPort();
+        } else {
+            port = DEFAULT_PORT;
+        }
+
+        return new FileSystemKey(user, host, port);
     }
 
-    public URI getUri() {
-        return uri;
+    public String getUser() {
+        return user;
     }
 
-    public ConfigContext getConfig() {
-        return config;
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
     }
 
     @Override
@@ -32,12 +73,29 @@ public class FileSystemKey {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         FileSystemKey that = (FileSystemKey) o;
-        return Objects.equals(uri, that.uri) &&
-                Objects.equals(config, that.config);
+        return port == that.port &&
+                Objects.equals(user, that.user) &&
+                Objects.equals(host, that.host);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(uri, config);
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(MantaFileSystemRepository.SCHEME)
+                .append("://");
+
+        if (user != null) {
+            builder.append(user).append('@');
+        }
+
+        if (host != null) {
+            builder.append(host).append(':').append(port);
+        }
+
+        return builder.toString();
     }
 }
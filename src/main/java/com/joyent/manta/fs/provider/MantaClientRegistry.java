@@ -0,0 +1,277 @@
+package com.joyent.manta.fs.provider;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.config.ConfigContext;
+import com.joyent.manta.fs.driver.MantaClientSource;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reference counted {@link MantaClient} instances shared between
+ * filesystems. Filesystems whose configuration selects the same endpoint,
+ * credentials and HTTP settings share one client, and with it its
+ * connection pool, TLS sessions and request signer.
+ *
+ * <p>The maximum number of connections is part of what makes two
+ * configurations equivalent, so a filesystem that sets a different
+ * <code>manta.max_connections</code> in its environment map gets a pool of
+ * that size instead of sharing one sized for another filesystem.</p>
+ *
+ * <p>Clients are created outside of the registry's lock, so that creating
+ * a client, which may load keys, doesn't hold up filesystems that use other
+ * configurations. Filesystems that need the same client while it is being
+ * created wait for it instead of creating their own.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaClientRegistry {
+    private final Map<List<Object>, SharedClient> clients = new HashMap<>();
+
+    /**
+     * Client, which may still be being created, and the number of leases
+     * that reference it.
+     */
+    private static class SharedClient {
+        private final CompletableFuture<MantaClient> client = new CompletableFuture<>();
+        private int references = 0;
+        private boolean creating = false;
+
+        /**
+         * Waits for the client to be created.
+         *
+         * @return created client
+         * @throws IOException the failure that prevented its creation
+         * @throws InterruptedIOException thrown when interrupted while waiting
+         */
+        MantaClient await() throws IOException {
+            try {
+                return client.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a client");
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+
+                throw new IOException(cause);
+            }
+        }
+
+        /**
+         * @return client, or null if it wasn't created
+         */
+        MantaClient createdClient() {
+            return client.isDone() && !client.isCompletedExceptionally()
+                    ? client.join() : null;
+        }
+    }
+
+    /**
+     * Reference to a shared client. The client is looked up or created on
+     * the first call to {@link #getClient()}, and closing the last lease for
+     * a client closes the client.
+     */
+    public final class Lease implements MantaClientSource {
+        private final ConfigContext config;
+        private SharedClient shared;
+        private MantaClient client;
+        private List<Object> key;
+        private boolean closed = false;
+
+        private Lease(final ConfigContext config) {
+            this.config = config;
+        }
+
+        @Override
+        public synchronized MantaClient getClient() throws IOException {
+            if (closed) {
+                throw new IOException("Client lease has been released");
+            }
+
+            if (shared == null) {
+                final List<Object> lookup = keyOf(config);
+                final SharedClient retained = retain(lookup);
+
+                try {
+                    client = create(lookup, retained, config);
+                } catch (IOException | RuntimeException | Error e) {
+                    release(lookup, retained);
+                    throw e;
+                }
+
+                key = lookup;
+                shared = retained;
+            }
+
+            return client;
+        }
+
+        @Override
+        public synchronized boolean isCreated() {
+            return shared != null;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+
+            if (shared != null) {
+                release(key, shared);
+            }
+        }
+    }
+
+    /**
+     * Returns a lease on the client for a configuration. No client is
+     * created until the lease is first used.
+     *
+     * @param config filesystem configuration
+     * @return lease that must be closed when the filesystem is closed
+     */
+    public Lease lease(final ConfigContext config) {
+        return new Lease(Objects.requireNonNull(config, "Configuration must be present"));
+    }
+
+    /**
+     * Returns a lease whose client has already been looked up or created.
+     *
+     * @param config filesystem configuration
+     * @return lease that must be closed when the filesystem is closed
+     * @throws IOException thrown when a new client can't be created
+     */
+    public Lease acquire(final ConfigContext config) throws IOException {
+        final Lease lease = lease(config);
+        lease.getClient();
+
+        return lease;
+    }
+
+    /**
+     * Counts a reference to the client for a key, adding an entry for it if
+     * there is none. The entry's client is created by
+     * {@link #create(List, SharedClient, ConfigContext)}.
+     */
+    private synchronized SharedClient retain(final List<Object> key) {
+        SharedClient shared = clients.get(key);
+
+        if (shared == null) {
+            shared = new SharedClient();
+            clients.put(key, shared);
+        }
+
+        shared.references++;
+
+        return shared;
+    }
+
+    /**
+     * Creates the client of an entry, or waits for it when another lease is
+     * already creating it. An entry whose client couldn't be created is
+     * removed right away, so that the next lease tries again, while the
+     * leases that were waiting for it report the failure.
+     */
+    private MantaClient create(final List<Object> key, final SharedClient shared,
+                               final ConfigContext config) throws IOException {
+        final boolean creator;
+
+        synchronized (this) {
+            creator = !shared.creating;
+            shared.creating = true;
+        }
+
+        if (creator) {
+            try {
+                shared.client.complete(newClient(config));
+            } catch (IOException | RuntimeException | Error e) {
+                synchronized (this) {
+                    clients.remove(key, shared);
+                }
+
+                shared.client.completeExceptionally(e);
+            }
+        }
+
+        return shared.await();
+    }
+
+    /**
+     * Creates the client for a configuration that isn't shared yet.
+     *
+     * @param config filesystem configuration
+     * @return new client
+     * @throws IOException thrown when the client can't be created
+     */
+    protected MantaClient newClient(final ConfigContext config) throws IOException {
+        return new MantaClient(config);
+    }
+
+    private void release(final List<Object> key, final SharedClient shared) {
+        final boolean last;
+
+        synchronized (this) {
+            last = --shared.references == 0;
+
+            if (last) {
+                clients.remove(key, shared);
+            }
+        }
+
+        // Closing may wait for connections, so it isn't done while locked
+        final MantaClient client = last ? shared.createdClient() : null;
+
+        if (client != null) {
+            client.closeQuietly();
+        }
+    }
+
+    /**
+     * @return number of clients currently shared
+     */
+    public synchronized int size() {
+        return clients.size();
+    }
+
+    /**
+     * Builds the values of a configuration that affect the client. The home
+     * directory only affects how paths are resolved, so filesystems that
+     * differ only by it share a client.
+     */
+    private static List<Object> keyOf(final ConfigContext config) {
+        return Arrays.asList(
+                config.getMantaURL(),
+                config.getMantaUser(),
+                config.getMantaKeyId(),
+                config.getMantaKeyPath(),
+                config.getPrivateKeyContent(),
+                config.getPassword(),
+                config.noAuth(),
+                config.disableNativeSignatures(),
+                config.getSignatureCacheTTL(),
+                config.getTimeout(),
+                config.getRetries(),
+                config.getMaximumConnections(),
+                config.getHttpTransport(),
+                config.getHttpsProtocols(),
+                config.getHttpsCipherSuites());
+    }
+}
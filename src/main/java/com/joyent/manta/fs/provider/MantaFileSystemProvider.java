@@ -2,6 +2,15 @@ package com.joyent.manta.fs.provider;
 
 import com.github.fge.filesystem.provider.FileSystemProviderBase;
 import com.github.fge.filesystem.provider.FileSystemRepository;
+import com.joyent.manta.fs.driver.MantaFileSystemDriver;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @author Elijah Zupancic
@@ -15,4 +24,14 @@ public class MantaFileSystemProvider extends FileSystemProviderBase {
     protected MantaFileSystemProvider(FileSystemRepository repository) {
         super(repository);
     }
+
+    @Override
+    public AsynchronousFileChannel newAsynchronousFileChannel(final Path path,
+                                                              final Set<? extends OpenOption> options,
+                                                              final ExecutorService executor,
+                                                              final FileAttribute<?>... attrs)
+            throws IOException {
+        final MantaFileSystemDriver driver = (MantaFileSystemDriver) repository.getDriver(path);
+        return driver.newAsynchronousFileChannel(path, options, executor, attrs);
+    }
 }
@@ -1,31 +1,39 @@
 package com.joyent.manta.fs.provider;
 
+import com.joyent.manta.fs.config.ChainedConfigContext;
 import com.joyent.manta.fs.config.ConfigContext;
 import com.joyent.manta.fs.config.MapConfigContext;
 import com.joyent.manta.fs.config.SystemSettingsConfigContext;
+import com.joyent.manta.fs.driver.MantaClientSource;
+import com.joyent.manta.fs.driver.MantaEndpoint;
+import com.joyent.manta.fs.driver.MantaEndpointPool;
 import com.joyent.manta.fs.driver.MantaFileSystem;
 import com.joyent.manta.fs.driver.MantaFileSystemDriver;
+import com.joyent.manta.fs.driver.MantaNioSettings;
 import com.joyent.manta.fs.filestore.MantaFileStore;
 import com.github.fge.filesystem.driver.FileSystemDriver;
 import com.github.fge.filesystem.provider.FileSystemFactoryProvider;
 import com.github.fge.filesystem.provider.FileSystemRepository;
-import com.joyent.manta.client.MantaClient;
 import io.mola.galimatias.GalimatiasParseException;
 import io.mola.galimatias.URL;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.file.ClosedFileSystemException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystemAlreadyExistsException;
 import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.Path;
 import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Elijah Zupancic
@@ -34,8 +42,16 @@ import java.util.concurrent.ConcurrentMap;
 public class MantaFileSystemRepository implements FileSystemRepository {
     public static final String SCHEME = "manta";
 
+    /**
+     * Environment key for the number of connections to open in the
+     * background right after a filesystem is created. Unset or zero disables
+     * warming up, which leaves creating the client to the first request.
+     */
+    public static final String PREWARM_CONNECTIONS_KEY = "manta.nio.prewarm_connections";
+
     private final ConcurrentMap<FileSystemKey, MantaFileSystem> filesystems = new ConcurrentHashMap<>();
     private final FileSystemFactoryProvider factoryProvider;
+    private final MantaClientRegistry clients = new MantaClientRegistry();
 
     public MantaFileSystemRepository() {
         this.factoryProvider = new MantaFileSystemFactoryProvider();
@@ -46,11 +62,83 @@ public class MantaFileSystemRepository implements FileSystemRepository {
     public FileSystemDriver createDriver(final URI uri,
                                          final Map<String, ?> env)  throws IOException {
         final ConfigContext config = buildContext(uri, env);
-
-        final MantaClient client = new MantaClient(config);
+        final MantaNioSettings settings = new MantaNioSettings(env);
         final MantaFileStore fileStore = new MantaFileStore(
-                client, factoryProvider.getAttributesFactory());
-        return new MantaFileSystemDriver(config, fileStore, factoryProvider, client);
+                factoryProvider.getAttributesFactory());
+
+        return new MantaFileSystemDriver(config, fileStore, factoryProvider,
+                buildClientSource(config, settings), settings);
+    }
+
+    /**
+     * Builds the source of the clients of a filesystem: a single client
+     * for the configured endpoint, or a pool with a client per endpoint
+     * when {@link MantaNioSettings#ENDPOINTS_KEY} is set.
+     *
+     * @param config filesystem configuration
+     * @param settings driver settings
+     * @return source of the clients
+     * @throws IOException thrown when an endpoint isn't a valid URL
+     */
+    protected MantaClientSource buildClientSource(final ConfigContext config,
+                                                  final MantaNioSettings settings)
+            throws IOException {
+        final List<String> urls = settings.getEndpoints();
+
+        /* Filesystems with equivalent configurations share a client. The
+         * lease only creates or looks up the client on the first request, so
+         * that creating a filesystem doesn't load keys or build the HTTP
+         * stack. */
+        if (urls.isEmpty()) {
+            return clients.lease(config);
+        }
+
+        final List<MantaEndpoint> endpoints = new ArrayList<>(urls.size());
+
+        for (String url : urls) {
+            final ChainedConfigContext endpointConfig = new ChainedConfigContext();
+            endpointConfig.overwriteWithContext(config);
+            endpointConfig.setMantaURL(endpointURL(url));
+            endpoints.add(new MantaEndpoint(url, clients.lease(endpointConfig)));
+        }
+
+        return new MantaEndpointPool(endpoints, settings.getEndpointBalancing(),
+                settings.getInt(MantaNioSettings.ENDPOINT_EJECT_AFTER_KEY,
+                        MantaEndpointPool.DEFAULT_EJECT_AFTER_FAILURES),
+                TimeUnit.MILLISECONDS.toNanos(settings.getLong(
+                        MantaNioSettings.ENDPOINT_EJECT_KEY,
+                        MantaEndpointPool.DEFAULT_EJECT_MILLIS)));
+    }
+
+    /**
+     * Converts an endpoint setting to a Manta URL. Values without a scheme
+     * are a host with an optional port and use HTTPS.
+     */
+    private static String endpointURL(final String endpoint) throws IOException {
+        if (endpoint.contains("://")) {
+            return endpoint;
+        }
+
+        try {
+            final URI uri = new URI("https://" + endpoint);
+
+            if (uri.getHost() == null) {
+                throw new IOException("Invalid Manta endpoint: " + endpoint);
+            }
+
+            return URL.buildHierarchical("https", uri.getHost())
+                    .withPort(uri.getPort() >= 0 ? uri.getPort() : 443)
+                    .toString();
+        } catch (URISyntaxException | GalimatiasParseException e) {
+            throw new IOException("Invalid Manta endpoint: " + endpoint, e);
+        }
+    }
+
+    /**
+     * @return clients shared by the filesystems of this repository
+     */
+    public MantaClientRegistry getClients() {
+        return clients;
     }
 
     protected ConfigContext buildContext(final URI uri, final Map<String, ?> env) throws IOException {
@@ -109,17 +197,53 @@ public class MantaFileSystemRepository implements FileSystemRepository {
         Objects.requireNonNull(env, "Environment must be present");
         checkURI(uri);
 
-        if (filesystems.containsKey(uri)) {
-            throw new FileSystemAlreadyExistsException();
+        final FileSystemKey key = FileSystemKey.fromURI(uri);
+
+        // Fail fast without building a client when the filesystem exists
+        if (findOpen(key) != null) {
+            throw new FileSystemAlreadyExistsException(key.toString());
         }
 
+        final int prewarmConnections = new MantaNioSettings(env)
+                .getInt(PREWARM_CONNECTIONS_KEY, 0);
         final MantaFileSystemDriver driver = (MantaFileSystemDriver)createDriver(uri, env);
-        final FileSystemKey key = new FileSystemKey(uri, driver.getConfig());
+        final MantaFileSystem fileSystem = new MantaFileSystem(
+                uri, this, driver, provider);
+
+        /* Another thread may have registered a filesystem for the same key
+         * while the driver was being built. A closed filesystem that hasn't
+         * been unregistered yet is replaced. */
+        while (true) {
+            final MantaFileSystem existing = filesystems.putIfAbsent(key, fileSystem);
+
+            if (existing == null) {
+                driver.registerMBean(key.toString());
+                driver.prewarm(prewarmConnections);
+                return fileSystem;
+            }
 
-        filesystems.putIfAbsent(key, new MantaFileSystem(
-                uri, this, driver, provider));
+            if (existing.isOpen()) {
+                // Not registered, so the driver is closed directly
+                driver.close();
+                throw new FileSystemAlreadyExistsException(key.toString());
+            }
 
-        return filesystems.get(key);
+            if (filesystems.replace(key, existing, fileSystem)) {
+                driver.registerMBean(key.toString());
+                driver.prewarm(prewarmConnections);
+                return fileSystem;
+            }
+        }
+    }
+
+    private MantaFileSystem findOpen(final FileSystemKey key) {
+        final MantaFileSystem fileSystem = filesystems.get(key);
+
+        if (fileSystem == null || !fileSystem.isOpen()) {
+            return null;
+        }
+
+        return fileSystem;
     }
 
     @Override
@@ -127,7 +251,7 @@ public class MantaFileSystemRepository implements FileSystemRepository {
     public FileSystem getFileSystem(final URI uri) {
         checkURI(uri);
 
-        final FileSystem fs = filesystems.get(uri);
+        final FileSystem fs = findOpen(FileSystemKey.fromURI(uri));
 
         if (fs == null) {
             throw new FileSystemNotFoundException();
@@ -141,15 +265,12 @@ public class MantaFileSystemRepository implements FileSystemRepository {
     public Path getPath(final URI uri) {
         checkURI(uri);
 
-        final MantaFileSystem fs = filesystems.entrySet()
-                .stream()
-                .filter(entry -> entry.getKey().getUri().equals(uri) && entry.getValue().isOpen())
-                .findFirst()
-                .orElseThrow(() -> {
-                    String msg = String.format("No file system found for URI: %s", uri);
-                    return new FileSystemNotFoundException(msg);
-                })
-                .getValue();
+        final MantaFileSystem fs = findOpen(FileSystemKey.fromURI(uri));
+
+        if (fs == null) {
+            String msg = String.format("No file system found for URI: %s", uri);
+            throw new FileSystemNotFoundException(msg);
+        }
 
         final String uriPath = uri.getPath();
         return fs.getPath(uriPath);
@@ -160,26 +281,34 @@ public class MantaFileSystemRepository implements FileSystemRepository {
     public FileSystemDriver getDriver(final Path path) {
         Objects.requireNonNull(path, "Path must be present");
 
-        FileSystem pathFileSystem = path.getFileSystem();
+        final FileSystem pathFileSystem = path.getFileSystem();
 
-        MantaFileSystem matchingFileSystem = filesystems
-                .values()
-                .stream()
-                .filter(fs -> fs == pathFileSystem)
-                .findFirst().orElseThrow(FileSystemNotFoundException::new);
+        if (!(pathFileSystem instanceof MantaFileSystem)) {
+            throw new FileSystemNotFoundException();
+        }
 
-        if (!matchingFileSystem.isOpen()) {
+        final MantaFileSystem mantaFileSystem = (MantaFileSystem) pathFileSystem;
+
+        if (!mantaFileSystem.isOpen()) {
             throw new ClosedFileSystemException();
         }
 
-        return matchingFileSystem.getDriver();
+        return mantaFileSystem.getDriver();
     }
 
-
+    /**
+     * Removes the filesystem registered for a URI if it has been closed.
+     * Filesystems close themselves before unregistering, so an open
+     * filesystem found here was registered by a later call to
+     * {@link #createFileSystem(FileSystemProvider, URI, Map)} and is kept.
+     *
+     * @param uri URI of the closed filesystem
+     */
     @Override
     public void unregister(final URI uri)
     {
-        filesystems.remove(uri);
+        filesystems.computeIfPresent(FileSystemKey.fromURI(uri),
+                (key, fs) -> fs.isOpen() ? fs : null);
     }
 
     // TODO: should be checked at the provider level, not here
@@ -0,0 +1,302 @@
+package com.joyent.manta.fs.sync;
+
+import com.joyent.manta.fs.driver.MantaFileSystemDriver;
+import com.joyent.manta.fs.driver.MantaLane;
+import com.joyent.manta.fs.driver.ResumableInputStream;
+import com.joyent.manta.fs.util.BoundedTaskRunner;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mirrors a Manta directory tree onto a local directory.
+ *
+ * <p>Objects are downloaded only when their ETag or size differ from what is
+ * recorded in a local {@link MirrorManifest}. Downloads run concurrently with
+ * bounded concurrency. Each object is first written to a partial file next to
+ * its final location. If a download is interrupted, the next run resumes it
+ * from the partial file's length using a ranged request, provided that the
+ * object's ETag hasn't changed in the meantime.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaMirror implements Callable<SyncResult> {
+    /**
+     * Default name of the manifest file stored in the target directory.
+     */
+    public static final String DEFAULT_MANIFEST_NAME = ".manta-manifest";
+
+    /**
+     * Suffix appended to the name of files that are still being downloaded.
+     */
+    public static final String PARTIAL_SUFFIX = ".manta-part";
+
+    private final Path source;
+    private final Path target;
+    private final MantaFileSystemDriver driver;
+
+    private int concurrency;
+    private boolean deleteExtraneous = false;
+    private Path manifest;
+
+    private final AtomicLong transferred = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param source Manta directory to read from
+     * @param target local directory to write to
+     */
+    public MantaMirror(final Path source, final Path target) {
+        this.source = Objects.requireNonNull(source, "Source must be present");
+        this.target = Objects.requireNonNull(target, "Target must be present");
+        this.driver = MantaFileSystemDriver.fromPath(source);
+
+        if (driver.isMantaPath(target)) {
+            throw new IllegalArgumentException("Target must be a local path");
+        }
+
+        this.concurrency = driver.getDefaultConcurrency();
+        this.manifest = target.resolve(DEFAULT_MANIFEST_NAME);
+    }
+
+    /**
+     * @param concurrency maximum number of objects downloaded at once
+     * @return this instance
+     */
+    public MantaMirror setConcurrency(final int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * @param deleteExtraneous when true, local entries without a remote
+     *                         counterpart are deleted
+     * @return this instance
+     */
+    public MantaMirror setDeleteExtraneous(final boolean deleteExtraneous) {
+        this.deleteExtraneous = deleteExtraneous;
+        return this;
+    }
+
+    /**
+     * @param manifest local manifest file, by default stored in the target
+     * @return this instance
+     */
+    public MantaMirror setManifest(final Path manifest) {
+        this.manifest = Objects.requireNonNull(manifest);
+        return this;
+    }
+
+    @Override
+    public SyncResult call() throws IOException {
+        final String root = driver.findRealPath(source);
+        final MantaLane lane = MantaLane.currentOr(MantaLane.BULK);
+        final Map<String, RemoteTree.Entry> remote = RemoteTree.list(
+                driver.getDispatcher(), lane, root);
+
+        if (remote == null) {
+            throw new NoSuchFileException(root);
+        }
+
+        Files.createDirectories(target);
+
+        final TreeSet<String> directories = new TreeSet<>();
+
+        for (Map.Entry<String, RemoteTree.Entry> entry : remote.entrySet()) {
+            if (entry.getValue().directory) {
+                directories.add(entry.getKey());
+            }
+        }
+
+        // Sorted order guarantees parents are created before their children
+        for (String dir : directories) {
+            Files.createDirectories(resolveLocal(dir));
+        }
+
+        try (MirrorManifest journal = new MirrorManifest(manifest)) {
+            final BoundedTaskRunner runner = new BoundedTaskRunner(
+                    driver.getExecutor(), concurrency);
+
+            try {
+                for (Map.Entry<String, RemoteTree.Entry> entry : remote.entrySet()) {
+                    final String relativePath = entry.getKey();
+                    final RemoteTree.Entry object = entry.getValue();
+
+                    if (object.directory) {
+                        continue;
+                    }
+
+                    runner.submit(() -> {
+                        try (MantaLane.Scope ignored = lane.enter()) {
+                            mirrorObject(journal, root + "/" + relativePath,
+                                    relativePath, object);
+                        }
+                    });
+                }
+            } finally {
+                // Running tasks write to the manifest, which closes when we leave
+                runner.drain();
+            }
+
+            runner.await();
+
+            if (deleteExtraneous) {
+                deleteExtraneous(journal, remote);
+            }
+
+            journal.compact();
+        }
+
+        return new SyncResult(transferred.get(), skipped.get(),
+                deleted.get(), bytesTransferred.get());
+    }
+
+    private void mirrorObject(final MirrorManifest journal,
+                              final String remotePath,
+                              final String relativePath,
+                              final RemoteTree.Entry object) throws IOException {
+        final Path local = resolveLocal(relativePath);
+        final String version = object.version();
+
+        if (journal.isComplete(relativePath, version, object.size)
+                && Files.isRegularFile(local) && Files.size(local) == object.size) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        final Path partial = local.resolveSibling(local.getFileName() + PARTIAL_SUFFIX);
+        long offset = 0L;
+
+        if (journal.isPartial(relativePath, version, object.size) && Files.exists(partial)) {
+            offset = Files.size(partial);
+        } else {
+            Files.deleteIfExists(partial);
+            journal.markPartial(relativePath, version, object.size);
+        }
+
+        // A previous run may have finished the transfer without moving the file
+        if (offset > object.size) {
+            Files.delete(partial);
+            offset = 0L;
+        }
+
+        if (offset < object.size || object.size < 0) {
+            bytesTransferred.addAndGet(download(remotePath, partial, offset, object));
+        }
+
+        if (object.size >= 0 && Files.size(partial) != object.size) {
+            throw new IOException(String.format(
+                    "Download of %s ended after %d bytes, expected %d bytes",
+                    remotePath, Files.size(partial), object.size));
+        }
+
+        Files.move(partial, local, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        journal.markComplete(relativePath, version, object.size);
+        transferred.incrementAndGet();
+    }
+
+    /**
+     * Downloads an object into its partial file. A partial file is only
+     * resumed while the object has the ETag it had when the partial file was
+     * started, otherwise the download starts over. Objects without an ETag
+     * are resumed unchecked.
+     */
+    private long download(final String remotePath, final Path partial, final long offset,
+                          final RemoteTree.Entry object) throws IOException {
+        if (offset <= 0L || object.etag == null) {
+            return driver.download(remotePath, partial, offset);
+        }
+
+        try {
+            return driver.download(remotePath, partial, offset, object.etag);
+        } catch (ResumableInputStream.ObjectChangedException e) {
+            // Overwritten since the partial file was started, so start over
+            return driver.download(remotePath, partial, 0L);
+        }
+    }
+
+    /**
+     * Deletes the local files and directories that don't exist on Manta.
+     */
+    private void deleteExtraneous(final MirrorManifest journal,
+                                  final Map<String, RemoteTree.Entry> remote)
+            throws IOException {
+        Files.walkFileTree(target, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file,
+                                             final BasicFileAttributes attrs)
+                    throws IOException {
+                final String relativePath = relativize(file);
+
+                if (!file.equals(manifest) && !remote.containsKey(relativePath)) {
+                    Files.delete(file);
+                    journal.remove(relativePath);
+                    deleted.incrementAndGet();
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir,
+                                                      final IOException exc)
+                    throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+
+                if (!dir.equals(target) && !remote.containsKey(relativize(dir))) {
+                    Files.delete(dir);
+                    deleted.incrementAndGet();
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private Path resolveLocal(final String relativePath) {
+        Path local = target;
+
+        for (String name : relativePath.split("/")) {
+            local = local.resolve(name);
+        }
+
+        return local;
+    }
+
+    private String relativize(final Path path) {
+        final StringBuilder builder = new StringBuilder();
+
+        for (Path name : target.relativize(path)) {
+            if (builder.length() > 0) {
+                builder.append('/');
+            }
+
+            builder.append(name.toString());
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,477 @@
+package com.joyent.manta.fs.sync;
+
+import com.joyent.manta.client.MantaHttpHeaders;
+import com.joyent.manta.fs.driver.MantaFileSystemDriver;
+import com.joyent.manta.fs.driver.MantaLane;
+import com.joyent.manta.fs.driver.MantaOperation;
+import com.joyent.manta.fs.driver.MantaRequestDispatcher;
+import com.joyent.manta.fs.util.BoundedTaskRunner;
+import com.joyent.manta.fs.util.FileDigests;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Incrementally synchronizes a local directory tree onto a Manta directory.
+ *
+ * <p>The local tree and the Manta tree are walked in parallel. A local file
+ * is uploaded only when it is missing on Manta, when its size differs or when
+ * its MD5 differs from the MD5 that Manta stores for the object. Comparisons
+ * and uploads run concurrently with bounded concurrency. Optionally, objects
+ * on Manta that don't exist locally are deleted.</p>
+ *
+ * <p>An entry that is a file on one side and a directory on the other is
+ * replaced when extraneous entries are deleted. Otherwise it is reported in
+ * {@link SyncResult#getConflicts()}, and the local entry and everything
+ * beneath it are left out of the sync.</p>
+ *
+ * <p>When a checkpoint journal is set, finished files are recorded so that a
+ * sync that was interrupted can be resumed without comparing or uploading
+ * them again.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MantaSync implements Callable<SyncResult> {
+    private final Path source;
+    private final Path target;
+    private final MantaFileSystemDriver driver;
+
+    private int concurrency;
+    private boolean deleteExtraneous = false;
+    private Path checkpoint;
+
+    private final AtomicLong transferred = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param source local directory to read from
+     * @param target Manta directory to write to
+     */
+    public MantaSync(final Path source, final Path target) {
+        this.source = Objects.requireNonNull(source, "Source must be present");
+        this.target = Objects.requireNonNull(target, "Target must be present");
+        this.driver = MantaFileSystemDriver.fromPath(target);
+
+        if (driver.isMantaPath(source)) {
+            throw new IllegalArgumentException("Source must be a local path");
+        }
+
+        this.concurrency = driver.getDefaultConcurrency();
+    }
+
+    /**
+     * @param concurrency maximum number of files compared or uploaded at once
+     * @return this instance
+     */
+    public MantaSync setConcurrency(final int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * @param deleteExtraneous when true, remote entries without a local
+     *                         counterpart are deleted
+     * @return this instance
+     */
+    public MantaSync setDeleteExtraneous(final boolean deleteExtraneous) {
+        this.deleteExtraneous = deleteExtraneous;
+        return this;
+    }
+
+    /**
+     * @param checkpoint local journal file used to resume an interrupted sync
+     * @return this instance
+     */
+    public MantaSync setCheckpoint(final Path checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    @Override
+    public SyncResult call() throws IOException {
+        final MantaRequestDispatcher requests = driver.getDispatcher();
+        final MantaLane lane = MantaLane.currentOr(MantaLane.BULK);
+        final String root = driver.findRealPath(target);
+
+        final Future<Map<String, RemoteTree.Entry>> remoteWalk =
+                driver.getExecutor().submit(() -> RemoteTree.list(requests, lane, root));
+        final LocalTree local = listLocal();
+        final Map<String, RemoteTree.Entry> remote = await(remoteWalk);
+
+        final Map<String, RemoteTree.Entry> existing = remote == null ?
+                new HashMap<>() : remote;
+        final Set<String> conflicts = resolveConflicts(requests, lane, root, local, existing);
+
+        try (SyncCheckpoint journal = new SyncCheckpoint(checkpoint)) {
+            if (remote == null) {
+                requests.execute(MantaOperation.PUT_DIRECTORY, root, lane, c -> {
+                    c.putDirectory(root, true);
+                    return null;
+                });
+            }
+
+            createDirectories(requests, lane, root, local.directories, existing, conflicts);
+
+            final BoundedTaskRunner runner = new BoundedTaskRunner(
+                    driver.getExecutor(), concurrency);
+
+            try {
+                for (Map.Entry<String, LocalEntry> entry : local.files.entrySet()) {
+                    final String relativePath = entry.getKey();
+                    final LocalEntry file = entry.getValue();
+                    final RemoteTree.Entry remoteFile = existing.get(relativePath);
+
+                    if (isConflicting(relativePath, conflicts)) {
+                        continue;
+                    }
+
+                    runner.submit(() -> syncFile(requests, lane, journal,
+                            root + "/" + relativePath, relativePath, file, remoteFile));
+                }
+            } finally {
+                // Running tasks write to the journal, which closes when we leave
+                runner.drain();
+            }
+
+            runner.await();
+
+            if (deleteExtraneous) {
+                deleteExtraneous(requests, lane, root, local, existing);
+            }
+
+            journal.complete();
+        }
+
+        return new SyncResult(transferred.get(), skipped.get(),
+                deleted.get(), bytesTransferred.get(), conflicts);
+    }
+
+    private void syncFile(final MantaRequestDispatcher requests,
+                          final MantaLane lane,
+                          final SyncCheckpoint journal,
+                          final String remotePath,
+                          final String relativePath,
+                          final LocalEntry file,
+                          final RemoteTree.Entry remoteFile) throws IOException {
+        if (journal.isDone(relativePath, file.size, file.modified)) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        if (remoteFile != null && !remoteFile.directory
+                && remoteFile.size == file.size
+                && isSameContent(requests, lane, remotePath, file.path)) {
+            skipped.incrementAndGet();
+            journal.markDone(relativePath, file.size, file.modified);
+            return;
+        }
+
+        final MantaHttpHeaders headers = new MantaHttpHeaders();
+        headers.setContentLength(file.size);
+
+        /* The file is opened by the request, so that a retried request
+         * sends the file from its start. */
+        requests.execute(MantaOperation.PUT, remotePath, lane, client -> {
+            try (InputStream in = requests.throttleUpload(lane,
+                    Files.newInputStream(file.path))) {
+                return client.put(remotePath, in, headers);
+            }
+        });
+        transferred.incrementAndGet();
+        bytesTransferred.addAndGet(file.size);
+        journal.markDone(relativePath, file.size, file.modified);
+    }
+
+    private static boolean isSameContent(final MantaRequestDispatcher requests,
+                                         final MantaLane lane,
+                                         final String remotePath,
+                                         final Path file) throws IOException {
+        final byte[] remoteMd5 = requests.execute(MantaOperation.HEAD, remotePath, lane,
+                client -> client.head(remotePath)).getMd5Bytes();
+
+        if (remoteMd5 == null) {
+            return false;
+        }
+
+        return Arrays.equals(remoteMd5, FileDigests.md5(file));
+    }
+
+    /**
+     * Finds the entries that are a file on one side and a directory on the
+     * other. When extraneous entries are deleted, the remote entries are
+     * deleted so that the local ones can take their place. Otherwise they
+     * are returned, so that they are left out of the sync.
+     */
+    private Set<String> resolveConflicts(final MantaRequestDispatcher requests,
+                                         final MantaLane lane,
+                                         final String root,
+                                         final LocalTree local,
+                                         final Map<String, RemoteTree.Entry> existing)
+            throws IOException {
+        final Set<String> conflicts = new HashSet<>();
+
+        for (Map.Entry<String, RemoteTree.Entry> entry : existing.entrySet()) {
+            final String relativePath = entry.getKey();
+            final boolean directory = entry.getValue().directory;
+
+            if ((directory && local.files.containsKey(relativePath))
+                    || (!directory && local.directories.contains(relativePath))) {
+                conflicts.add(relativePath);
+            }
+        }
+
+        if (conflicts.isEmpty() || !deleteExtraneous) {
+            return conflicts;
+        }
+
+        final BoundedTaskRunner runner = new BoundedTaskRunner(
+                driver.getExecutor(), concurrency);
+
+        try {
+            for (String relativePath : conflicts) {
+                final String path = root + "/" + relativePath;
+
+                runner.submit(() -> {
+                    requests.executeUntimed(MantaOperation.DELETE, path, lane, client -> {
+                        client.deleteRecursive(path);
+                        return null;
+                    });
+                    deleted.incrementAndGet();
+                });
+            }
+        } finally {
+            runner.drain();
+        }
+
+        runner.await();
+
+        // The replaced entries and anything that was beneath them are gone
+        existing.keySet().removeIf(relativePath -> isConflicting(relativePath, conflicts));
+
+        return Collections.emptySet();
+    }
+
+    /**
+     * @return true if the entry or one of its parents is a conflict
+     */
+    private static boolean isConflicting(final String relativePath,
+                                         final Set<String> conflicts) {
+        for (String path = relativePath; path != null && !conflicts.isEmpty();
+             path = RemoteTree.parent(path)) {
+            if (conflicts.contains(path)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Creates the directories missing on Manta one depth level at a time, so
+     * that parents always exist before their children are created.
+     */
+    private void createDirectories(final MantaRequestDispatcher requests,
+                                   final MantaLane lane,
+                                   final String root,
+                                   final TreeSet<String> directories,
+                                   final Map<String, RemoteTree.Entry> existing,
+                                   final Set<String> conflicts)
+            throws IOException {
+        final TreeMap<Integer, List<String>> byDepth = new TreeMap<>();
+
+        for (String dir : directories) {
+            if (existing.containsKey(dir) || isConflicting(dir, conflicts)) {
+                continue;
+            }
+
+            final int depth = RemoteTree.depth(dir);
+            byDepth.computeIfAbsent(depth, d -> new ArrayList<>()).add(dir);
+        }
+
+        for (List<String> level : byDepth.values()) {
+            final BoundedTaskRunner runner = new BoundedTaskRunner(
+                    driver.getExecutor(), concurrency);
+
+            try {
+                for (String dir : level) {
+                    final String path = root + "/" + dir;
+
+                    runner.submit(() -> requests.execute(MantaOperation.PUT_DIRECTORY, path,
+                            lane, client -> {
+                                client.putDirectory(path);
+                                return null;
+                            }));
+                }
+            } finally {
+                runner.drain();
+            }
+
+            runner.await();
+        }
+    }
+
+    /**
+     * Deletes the remote entries that don't exist locally. Only the top-most
+     * extraneous entry of each subtree is deleted (recursively).
+     */
+    private void deleteExtraneous(final MantaRequestDispatcher requests,
+                                  final MantaLane lane,
+                                  final String root,
+                                  final LocalTree local,
+                                  final Map<String, RemoteTree.Entry> remote)
+            throws IOException {
+        final BoundedTaskRunner runner = new BoundedTaskRunner(
+                driver.getExecutor(), concurrency);
+
+        try {
+            for (Map.Entry<String, RemoteTree.Entry> entry : remote.entrySet()) {
+                final String relativePath = entry.getKey();
+
+                if (local.contains(relativePath)) {
+                    continue;
+                }
+
+                final String parent = RemoteTree.parent(relativePath);
+
+                if (parent != null && !local.contains(parent)) {
+                    continue;
+                }
+
+                final String path = root + "/" + relativePath;
+
+                runner.submit(() -> {
+                    requests.executeUntimed(MantaOperation.DELETE, path, lane, client -> {
+                        client.deleteRecursive(path);
+                        return null;
+                    });
+                    deleted.incrementAndGet();
+                });
+            }
+        } finally {
+            runner.drain();
+        }
+
+        runner.await();
+    }
+
+    private LocalTree listLocal() throws IOException {
+        final LocalTree tree = new LocalTree();
+
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir,
+                                                     final BasicFileAttributes attrs) {
+                if (!dir.equals(source)) {
+                    tree.directories.add(relativize(dir));
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file,
+                                             final BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    tree.files.put(relativize(file), new LocalEntry(file, attrs.size(),
+                            attrs.lastModifiedTime().toMillis()));
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return tree;
+    }
+
+    /**
+     * Converts a local path to a relative path using Manta's separator
+     * regardless of the local filesystem's separator.
+     */
+    private String relativize(final Path path) {
+        final StringBuilder builder = new StringBuilder();
+
+        for (Path name : source.relativize(path)) {
+            if (builder.length() > 0) {
+                builder.append('/');
+            }
+
+            builder.append(name.toString());
+        }
+
+        return builder.toString();
+    }
+
+    private static <T> T await(final Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while listing Manta");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Local files and directories keyed by relative path.
+     */
+    private static class LocalTree {
+        private final Map<String, LocalEntry> files = new HashMap<>();
+        private final TreeSet<String> directories = new TreeSet<>();
+
+        private boolean contains(final String relativePath) {
+            return files.containsKey(relativePath) || directories.contains(relativePath);
+        }
+    }
+
+    private static class LocalEntry {
+        private final Path path;
+        private final long size;
+        private final long modified;
+
+        private LocalEntry(final Path path, final long size, final long modified) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+}
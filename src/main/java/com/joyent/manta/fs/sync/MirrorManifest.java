@@ -0,0 +1,101 @@
+package com.joyent.manta.fs.sync;
+
+import com.joyent.manta.fs.util.Journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Local manifest of the Manta objects that a {@link MantaMirror} has
+ * downloaded. It records the version (ETag) and size of every object, so
+ * that subsequent runs only download objects that changed.
+ *
+ * <p>The manifest is a {@link Journal} while a mirror is running. The state
+ * of each relative path is a state character, the version and the size:</p>
+ * <ul>
+ *     <li><code>P</code> - download started into a partial file</li>
+ *     <li><code>C</code> - download completed</li>
+ * </ul>
+ * <p>When the mirror finishes, the manifest is compacted to only contain
+ * completed entries.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class MirrorManifest implements Closeable {
+    private static final char PARTIAL = 'P';
+    private static final char COMPLETE = 'C';
+
+    private final Journal journal;
+
+    /**
+     * Creates a new instance, loading the existing manifest if present.
+     *
+     * @param file local manifest file
+     * @throws IOException thrown when the manifest can't be read or opened
+     */
+    public MirrorManifest(final Path file) throws IOException {
+        this.journal = new Journal(Objects.requireNonNull(file), 3);
+    }
+
+    /**
+     * @param relativePath path relative to the root of the mirror
+     * @param version version of the remote object
+     * @param size size of the remote object
+     * @return true if this version was downloaded completely before
+     */
+    public boolean isComplete(final String relativePath, final String version,
+                              final long size) {
+        return state(COMPLETE, version, size).equals(journal.get(relativePath));
+    }
+
+    /**
+     * @param relativePath path relative to the root of the mirror
+     * @param version version of the remote object
+     * @param size size of the remote object
+     * @return true if a download of this version was started before
+     */
+    public boolean isPartial(final String relativePath, final String version,
+                             final long size) {
+        return state(PARTIAL, version, size).equals(journal.get(relativePath));
+    }
+
+    public void markPartial(final String relativePath, final String version,
+                            final long size) throws IOException {
+        journal.put(relativePath, state(PARTIAL, version, size));
+    }
+
+    public void markComplete(final String relativePath, final String version,
+                             final long size) throws IOException {
+        journal.put(relativePath, state(COMPLETE, version, size));
+    }
+
+    /**
+     * Forgets an entry whose local file was removed.
+     *
+     * @param relativePath path relative to the root of the mirror
+     */
+    public void remove(final String relativePath) {
+        journal.remove(relativePath);
+    }
+
+    private static String state(final char state, final String version, final long size) {
+        return state + " " + version + " " + size;
+    }
+
+    /**
+     * Rewrites the manifest so that it only contains completed entries.
+     *
+     * @throws IOException thrown when the manifest can't be written
+     */
+    public void compact() throws IOException {
+        journal.compact(state -> state.charAt(0) == COMPLETE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+}
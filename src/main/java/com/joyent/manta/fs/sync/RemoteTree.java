@@ -0,0 +1,138 @@
+package com.joyent.manta.fs.sync;
+
+import com.joyent.manta.client.MantaDirectoryListingIterator;
+import com.joyent.manta.client.MantaObject;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.fs.driver.MantaLane;
+import com.joyent.manta.fs.driver.MantaRequestDispatcher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Recursive listing of a Manta directory tree keyed by paths relative to
+ * the root of the tree. Relative paths always use a forward slash as their
+ * separator.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+final class RemoteTree {
+    private RemoteTree() {
+    }
+
+    /**
+     * Properties of a single entry as reported by a directory listing.
+     */
+    static final class Entry {
+        final boolean directory;
+        final long size;
+        final String etag;
+        final String mtime;
+
+        Entry(final boolean directory, final long size,
+              final String etag, final String mtime) {
+            this.directory = directory;
+            this.size = size;
+            this.etag = etag;
+            this.mtime = mtime;
+        }
+
+        /**
+         * @return token that changes whenever the object changes
+         */
+        String version() {
+            return etag != null ? etag : mtime;
+        }
+    }
+
+    /**
+     * Lists the remote tree.
+     *
+     * @param requests dispatcher to send the listings through
+     * @param lane priority lane of the listings
+     * @param root Manta path of the root directory
+     * @return map of relative paths to entries or null if the root doesn't exist
+     * @throws IOException thrown when a listing fails
+     */
+    static Map<String, Entry> list(final MantaRequestDispatcher requests,
+                                   final MantaLane lane, final String root)
+            throws IOException {
+        final Map<String, Entry> entries = new HashMap<>();
+        final Deque<String> pending = new ArrayDeque<>();
+        pending.push("");
+
+        while (!pending.isEmpty()) {
+            final String relativeDir = pending.pop();
+            final String dir = relativeDir.isEmpty() ? root : root + "/" + relativeDir;
+
+            try (MantaDirectoryListingIterator itr = requests.list(dir, lane)) {
+                while (itr.hasNext()) {
+                    final Map<String, Object> properties = itr.next();
+
+                    if (properties == null) {
+                        continue;
+                    }
+
+                    final String name = Objects.toString(properties.get("name"));
+                    final String relativePath = relativeDir.isEmpty() ?
+                            name : relativeDir + "/" + name;
+                    final boolean directory = MantaObject.MANTA_OBJECT_TYPE_DIRECTORY
+                            .equals(properties.get("type"));
+                    final Object size = properties.get("size");
+                    final Object etag = properties.get("etag");
+                    final Object mtime = properties.get("mtime");
+
+                    entries.put(relativePath, new Entry(directory,
+                            size instanceof Number ? ((Number) size).longValue() : -1L,
+                            etag == null ? null : etag.toString(),
+                            mtime == null ? null : mtime.toString()));
+
+                    if (directory) {
+                        pending.push(relativePath);
+                    }
+                }
+            } catch (MantaClientHttpResponseException e) {
+                if (e.getStatusCode() == 404 && relativeDir.isEmpty()) {
+                    return null;
+                }
+
+                throw e;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * @param relativePath relative path
+     * @return relative path of the parent or null for top level entries
+     */
+    static String parent(final String relativePath) {
+        final int index = relativePath.lastIndexOf('/');
+        return index < 0 ? null : relativePath.substring(0, index);
+    }
+
+    /**
+     * @param relativePath relative path
+     * @return number of directories above the entry
+     */
+    static int depth(final String relativePath) {
+        int depth = 0;
+
+        for (int i = 0; i < relativePath.length(); i++) {
+            if (relativePath.charAt(i) == '/') {
+                depth++;
+            }
+        }
+
+        return depth;
+    }
+}
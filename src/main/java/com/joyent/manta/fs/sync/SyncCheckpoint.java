@@ -0,0 +1,73 @@
+package com.joyent.manta.fs.sync;
+
+import com.joyent.manta.fs.util.Journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Records the files that a {@link MantaSync} has finished transferring in a
+ * {@link Journal}. The state of each relative path is the size and the last
+ * modified time (in milliseconds) of the local file at the time it was
+ * transferred. A file is only considered done on resume when its size and
+ * modified time are unchanged.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class SyncCheckpoint implements Closeable {
+    private final Journal journal;
+
+    /**
+     * Creates a new instance, loading any progress already recorded in the
+     * journal.
+     *
+     * @param journal local journal file or null to track progress in memory
+     * @throws IOException thrown when the journal can't be read or opened
+     */
+    public SyncCheckpoint(final Path journal) throws IOException {
+        this.journal = new Journal(journal, 2);
+    }
+
+    /**
+     * @param relativePath path relative to the root of the sync
+     * @param size size of the local file
+     * @param modified last modified time of the local file in milliseconds
+     * @return true if the file was transferred in this state before
+     */
+    public boolean isDone(final String relativePath, final long size, final long modified) {
+        return state(size, modified).equals(journal.get(relativePath));
+    }
+
+    /**
+     * Records that a file was transferred.
+     *
+     * @param relativePath path relative to the root of the sync
+     * @param size size of the local file
+     * @param modified last modified time of the local file in milliseconds
+     * @throws IOException thrown when the journal can't be written
+     */
+    public void markDone(final String relativePath, final long size, final long modified)
+            throws IOException {
+        journal.put(relativePath, state(size, modified));
+    }
+
+    private static String state(final long size, final long modified) {
+        return size + " " + modified;
+    }
+
+    /**
+     * Removes the journal after the sync has completed successfully.
+     *
+     * @throws IOException thrown when the journal can't be removed
+     */
+    public void complete() throws IOException {
+        journal.complete();
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+}
@@ -0,0 +1,79 @@
+package com.joyent.manta.fs.sync;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Summary of the work done by a sync or mirror run.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class SyncResult {
+    private final long transferred;
+    private final long skipped;
+    private final long deleted;
+    private final long bytesTransferred;
+    private final List<String> conflicts;
+
+    public SyncResult(final long transferred, final long skipped,
+                      final long deleted, final long bytesTransferred) {
+        this(transferred, skipped, deleted, bytesTransferred, Collections.emptyList());
+    }
+
+    public SyncResult(final long transferred, final long skipped,
+                      final long deleted, final long bytesTransferred,
+                      final Collection<String> conflicts) {
+        this.transferred = transferred;
+        this.skipped = skipped;
+        this.deleted = deleted;
+        this.bytesTransferred = bytesTransferred;
+        this.conflicts = Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(conflicts)));
+    }
+
+    /**
+     * @return number of files that were transferred
+     */
+    public long getTransferred() {
+        return transferred;
+    }
+
+    /**
+     * @return number of files that were already up to date
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return number of extraneous files and directories that were deleted
+     */
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return number of bytes that were transferred
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * @return sorted relative paths that are a file on one side and a
+     *         directory on the other, and were left alone because
+     *         extraneous entries aren't deleted
+     */
+    public List<String> getConflicts() {
+        return conflicts;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("transferred=%d, skipped=%d, deleted=%d, bytes=%d, conflicts=%d",
+                transferred, skipped, deleted, bytesTransferred, conflicts.size());
+    }
+}
@@ -0,0 +1,143 @@
+package com.joyent.manta.fs.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link CompletableFuture} for blocking I/O run on an executor that, unlike
+ * a plain <code>CompletableFuture</code>, stops the work when it is
+ * cancelled. A task that hasn't started yet is skipped. A running task has
+ * the resource it registered closed, which aborts the HTTP request that the
+ * resource is reading, and its thread interrupted.
+ *
+ * @param <T> type of the result
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class AbortableFuture<T> extends CompletableFuture<T> {
+    /**
+     * Blocking task that can register the resource that needs to be closed
+     * to abort it.
+     *
+     * @param <T> type of the result
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        T run(AbortableFuture<T> future) throws IOException;
+    }
+
+    private Thread runner;
+    private Closeable resource;
+
+    /**
+     * Runs a task on an executor.
+     *
+     * @param task blocking task
+     * @param executor executor to run it on
+     * @param <T> type of the result
+     * @return future of the task's result
+     */
+    public static <T> AbortableFuture<T> supplyAsync(final Task<T> task,
+                                                     final Executor executor) {
+        Objects.requireNonNull(task, "Task must be present");
+
+        final AbortableFuture<T> future = new AbortableFuture<>();
+
+        try {
+            executor.execute(new DroppableTask() {
+                @Override
+                public void run() {
+                    future.run(task);
+                }
+
+                @Override
+                public void drop(final Exception reason) {
+                    future.completeExceptionally(reason);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    private void run(final Task<T> task) {
+        synchronized (this) {
+            if (isDone()) {
+                return;
+            }
+
+            runner = Thread.currentThread();
+        }
+
+        try {
+            complete(task.run(this));
+        } catch (Throwable t) {
+            completeExceptionally(t);
+        } finally {
+            synchronized (this) {
+                runner = null;
+                resource = null;
+                // Don't leak an interrupt from cancel() to the next task
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Registers the resource to close when the future is cancelled. If the
+     * future has already been cancelled, the resource is closed right away
+     * and the task is stopped.
+     *
+     * @param closeable resource backing the running request
+     * @param <C> type of the resource
+     * @return the resource
+     * @throws CancellationException thrown when the future was cancelled
+     */
+    public <C extends Closeable> C register(final C closeable) {
+        synchronized (this) {
+            if (!isCancelled()) {
+                resource = closeable;
+                return closeable;
+            }
+        }
+
+        closeQuietly(closeable);
+        throw new CancellationException();
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        final Closeable toClose;
+
+        synchronized (this) {
+            toClose = resource;
+            resource = null;
+
+            if (cancelled && runner != null) {
+                runner.interrupt();
+            }
+        }
+
+        if (cancelled && toClose != null) {
+            closeQuietly(toClose);
+        }
+
+        return cancelled;
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException | RuntimeException e) {
+            // The request is being abandoned, so errors don't matter
+        }
+    }
+}
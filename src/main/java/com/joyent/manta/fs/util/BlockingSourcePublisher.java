@@ -0,0 +1,201 @@
+package com.joyent.manta.fs.util;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Publisher} that emits the items of a blocking source, reading from
+ * it only when subscribers have signalled demand. Reads run on an executor,
+ * never on the subscriber's thread, and at most one task per subscription
+ * is running at a time, so that signals to a subscriber are serial.
+ *
+ * <p>The publisher is cold: each subscriber gets its own source, which is
+ * opened when the first item is requested and closed when it is exhausted,
+ * fails or the subscription is cancelled.</p>
+ *
+ * @param <T> type of the items
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class BlockingSourcePublisher<T> implements Publisher<T> {
+    /**
+     * Blocking source of items.
+     *
+     * @param <T> type of the items
+     */
+    public interface Source<T> extends Closeable {
+        /**
+         * @return next item, or null when the source is exhausted
+         * @throws IOException thrown when the item can't be read
+         */
+        T next() throws IOException;
+    }
+
+    /**
+     * Opens a new source for a subscriber.
+     *
+     * @param <T> type of the items
+     */
+    @FunctionalInterface
+    public interface SourceFactory<T> {
+        Source<T> open() throws IOException;
+    }
+
+    private final SourceFactory<T> factory;
+    private final Executor executor;
+
+    public BlockingSourcePublisher(final SourceFactory<T> factory,
+                                   final Executor executor) {
+        this.factory = Objects.requireNonNull(factory);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber must be present");
+
+        final SourceSubscription subscription = new SourceSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private final class SourceSubscription implements Subscription, DroppableTask {
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile boolean invalidRequest = false;
+        private volatile long invalidCount;
+
+        // Only accessed by the running drain task
+        private Source<T> source;
+        private boolean done = false;
+
+        SourceSubscription(final Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                invalidCount = n;
+                invalidRequest = true;
+            } else {
+                demand.getAndUpdate(current -> {
+                    final long sum = current + n;
+                    // Demand of Long.MAX_VALUE or more is unbounded
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (pending.getAndIncrement() != 0) {
+                return;
+            }
+
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                pending.set(0);
+
+                if (!cancelled) {
+                    cancelled = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+
+            do {
+                if (!done) {
+                    drain();
+                }
+
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        @Override
+        public void drop(final Exception reason) {
+            // No task runs after a dropped one, since pending stays positive
+            finish();
+
+            if (!cancelled) {
+                cancelled = true;
+                subscriber.onError(reason);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!cancelled && !invalidRequest && demand.get() > 0) {
+                    if (source == null) {
+                        source = factory.open();
+                    }
+
+                    final T item = source.next();
+
+                    if (item == null) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+
+                    subscriber.onNext(item);
+                }
+
+                if (invalidRequest && !cancelled) {
+                    finish();
+                    subscriber.onError(new IllegalArgumentException(
+                            "Requested a non-positive number of items: " + invalidCount));
+                } else if (cancelled) {
+                    finish();
+                }
+            } catch (IOException | RuntimeException e) {
+                finish();
+
+                if (!cancelled) {
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        private void finish() {
+            done = true;
+
+            if (source != null) {
+                try {
+                    source.close();
+                } catch (IOException e) {
+                    // The source isn't needed anymore
+                }
+
+                source = null;
+            }
+        }
+    }
+}
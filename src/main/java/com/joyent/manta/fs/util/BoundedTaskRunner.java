@@ -0,0 +1,144 @@
+package com.joyent.manta.fs.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs I/O tasks on an {@link Executor} while limiting the number of tasks
+ * that are in flight at any one time. Callers submitting work block once
+ * the limit is reached, so that producers walking very large trees never
+ * queue more work than can be processed.
+ *
+ * <p>The first failure is retained and rethrown from {@link #await()}. Once a
+ * failure has been recorded, further submissions fail fast.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class BoundedTaskRunner {
+    /**
+     * Unit of work that may throw an {@link IOException}.
+     */
+    @FunctionalInterface
+    public interface IOTask {
+        void run() throws IOException;
+    }
+
+    private final Executor executor;
+    private final int concurrency;
+    private final Semaphore permits;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public BoundedTaskRunner(final Executor executor, final int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+
+        this.executor = Objects.requireNonNull(executor);
+        this.concurrency = concurrency;
+        this.permits = new Semaphore(concurrency);
+    }
+
+    /**
+     * Submits a task, blocking while the maximum number of tasks are running.
+     *
+     * @param task task to run
+     * @throws IOException thrown when a previously submitted task has failed
+     * @throws InterruptedIOException thrown when interrupted while waiting
+     */
+    public void submit(final IOTask task) throws IOException {
+        Objects.requireNonNull(task);
+        rethrowFailure();
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while submitting task");
+        }
+
+        try {
+            executor.execute(new DroppableTask() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } catch (IOException | RuntimeException | Error e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        permits.release();
+                    }
+                }
+
+                @Override
+                public void drop(final Exception reason) {
+                    failure.compareAndSet(null, reason);
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw new IOException("Executor rejected task", e);
+        }
+    }
+
+    /**
+     * Waits for every submitted task to finish.
+     *
+     * @throws IOException the first failure thrown by any task
+     * @throws InterruptedIOException thrown when interrupted while waiting
+     */
+    public void await() throws IOException {
+        try {
+            permits.acquire(concurrency);
+            permits.release(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for tasks");
+        }
+
+        rethrowFailure();
+    }
+
+    /**
+     * Waits for every submitted task to finish without reporting their
+     * failures and without giving up when interrupted. Callers use this on
+     * their error paths so that whatever the tasks write to is not closed
+     * while they are still running.
+     */
+    public void drain() {
+        permits.acquireUninterruptibly(concurrency);
+        permits.release(concurrency);
+    }
+
+    /**
+     * @return true if any submitted task has failed
+     */
+    public boolean hasFailed() {
+        return failure.get() != null;
+    }
+
+    private void rethrowFailure() throws IOException {
+        final Throwable t = failure.get();
+
+        if (t == null) {
+            return;
+        }
+
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) t).getCause();
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else {
+            throw (Error) t;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.joyent.manta.fs.util;
+
+/**
+ * Task that reports its outcome to whoever is waiting for it. An executor
+ * that is shut down before it runs such a task calls {@link #drop(Exception)}
+ * instead, so that nobody waits for the task forever.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public interface DroppableTask extends Runnable {
+    /**
+     * Called instead of {@link #run()} when the task will never run.
+     *
+     * @param reason why the task was dropped
+     */
+    void drop(Exception reason);
+}
@@ -0,0 +1,62 @@
+package com.joyent.manta.fs.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Utility methods for computing digests of local files.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public final class FileDigests {
+    /**
+     * Size of the window mapped into memory at a time. Mapping in windows
+     * keeps the address space used per file bounded for very large files.
+     */
+    private static final long MAP_WINDOW_SIZE = 64L * 1024L * 1024L;
+
+    private FileDigests() {
+    }
+
+    /**
+     * Computes the MD5 digest of a local file by reading it through memory
+     * mapped windows, which avoids copying the file contents onto the heap.
+     *
+     * @param file local file to digest
+     * @return MD5 digest bytes
+     * @throws IOException thrown when the file can't be read
+     */
+    public static byte[] md5(final Path file) throws IOException {
+        final MessageDigest digest = newMd5Digest();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            long position = 0;
+
+            while (position < size) {
+                final long length = Math.min(MAP_WINDOW_SIZE, size - position);
+                final MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_ONLY, position, length);
+                digest.update(buffer);
+                position += length;
+            }
+        }
+
+        return digest.digest();
+    }
+
+    private static MessageDigest newMd5Digest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to support MD5
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.joyent.manta.fs.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Append-only journal that records a state for each key, used to resume
+ * long running operations without redoing finished work.
+ *
+ * <p>Each line contains the state, which is made of a fixed number of
+ * space-separated fields, followed by a space and the key. Keys may contain
+ * spaces. When a key appears on several lines, the last line wins. A last
+ * line without a line terminator was cut short by a crash and is ignored.</p>
+ *
+ * <p>When no journal file is given, states are only tracked in memory.</p>
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+public class Journal implements Closeable {
+    private final Path file;
+    private final int stateFields;
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+    private BufferedWriter writer;
+
+    /**
+     * Creates a new instance, loading the states already recorded in the
+     * journal.
+     *
+     * @param file local journal file or null to track states in memory
+     * @param stateFields number of space-separated fields of each state
+     * @throws IOException thrown when the journal can't be read or opened
+     */
+    public Journal(final Path file, final int stateFields) throws IOException {
+        if (stateFields < 1) {
+            throw new IllegalArgumentException("A state has at least one field");
+        }
+
+        this.file = file;
+        this.stateFields = stateFields;
+
+        if (file == null) {
+            return;
+        }
+
+        if (Files.exists(file)) {
+            load();
+        }
+
+        this.writer = open();
+    }
+
+    private BufferedWriter open() throws IOException {
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void load() throws IOException {
+        final boolean terminated = endsWithNewLine();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+
+            while (line != null) {
+                final String next = reader.readLine();
+
+                if (next != null || terminated) {
+                    parse(line);
+                }
+
+                line = next;
+            }
+        }
+    }
+
+    private boolean endsWithNewLine() throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            if (channel.size() == 0L) {
+                return true;
+            }
+
+            final ByteBuffer last = ByteBuffer.allocate(1);
+            channel.position(channel.size() - 1L);
+            channel.read(last);
+
+            return last.get(0) == '\n';
+        }
+    }
+
+    private void parse(final String line) {
+        int separator = -1;
+
+        for (int i = 0; i < stateFields; i++) {
+            separator = line.indexOf(' ', separator + 1);
+
+            if (separator < 1) {
+                return;
+            }
+        }
+
+        if (separator == line.length() - 1) {
+            return;
+        }
+
+        entries.put(line.substring(separator + 1), line.substring(0, separator));
+    }
+
+    /**
+     * @param key key of the entry
+     * @return last state recorded for the key or null
+     */
+    public String get(final String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Records the state of a key. Nothing is written when the key is already
+     * in this state.
+     *
+     * @param key key of the entry, which must not contain line terminators
+     * @param state state made of the journal's number of fields
+     * @throws IOException thrown when the journal can't be written
+     */
+    public synchronized void put(final String key, final String state) throws IOException {
+        if (state.equals(entries.put(key, state)) || file == null) {
+            return;
+        }
+
+        writer.write(state);
+        writer.write(' ');
+        writer.write(key);
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * Forgets a key in memory. It is only removed from the file when the
+     * journal is compacted.
+     *
+     * @param key key of the entry
+     */
+    public void remove(final String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Rewrites the journal so that it only contains the last state of each
+     * key that is kept.
+     *
+     * @param keep predicate on the states to keep
+     * @throws IOException thrown when the journal can't be written
+     */
+    public synchronized void compact(final Predicate<String> keep) throws IOException {
+        entries.values().removeIf(keep.negate());
+
+        if (file == null) {
+            return;
+        }
+
+        writer.close();
+
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                out.write(entry.getValue());
+                out.write(' ');
+                out.write(entry.getKey());
+                out.newLine();
+            }
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        writer = open();
+    }
+
+    /**
+     * Removes the journal after the operation has completed successfully.
+     *
+     * @throws IOException thrown when the journal can't be removed
+     */
+    public void complete() throws IOException {
+        close();
+
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.joyent.manta.fs.driver;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event of a driver operation on Java 11 and later. The
+ * event is enabled by default with a threshold of 20 ms, so that it can be
+ * left on in production; lower the threshold of
+ * <code>com.joyent.manta.Operation</code> in the recording settings to
+ * see every operation.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+@Name("com.joyent.manta.Operation")
+@Label("Manta Operation")
+@Category({"Manta", "Filesystem"})
+@Description("Operation of the Manta NIO driver")
+@StackTrace(false)
+@Threshold("20 ms")
+final class MantaEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("HTTP Status")
+    @Description("Status of the error response that failed the operation, or 0")
+    int status;
+
+    @Label("Attempts")
+    @Description("Requests sent for the operation, counting hedges, or 0 when not counted")
+    int attempts;
+
+    /**
+     * Stops timing the operation and records the event.
+     *
+     * @param operation name of the operation
+     * @param path Manta path of the object
+     * @param bytes number of bytes transferred, or 0
+     */
+    void finish(final String operation, final String path, final long bytes) {
+        end();
+
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.path = path;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.joyent.manta.fs.driver;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates executors backed by virtual threads on Java 21 and later.
+ *
+ * @author Elijah Zupancic
+ * @since 1.0.0
+ */
+final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the runtime supports virtual threads
+     */
+    static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * @param prefix prefix of the thread names
+     * @return new executor
+     */
+    static ExecutorService newThreadPerTaskExecutor(final String prefix) {
+        return Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name(prefix, 1).factory());
+    }
+}
@@ -0,0 +1,174 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.fs.driver.ExecutionMode;
+import com.joyent.manta.fs.driver.MantaExecutors;
+import com.joyent.manta.fs.util.AbortableFuture;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.ClosedFileSystemException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AbortableFutureTest {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void completesWithTaskResult() throws Exception {
+        AbortableFuture<String> future = AbortableFuture.supplyAsync(f -> "done", executor);
+
+        Assert.assertEquals(future.get(5, TimeUnit.SECONDS), "done");
+    }
+
+    @Test
+    public void cancelClosesRegisteredResourceAndInterrupts() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(1);
+
+        AbortableFuture<Void> future = AbortableFuture.supplyAsync(f -> {
+            Closeable resource = () -> closed.set(true);
+            f.register(resource);
+            started.countDown();
+
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            } finally {
+                finished.countDown();
+            }
+
+            return null;
+        }, executor);
+
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(future.cancel(true));
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(closed.get());
+        Assert.assertTrue(interrupted.get());
+    }
+
+    @Test
+    public void cancelAbortsRegisteredUploadBody() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+
+        AbortableFuture<Void> future = AbortableFuture.supplyAsync(f -> {
+            InputStream body = f.register(new MantaAsyncFiles.UploadBody(new byte[] { 1, 2 }));
+            body.read();
+            started.countDown();
+
+            // An upload keeps reading its body until the body fails
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+            try {
+                while (System.nanoTime() - deadline < 0L) {
+                    body.read();
+                }
+            } catch (IOException e) {
+                failure.set(e);
+            } finally {
+                finished.countDown();
+            }
+
+            return null;
+        }, executor);
+
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(future.cancel(true));
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertNotNull(failure.get(), "Reading the body after cancelling should fail");
+    }
+
+    @Test
+    public void cancelledTaskIsNotStarted() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        AtomicBoolean ran = new AtomicBoolean();
+
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        AbortableFuture<Void> future = AbortableFuture.supplyAsync(f -> {
+            ran.set(true);
+            return null;
+        }, executor);
+
+        future.cancel(true);
+        blocker.countDown();
+
+        // Runs after the cancelled task had its turn on the single thread
+        AbortableFuture.supplyAsync(f -> null, executor).get(5, TimeUnit.SECONDS);
+        Assert.assertFalse(ran.get());
+    }
+
+    @Test
+    public void queuedTasksFailWhenExecutorsClose() throws Exception {
+        final MantaExecutors executors = new MantaExecutors(ExecutionMode.PLATFORM, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+
+        AbortableFuture<Void> running = AbortableFuture.supplyAsync(f -> {
+            started.countDown();
+
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+
+            return null;
+        }, executors.getAsync());
+
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        AbortableFuture<String> queued = AbortableFuture.supplyAsync(f -> "ran",
+                executors.getAsync());
+        Future<String> submitted = executors.getAsync().submit(() -> "ran");
+
+        executors.close();
+
+        try {
+            queued.get(5, TimeUnit.SECONDS);
+            Assert.fail("Expected the queued task to fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ClosedFileSystemException);
+        }
+
+        try {
+            submitted.get(5, TimeUnit.SECONDS);
+            Assert.fail("Expected the submitted task to fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ClosedFileSystemException);
+        }
+
+        try {
+            running.get(5, TimeUnit.SECONDS);
+            Assert.fail("Expected the running task to be interrupted");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof InterruptedIOException);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.fs.driver.AimdConcurrencyLimit;
+import com.joyent.manta.fs.driver.MantaConcurrencyLimit.Outcome;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AimdConcurrencyLimitTest {
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private static void complete(final AimdConcurrencyLimit limit, final Outcome outcome,
+                                 final long latencyNanos) throws InterruptedException {
+        limit.acquire();
+        limit.release(outcome, latencyNanos);
+    }
+
+    @Test
+    public void growsAdditivelyWhileHealthy() throws InterruptedException {
+        final AimdConcurrencyLimit limit = new AimdConcurrencyLimit(4, 1, 8,
+                AimdConcurrencyLimit.DEFAULT_BACKOFF_RATIO,
+                AimdConcurrencyLimit.DEFAULT_LATENCY_TOLERANCE, Collections.emptyMap());
+
+        for (int i = 0; i < 5; i++) {
+            complete(limit, Outcome.SUCCESS, 10 * MILLISECOND);
+        }
+
+        Assert.assertEquals(limit.getLimit(), 5);
+
+        for (int i = 0; i < 100; i++) {
+            complete(limit, Outcome.SUCCESS, 10 * MILLISECOND);
+        }
+
+        Assert.assertEquals(limit.getLimit(), 8);
+    }
+
+    @Test
+    public void burstOfThrottlingCutsOnce() throws InterruptedException {
+        final AimdConcurrencyLimit limit = new AimdConcurrencyLimit(1, 16);
+
+        // A long round trip keeps the burst inside one cooldown window
+        complete(limit, Outcome.SUCCESS, TimeUnit.SECONDS.toNanos(60L));
+
+        for (int i = 0; i < 10; i++) {
+            complete(limit, Outcome.DROPPED, -1L);
+        }
+
+        Assert.assertEquals(limit.getLimit(), 8);
+    }
+
+    @Test
+    public void neverGoesBelowMinimum() throws InterruptedException {
+        final AimdConcurrencyLimit limit = new AimdConcurrencyLimit(2, 16);
+
+        for (int i = 0; i < 10; i++) {
+            complete(limit, Outcome.DROPPED, -1L);
+        }
+
+        Assert.assertEquals(limit.getLimit(), 2);
+    }
+
+    @Test
+    public void latencySpikeCuts() throws InterruptedException {
+        final AimdConcurrencyLimit limit = new AimdConcurrencyLimit(1, 8);
+
+        for (int i = 0; i < 10; i++) {
+            complete(limit, Outcome.SUCCESS, MILLISECOND);
+        }
+
+        Assert.assertEquals(limit.getLimit(), 8);
+
+        complete(limit, Outcome.SUCCESS, 50 * MILLISECOND);
+
+        Assert.assertEquals(limit.getLimit(), 4);
+    }
+
+    @Test
+    public void ignoredOutcomesDontChangeLimit() throws InterruptedException {
+        final AimdConcurrencyLimit limit = new AimdConcurrencyLimit(1, 8);
+
+        complete(limit, Outcome.IGNORED, 100 * MILLISECOND);
+
+        Assert.assertEquals(limit.getLimit(), 8);
+        Assert.assertEquals(limit.getSmoothedLatencyNanos(), -1L);
+    }
+
+    @Test
+    public void excessRequestsWaitInArrivalOrder() throws Exception {
+        final AimdConcurrencyLimit limit = new AimdConcurrencyLimit(1, 1);
+        final StringBuffer order = new StringBuffer();
+        limit.acquire();
+
+        final Thread[] waiters = new Thread[3];
+
+        for (int i = 0; i < waiters.length; i++) {
+            final int id = i;
+            final CountDownLatch queued = new CountDownLatch(1);
+
+            waiters[i] = new Thread(() -> {
+                try {
+                    queued.countDown();
+                    limit.acquire();
+                    order.append(id);
+                    limit.release(Outcome.IGNORED, -1L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            waiters[i].start();
+            queued.await();
+
+            while (limit.getQueueLength() < id + 1) {
+                Thread.sleep(1L);
+            }
+        }
+
+        limit.release(Outcome.IGNORED, -1L);
+
+        for (Thread waiter : waiters) {
+            waiter.join(TimeUnit.SECONDS.toMillis(10L));
+        }
+
+        Assert.assertEquals(order.toString(), "012");
+        Assert.assertEquals(limit.getInFlight(), 0);
+    }
+
+    @Test
+    public void interruptedWaiterLeavesQueue() throws Exception {
+        final AimdConcurrencyLimit limit = new AimdConcurrencyLimit(1, 1);
+        limit.acquire();
+
+        final Thread waiter = new Thread(() -> {
+            try {
+                limit.acquire();
+            } catch (InterruptedException e) {
+                // expected
+            }
+        });
+        waiter.start();
+
+        while (limit.getQueueLength() == 0) {
+            Thread.sleep(1L);
+        }
+
+        waiter.interrupt();
+        waiter.join(TimeUnit.SECONDS.toMillis(10L));
+
+        Assert.assertEquals(limit.getQueueLength(), 0);
+        limit.release(Outcome.IGNORED, -1L);
+        complete(limit, Outcome.IGNORED, -1L);
+    }
+}
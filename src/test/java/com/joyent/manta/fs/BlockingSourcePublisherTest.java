@@ -0,0 +1,137 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.fs.util.BlockingSourcePublisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BlockingSourcePublisherTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Source of the numbers up to a limit that counts how often it is read.
+     */
+    private static class CountingSource implements BlockingSourcePublisher.Source<Integer> {
+        private final int limit;
+        private final AtomicInteger reads = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        CountingSource(final int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public Integer next() {
+            final int value = reads.incrementAndGet();
+            return value > limit ? null : value;
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+
+    private static class RecordingSubscriber implements Subscriber<Integer> {
+        private final List<Integer> items = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Void> terminated = new CompletableFuture<>();
+        private volatile Subscription subscription;
+
+        @Override
+        public void onSubscribe(final Subscription s) {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(final Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            terminated.completeExceptionally(t);
+        }
+
+        @Override
+        public void onComplete() {
+            terminated.complete(null);
+        }
+    }
+
+    @Test
+    public void readsOnlyWhatIsRequested() throws Exception {
+        CountingSource source = new CountingSource(100);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new BlockingSourcePublisher<>(() -> source, executor).subscribe(subscriber);
+
+        Thread.sleep(100);
+        Assert.assertEquals(source.reads.get(), 0, "Nothing should be read without demand");
+
+        subscriber.subscription.request(3);
+        waitFor(() -> subscriber.items.size() == 3);
+        Thread.sleep(100);
+
+        Assert.assertEquals(source.reads.get(), 3);
+
+        subscriber.subscription.cancel();
+        waitFor(source.closed::get);
+    }
+
+    @Test
+    public void completesAndClosesWhenExhausted() throws Exception {
+        CountingSource source = new CountingSource(5);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new BlockingSourcePublisher<>(() -> source, executor).subscribe(subscriber);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.terminated.get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(subscriber.items.size(), 5);
+        Assert.assertTrue(source.closed.get());
+    }
+
+    @Test
+    public void nonPositiveRequestSignalsError() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new BlockingSourcePublisher<>(() -> new CountingSource(5), executor)
+                .subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        try {
+            subscriber.terminated.get(5, TimeUnit.SECONDS);
+            Assert.fail("A non-positive request should fail the subscription");
+        } catch (java.util.concurrent.ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    private static void waitFor(final java.util.function.BooleanSupplier condition)
+            throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                Assert.fail("Condition not met in time");
+            }
+
+            Thread.sleep(10);
+        }
+    }
+}
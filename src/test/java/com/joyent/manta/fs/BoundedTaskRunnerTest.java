@@ -0,0 +1,102 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.fs.driver.ExecutionMode;
+import com.joyent.manta.fs.driver.MantaExecutors;
+import com.joyent.manta.fs.util.BoundedTaskRunner;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.ClosedFileSystemException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BoundedTaskRunnerTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void drainWaitsForRunningTasksAfterAFailure() throws Exception {
+        final BoundedTaskRunner runner = new BoundedTaskRunner(executor, 4);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger finished = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            runner.submit(() -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                finished.incrementAndGet();
+            });
+        }
+
+        runner.submit(() -> {
+            throw new IOException("Listing failed");
+        });
+
+        executor.execute(() -> {
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            release.countDown();
+        });
+
+        runner.drain();
+        Assert.assertEquals(finished.get(), 3);
+
+        try {
+            runner.await();
+            Assert.fail("Expected the failure to be rethrown");
+        } catch (IOException e) {
+            Assert.assertEquals(e.getMessage(), "Listing failed");
+        }
+    }
+
+    @Test
+    public void tasksDroppedByClosingExecutorsReleaseTheirPermits() throws Exception {
+        final MantaExecutors executors = new MantaExecutors(ExecutionMode.PLATFORM, 1);
+        final BoundedTaskRunner runner = new BoundedTaskRunner(executors.getAsync(), 3);
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger ran = new AtomicInteger();
+
+        runner.submit(() -> {
+            started.countDown();
+
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+        });
+
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Queued behind the running task on the single thread
+        runner.submit(ran::incrementAndGet);
+        runner.submit(ran::incrementAndGet);
+
+        executors.close();
+
+        try {
+            runner.await();
+            Assert.fail("Expected the dropped tasks to fail the runner");
+        } catch (InterruptedIOException | ClosedFileSystemException e) {
+            Assert.assertEquals(ran.get(), 0);
+        }
+    }
+}
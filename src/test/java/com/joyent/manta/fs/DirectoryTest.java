@@ -2,6 +2,7 @@ package com.joyent.manta.fs;
 
 import com.joyent.manta.fs.config.ConfigContext;
 import com.joyent.manta.fs.config.SystemSettingsConfigContext;
+import com.joyent.manta.fs.driver.MantaCopyOptions;
 import com.joyent.manta.fs.provider.MantaFileSystemProvider;
 import com.github.fge.filesystem.exceptions.UncaughtIOException;
 import com.joyent.manta.client.MantaClient;
@@ -15,7 +16,9 @@ import org.testng.annotations.Test;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
@@ -25,8 +28,11 @@ import java.nio.file.attribute.FileTime;
 import java.nio.file.spi.FileSystemProvider;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Test(groups = { "directory" })
@@ -139,6 +145,106 @@ public class DirectoryTest {
                 "Last modified time wasn't the same");
     }
 
+    @Test
+    public void canMoveDirectoryTree() throws IOException {
+        String source = String.format("%s/%s", testPathPrefix, UUID.randomUUID());
+        String target = String.format("%s/%s", testPathPrefix, UUID.randomUUID());
+        mantaClient.putDirectory(source + "/nested/deeper", true);
+        mantaClient.put(source + "/a.txt", TEST_DATA);
+        mantaClient.put(source + "/nested/b.txt", TEST_DATA);
+        mantaClient.put(source + "/nested/deeper/c.txt", TEST_DATA);
+
+        Files.move(fileSystem.getPath(source), fileSystem.getPath(target),
+                MantaCopyOptions.concurrency(2));
+
+        Assert.assertFalse(mantaClient.existsAndIsAccessible(source),
+                "Source directory should have been removed");
+        Assert.assertEquals(mantaClient.getAsString(target + "/a.txt"), TEST_DATA);
+        Assert.assertEquals(mantaClient.getAsString(target + "/nested/b.txt"), TEST_DATA);
+        Assert.assertEquals(mantaClient.getAsString(target + "/nested/deeper/c.txt"), TEST_DATA);
+    }
+
+    @Test
+    public void resumingFinishedMoveCompletesCheckpoint() throws IOException {
+        String source = String.format("%s/%s", testPathPrefix, UUID.randomUUID());
+        String target = String.format("%s/%s", testPathPrefix, UUID.randomUUID());
+        mantaClient.putDirectory(source + "/nested", true);
+        mantaClient.put(source + "/nested/a.txt", TEST_DATA);
+        Files.move(fileSystem.getPath(source), fileSystem.getPath(target));
+
+        // An earlier run deleted the source but stopped before removing its journal
+        Path journal = Files.createTempFile("manta-move", ".journal");
+        Files.write(journal, Arrays.asList("M " + target, "M " + target + "/nested",
+                "D " + source + "/nested/a.txt", "D " + source + "/nested", "D " + source),
+                StandardCharsets.UTF_8);
+
+        Files.move(fileSystem.getPath(source), fileSystem.getPath(target),
+                MantaCopyOptions.checkpoint(journal));
+
+        Assert.assertFalse(Files.exists(journal), "Journal should have been removed");
+        Assert.assertEquals(mantaClient.getAsString(target + "/nested/a.txt"), TEST_DATA);
+    }
+
+    @Test
+    public void movingNonEmptyDirectoryAcrossStoresIsRejected() throws IOException {
+        String source = String.format("%s/%s", testPathPrefix, UUID.randomUUID());
+        mantaClient.putDirectory(source + "/nested", true);
+        mantaClient.put(source + "/nested/a.txt", TEST_DATA);
+        Path target = Files.createTempDirectory("manta-move").resolve("moved");
+
+        try {
+            Files.move(fileSystem.getPath(source), target);
+            Assert.fail("Moving a non-empty directory across stores should fail");
+        } catch (DirectoryNotEmptyException e) {
+            // expected
+        }
+
+        Assert.assertFalse(Files.exists(target), "Nothing should have been copied");
+        Assert.assertEquals(mantaClient.getAsString(source + "/nested/a.txt"), TEST_DATA,
+                "Source directory should have been left in place");
+        Files.delete(target.getParent());
+    }
+
+    @Test
+    public void canMoveEmptyDirectoryAcrossStores() throws IOException {
+        String source = String.format("%s/%s", testPathPrefix, UUID.randomUUID());
+        mantaClient.putDirectory(source);
+        Path target = Files.createTempDirectory("manta-move").resolve("moved");
+
+        Files.move(fileSystem.getPath(source), target);
+
+        Assert.assertTrue(Files.isDirectory(target));
+        Assert.assertFalse(mantaClient.existsAndIsAccessible(source),
+                "Source directory should have been removed");
+        Files.delete(target);
+        Files.delete(target.getParent());
+    }
+
+    @Test
+    public void listedPathsEqualConstructedPaths() throws IOException {
+        String dir = String.format("%s/%s", testPathPrefix, UUID.randomUUID());
+        mantaClient.putDirectory(dir);
+        mantaClient.put(dir + "/a.txt", TEST_DATA);
+        mantaClient.put(dir + "/b.txt", TEST_DATA);
+
+        Path directory = fileSystem.getPath(dir);
+        Set<Path> listed = new HashSet<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            stream.forEach(listed::add);
+        }
+
+        Path expected = fileSystem.getPath(dir, "a.txt");
+        Assert.assertTrue(listed.contains(expected));
+        Assert.assertTrue(listed.contains(directory.resolve("b.txt")));
+
+        for (Path path : listed) {
+            Assert.assertEquals(path.getParent(), directory);
+            Assert.assertEquals(path.getNameCount(), directory.getNameCount() + 1);
+            Assert.assertTrue(path.startsWith(directory));
+        }
+    }
+
     public static List<String> listPath(Path directory) throws IOException {
         List<String> fileNames = new ArrayList<>();
         DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory);
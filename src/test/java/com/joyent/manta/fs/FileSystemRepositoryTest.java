@@ -0,0 +1,171 @@
+package com.joyent.manta.fs;
+
+import com.github.fge.filesystem.driver.FileSystemDriver;
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.fs.config.ConfigContext;
+import com.joyent.manta.fs.config.MapConfigContext;
+import com.joyent.manta.fs.driver.MantaFileSystem;
+import com.joyent.manta.fs.driver.MantaFileSystemDriver;
+import com.joyent.manta.fs.filestore.MantaFileStore;
+import com.joyent.manta.fs.provider.MantaFileSystemProvider;
+import com.joyent.manta.fs.provider.MantaFileSystemRepository;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exercises the filesystem registry without connecting to Manta.
+ */
+public class FileSystemRepositoryTest {
+    private static final int HOSTS = 8;
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 500;
+
+    private final Map<String, ?> env = Collections.singletonMap(
+            MapConfigContext.MANTA_USER_KEY, "testuser");
+
+    /**
+     * Repository whose drivers have no client, so that filesystems can be
+     * created and closed offline.
+     */
+    private static class OfflineRepository extends MantaFileSystemRepository {
+        @Override
+        public FileSystemDriver createDriver(final URI uri,
+                                             final Map<String, ?> env) throws IOException {
+            final ConfigContext config = buildContext(uri, env);
+            final MantaFileStore fileStore = new MantaFileStore(
+                    null, getFactoryProvider().getAttributesFactory());
+            return new MantaFileSystemDriver(config, fileStore, getFactoryProvider(), (MantaClient) null);
+        }
+    }
+
+    private static URI hostURI(final int host) {
+        return URI.create(String.format("manta://host%d.example.com", host));
+    }
+
+    private static void assertNotFound(final MantaFileSystemRepository repository,
+                                       final URI uri) {
+        try {
+            repository.getFileSystem(uri);
+            Assert.fail("No filesystem should be registered for " + uri);
+        } catch (FileSystemNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void urisForTheSameEndpointShareAFileSystem() throws IOException {
+        MantaFileSystemRepository repository = new OfflineRepository();
+        MantaFileSystemProvider provider = new MantaFileSystemProvider();
+
+        try (FileSystem fs = repository.createFileSystem(provider,
+                URI.create("manta://Host.example.com/testuser/stor"), env)) {
+            URI other = URI.create("manta://host.example.com:443/testuser/stor/a.txt");
+
+            Assert.assertSame(repository.getFileSystem(other), fs);
+            Assert.assertEquals(repository.getPath(other), fs.getPath("/testuser/stor/a.txt"));
+
+            try {
+                repository.createFileSystem(provider, other, env);
+                Assert.fail("Filesystem for the same endpoint should already exist");
+            } catch (FileSystemAlreadyExistsException e) {
+                // expected
+            }
+        }
+
+        assertNotFound(repository, URI.create("manta://host.example.com"));
+    }
+
+    @Test
+    public void driverIsReadFromThePathsFileSystem() throws IOException {
+        MantaFileSystemRepository repository = new OfflineRepository();
+        MantaFileSystem fs = (MantaFileSystem) repository.createFileSystem(
+                new MantaFileSystemProvider(), hostURI(0), env);
+        Path path = fs.getPath("/testuser/stor");
+
+        Assert.assertSame(repository.getDriver(path), fs.getDriver());
+
+        fs.close();
+
+        try {
+            repository.getDriver(path);
+            Assert.fail("Driver of a closed filesystem should not be returned");
+        } catch (ClosedFileSystemException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void concurrentCreateAndCloseKeepOneFileSystemPerEndpoint() throws Exception {
+        MantaFileSystemRepository repository = new OfflineRepository();
+        MantaFileSystemProvider provider = new MantaFileSystemProvider();
+        AtomicInteger[] openPerHost = new AtomicInteger[HOSTS];
+        AtomicLong created = new AtomicLong();
+
+        for (int i = 0; i < HOSTS; i++) {
+            openPerHost[i] = new AtomicInteger();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        final int host = (thread + i) % HOSTS;
+                        final URI uri = hostURI(host);
+                        final MantaFileSystem fs;
+
+                        try {
+                            fs = (MantaFileSystem) repository.createFileSystem(provider, uri, env);
+                        } catch (FileSystemAlreadyExistsException e) {
+                            continue;
+                        }
+
+                        created.incrementAndGet();
+                        Assert.assertEquals(openPerHost[host].incrementAndGet(), 1,
+                                "Only one filesystem may be open per endpoint");
+                        Assert.assertSame(repository.getFileSystem(uri), fs);
+                        Assert.assertSame(repository.getDriver(fs.getPath("/")), fs.getDriver());
+
+                        openPerHost[host].decrementAndGet();
+                        fs.close();
+                    }
+
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertTrue(created.get() >= HOSTS);
+
+        for (int i = 0; i < HOSTS; i++) {
+            assertNotFound(repository, hostURI(i));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.joyent.manta.fs;
 
 import com.joyent.manta.fs.config.ConfigContext;
 import com.joyent.manta.fs.config.SystemSettingsConfigContext;
+import com.joyent.manta.fs.driver.MantaLane;
 import com.joyent.manta.fs.driver.MantaTempSeekableByteChannel;
 import com.joyent.manta.fs.provider.MantaFileSystemProvider;
 import com.joyent.manta.client.MantaClient;
@@ -18,6 +19,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
@@ -30,6 +33,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.Scanner;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Test(groups = { "file" })
 public class FileTest {
@@ -220,6 +224,87 @@ public class FileTest {
                 "Contents were not appended");
     }
 
+    @Test
+    public void canWriteOverSeekableChannelInALane() throws IOException {
+        String path = String.format("%s/%s", testDirectory, UUID.randomUUID());
+        Path file = fileSystem.getPath(path);
+
+        try (SeekableByteChannel channel = Files.newByteChannel(file,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                MantaLane.BULK.option())) {
+            channel.write(ByteBuffer.wrap("Hello World".getBytes()));
+        }
+
+        Assert.assertEquals(mantaClient.getAsString(path), "Hello World");
+    }
+
+    @Test
+    public void canWriteOverAsynchronousChannelInALane() throws Exception {
+        String path = String.format("%s/%s", testDirectory, UUID.randomUUID());
+        Path file = fileSystem.getPath(path);
+
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(file,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW,
+                MantaLane.BULK.option())) {
+            channel.write(ByteBuffer.wrap("Hello World".getBytes()), 0).get();
+        }
+
+        Assert.assertEquals(mantaClient.getAsString(path), "Hello World");
+    }
+
+    @Test
+    public void canReadPositionsOverAsynchronousChannel() throws Exception {
+        final String fileContents = "Hello World";
+        String testFilePath = uploadTestFile("async_read_test", fileContents);
+
+        Path fileToRead = fileSystem.getPath(testFilePath);
+
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(
+                fileToRead, StandardOpenOption.READ)) {
+            Assert.assertEquals(channel.size(), 11L);
+
+            ByteBuffer buffer = ByteBuffer.allocate(5);
+            Assert.assertEquals(channel.read(buffer, 6).get().intValue(), 5);
+            Assert.assertEquals(new String(buffer.array()), "World");
+
+            CompletableFuture<Integer> completed = new CompletableFuture<>();
+            ByteBuffer direct = ByteBuffer.allocateDirect(5);
+            channel.read(direct, 0, direct, new CompletionHandler<Integer, ByteBuffer>() {
+                @Override
+                public void completed(final Integer result, final ByteBuffer attachment) {
+                    completed.complete(result);
+                }
+
+                @Override
+                public void failed(final Throwable exc, final ByteBuffer attachment) {
+                    completed.completeExceptionally(exc);
+                }
+            });
+
+            Assert.assertEquals(completed.get().intValue(), 5);
+            direct.flip();
+            byte[] bytes = new byte[direct.remaining()];
+            direct.get(bytes);
+            Assert.assertEquals(new String(bytes), "Hello");
+
+            Assert.assertEquals(channel.read(ByteBuffer.allocate(1), 11).get().intValue(), -1);
+        }
+    }
+
+    @Test
+    public void canWritePositionsOverAsynchronousChannel() throws Exception {
+        String path = String.format("%s/%s", testDirectory, UUID.randomUUID());
+        Path file = fileSystem.getPath(path);
+
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(file,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+            channel.write(ByteBuffer.wrap("World".getBytes()), 6).get();
+            channel.write(ByteBuffer.wrap("Hello ".getBytes()), 0).get();
+        }
+
+        Assert.assertEquals(mantaClient.getAsString(path), "Hello World");
+    }
+
     @Test
     public void createTempFile() throws IOException {
         Path dir = fileSystem.getPath(testDirectory);
@@ -0,0 +1,85 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.fs.util.Journal;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class JournalTest {
+    @Test
+    public void lastStateOfAKeyWinsOnResume() throws IOException {
+        final Path file = Files.createTempFile("journal", ".log");
+
+        try {
+            try (Journal journal = new Journal(file, 2)) {
+                journal.put("dir/with space.txt", "P etag-1");
+                journal.put("dir/with space.txt", "C etag-1");
+                journal.put("other.txt", "P etag-2");
+            }
+
+            try (Journal journal = new Journal(file, 2)) {
+                Assert.assertEquals(journal.get("dir/with space.txt"), "C etag-1");
+                Assert.assertEquals(journal.get("other.txt"), "P etag-2");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void linesCutShortByACrashAreIgnored() throws IOException {
+        final Path file = Files.createTempFile("journal", ".log");
+
+        try {
+            Files.write(file, Arrays.asList("D /user/stor/a", "D", "", "L /user/stor/b"),
+                    StandardCharsets.UTF_8);
+            Files.write(file, "D /user/stor/".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+
+            try (Journal journal = new Journal(file, 1)) {
+                Assert.assertEquals(journal.get("/user/stor/a"), "D");
+                Assert.assertEquals(journal.get("/user/stor/b"), "L");
+                Assert.assertNull(journal.get("/user/stor/"));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void compactionOnlyKeepsMatchingStates() throws IOException {
+        final Path file = Files.createTempFile("journal", ".log");
+
+        try {
+            try (Journal journal = new Journal(file, 1)) {
+                journal.put("a", "P");
+                journal.put("a", "C");
+                journal.put("b", "P");
+                journal.compact(state -> state.equals("C"));
+
+                Assert.assertNull(journal.get("b"));
+                journal.put("c", "C");
+            }
+
+            Assert.assertEquals(Files.readAllLines(file, StandardCharsets.UTF_8),
+                    Arrays.asList("C a", "C c"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void withoutAFileStatesAreKeptInMemory() throws IOException {
+        try (Journal journal = new Journal(null, 1)) {
+            journal.put("a", "D");
+            Assert.assertEquals(journal.get("a"), "D");
+            journal.complete();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.exception.MantaException;
+import com.joyent.manta.fs.config.ConfigContext;
+import com.joyent.manta.fs.config.SystemSettingsConfigContext;
+import com.joyent.manta.fs.driver.ResumableInputStream;
+import com.joyent.manta.fs.provider.MantaFileSystemProvider;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@Test(groups = { "async" })
+public class MantaAsyncFilesTest {
+    private final FileSystemProvider provider = new MantaFileSystemProvider();
+    private final FileSystem fileSystem;
+    private final ConfigContext config = new SystemSettingsConfigContext();
+    private final String testDirectory = String.format("/%s/stor/%s",
+            config.getMantaUser(), UUID.randomUUID());
+    private final MantaClient mantaClient;
+
+    {
+        try {
+            URI uri = ConfigContext.mantaURIFromContext(config);
+            fileSystem = provider.newFileSystem(uri, Collections.emptyMap());
+            mantaClient = new MantaClient(config);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @BeforeClass
+    public void setup() throws IOException, MantaException {
+        mantaClient.putDirectory(testDirectory);
+    }
+
+    @AfterClass
+    public void cleanUp() throws IOException, MantaException {
+        mantaClient.deleteRecursive(testDirectory);
+    }
+
+    @Test
+    public void canComposeWriteReadAndStat() throws Exception {
+        Path dir = fileSystem.getPath(testDirectory);
+        Path file = dir.resolve("compose.txt");
+        Path copy = dir.resolve("compose-copy.txt");
+        byte[] content = "Hello World".getBytes(StandardCharsets.UTF_8);
+
+        CompletableFuture<byte[]> read = MantaAsyncFiles.write(file, content)
+                .thenCompose(v -> MantaAsyncFiles.copy(file, copy))
+                .thenCompose(v -> MantaAsyncFiles.readAllBytes(copy));
+
+        Assert.assertEquals(read.get(30, TimeUnit.SECONDS), content);
+
+        BasicFileAttributes attributes = MantaAsyncFiles.readAttributes(file)
+                .get(30, TimeUnit.SECONDS);
+        Assert.assertEquals(attributes.size(), (long) content.length);
+
+        List<Path> entries = MantaAsyncFiles.list(dir).get(30, TimeUnit.SECONDS);
+        Assert.assertTrue(entries.contains(file));
+        Assert.assertTrue(entries.contains(copy));
+
+        MantaAsyncFiles.delete(copy).get(30, TimeUnit.SECONDS);
+        Assert.assertFalse(mantaClient.existsAndIsAccessible(copy.toString()));
+    }
+
+    @Test
+    public void canPublishContentInRequestedChunks() throws Exception {
+        Path file = fileSystem.getPath(testDirectory).resolve("publish.txt");
+        mantaClient.put(file.toString(), "Hello World");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        MantaPublishers.content(file, 4).subscribe(new Subscriber<ByteBuffer>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(final Subscription s) {
+                subscription = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(final ByteBuffer buffer) {
+                Assert.assertTrue(buffer.remaining() <= 4);
+                out.write(buffer.array(), buffer.position(), buffer.remaining());
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                done.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+
+        done.get(30, TimeUnit.SECONDS);
+        Assert.assertEquals(out.toString("UTF-8"), "Hello World");
+    }
+
+    @Test
+    public void contentPublisherFailsWhenTheObjectChanges() throws Exception {
+        Path file = fileSystem.getPath(testDirectory).resolve("changing.txt");
+        mantaClient.put(file.toString(), "Hello World");
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        MantaPublishers.content(file, 4).subscribe(new Subscriber<ByteBuffer>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(final Subscription s) {
+                subscription = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(final ByteBuffer buffer) {
+                try {
+                    mantaClient.put(file.toString(), "Goodbye World");
+                } catch (IOException e) {
+                    done.completeExceptionally(e);
+                    return;
+                }
+
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                done.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+
+        try {
+            done.get(30, TimeUnit.SECONDS);
+            Assert.fail("Reading a replaced object should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ResumableInputStream.ObjectChangedException,
+                    "Unexpected failure: " + e.getCause());
+        }
+    }
+}
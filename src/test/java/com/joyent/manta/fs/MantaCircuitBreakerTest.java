@@ -0,0 +1,198 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.com.google.api.client.http.HttpHeaders;
+import com.joyent.manta.com.google.api.client.http.HttpResponseException;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.fs.driver.CircuitOpenException;
+import com.joyent.manta.fs.driver.ExecutionMode;
+import com.joyent.manta.fs.driver.FixedConcurrencyLimit;
+import com.joyent.manta.fs.driver.MantaCircuitBreaker;
+import com.joyent.manta.fs.driver.MantaClientSource;
+import com.joyent.manta.fs.driver.MantaExecutors;
+import com.joyent.manta.fs.driver.MantaOperation;
+import com.joyent.manta.fs.driver.MantaRequestDispatcher;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.NoSuchFileException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MantaCircuitBreakerTest {
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1L);
+
+    private final MantaExecutors executors = new MantaExecutors(ExecutionMode.PLATFORM, 1);
+
+    @AfterClass
+    public void shutdown() {
+        executors.close();
+    }
+
+    private MantaCircuitBreaker newBreaker(final long openNanos,
+                                           final MantaCircuitBreaker.Probe probe) {
+        return new MantaCircuitBreaker(true, 0.5, 0.8, TimeUnit.SECONDS.toNanos(1L),
+                10, 4, openNanos, executors, probe);
+    }
+
+    private static MantaRequestDispatcher newDispatcher(final MantaCircuitBreaker breaker) {
+        return new MantaRequestDispatcher(MantaClientSource.of((MantaClient) null),
+                new FixedConcurrencyLimit(4), Collections.emptyMap(), breaker);
+    }
+
+    private static void fail(final MantaRequestDispatcher dispatcher,
+                             final IOException error) {
+        try {
+            dispatcher.execute(MantaOperation.HEAD, "/user/stor/a", client -> {
+                throw error;
+            });
+            Assert.fail("Expected the request to fail");
+        } catch (IOException e) {
+            Assert.assertFalse(e instanceof CircuitOpenException, e.getMessage());
+        }
+    }
+
+    private static MantaClientHttpResponseException response(final int status) {
+        return new MantaClientHttpResponseException(new HttpResponseException.Builder(
+                status, "Error", new HttpHeaders()).build());
+    }
+
+    private static void awaitState(final MantaCircuitBreaker breaker,
+                                   final MantaCircuitBreaker.State state)
+            throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+
+        while (breaker.getState() != state && System.nanoTime() < deadline) {
+            Thread.sleep(5L);
+        }
+
+        Assert.assertEquals(breaker.getState(), state);
+    }
+
+    @Test
+    public void opensOnFailuresAndFailsFast() throws IOException {
+        final MantaCircuitBreaker breaker = newBreaker(HOUR, () -> { });
+        final MantaRequestDispatcher dispatcher = newDispatcher(breaker);
+
+        for (int i = 0; i < 4; i++) {
+            fail(dispatcher, i % 2 == 0 ? new SocketException("Connection reset") : response(500));
+        }
+
+        Assert.assertEquals(breaker.getState(), MantaCircuitBreaker.State.OPEN);
+
+        final AtomicInteger sent = new AtomicInteger();
+
+        try {
+            dispatcher.execute(MantaOperation.GET, "/user/stor/b", client -> sent.incrementAndGet());
+            Assert.fail("Expected the request to be rejected");
+        } catch (CircuitOpenException e) {
+            Assert.assertEquals(e.getState(), MantaCircuitBreaker.State.OPEN);
+            Assert.assertTrue(e.getRetryAfterNanos() > 0L);
+        }
+
+        Assert.assertEquals(sent.get(), 0);
+        Assert.assertEquals(dispatcher.getInFlight(), 0);
+        Assert.assertEquals(breaker.getRejected(), 1L);
+        Assert.assertEquals(breaker.getStateChanges(MantaCircuitBreaker.State.OPEN), 1L);
+    }
+
+    @Test
+    public void clientErrorsKeepBreakerClosed() throws IOException {
+        final MantaCircuitBreaker breaker = newBreaker(HOUR, () -> { });
+        final MantaRequestDispatcher dispatcher = newDispatcher(breaker);
+
+        for (int i = 0; i < 10; i++) {
+            fail(dispatcher, response(i % 2 == 0 ? 404 : 429));
+        }
+
+        Assert.assertEquals(breaker.getState(), MantaCircuitBreaker.State.CLOSED);
+        Assert.assertEquals(breaker.getFailureRate(), 0.0);
+    }
+
+    @Test
+    public void throttlingAndCallerErrorsKeepBreakerClosed() {
+        final MantaCircuitBreaker breaker = newBreaker(HOUR, () -> { });
+        final MantaRequestDispatcher dispatcher = newDispatcher(breaker);
+
+        for (int i = 0; i < 10; i++) {
+            fail(dispatcher, i % 2 == 0 ? response(503)
+                    : new NoSuchFileException("/tmp/local-file"));
+        }
+
+        fail(dispatcher, new IOException("Upload was aborted"));
+
+        Assert.assertEquals(breaker.getState(), MantaCircuitBreaker.State.CLOSED);
+        Assert.assertEquals(breaker.getFailureRate(), 0.0);
+        Assert.assertTrue(MantaCircuitBreaker.isFailure(
+                new IOException("Request failed", new SocketTimeoutException())));
+    }
+
+    @Test
+    public void opensOnSlowCalls() {
+        final MantaCircuitBreaker breaker = newBreaker(HOUR, () -> { });
+
+        for (int i = 0; i < 3; i++) {
+            breaker.record(false, TimeUnit.SECONDS.toNanos(2L));
+            Assert.assertEquals(breaker.getState(), MantaCircuitBreaker.State.CLOSED);
+        }
+
+        breaker.record(false, TimeUnit.SECONDS.toNanos(2L));
+        Assert.assertEquals(breaker.getState(), MantaCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void oldOutcomesLeaveTheWindow() {
+        final MantaCircuitBreaker breaker = newBreaker(HOUR, () -> { });
+
+        for (int i = 0; i < 4; i++) {
+            breaker.record(true, 0L);
+
+            for (int j = 0; j < 5; j++) {
+                breaker.record(false, 0L);
+            }
+        }
+
+        Assert.assertEquals(breaker.getState(), MantaCircuitBreaker.State.CLOSED);
+        Assert.assertTrue(breaker.getFailureRate() <= 0.2, "Rate " + breaker.getFailureRate());
+    }
+
+    @Test
+    public void probeClosesBreakerAfterFailedProbe() throws Exception {
+        final AtomicInteger probes = new AtomicInteger();
+        final MantaCircuitBreaker breaker = newBreaker(TimeUnit.MILLISECONDS.toNanos(20L), () -> {
+            if (probes.incrementAndGet() == 1) {
+                throw new ConnectException("Connection refused");
+            }
+        });
+
+        for (int i = 0; i < 4; i++) {
+            breaker.record(true, 0L);
+        }
+
+        awaitState(breaker, MantaCircuitBreaker.State.CLOSED);
+
+        Assert.assertEquals(probes.get(), 2);
+        Assert.assertEquals(breaker.getStateChanges(MantaCircuitBreaker.State.OPEN), 2L);
+        Assert.assertEquals(breaker.getStateChanges(MantaCircuitBreaker.State.HALF_OPEN), 2L);
+        Assert.assertEquals(breaker.getStateChanges(MantaCircuitBreaker.State.CLOSED), 1L);
+        Assert.assertEquals(newDispatcher(breaker).execute(MantaOperation.HEAD,
+                "/user/stor/a", client -> "sent"), "sent");
+    }
+
+    @Test
+    public void disabledBreakerNeverOpens() {
+        final MantaCircuitBreaker breaker = new MantaCircuitBreaker();
+
+        for (int i = 0; i < 100; i++) {
+            breaker.record(true, HOUR);
+        }
+
+        Assert.assertEquals(breaker.getState(), MantaCircuitBreaker.State.CLOSED);
+    }
+}
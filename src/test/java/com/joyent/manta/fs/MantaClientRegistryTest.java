@@ -0,0 +1,185 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.config.ConfigContext;
+import com.joyent.manta.fs.config.MapConfigContext;
+import com.joyent.manta.fs.provider.MantaClientRegistry;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies the reference counting of shared clients without creating real
+ * clients.
+ */
+public class MantaClientRegistryTest {
+    private static class CountingRegistry extends MantaClientRegistry {
+        private final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        protected MantaClient newClient(final ConfigContext config) throws IOException {
+            created.incrementAndGet();
+            return null;
+        }
+    }
+
+    private static ConfigContext config(final String user, final Integer maxConnections) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(MapConfigContext.MANTA_URL_KEY, "https://manta.example.com");
+        map.put(MapConfigContext.MANTA_USER_KEY, user);
+
+        if (maxConnections != null) {
+            map.put(MapConfigContext.MANTA_MAX_CONNS_KEY, maxConnections);
+        }
+
+        return new MapConfigContext(map);
+    }
+
+    @Test
+    public void equivalentConfigurationsShareAClient() throws IOException {
+        CountingRegistry registry = new CountingRegistry();
+
+        MantaClientRegistry.Lease first = registry.acquire(config("alice", null));
+        MantaClientRegistry.Lease second = registry.acquire(config("alice", null));
+
+        Assert.assertEquals(registry.created.get(), 1);
+        Assert.assertEquals(registry.size(), 1);
+
+        first.close();
+        // Closing a lease twice must not release the client for the other lease
+        first.close();
+        Assert.assertEquals(registry.size(), 1);
+
+        second.close();
+        Assert.assertEquals(registry.size(), 0);
+    }
+
+    @Test
+    public void differentCredentialsOrPoolLimitsGetSeparateClients() throws IOException {
+        CountingRegistry registry = new CountingRegistry();
+
+        try (MantaClientRegistry.Lease alice = registry.acquire(config("alice", null));
+             MantaClientRegistry.Lease bob = registry.acquire(config("bob", null));
+             MantaClientRegistry.Lease limited = registry.acquire(config("alice", 4))) {
+            Assert.assertEquals(registry.created.get(), 3);
+            Assert.assertEquals(registry.size(), 3);
+        }
+
+        Assert.assertEquals(registry.size(), 0);
+    }
+
+    @Test
+    public void leaseCreatesClientOnFirstUse() throws IOException {
+        CountingRegistry registry = new CountingRegistry();
+        MantaClientRegistry.Lease lease = registry.lease(config("alice", null));
+
+        Assert.assertFalse(lease.isCreated());
+        Assert.assertEquals(registry.created.get(), 0);
+
+        lease.getClient();
+        lease.getClient();
+
+        Assert.assertTrue(lease.isCreated());
+        Assert.assertEquals(registry.created.get(), 1);
+
+        lease.close();
+        Assert.assertEquals(registry.size(), 0);
+    }
+
+    @Test
+    public void unusedLeaseReleasesNothing() throws IOException {
+        CountingRegistry registry = new CountingRegistry();
+        MantaClientRegistry.Lease used = registry.acquire(config("alice", null));
+
+        registry.lease(config("alice", null)).close();
+
+        Assert.assertEquals(registry.size(), 1);
+        used.close();
+        Assert.assertEquals(registry.size(), 0);
+    }
+
+    @Test
+    public void slowCreationDoesNotBlockOtherConfigurations() throws Exception {
+        final CountDownLatch creating = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final CountingRegistry registry = new CountingRegistry() {
+            @Override
+            protected MantaClient newClient(final ConfigContext config) throws IOException {
+                if ("slow".equals(config.getMantaUser())) {
+                    creating.countDown();
+
+                    try {
+                        proceed.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+
+                return super.newClient(config);
+            }
+        };
+        final ExecutorService threads = Executors.newFixedThreadPool(2);
+
+        try {
+            final Future<MantaClientRegistry.Lease> first =
+                    threads.submit(() -> registry.acquire(config("slow", null)));
+            Assert.assertTrue(creating.await(10, TimeUnit.SECONDS));
+            final Future<MantaClientRegistry.Lease> second =
+                    threads.submit(() -> registry.acquire(config("slow", null)));
+
+            // Another configuration gets its client while the first is created
+            registry.acquire(config("alice", null)).close();
+            Assert.assertFalse(first.isDone());
+
+            proceed.countDown();
+            final MantaClientRegistry.Lease slow = first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS).close();
+            slow.close();
+
+            // Both leases of the slow configuration shared one client
+            Assert.assertEquals(registry.created.get(), 2);
+            Assert.assertEquals(registry.size(), 0);
+        } finally {
+            proceed.countDown();
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedCreationIsRetriedByTheNextLease() throws IOException {
+        final AtomicInteger attempts = new AtomicInteger();
+        final MantaClientRegistry registry = new MantaClientRegistry() {
+            @Override
+            protected MantaClient newClient(final ConfigContext config) throws IOException {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new IOException("Key can't be read");
+                }
+
+                return null;
+            }
+        };
+
+        try {
+            registry.acquire(config("alice", null));
+            Assert.fail("Creating the client should have failed");
+        } catch (IOException e) {
+            Assert.assertEquals(e.getMessage(), "Key can't be read");
+        }
+
+        Assert.assertEquals(registry.size(), 0);
+
+        try (MantaClientRegistry.Lease lease = registry.acquire(config("alice", null))) {
+            Assert.assertEquals(attempts.get(), 2);
+            Assert.assertEquals(registry.size(), 1);
+        }
+    }
+}
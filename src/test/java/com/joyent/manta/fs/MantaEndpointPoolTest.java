@@ -0,0 +1,211 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.fs.driver.ExecutionMode;
+import com.joyent.manta.fs.driver.MantaEndpoint;
+import com.joyent.manta.fs.driver.MantaEndpointPool;
+import com.joyent.manta.fs.driver.MantaExecutors;
+import com.joyent.manta.fs.driver.MantaNioSettings;
+import com.joyent.manta.fs.driver.MantaOperation;
+import com.joyent.manta.fs.driver.MantaRequestDispatcher;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class MantaEndpointPoolTest {
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1L);
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private final MantaExecutors executors = new MantaExecutors(ExecutionMode.PLATFORM, 1);
+
+    @AfterClass
+    public void shutdown() {
+        executors.close();
+    }
+
+    private void runConcurrently(final MantaRequestDispatcher dispatcher,
+                                 final StandInEndpoints stand, final int count)
+            throws Exception {
+        final ExecutorService workers = executors.getWorkers();
+        final List<Future<String>> results = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            final String path = "/user/stor/" + i;
+            results.add(workers.submit(() -> dispatcher.execute(
+                    MantaOperation.HEAD, path, stand.request(path))));
+        }
+
+        for (Future<String> result : results) {
+            result.get();
+        }
+    }
+
+    @Test
+    public void spreadsRequestsBetweenEndpoints() throws Exception {
+        final StandInEndpoints stand = new StandInEndpoints(3);
+        final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(
+                stand.pool(MantaEndpointPool.Balancing.LEAST_OUTSTANDING, 5, HOUR));
+
+        for (int i = 0; i < 3; i++) {
+            stand.setLatency(i, 2 * MILLISECOND);
+        }
+
+        runConcurrently(dispatcher, stand, 60);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(stand.served(i) >= 10, "Endpoint " + i + " served " + stand.served(i));
+        }
+
+        for (MantaEndpoint endpoint : dispatcher.getEndpoints().getEndpoints()) {
+            Assert.assertEquals(endpoint.getOutstanding(), 0);
+        }
+    }
+
+    @Test
+    public void latencyBalancingPrefersFastEndpoint() throws Exception {
+        final StandInEndpoints stand = new StandInEndpoints(2);
+        final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(
+                stand.pool(MantaEndpointPool.Balancing.LATENCY, 5, HOUR));
+        stand.setLatency(0, 20 * MILLISECOND);
+        stand.setLatency(1, MILLISECOND);
+
+        for (int i = 0; i < 40; i++) {
+            dispatcher.execute(MantaOperation.GET, "/user/stor/a", stand.request("/user/stor/a"));
+        }
+
+        Assert.assertTrue(stand.served(1) > 3 * stand.served(0),
+                "Served " + stand.served(0) + " and " + stand.served(1));
+    }
+
+    @Test
+    public void failingEndpointIsEjectedAndReadmitted() throws Exception {
+        final StandInEndpoints stand = new StandInEndpoints(2);
+        final MantaEndpointPool pool = stand.pool(
+                MantaEndpointPool.Balancing.LEAST_OUTSTANDING, 3, 50 * MILLISECOND);
+        final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(pool);
+        final MantaEndpoint failing = pool.getEndpoints().get(0);
+        stand.setDown(0, true);
+
+        int failures = 0;
+
+        for (int i = 0; i < 20; i++) {
+            try {
+                dispatcher.execute(MantaOperation.HEAD, "/user/stor/a",
+                        stand.request("/user/stor/a"));
+            } catch (ConnectException e) {
+                failures++;
+            }
+        }
+
+        Assert.assertEquals(failures, 3);
+        Assert.assertTrue(failing.isEjected());
+        Assert.assertEquals(failing.getEjections(), 1);
+        Assert.assertEquals(stand.served(1), 17);
+
+        stand.setDown(0, false);
+        Thread.sleep(60L);
+
+        for (int i = 0; i < 10; i++) {
+            dispatcher.execute(MantaOperation.HEAD, "/user/stor/a", stand.request("/user/stor/a"));
+        }
+
+        Assert.assertFalse(failing.isEjected());
+        Assert.assertTrue(stand.served(0) > 0);
+        Assert.assertEquals(failing.getEjections(), 0);
+    }
+
+    @Test
+    public void readmittedEndpointIsEjectedAgainAfterOneFailure() throws Exception {
+        final StandInEndpoints stand = new StandInEndpoints(2);
+        final MantaEndpointPool pool = stand.pool(
+                MantaEndpointPool.Balancing.LEAST_OUTSTANDING, 3, 100 * MILLISECOND);
+        final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(pool);
+        final MantaEndpoint failing = pool.getEndpoints().get(0);
+        stand.setDown(0, true);
+
+        Assert.assertEquals(countFailures(dispatcher, stand, 10), 3);
+        Assert.assertEquals(failing.getEjections(), 1);
+
+        // Re-admitted while still down, so the first request to it fails
+        Thread.sleep(120L);
+        Assert.assertEquals(countFailures(dispatcher, stand, 10), 1);
+        Assert.assertTrue(failing.isEjected());
+        Assert.assertEquals(failing.getEjections(), 2);
+
+        // The second ejection lasts twice as long as the first
+        Thread.sleep(120L);
+        Assert.assertEquals(countFailures(dispatcher, stand, 10), 0);
+        Thread.sleep(150L);
+        Assert.assertEquals(countFailures(dispatcher, stand, 10), 1);
+        Assert.assertEquals(failing.getEjections(), 3);
+    }
+
+    private static int countFailures(final MantaRequestDispatcher dispatcher,
+                                     final StandInEndpoints stand, final int count)
+            throws IOException {
+        int failures = 0;
+
+        for (int i = 0; i < count; i++) {
+            try {
+                dispatcher.execute(MantaOperation.HEAD, "/user/stor/a",
+                        stand.request("/user/stor/a"));
+            } catch (ConnectException e) {
+                failures++;
+            }
+        }
+
+        return failures;
+    }
+
+    @Test
+    public void earliestReadmissionIsUsedWhenAllAreEjected() throws IOException {
+        final StandInEndpoints stand = new StandInEndpoints(2);
+        final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(
+                stand.pool(MantaEndpointPool.Balancing.LEAST_OUTSTANDING, 1, HOUR));
+        stand.setDown(0, true);
+        stand.setDown(1, true);
+
+        for (int i = 0; i < 4; i++) {
+            try {
+                dispatcher.execute(MantaOperation.HEAD, "/user/stor/a",
+                        stand.request("/user/stor/a"));
+                Assert.fail("Expected the request to fail");
+            } catch (ConnectException e) {
+                // Every endpoint is down
+            }
+        }
+
+        // The first endpoint was ejected first, so it is used first
+        stand.setDown(0, false);
+        Assert.assertEquals(dispatcher.execute(MantaOperation.HEAD, "/user/stor/a",
+                stand.request("/user/stor/a")), StandInEndpoints.name(0));
+    }
+
+    @Test
+    public void parsesEndpointSettings() {
+        final MantaNioSettings settings = new MantaNioSettings(Collections.singletonMap(
+                MantaNioSettings.ENDPOINTS_KEY, " https://a.local , b.local:8443,,"));
+
+        Assert.assertEquals(settings.getEndpoints(), Arrays.asList("https://a.local", "b.local:8443"));
+        Assert.assertEquals(settings.getEndpointBalancing(),
+                MantaEndpointPool.Balancing.LEAST_OUTSTANDING);
+        Assert.assertEquals(new MantaNioSettings(Collections.singletonMap(
+                MantaNioSettings.ENDPOINT_BALANCING_KEY, "latency")).getEndpointBalancing(),
+                MantaEndpointPool.Balancing.LATENCY);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsUnknownBalancing() {
+        new MantaNioSettings(Collections.singletonMap(
+                MantaNioSettings.ENDPOINT_BALANCING_KEY, "random")).getEndpointBalancing();
+    }
+}
@@ -0,0 +1,126 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.exception.MantaException;
+import com.joyent.manta.fs.config.ConfigContext;
+import com.joyent.manta.fs.config.SystemSettingsConfigContext;
+import com.joyent.manta.fs.driver.MantaCopyOptions;
+import com.joyent.manta.fs.provider.MantaFileSystemProvider;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Test(groups = { "bulk" })
+public class MantaFilesTest {
+    private final FileSystemProvider provider = new MantaFileSystemProvider();
+    private final FileSystem fileSystem;
+    private final ConfigContext config = new SystemSettingsConfigContext();
+    private final String testDirectory = String.format("/%s/stor/%s",
+            config.getMantaUser(), UUID.randomUUID());
+    private final MantaClient mantaClient;
+
+    {
+        try {
+            URI uri = ConfigContext.mantaURIFromContext(config);
+            fileSystem = provider.newFileSystem(uri, Collections.emptyMap());
+            mantaClient = new MantaClient(config);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @BeforeClass
+    public void setup() throws IOException, MantaException {
+        mantaClient.putDirectory(testDirectory);
+    }
+
+    @AfterClass
+    public void cleanUp() throws IOException, MantaException {
+        mantaClient.deleteRecursive(testDirectory);
+    }
+
+    private Path createTree(final String name) throws IOException {
+        String dir = testDirectory + "/" + name;
+        mantaClient.putDirectory(dir + "/2016/01", true);
+        mantaClient.putDirectory(dir + "/2017/01", true);
+        mantaClient.put(dir + "/2016/01/part-0.parquet", "a");
+        mantaClient.put(dir + "/2017/01/part-0.parquet", "bb");
+        mantaClient.put(dir + "/2017/01/part-1.parquet", "ccc");
+        mantaClient.put(dir + "/2017/01/_SUCCESS", "");
+
+        return fileSystem.getPath(dir);
+    }
+
+    @Test
+    public void canFindMatchingObjects() throws IOException {
+        Path base = createTree("find");
+
+        List<Path> matches = MantaFiles.find(base, "2017/**/part-*.parquet");
+
+        Assert.assertEquals(matches.size(), 2);
+        Assert.assertTrue(matches.contains(base.resolve("2017/01/part-0.parquet")));
+        Assert.assertTrue(matches.contains(base.resolve("2017/01/part-1.parquet")));
+    }
+
+    @Test
+    public void canDeleteMatchingObjects() throws IOException {
+        Path base = createTree("delete");
+
+        long deleted = MantaFiles.delete(base, "**/part-*.parquet", 2);
+
+        Assert.assertEquals(deleted, 3L);
+        Assert.assertTrue(mantaClient.existsAndIsAccessible(
+                testDirectory + "/delete/2017/01/_SUCCESS"));
+        Assert.assertFalse(mantaClient.existsAndIsAccessible(
+                testDirectory + "/delete/2016/01/part-0.parquet"));
+    }
+
+    @Test
+    public void canCopyMatchingObjectsToLocalDirectory() throws IOException {
+        Path base = createTree("copy");
+        Path local = Files.createTempDirectory("manta_bulk");
+
+        try {
+            long copied = MantaFiles.copy(base, "2017/*/part-*", local,
+                    MantaCopyOptions.concurrency(2));
+
+            Assert.assertEquals(copied, 2L);
+            Assert.assertTrue(Files.exists(local.resolve("2017/01/part-1.parquet")));
+            Assert.assertFalse(Files.exists(local.resolve("2016")));
+        } finally {
+            FileUtils.deleteDirectory(local.toFile());
+        }
+    }
+
+    @Test
+    public void canStatMatchingObjects() throws IOException {
+        Path base = createTree("stat");
+
+        Map<Path, BasicFileAttributes> attributes = MantaFiles.stat(base, "*/01/part-0.parquet");
+
+        Assert.assertEquals(attributes.size(), 2);
+        Assert.assertEquals(attributes.get(base.resolve("2017/01/part-0.parquet")).size(), 2L);
+        Assert.assertTrue(attributes.get(base.resolve("2017/01/part-0.parquet")).isRegularFile());
+    }
+
+    @Test
+    public void missingPrefixHasNoMatches() throws IOException {
+        Path base = createTree("missing");
+
+        Assert.assertTrue(MantaFiles.find(base, "2018/**/*.parquet").isEmpty());
+    }
+}
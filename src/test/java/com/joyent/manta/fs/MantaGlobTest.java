@@ -0,0 +1,104 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.fs.driver.MantaGlob;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.regex.PatternSyntaxException;
+
+public class MantaGlobTest {
+    @Test
+    public void literalPrefixStopsAtFirstWildcard() {
+        Assert.assertEquals(MantaGlob.compile("a/b/**/part-*.parquet").getLiteralPrefix(), "a/b");
+        Assert.assertEquals(MantaGlob.compile("a/b/c.txt").getLiteralPrefix(), "a/b");
+        Assert.assertEquals(MantaGlob.compile("*/b/c.txt").getLiteralPrefix(), "");
+        Assert.assertEquals(MantaGlob.compile("/user/stor/*.txt").getLiteralPrefix(), "user/stor");
+        Assert.assertTrue(MantaGlob.compile("/user/stor/*.txt").isAbsolute());
+    }
+
+    @Test
+    public void doubleStarMatchesAnyDepth() {
+        MantaGlob glob = MantaGlob.compile("**/part-*.parquet");
+
+        Assert.assertTrue(glob.matches("part-0.parquet"));
+        Assert.assertTrue(glob.matches("x/part-0.parquet"));
+        Assert.assertTrue(glob.matches("x/y/z/part-12.parquet"));
+        Assert.assertFalse(glob.matches("x/y/part-12.csv"));
+        Assert.assertFalse(glob.matches("x/part-1.parquet/y"));
+    }
+
+    @Test
+    public void singleStarStaysInSegment() {
+        MantaGlob glob = MantaGlob.compile("a/*.txt");
+
+        Assert.assertTrue(glob.matches("a/b.txt"));
+        Assert.assertFalse(glob.matches("a/b/c.txt"));
+        Assert.assertFalse(glob.matches("b.txt"));
+    }
+
+    @Test
+    public void supportsClassesGroupsAndEscapes() {
+        Assert.assertTrue(MantaGlob.compile("file[0-9].{csv,tsv}").matches("file3.tsv"));
+        Assert.assertFalse(MantaGlob.compile("file[!0-9].csv").matches("file3.csv"));
+        Assert.assertTrue(MantaGlob.compile("file?.c").matches("fileA.c"));
+        Assert.assertTrue(MantaGlob.compile("a\\*b").matches("a*b"));
+        Assert.assertFalse(MantaGlob.compile("a\\*b").matches("axb"));
+        Assert.assertTrue(MantaGlob.compile("a+b(c).txt").matches("a+b(c).txt"));
+    }
+
+    @Test
+    public void prunesDirectoriesThatCannotMatch() {
+        MantaGlob glob = MantaGlob.compile("logs/2017-*/*.gz");
+        long state = glob.prefixState();
+
+        Assert.assertEquals(glob.step(state, "2016-01"), 0L);
+
+        long month = glob.step(state, "2017-01");
+        Assert.assertTrue(glob.canMatchDeeper(month));
+        Assert.assertFalse(glob.isAccepting(month));
+
+        long file = glob.step(month, "a.gz");
+        Assert.assertTrue(glob.isAccepting(file));
+        Assert.assertFalse(glob.canMatchDeeper(file));
+    }
+
+    @Test
+    public void standardPatternsMatchLikeDefaultFileSystem() {
+        String[] patterns = { "**/part-*.parquet", "a/**", "**/b/**", "a**b", "**.parquet",
+                "a/**.java", "x**y**z", "*/b", "/*", "/**", "**/**", "a/**/b/**/c",
+                "{a,x}**", "part-**", "***", "a/***/b", "/", "a/", "", "a//b", "[*]**",
+                "**", "*", "/a/**/c", "a\\**b", "*{b,c}**/c" };
+        String[] paths = { "", "/", "a", "/a", "a/b", "a/b/c", "/a/b", "/a/b/c",
+                "x/part-0.parquet", "part-1.parquet", "/part-1.parquet", "a/x/b/y/c",
+                "ab", "a/b/ab", "axb", "ax/yb", "xyz", "x/y/z", "xay/z", "a/c.java",
+                "a/b/c.java", "*", "b", "*x/y", "a*/b", "a/b/b/c", "ab/c" };
+
+        for (String pattern : patterns) {
+            PathMatcher expected = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            MantaGlob actual = MantaGlob.compileStandard(pattern);
+
+            for (String path : paths) {
+                Assert.assertEquals(actual.matches(path), expected.matches(Paths.get(path)),
+                        String.format("pattern %s, path %s", pattern, path));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = PatternSyntaxException.class)
+    public void rejectsDoubleStarInGroupOfStandardPattern() {
+        MantaGlob.compileStandard("{a**,b}");
+    }
+
+    @Test(expectedExceptions = PatternSyntaxException.class)
+    public void rejectsSeparatorInGroup() {
+        MantaGlob.compile("{a/b,c}");
+    }
+
+    @Test(expectedExceptions = PatternSyntaxException.class)
+    public void rejectsUnclosedBracket() {
+        MantaGlob.compile("a/[bc");
+    }
+}
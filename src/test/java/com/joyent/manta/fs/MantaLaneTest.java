@@ -0,0 +1,160 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.fs.driver.BandwidthLimiter;
+import com.joyent.manta.fs.driver.FixedConcurrencyLimit;
+import com.joyent.manta.fs.driver.MantaConcurrencyLimit.Outcome;
+import com.joyent.manta.fs.driver.MantaLane;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class MantaLaneTest {
+    @Test
+    public void scopeRestoresPreviousLane() {
+        Assert.assertEquals(MantaLane.current(), MantaLane.NORMAL);
+        Assert.assertEquals(MantaLane.currentOr(MantaLane.BULK), MantaLane.BULK);
+
+        try (MantaLane.Scope outer = MantaLane.BULK.enter()) {
+            Assert.assertEquals(MantaLane.current(), MantaLane.BULK);
+
+            try (MantaLane.Scope inner = MantaLane.INTERACTIVE.enter()) {
+                Assert.assertEquals(MantaLane.current(), MantaLane.INTERACTIVE);
+                Assert.assertEquals(MantaLane.currentOr(MantaLane.BULK), MantaLane.INTERACTIVE);
+            }
+
+            Assert.assertEquals(MantaLane.current(), MantaLane.BULK);
+        }
+
+        Assert.assertEquals(MantaLane.current(), MantaLane.NORMAL);
+    }
+
+    @Test
+    public void laneIsTakenFromOptions() {
+        Assert.assertEquals(MantaLane.from(Arrays.asList(
+                StandardCopyOption.REPLACE_EXISTING, MantaLane.INTERACTIVE.option())),
+                MantaLane.INTERACTIVE);
+        Assert.assertEquals(MantaLane.from(Collections.singletonList(
+                StandardCopyOption.REPLACE_EXISTING)), MantaLane.NORMAL);
+    }
+
+    @Test
+    public void waitersAreAdmittedByWeight() throws InterruptedException {
+        final FixedConcurrencyLimit limit = new FixedConcurrencyLimit(1);
+        final List<MantaLane> admitted = Collections.synchronizedList(new ArrayList<>());
+        final List<Thread> threads = new ArrayList<>();
+
+        // Holding the only permit queues everyone else
+        limit.acquire(MantaLane.NORMAL);
+
+        for (int i = 0; i < 8; i++) {
+            for (MantaLane lane : Arrays.asList(MantaLane.BULK, MantaLane.INTERACTIVE)) {
+                final Thread thread = new Thread(() -> {
+                    try {
+                        limit.acquire(lane);
+                        admitted.add(lane);
+                        limit.release(Outcome.SUCCESS, -1L);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+        }
+
+        while (limit.getQueueLength() < threads.size()) {
+            Thread.sleep(5L);
+        }
+
+        limit.release(Outcome.SUCCESS, -1L);
+
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10L));
+        }
+
+        Assert.assertEquals(admitted.size(), threads.size());
+
+        // Interactive has eight times the weight of bulk
+        final List<MantaLane> first = admitted.subList(0, 8);
+        Assert.assertTrue(Collections.frequency(first, MantaLane.INTERACTIVE) >= 7,
+                "Admission order: " + admitted);
+    }
+
+    @Test
+    public void interruptedHeadLeavesTheQueue() throws InterruptedException {
+        final FixedConcurrencyLimit limit = new FixedConcurrencyLimit(1);
+        final List<String> admitted = Collections.synchronizedList(new ArrayList<>());
+
+        limit.acquire(MantaLane.NORMAL);
+
+        final Thread head = new Thread(() -> {
+            try {
+                limit.acquire(MantaLane.NORMAL);
+                admitted.add("head");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        head.start();
+
+        while (limit.getQueueLength() < 1) {
+            Thread.sleep(5L);
+        }
+
+        final Thread next = new Thread(() -> {
+            try {
+                limit.acquire(MantaLane.NORMAL);
+                admitted.add("next");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        next.start();
+
+        while (limit.getQueueLength() < 2) {
+            Thread.sleep(5L);
+        }
+
+        head.interrupt();
+        head.join(TimeUnit.SECONDS.toMillis(10L));
+        Assert.assertEquals(limit.getQueueLength(), 1);
+
+        // Only the new head is signalled, which must be the second waiter
+        limit.release(Outcome.SUCCESS, -1L);
+        next.join(TimeUnit.SECONDS.toMillis(10L));
+
+        Assert.assertEquals(admitted, Collections.singletonList("next"));
+        Assert.assertEquals(limit.getInFlight(), 1);
+        Assert.assertEquals(limit.getQueueLength(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsZeroWeight() {
+        new FixedConcurrencyLimit(1, Collections.singletonMap(MantaLane.BULK, 0));
+    }
+
+    @Test
+    public void bandwidthIsCapped() throws IOException {
+        final BandwidthLimiter limiter = new BandwidthLimiter(100_000L);
+        final long start = System.nanoTime();
+
+        // The first second of bandwidth is available as a burst
+        try (InputStream in = limiter.throttle(new ByteArrayInputStream(new byte[250_000]))) {
+            Assert.assertEquals(IOUtils.copy(in, new NullOutputStream()), 250_000);
+        }
+
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue(elapsed >= 1_400L, "Took " + elapsed + "ms");
+    }
+}
@@ -0,0 +1,173 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.com.google.api.client.http.HttpHeaders;
+import com.joyent.manta.com.google.api.client.http.HttpResponseException;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.fs.driver.ExecutionMode;
+import com.joyent.manta.fs.driver.LatencyHistogram;
+import com.joyent.manta.fs.driver.LatencySummary;
+import com.joyent.manta.fs.driver.MantaClientSource;
+import com.joyent.manta.fs.driver.MantaExecutors;
+import com.joyent.manta.fs.driver.MantaFileSystemMonitor;
+import com.joyent.manta.fs.driver.MantaLane;
+import com.joyent.manta.fs.driver.MantaOperation;
+import com.joyent.manta.fs.driver.MantaRequestDispatcher;
+import com.joyent.manta.fs.driver.MantaRequestHedger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.ConnectException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class MantaMetricsTest {
+    private static final long MICROSECOND = TimeUnit.MICROSECONDS.toNanos(1L);
+
+    private static MantaRequestDispatcher newDispatcher() {
+        return new MantaRequestDispatcher(MantaClientSource.of((MantaClient) null), 4);
+    }
+
+    @Test
+    public void histogramPercentilesAreWithinBucketPrecision() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * MICROSECOND);
+        }
+
+        final LatencySummary summary = histogram.summarize();
+
+        Assert.assertEquals(summary.getCount(), 10_000L);
+        Assert.assertEquals(summary.getMax(), 10_000L);
+        assertClose(summary.getMean(), 5_000L);
+        assertClose(summary.getP50(), 5_000L);
+        assertClose(summary.getP90(), 9_000L);
+        assertClose(summary.getP99(), 9_900L);
+        assertClose(summary.getP999(), 9_990L);
+    }
+
+    private static void assertClose(final long actual, final long expected) {
+        // Buckets with 5 sub-bucket bits are at most 1/32 wide
+        Assert.assertTrue(Math.abs(actual - expected) <= expected / 32 + 1,
+                "Expected about " + expected + " but was " + actual);
+    }
+
+    @Test
+    public void histogramKeepsOutliers() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0L);
+        histogram.record(TimeUnit.HOURS.toNanos(1L));
+
+        final LatencySummary summary = histogram.summarize();
+
+        Assert.assertEquals(summary.getCount(), 2L);
+        Assert.assertEquals(summary.getMax(), TimeUnit.HOURS.toMicros(1L));
+        Assert.assertTrue(summary.getP999() >= TimeUnit.HOURS.toMicros(1L) * 31 / 32);
+    }
+
+    @Test
+    public void dispatcherRecordsRequestsAndErrors() throws Exception {
+        final MantaRequestDispatcher dispatcher = newDispatcher();
+
+        for (int i = 0; i < 3; i++) {
+            dispatcher.execute(MantaOperation.HEAD, "/user/stor/ok", client -> true);
+        }
+
+        try {
+            dispatcher.execute(MantaOperation.GET, "/user/stor/missing", client -> {
+                throw new MantaClientHttpResponseException(new HttpResponseException.Builder(
+                        404, "Not Found", new HttpHeaders()).build());
+            });
+            Assert.fail("Expected the error to be rethrown");
+        } catch (MantaClientHttpResponseException e) {
+            Assert.assertEquals(e.getStatusCode(), 404);
+        }
+
+        try {
+            dispatcher.execute(MantaOperation.GET, "/user/stor/down", client -> {
+                throw new ConnectException("Connection refused");
+            });
+            Assert.fail("Expected the error to be rethrown");
+        } catch (ConnectException e) {
+            // expected
+        }
+
+        Assert.assertEquals(dispatcher.getMetrics().getRequestLatency(MantaOperation.HEAD).getCount(), 3L);
+        Assert.assertEquals(dispatcher.getMetrics().getRequestLatency(MantaOperation.GET).getCount(), 2L);
+        Assert.assertEquals(dispatcher.getMetrics().getStatusCount(404), 1L);
+        Assert.assertEquals(dispatcher.getMetrics().getConnectionErrors(), 1L);
+    }
+
+    @Test
+    public void throttledStreamsCountBytes() throws IOException {
+        final MantaRequestDispatcher dispatcher = newDispatcher();
+        final byte[] content = new byte[10_000];
+
+        try (InputStream in = dispatcher.throttle(MantaLane.NORMAL,
+                new ByteArrayInputStream(content))) {
+            Assert.assertEquals(in.read(), 0);
+            Assert.assertEquals(in.read(new byte[4_096]), 4_096);
+            Assert.assertEquals(in.skip(1_000L), 1_000L);
+        }
+
+        try (OutputStream out = dispatcher.throttle(MantaLane.NORMAL,
+                new ByteArrayOutputStream())) {
+            out.write(content, 0, 2_000);
+            out.write(1);
+        }
+
+        try (InputStream upload = dispatcher.throttleUpload(MantaLane.BULK,
+                new ByteArrayInputStream(content))) {
+            Assert.assertEquals(upload.read(new byte[500]), 500);
+        }
+
+        Assert.assertEquals(dispatcher.getMetrics().getBytesRead(), 4_097L);
+        Assert.assertEquals(dispatcher.getMetrics().getBytesWritten(), 2_501L);
+    }
+
+    @Test
+    public void monitorIsRegisteredOverJmx() throws Exception {
+        final MantaRequestDispatcher dispatcher = newDispatcher();
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try (MantaExecutors executors = new MantaExecutors(ExecutionMode.PLATFORM, 1)) {
+            final MantaFileSystemMonitor monitor = new MantaFileSystemMonitor(dispatcher,
+                    new MantaRequestHedger(dispatcher, executors));
+            final MantaFileSystemMonitor other = new MantaFileSystemMonitor(dispatcher,
+                    new MantaRequestHedger(dispatcher, executors));
+            dispatcher.execute(MantaOperation.HEAD, "/user/stor/ok", client -> true);
+
+            final ObjectName name = monitor.register("manta://user@example.com");
+            final ObjectName otherName = other.register("manta://user@example.com");
+
+            try {
+                Assert.assertNotEquals(otherName, name);
+                Assert.assertTrue(server.isRegistered(name));
+                Assert.assertTrue(server.isRegistered(otherName));
+                Assert.assertEquals(server.getAttribute(name, "CircuitState"), "CLOSED");
+                Assert.assertEquals(server.getAttribute(name, "InFlight"), 0);
+
+                final Map<String, LatencySummary> latencies = monitor.getRequestLatencies();
+                Assert.assertEquals(latencies.keySet().toString(), "[HEAD]");
+                Assert.assertEquals(latencies.get("HEAD").getCount(), 1L);
+                Assert.assertNotNull(server.getAttribute(name, "RequestLatencies"));
+            } finally {
+                monitor.unregister();
+                other.unregister();
+            }
+
+            Assert.assertFalse(server.isRegistered(name));
+            Assert.assertFalse(server.isRegistered(otherName));
+            Assert.assertNull(monitor.getObjectName());
+        }
+    }
+}
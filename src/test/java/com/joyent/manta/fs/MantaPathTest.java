@@ -2,6 +2,8 @@ package com.joyent.manta.fs;
 
 import com.joyent.manta.fs.config.ConfigContext;
 import com.joyent.manta.fs.config.SystemSettingsConfigContext;
+import com.joyent.manta.fs.driver.MantaPath;
+import com.joyent.manta.fs.driver.MantaPathMatcher;
 import com.joyent.manta.fs.provider.MantaFileSystemProvider;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -10,12 +12,18 @@ import org.testng.annotations.Test;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
 import java.net.URI;
 import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
 import java.nio.file.spi.FileSystemProvider;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 public class MantaPathTest {
     private FileSystemProvider provider = new MantaFileSystemProvider();
@@ -99,6 +107,30 @@ public class MantaPathTest {
         Assert.assertNotEquals(path1, path2);
     }
 
+    @Test
+    public void listingEntriesCompareLikeTheirStrings() throws Exception {
+        // Entries of a listing are compact paths that reference their parent
+        final Method resolveChild = MantaPath.class.getDeclaredMethod("resolveChild", String.class);
+        resolveChild.setAccessible(true);
+
+        final Path parent = fileSystem.getPath("/user/stor/dir");
+        final String[] names = {"a", "a-", "a.b", "ab", "b", "B"};
+
+        for (final String first : names) {
+            final Path entry = (Path) resolveChild.invoke(parent, first);
+
+            for (final String second : names) {
+                final Path sibling = (Path) resolveChild.invoke(parent, second);
+                final Path flat = fileSystem.getPath("/user/stor/dir/" + second);
+                final int expected = entry.toString().compareTo(flat.toString());
+
+                Assert.assertEquals(entry.compareTo(sibling), expected);
+                Assert.assertEquals(entry.compareTo(flat), expected);
+                Assert.assertEquals(entry.equals(sibling), first.equals(second));
+            }
+        }
+    }
+
     @Test
     public void compareToAnAssortmentOfEquivalentPaths() {
         Path original = fileSystem.getPath("/user/stor/a/b/c");
@@ -146,4 +178,97 @@ public class MantaPathTest {
         Assert.assertNotEquals(path, original,
                 String.format("Original: [%s], Comparison: [%s]", original, path));
     }
+
+    @Test
+    public void fileNameKeepsExtension() {
+        Path path = fileSystem.getPath("/user/stor/data.tar.gz");
+
+        Assert.assertEquals(path.getFileName().toString(), "data.tar.gz");
+        Assert.assertEquals(path.getNameCount(), 3);
+        Assert.assertEquals(path.getName(2).toString(), "data.tar.gz");
+    }
+
+    @Test
+    public void parentOfTopLevelAbsolutePathIsRoot() {
+        Path path = fileSystem.getPath("/user");
+
+        Assert.assertEquals(path.getParent(), fileSystem.getPath("/"));
+        Assert.assertNull(path.getParent().getParent());
+    }
+
+    @Test
+    public void derivedPathsAreNormalized() {
+        Path path = fileSystem.getPath("/user", "stor/../stor", "a");
+
+        Assert.assertEquals(path.getParent().toString(), "/user/stor");
+        Assert.assertEquals(path.subpath(0, 2).toString(), "user/stor");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void cantGetNameBeyondNameCount() {
+        fileSystem.getPath("/user/stor").getName(2);
+    }
+
+    @Test
+    public void equivalentPathsHaveSameHashCode() {
+        Path original = fileSystem.getPath("/user/stor/a/b/c");
+        Path path = fileSystem.getPath("//user/stor/a/b/c/");
+
+        Assert.assertEquals(path, original);
+        Assert.assertEquals(path.hashCode(), original.hashCode());
+
+        Set<Path> paths = new HashSet<>();
+        paths.add(original);
+        Assert.assertTrue(paths.contains(path));
+    }
+
+    @Test
+    public void homeDirectoryAliasEqualsExpandedPath() {
+        ConfigContext config = new SystemSettingsConfigContext();
+        Path aliased = fileSystem.getPath("~~/stor/a");
+        Path expanded = fileSystem.getPath(String.format("/%s/stor/a", config.getMantaUser()));
+
+        Assert.assertEquals(aliased, expanded);
+        Assert.assertEquals(aliased.hashCode(), expanded.hashCode());
+        Assert.assertEquals(aliased.compareTo(expanded), 0);
+    }
+
+    @Test
+    public void globMatcherMatchesLikeDefaultFileSystem() {
+        String[] patterns = { "*.txt", "**/stor/*.txt", "/user/stor/*", "/user/*/*",
+                "**", "a/{b,c}/d", "a/[!x]?/*", "*", "**/*.java", "**.java", "/home/**",
+                "{a/b,c}", "a/**/d", "a//b", "a/", "/", "a\\*b", "a/**", "**/b/**",
+                "a**d", "/**", "*/user", "/*", "**/**", "{a,b}**", "**/part-*.parquet" };
+        String[] paths = { "a.txt", "/user/stor/a.txt", "b/c/a.txt", "/user/stor",
+                "a/b/d", "a/c/d", "a/xy/d", "a/zy/d", "/user", "a", "Foo.java",
+                "src/Foo.java", "/Foo.java", "/home", "/home/x", "/home/x/y", "a/b",
+                "c", "a/d", "/", "a*b", "/a/b/d", "a/b/part-0.parquet", "part-1.parquet" };
+
+        for (String pattern : patterns) {
+            PathMatcher expected = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            PathMatcher actual = fileSystem.getPathMatcher("glob:" + pattern);
+
+            for (String path : paths) {
+                Assert.assertEquals(actual.matches(fileSystem.getPath(path)),
+                        expected.matches(Paths.get(path)),
+                        String.format("pattern %s, path %s", pattern, path));
+            }
+        }
+    }
+
+    @Test
+    public void globMatcherMatchesResolvedPaths() {
+        PathMatcher matcher = fileSystem.getPathMatcher("glob:/user/stor/**/part-*.parquet");
+        Path dir = fileSystem.getPath("/user/stor/2017/01");
+
+        Assert.assertTrue(matcher.matches(dir.resolve("part-0.parquet")));
+        Assert.assertFalse(matcher.matches(dir.resolve("_SUCCESS")));
+        Assert.assertFalse(matcher.matches(fileSystem.getPath("user/stor/part-0.parquet")));
+
+        PathMatcher anyDepth = fileSystem.getPathMatcher("glob:**/part-*.parquet");
+
+        Assert.assertTrue(anyDepth instanceof MantaPathMatcher);
+        Assert.assertTrue(anyDepth.matches(dir.resolve("part-0.parquet")));
+        Assert.assertFalse(anyDepth.matches(fileSystem.getPath("part-0.parquet")));
+    }
 }
@@ -0,0 +1,178 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.com.google.api.client.http.HttpHeaders;
+import com.joyent.manta.com.google.api.client.http.HttpResponseException;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.fs.driver.AimdConcurrencyLimit;
+import com.joyent.manta.fs.driver.ExecutionMode;
+import com.joyent.manta.fs.driver.MantaClientSource;
+import com.joyent.manta.fs.driver.MantaExecutors;
+import com.joyent.manta.fs.driver.MantaNioSettings;
+import com.joyent.manta.fs.driver.MantaLane;
+import com.joyent.manta.fs.driver.MantaOperation;
+import com.joyent.manta.fs.driver.MantaRequestDispatcher;
+import com.joyent.manta.fs.driver.MantaThrottledException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+public class MantaRequestDispatcherTest {
+    @Test
+    public void limitsRequestsInFlight() throws Exception {
+        final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(
+                MantaClientSource.of((MantaClient) null), 3);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger highest = new AtomicInteger();
+
+        try (MantaExecutors executors = new MantaExecutors(ExecutionMode.VIRTUAL, 4)) {
+            final ExecutorService workers = executors.getWorkers();
+            final List<Future<Integer>> results = new ArrayList<>();
+
+            for (int i = 0; i < 32; i++) {
+                final int request = i;
+
+                results.add(workers.submit(() -> dispatcher.execute(
+                        MantaOperation.HEAD, "/user/stor/" + request, client -> {
+                            highest.accumulateAndGet(running.incrementAndGet(), Math::max);
+                            LockSupport.parkNanos(5_000_000L);
+                            running.decrementAndGet();
+                            return request;
+                        })));
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                Assert.assertEquals(results.get(i).get().intValue(), i);
+            }
+        }
+
+        Assert.assertEquals(highest.get(), 3);
+        Assert.assertEquals(dispatcher.getInFlight(), 0);
+    }
+
+    @Test
+    public void releasesPermitWhenRequestFails() throws Exception {
+        final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(
+                MantaClientSource.of((MantaClient) null), 1);
+
+        try {
+            dispatcher.execute(MantaOperation.DELETE, "/user/stor/a", client -> {
+                throw new IOException("failed");
+            });
+            Assert.fail("Expected the request to fail");
+        } catch (IOException e) {
+            Assert.assertEquals(e.getMessage(), "failed");
+        }
+
+        Assert.assertEquals(dispatcher.getInFlight(), 0);
+    }
+
+    @Test
+    public void throttlingLowersLimitAndIsReportedConsistently() throws Exception {
+        final AimdConcurrencyLimit limit = new AimdConcurrencyLimit(1, 8);
+        final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(
+                MantaClientSource.of((MantaClient) null), limit);
+
+        try {
+            dispatcher.execute(MantaOperation.HEAD, "/user/stor/a", client -> {
+                throw new MantaClientHttpResponseException(new HttpResponseException.Builder(
+                        503, "Service Unavailable", new HttpHeaders()).build());
+            });
+            Assert.fail("Expected the request to be throttled");
+        } catch (MantaThrottledException e) {
+            Assert.assertEquals(e.getStatusCode(), 503);
+        }
+
+        Assert.assertEquals(limit.getLimit(), 4);
+        Assert.assertEquals(dispatcher.getInFlight(), 0);
+    }
+
+    @Test
+    public void statusIsReadFromThrottledAndErrorResponses() throws Exception {
+        final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(
+                MantaClientSource.of((MantaClient) null), 4);
+
+        for (final int status : new int[] {429, 503, 404}) {
+            try {
+                dispatcher.execute(MantaOperation.GET, "/user/stor/a", client -> {
+                    throw new MantaClientHttpResponseException(new HttpResponseException.Builder(
+                            status, "Error", new HttpHeaders()).build());
+                });
+                Assert.fail("Expected the request to fail");
+            } catch (IOException e) {
+                Assert.assertEquals(e instanceof MantaThrottledException, status != 404);
+                Assert.assertEquals(MantaRequestDispatcher.statusOf(e), status);
+            }
+        }
+
+        Assert.assertEquals(MantaRequestDispatcher.statusOf(new IOException("Reset")), 0);
+    }
+
+    @Test
+    public void untimedRequestsAreNotLatencySamples() throws Exception {
+        final AimdConcurrencyLimit limit = new AimdConcurrencyLimit(1, 8);
+        final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(
+                MantaClientSource.of((MantaClient) null), limit);
+
+        dispatcher.executeUntimed(MantaOperation.DELETE, "/user/stor/tree",
+                MantaLane.BULK, client -> {
+                    LockSupport.parkNanos(20_000_000L);
+                    return null;
+                });
+
+        Assert.assertEquals(limit.getSmoothedLatencyNanos(), -1L);
+        Assert.assertEquals(dispatcher.getInFlight(), 0);
+
+        dispatcher.execute(MantaOperation.HEAD, "/user/stor/a", client -> null);
+        Assert.assertTrue(limit.getSmoothedLatencyNanos() >= 0L);
+    }
+
+    @Test
+    public void virtualModeFallsBackWhenUnsupported() {
+        try (MantaExecutors executors = new MantaExecutors(ExecutionMode.VIRTUAL, 1)) {
+            final ExecutionMode expected = ExecutionMode.VIRTUAL.isSupported() ?
+                    ExecutionMode.VIRTUAL : ExecutionMode.PLATFORM;
+            Assert.assertEquals(executors.getMode(), expected);
+        }
+    }
+
+    @Test
+    public void executorsRejectUseAfterClose() {
+        final MantaExecutors executors = new MantaExecutors(ExecutionMode.PLATFORM, 1);
+        final ExecutorService workers = executors.getWorkers();
+        executors.close();
+
+        Assert.assertTrue(workers.isShutdown());
+
+        try {
+            executors.getAsync();
+            Assert.fail("Expected closed executors to be rejected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void parsesSettings() {
+        final MantaNioSettings settings = new MantaNioSettings(Collections.singletonMap(
+                MantaNioSettings.EXECUTION_MODE_KEY, " virtual "));
+
+        Assert.assertEquals(settings.getExecutionMode(), ExecutionMode.VIRTUAL);
+        Assert.assertEquals(settings.getInt(MantaNioSettings.MAX_IN_FLIGHT_KEY, 7), 7);
+        Assert.assertEquals(MantaNioSettings.defaults().getExecutionMode(), ExecutionMode.PLATFORM);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsUnknownExecutionMode() {
+        new MantaNioSettings(Collections.singletonMap(
+                MantaNioSettings.EXECUTION_MODE_KEY, "fibers")).getExecutionMode();
+    }
+}
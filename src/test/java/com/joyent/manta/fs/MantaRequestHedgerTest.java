@@ -0,0 +1,150 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.fs.driver.ExecutionMode;
+import com.joyent.manta.fs.driver.MantaClientSource;
+import com.joyent.manta.fs.driver.MantaExecutors;
+import com.joyent.manta.fs.driver.MantaOperation;
+import com.joyent.manta.fs.driver.MantaRequestDispatcher;
+import com.joyent.manta.fs.driver.MantaRequestHedger;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MantaRequestHedgerTest {
+    private final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(
+            MantaClientSource.of((MantaClient) null));
+    private MantaExecutors executors;
+
+    @BeforeClass
+    public void setup() {
+        executors = new MantaExecutors(ExecutionMode.PLATFORM, 2);
+    }
+
+    @AfterClass
+    public void cleanUp() {
+        executors.close();
+    }
+
+    private static final class Response implements Closeable {
+        private final int attempt;
+        private volatile boolean closed = false;
+
+        Response(final int attempt) {
+            this.attempt = attempt;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static void warmUp(final MantaRequestHedger hedger,
+                               final MantaOperation operation) throws IOException {
+        for (int i = 0; i < 64; i++) {
+            hedger.execute(operation, "/user/stor/warm", client -> new Response(-1));
+        }
+
+        Assert.assertTrue(hedger.getDelayNanos(operation) >= 0L);
+    }
+
+    @Test
+    public void hedgeWinsAgainstSlowRequest() throws Exception {
+        final MantaRequestHedger hedger = new MantaRequestHedger(dispatcher, executors,
+                true, 50.0, 0L, 1.0);
+        warmUp(hedger, MantaOperation.GET);
+        final long hedged = hedger.getHedged();
+        final long hedgesWon = hedger.getHedgesWon();
+
+        final AtomicInteger attempts = new AtomicInteger();
+        final CountDownLatch slowDone = new CountDownLatch(1);
+        final Response[] slow = new Response[1];
+
+        final long start = System.nanoTime();
+        final Response response = hedger.execute(MantaOperation.GET, "/user/stor/a", client -> {
+            final int attempt = attempts.getAndIncrement();
+
+            if (attempt == 0) {
+                try {
+                    Thread.sleep(2000L);
+                } catch (InterruptedException e) {
+                    // cancelled because it lost
+                }
+
+                slow[0] = new Response(attempt);
+                slowDone.countDown();
+                return slow[0];
+            }
+
+            return new Response(attempt);
+        });
+        final long elapsed = System.nanoTime() - start;
+
+        Assert.assertEquals(response.attempt, 1);
+        Assert.assertTrue(elapsed < TimeUnit.SECONDS.toNanos(1L), "Hedge didn't cut latency");
+        Assert.assertEquals(hedger.getHedged() - hedged, 1L);
+        Assert.assertEquals(hedger.getHedgesWon() - hedgesWon, 1L);
+
+        Assert.assertTrue(slowDone.await(10L, TimeUnit.SECONDS));
+        Thread.sleep(50L);
+        Assert.assertTrue(slow[0].closed, "Losing response wasn't closed");
+        Assert.assertFalse(response.closed);
+    }
+
+    @Test
+    public void budgetCapsHedges() throws Exception {
+        final MantaRequestHedger hedger = new MantaRequestHedger(dispatcher, executors,
+                true, 50.0, 0L, 0.0);
+        warmUp(hedger, MantaOperation.HEAD);
+        final long exhausted = hedger.getBudgetExhausted();
+
+        final Response response = hedger.execute(MantaOperation.HEAD, "/user/stor/b", client -> {
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return new Response(0);
+        });
+
+        Assert.assertEquals(response.attempt, 0);
+        Assert.assertEquals(hedger.getHedged(), 0L);
+        Assert.assertEquals(hedger.getBudgetExhausted() - exhausted, 1L);
+    }
+
+    @Test
+    public void failureIsReportedWhenAllAttemptsFail() throws Exception {
+        final MantaRequestHedger hedger = new MantaRequestHedger(dispatcher, executors,
+                true, 50.0, 0L, 1.0);
+        warmUp(hedger, MantaOperation.GET);
+
+        try {
+            hedger.execute(MantaOperation.GET, "/user/stor/c", client -> {
+                throw new IOException("unavailable");
+            });
+            Assert.fail("Expected the request to fail");
+        } catch (IOException e) {
+            Assert.assertEquals(e.getMessage(), "unavailable");
+        }
+    }
+
+    @Test
+    public void nonIdempotentRequestsAreNotHedged() throws Exception {
+        final MantaRequestHedger hedger = new MantaRequestHedger(dispatcher, executors,
+                true, 50.0, 0L, 1.0);
+
+        hedger.execute(MantaOperation.DELETE, "/user/stor/d", client -> null);
+
+        Assert.assertEquals(hedger.getRequests(), 0L);
+        Assert.assertEquals(hedger.getDelayNanos(MantaOperation.DELETE), -1L);
+    }
+}
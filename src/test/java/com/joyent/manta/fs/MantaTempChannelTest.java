@@ -0,0 +1,143 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.fs.driver.MantaClientSource;
+import com.joyent.manta.fs.driver.MantaRequestDispatcher;
+import com.joyent.manta.fs.driver.MantaTempAsynchronousFileChannel;
+import com.joyent.manta.fs.driver.MantaTempSeekableByteChannel;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MantaTempChannelTest {
+    private static final String PATH = "/user/stor/object";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Source whose requests all fail, counting how many were sent.
+     */
+    private static final class FailingSource implements MantaClientSource {
+        private final AtomicInteger requests = new AtomicInteger();
+
+        @Override
+        public MantaClient getClient() throws IOException {
+            requests.incrementAndGet();
+            throw new IOException("Manta is unreachable");
+        }
+
+        @Override
+        public boolean isCreated() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static Set<Path> tempFiles() throws IOException {
+        final Set<Path> files = new HashSet<>();
+        final Path dir = Paths.get(System.getProperty("java.io.tmpdir"));
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "manta_nio*.tmp")) {
+            stream.forEach(files::add);
+        }
+
+        return files;
+    }
+
+    private static Set<OpenOption> options(final OpenOption... options) {
+        return new HashSet<>(Arrays.asList(options));
+    }
+
+    @Test
+    public void failedOpenDeletesTempFile() throws Exception {
+        final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(new FailingSource());
+        final Set<Path> before = tempFiles();
+
+        try {
+            new MantaTempSeekableByteChannel(PATH, dispatcher, options(StandardOpenOption.WRITE));
+            Assert.fail("Expected the open to fail");
+        } catch (IOException e) {
+            Assert.assertEquals(e.getMessage(), "Manta is unreachable");
+        }
+
+        try {
+            new MantaTempAsynchronousFileChannel(PATH, dispatcher,
+                    options(StandardOpenOption.WRITE), executor);
+            Assert.fail("Expected the open to fail");
+        } catch (IOException e) {
+            Assert.assertEquals(e.getMessage(), "Manta is unreachable");
+        }
+
+        Assert.assertEquals(tempFiles(), before);
+    }
+
+    @Test
+    public void concurrentClosesUploadOnce() throws Exception {
+        final Set<OpenOption> options = options(StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        final Set<Path> before = tempFiles();
+
+        for (int channel = 0; channel < 2; channel++) {
+            final FailingSource source = new FailingSource();
+            final MantaRequestDispatcher dispatcher = new MantaRequestDispatcher(source);
+            final Closeable closeable = channel == 0
+                    ? new MantaTempSeekableByteChannel(PATH, dispatcher, options)
+                    : new MantaTempAsynchronousFileChannel(PATH, dispatcher, options, executor);
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Boolean>> closes = new ArrayList<>();
+
+            for (int i = 0; i < 8; i++) {
+                closes.add(executor.submit(() -> {
+                    start.await();
+
+                    try {
+                        closeable.close();
+                        return false;
+                    } catch (IOException e) {
+                        return true;
+                    }
+                }));
+            }
+
+            start.countDown();
+            int failed = 0;
+
+            for (Future<Boolean> close : closes) {
+                failed += close.get() ? 1 : 0;
+            }
+
+            // Only one call tried to upload, and the others returned at once
+            Assert.assertEquals(source.requests.get(), 1);
+            Assert.assertEquals(failed, 1);
+        }
+
+        Assert.assertEquals(tempFiles(), before);
+    }
+}
@@ -0,0 +1,164 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaHttpHeaders;
+import com.joyent.manta.client.MantaObjectResponse;
+import com.joyent.manta.fs.driver.ParallelRangeInputStream;
+import com.joyent.manta.fs.driver.ResumableInputStream;
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+public class ParallelRangeInputStreamTest {
+    private static final String PATH = "/user/stor/object";
+    private static final byte[] DATA = new byte[100_000];
+    private static final int CHUNK = 7_000;
+
+    static {
+        new Random(42L).nextBytes(DATA);
+    }
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Serves the object from an offset, like the body of a ranged GET.
+     */
+    private static InputStream range(final long offset) {
+        return new ByteArrayInputStream(DATA, (int) offset, DATA.length - (int) offset);
+    }
+
+    private static MantaObjectResponse head(final String etag) {
+        final MantaHttpHeaders headers = new MantaHttpHeaders();
+        headers.setETag(etag);
+        headers.setContentLength((long) DATA.length);
+        return new MantaObjectResponse(PATH, headers);
+    }
+
+    private static void await(final IntSupplier count, final int expected) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+
+        while (count.getAsInt() < expected && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+
+        Assert.assertEquals(count.getAsInt(), expected);
+    }
+
+    @Test
+    public void reassemblesChunksInOrder() throws IOException {
+        // Later chunks arrive first
+        try (InputStream in = new ParallelRangeInputStream(offset -> {
+            try {
+                Thread.sleep(Math.max(0L, 10L - offset / CHUNK));
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+
+            return range(offset);
+        }, PATH, DATA.length, CHUNK, 6, executor)) {
+            Assert.assertEquals(IOUtils.toByteArray(in), DATA);
+        }
+    }
+
+    @Test
+    public void requestsAtMostTheWindowAhead() throws IOException, InterruptedException {
+        final AtomicInteger opens = new AtomicInteger();
+
+        try (InputStream in = new ParallelRangeInputStream(offset -> {
+            opens.incrementAndGet();
+            return range(offset);
+        }, PATH, DATA.length, CHUNK, 3, executor)) {
+            await(opens::get, 3);
+            Thread.sleep(50L);
+            Assert.assertEquals(opens.get(), 3);
+
+            // Moving on to the first chunk makes room for one more
+            Assert.assertEquals(in.read(), DATA[0] & 0xff);
+            await(opens::get, 4);
+            Thread.sleep(50L);
+            Assert.assertEquals(opens.get(), 4);
+
+            final byte[] rest = IOUtils.toByteArray(in);
+            Assert.assertEquals(rest.length, DATA.length - 1);
+        }
+
+        Assert.assertEquals(opens.get(), (DATA.length + CHUNK - 1) / CHUNK);
+    }
+
+    @Test
+    public void objectReplacedMidCopyIsDetected() throws IOException {
+        final int replacedAt = 5 * CHUNK;
+
+        try (InputStream in = new ParallelRangeInputStream(offset ->
+                ResumableInputStream.pinned(range(offset), PATH, "etag-1",
+                        () -> head(offset < replacedAt ? "etag-1" : "etag-2")),
+                PATH, DATA.length, CHUNK, 2, executor)) {
+            final byte[] buffer = new byte[DATA.length];
+            int read = 0;
+
+            try {
+                int count;
+
+                while ((count = in.read(buffer, read, buffer.length - read)) > 0) {
+                    read += count;
+                }
+
+                Assert.fail("Expected the read to fail");
+            } catch (ResumableInputStream.ObjectChangedException e) {
+                // Only chunks of the first version were handed out
+                Assert.assertEquals(read, replacedAt);
+            }
+        }
+    }
+
+    @Test
+    public void closeCancelsPendingChunks() throws IOException {
+        final AtomicInteger opens = new AtomicInteger();
+        final AtomicInteger interrupted = new AtomicInteger();
+
+        final InputStream in = new ParallelRangeInputStream(offset -> {
+            opens.incrementAndGet();
+
+            if (offset > 0L) {
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(30L));
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                    throw new InterruptedIOException();
+                }
+            }
+
+            return range(offset);
+        }, PATH, DATA.length, CHUNK, 3, executor);
+
+        Assert.assertEquals(in.read(), DATA[0] & 0xff);
+        await(opens::get, 4);
+
+        in.close();
+        await(interrupted::get, 3);
+        Assert.assertEquals(opens.get(), 4);
+
+        try {
+            in.read();
+            Assert.fail("Expected the stream to be closed");
+        } catch (IOException e) {
+            Assert.assertEquals(e.getMessage(), "Stream is closed");
+        }
+    }
+}
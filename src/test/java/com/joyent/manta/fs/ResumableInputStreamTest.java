@@ -0,0 +1,272 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.com.google.api.client.http.HttpHeaders;
+import com.joyent.manta.com.google.api.client.http.HttpResponseException;
+import com.joyent.manta.client.MantaHttpHeaders;
+import com.joyent.manta.client.MantaObjectResponse;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.fs.driver.ResumableInputStream;
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResumableInputStreamTest {
+    private static final byte[] DATA = new byte[100_000];
+
+    static {
+        new Random(42L).nextBytes(DATA);
+    }
+
+    /**
+     * Serves the object from an offset, failing after a number of bytes.
+     */
+    private static final class FlakyStream extends InputStream {
+        private final InputStream in;
+        private int remaining;
+        private final boolean truncate;
+
+        FlakyStream(final long offset, final int failAfter, final boolean truncate) {
+            this.in = new ByteArrayInputStream(DATA, (int) offset, DATA.length - (int) offset);
+            this.remaining = failAfter;
+            this.truncate = truncate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (remaining == 0) {
+                if (truncate) {
+                    return -1;
+                }
+
+                throw new IOException("Connection reset");
+            }
+
+            final int count = in.read(b, off, Math.min(len, remaining));
+
+            if (count > 0) {
+                remaining -= count;
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * Only sends its request on the first read, like a ranged GET.
+     */
+    private static final class LazyStream extends InputStream {
+        private final long offset;
+        private final AtomicBoolean sent;
+        private final String[] version;
+        private InputStream in;
+
+        LazyStream(final long offset, final AtomicBoolean sent, final String[] version) {
+            this.offset = offset;
+            this.sent = sent;
+            this.version = version;
+        }
+
+        @Override
+        public int read() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (in == null) {
+                sent.set(true);
+
+                if (!version[0].equals("etag-1")) {
+                    throw new IOException("Served another version");
+                }
+
+                in = new ByteArrayInputStream(DATA, (int) offset, DATA.length - (int) offset);
+            }
+
+            return in.read(b, off, len);
+        }
+    }
+
+    private static MantaObjectResponse head(final String etag) {
+        final MantaHttpHeaders headers = new MantaHttpHeaders();
+        headers.setETag(etag);
+        headers.setContentLength((long) DATA.length);
+        return new MantaObjectResponse("/user/stor/object", headers);
+    }
+
+    @Test
+    public void rangedGetIsSentBeforeTheHead() throws IOException {
+        final AtomicBoolean sent = new AtomicBoolean();
+        final String[] version = {"etag-1"};
+
+        try (ResumableInputStream in = new ResumableInputStream(offset ->
+                ResumableInputStream.ranged(new LazyStream(offset, sent, version), () -> {
+                    Assert.assertTrue(sent.get(), "HEAD sent before the GET");
+                    return head(version[0]);
+                }), "/user/stor/object", 50_000L, 0, 0L)) {
+            Assert.assertTrue(sent.get());
+            Assert.assertEquals(in.getEtag(), "etag-1");
+
+            final byte[] rest = IOUtils.toByteArray(in);
+            Assert.assertEquals(rest.length, 50_000);
+            Assert.assertEquals(rest[0], DATA[50_000]);
+        }
+    }
+
+    @Test
+    public void objectReplacedAfterTheRangedGetIsDetected() throws IOException {
+        final AtomicBoolean sent = new AtomicBoolean();
+        final String[] version = {"etag-1"};
+        final AtomicInteger opens = new AtomicInteger();
+
+        try (ResumableInputStream in = new ResumableInputStream(offset -> {
+            if (opens.incrementAndGet() == 1) {
+                return new ResumableInputStream.Part(new FlakyStream(offset, 30_000, false),
+                        "etag-1", (long) DATA.length);
+            }
+
+            return ResumableInputStream.ranged(new LazyStream(offset, sent, version), () -> {
+                // The object is replaced between the GET and the HEAD
+                version[0] = "etag-2";
+                return head(version[0]);
+            });
+        }, "/user/stor/object", 0L, 3, 0L)) {
+            IOUtils.toByteArray(in);
+            Assert.fail("Expected the read to fail");
+        } catch (ResumableInputStream.ObjectChangedException e) {
+            Assert.assertTrue(sent.get());
+        }
+
+        Assert.assertEquals(opens.get(), 2);
+    }
+
+    @Test
+    public void resumesAfterConnectionFailures() throws IOException {
+        final AtomicInteger opens = new AtomicInteger();
+
+        try (ResumableInputStream in = new ResumableInputStream(offset -> {
+            opens.incrementAndGet();
+            return new ResumableInputStream.Part(new FlakyStream(offset, 30_000, false),
+                    "etag-1", (long) DATA.length);
+        }, "/user/stor/object", 0L, 2, 0L)) {
+            Assert.assertEquals(IOUtils.toByteArray(in), DATA);
+            Assert.assertEquals(in.getResumes(), 3L);
+            Assert.assertEquals(in.getOffset(), (long) DATA.length);
+        }
+
+        Assert.assertEquals(opens.get(), 4);
+    }
+
+    @Test
+    public void resumesWhenConnectionEndsEarly() throws IOException {
+        try (ResumableInputStream in = new ResumableInputStream(offset ->
+                new ResumableInputStream.Part(new FlakyStream(offset, 60_000, true),
+                        "etag-1", (long) DATA.length),
+                "/user/stor/object", 0L, 1, 0L)) {
+            Assert.assertEquals(IOUtils.toByteArray(in), DATA);
+            Assert.assertEquals(in.getResumes(), 1L);
+        }
+    }
+
+    @Test
+    public void startsFromOffset() throws IOException {
+        try (ResumableInputStream in = new ResumableInputStream(offset ->
+                new ResumableInputStream.Part(new FlakyStream(offset, 10_000, false),
+                        "etag-1", (long) DATA.length),
+                "/user/stor/object", 50_000L, 3, 0L)) {
+            final byte[] rest = IOUtils.toByteArray(in);
+            Assert.assertEquals(rest.length, 50_000);
+            Assert.assertEquals(rest[0], DATA[50_000]);
+        }
+    }
+
+    @Test(expectedExceptions = ResumableInputStream.ObjectChangedException.class)
+    public void failsWhenObjectChanges() throws IOException {
+        final AtomicInteger opens = new AtomicInteger();
+
+        try (ResumableInputStream in = new ResumableInputStream(offset ->
+                new ResumableInputStream.Part(new FlakyStream(offset, 30_000, false),
+                        "etag-" + opens.incrementAndGet(), (long) DATA.length),
+                "/user/stor/object", 0L, 5, 0L)) {
+            IOUtils.toByteArray(in);
+        }
+    }
+
+    @Test
+    public void resumesFromOffsetWhenObjectHasExpectedEtag() throws IOException {
+        try (ResumableInputStream in = new ResumableInputStream(offset ->
+                new ResumableInputStream.Part(new FlakyStream(offset, 60_000, false),
+                        "etag-1", (long) DATA.length),
+                "/user/stor/object", 50_000L, "etag-1", 0, 0L)) {
+            Assert.assertEquals(IOUtils.toByteArray(in).length, 50_000);
+        }
+    }
+
+    @Test
+    public void failsFromOffsetWhenObjectLostExpectedEtag() throws IOException {
+        try (ResumableInputStream in = new ResumableInputStream(offset ->
+                new ResumableInputStream.Part(new FlakyStream(offset, 60_000, false),
+                        "etag-2", (long) DATA.length),
+                "/user/stor/object", 50_000L, "etag-1", 3, 0L)) {
+            Assert.fail("Expected the open to fail");
+        } catch (ResumableInputStream.ObjectChangedException e) {
+            Assert.assertTrue(e.getMessage().contains("etag-1"));
+        }
+    }
+
+    @Test
+    public void givesUpAfterConsecutiveFailures() throws IOException {
+        final AtomicInteger opens = new AtomicInteger();
+
+        try (ResumableInputStream in = new ResumableInputStream(offset -> {
+            if (opens.incrementAndGet() > 1) {
+                throw new IOException("Connection refused");
+            }
+
+            return new ResumableInputStream.Part(new FlakyStream(offset, 30_000, false),
+                    "etag-1", (long) DATA.length);
+        }, "/user/stor/object", 0L, 3, 1L)) {
+            IOUtils.toByteArray(in);
+            Assert.fail("Expected the read to fail");
+        } catch (IOException e) {
+            Assert.assertEquals(e.getMessage(), "Connection reset");
+            Assert.assertEquals(e.getSuppressed().length, 3);
+        }
+
+        Assert.assertEquals(opens.get(), 4);
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() throws IOException {
+        final AtomicInteger opens = new AtomicInteger();
+
+        try (ResumableInputStream in = new ResumableInputStream(offset -> {
+            if (opens.incrementAndGet() > 1) {
+                throw new MantaClientHttpResponseException(new HttpResponseException.Builder(
+                        404, "Not Found", new HttpHeaders()).build());
+            }
+
+            return new ResumableInputStream.Part(new FlakyStream(offset, 30_000, false),
+                    "etag-1", (long) DATA.length);
+        }, "/user/stor/object", 0L, 3, 0L)) {
+            IOUtils.toByteArray(in);
+            Assert.fail("Expected the read to fail");
+        } catch (MantaClientHttpResponseException e) {
+            Assert.assertEquals(e.getStatusCode(), 404);
+        }
+
+        Assert.assertEquals(opens.get(), 2);
+    }
+}
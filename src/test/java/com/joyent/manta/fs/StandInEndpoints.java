@@ -0,0 +1,117 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.fs.driver.MantaClientSource;
+import com.joyent.manta.fs.driver.MantaEndpoint;
+import com.joyent.manta.fs.driver.MantaEndpointPool;
+import com.joyent.manta.fs.driver.MantaRequestDispatcher;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stand-in for several Manta front-end endpoints serving the same
+ * namespace, so that balancing and failover can be tested without Manta.
+ *
+ * <p>The dispatcher asks the selected endpoint for its client right before
+ * sending a request, which is when the stand-in notes which endpoint the
+ * request went to. Requests created by {@link #request(String)} then answer
+ * as that endpoint would: after its latency, and with a connection error
+ * while it is down.</p>
+ */
+class StandInEndpoints {
+    private final ThreadLocal<Integer> selected = new ThreadLocal<>();
+    private final long[] latencyNanos;
+    private final boolean[] down;
+    private final AtomicInteger[] served;
+
+    StandInEndpoints(final int count) {
+        this.latencyNanos = new long[count];
+        this.down = new boolean[count];
+        this.served = new AtomicInteger[count];
+
+        for (int i = 0; i < count; i++) {
+            served[i] = new AtomicInteger();
+        }
+    }
+
+    private MantaClientSource source(final int index) {
+        return new MantaClientSource() {
+            @Override
+            public MantaClient getClient() {
+                selected.set(index);
+                return null;
+            }
+
+            @Override
+            public boolean isCreated() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    static String name(final int index) {
+        return "https://manta-" + index + ".local:443";
+    }
+
+    MantaEndpointPool pool(final MantaEndpointPool.Balancing balancing,
+                           final int ejectAfterFailures,
+                           final long ejectNanos) {
+        final List<MantaEndpoint> endpoints = new ArrayList<>();
+
+        for (int i = 0; i < served.length; i++) {
+            endpoints.add(new MantaEndpoint(name(i), source(i)));
+        }
+
+        return new MantaEndpointPool(endpoints, balancing, ejectAfterFailures, ejectNanos);
+    }
+
+    synchronized void setLatency(final int index, final long nanos) {
+        latencyNanos[index] = nanos;
+    }
+
+    synchronized void setDown(final int index, final boolean isDown) {
+        down[index] = isDown;
+    }
+
+    int served(final int index) {
+        return served[index].get();
+    }
+
+    /**
+     * @param path path of the simulated request
+     * @return request answered by the endpoint it is sent to, with the
+     *         endpoint's name
+     */
+    MantaRequestDispatcher.Request<String> request(final String path) {
+        return client -> {
+            final int index = selected.get();
+            final long latency;
+            final boolean isDown;
+
+            synchronized (this) {
+                latency = latencyNanos[index];
+                isDown = down[index];
+            }
+
+            if (latency > 0L) {
+                LockSupport.parkNanos(latency);
+            }
+
+            if (isDown) {
+                throw new ConnectException("Connection refused: " + name(index) + path);
+            }
+
+            served[index].incrementAndGet();
+            return name(index);
+        };
+    }
+}
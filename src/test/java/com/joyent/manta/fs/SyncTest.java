@@ -0,0 +1,182 @@
+package com.joyent.manta.fs;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.exception.MantaException;
+import com.joyent.manta.fs.config.ConfigContext;
+import com.joyent.manta.fs.config.SystemSettingsConfigContext;
+import com.joyent.manta.fs.provider.MantaFileSystemProvider;
+import com.joyent.manta.fs.sync.MantaMirror;
+import com.joyent.manta.fs.sync.MantaSync;
+import com.joyent.manta.fs.sync.MirrorManifest;
+import com.joyent.manta.fs.sync.SyncResult;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+@Test(groups = { "sync" })
+public class SyncTest {
+    private final FileSystemProvider provider = new MantaFileSystemProvider();
+    private final FileSystem fileSystem;
+    private final ConfigContext config = new SystemSettingsConfigContext();
+    private final String testDirectory = String.format("/%s/stor/%s",
+            config.getMantaUser(), UUID.randomUUID());
+    private final MantaClient mantaClient;
+    private Path localDirectory;
+
+    {
+        try {
+            URI uri = ConfigContext.mantaURIFromContext(config);
+            fileSystem = provider.newFileSystem(uri, Collections.emptyMap());
+            mantaClient = new MantaClient(config);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @BeforeClass
+    public void setup() throws IOException, MantaException {
+        mantaClient.putDirectory(testDirectory);
+        localDirectory = Files.createTempDirectory("manta_sync");
+    }
+
+    @AfterClass
+    public void cleanUp() throws IOException, MantaException {
+        mantaClient.deleteRecursive(testDirectory);
+        FileUtils.deleteDirectory(localDirectory.toFile());
+    }
+
+    @Test
+    public void canSyncOnlyChangedFiles() throws IOException {
+        Path local = Files.createDirectories(localDirectory.resolve("upload"));
+        Files.createDirectories(local.resolve("nested/deeper"));
+        write(local.resolve("a.txt"), "alpha");
+        write(local.resolve("nested/b.txt"), "bravo");
+        write(local.resolve("nested/deeper/c.txt"), "charlie");
+
+        Path remote = fileSystem.getPath(testDirectory, "upload");
+
+        SyncResult first = new MantaSync(local, remote).call();
+        Assert.assertEquals(first.getTransferred(), 3L);
+        Assert.assertEquals(mantaClient.getAsString(testDirectory + "/upload/nested/deeper/c.txt"),
+                "charlie");
+
+        SyncResult second = new MantaSync(local, remote).call();
+        Assert.assertEquals(second.getTransferred(), 0L);
+        Assert.assertEquals(second.getSkipped(), 3L);
+
+        write(local.resolve("nested/b.txt"), "bravo!");
+        Files.delete(local.resolve("a.txt"));
+
+        SyncResult third = new MantaSync(local, remote)
+                .setDeleteExtraneous(true)
+                .call();
+        Assert.assertEquals(third.getTransferred(), 1L);
+        Assert.assertEquals(third.getDeleted(), 1L);
+        Assert.assertFalse(mantaClient.existsAndIsAccessible(testDirectory + "/upload/a.txt"));
+        Assert.assertEquals(mantaClient.getAsString(testDirectory + "/upload/nested/b.txt"),
+                "bravo!");
+    }
+
+    @Test
+    public void canSyncOverEntriesOfTheOtherType() throws IOException {
+        String remoteDir = testDirectory + "/conflicts";
+        mantaClient.putDirectory(remoteDir + "/was-dir", true);
+        mantaClient.put(remoteDir + "/was-dir/old.txt", "old");
+        mantaClient.put(remoteDir + "/was-file", "old");
+
+        Path local = Files.createDirectories(localDirectory.resolve("conflicts"));
+        Files.createDirectories(local.resolve("was-file"));
+        write(local.resolve("was-file/new.txt"), "new");
+        write(local.resolve("was-dir"), "new");
+        write(local.resolve("plain.txt"), "plain");
+
+        Path remote = fileSystem.getPath(remoteDir);
+
+        SyncResult reported = new MantaSync(local, remote).call();
+        Assert.assertEquals(reported.getConflicts(), Arrays.asList("was-dir", "was-file"));
+        Assert.assertEquals(reported.getTransferred(), 1L);
+        Assert.assertEquals(mantaClient.getAsString(remoteDir + "/was-file"), "old");
+
+        SyncResult replaced = new MantaSync(local, remote)
+                .setDeleteExtraneous(true)
+                .call();
+        Assert.assertTrue(replaced.getConflicts().isEmpty());
+        Assert.assertEquals(replaced.getDeleted(), 2L);
+        Assert.assertEquals(mantaClient.getAsString(remoteDir + "/was-dir"), "new");
+        Assert.assertEquals(mantaClient.getAsString(remoteDir + "/was-file/new.txt"), "new");
+    }
+
+    @Test
+    public void canMirrorOnlyChangedObjects() throws IOException {
+        String remoteDir = testDirectory + "/download";
+        mantaClient.putDirectory(remoteDir + "/nested", true);
+        mantaClient.put(remoteDir + "/a.txt", "alpha");
+        mantaClient.put(remoteDir + "/nested/b.txt", "bravo");
+
+        Path remote = fileSystem.getPath(remoteDir);
+        Path local = localDirectory.resolve("download");
+
+        SyncResult first = new MantaMirror(remote, local).call();
+        Assert.assertEquals(first.getTransferred(), 2L);
+        Assert.assertEquals(read(local.resolve("nested/b.txt")), "bravo");
+
+        SyncResult second = new MantaMirror(remote, local).call();
+        Assert.assertEquals(second.getTransferred(), 0L);
+        Assert.assertEquals(second.getSkipped(), 2L);
+
+        mantaClient.put(remoteDir + "/a.txt", "alpha!");
+        write(local.resolve("extra.txt"), "extra");
+
+        SyncResult third = new MantaMirror(remote, local)
+                .setDeleteExtraneous(true)
+                .call();
+        Assert.assertEquals(third.getTransferred(), 1L);
+        Assert.assertEquals(third.getDeleted(), 1L);
+        Assert.assertEquals(read(local.resolve("a.txt")), "alpha!");
+        Assert.assertFalse(Files.exists(local.resolve("extra.txt")));
+    }
+
+    @Test
+    public void canResumePartialDownload() throws IOException {
+        String remoteDir = testDirectory + "/resume";
+        mantaClient.putDirectory(remoteDir);
+        mantaClient.put(remoteDir + "/data.txt", "0123456789");
+
+        Path remote = fileSystem.getPath(remoteDir);
+        Path local = Files.createDirectories(localDirectory.resolve("resume"));
+        String etag = mantaClient.head(remoteDir + "/data.txt").getEtag();
+
+        // Simulate a download that was interrupted after four bytes
+        try (MirrorManifest manifest = new MirrorManifest(
+                local.resolve(MantaMirror.DEFAULT_MANIFEST_NAME))) {
+            manifest.markPartial("data.txt", etag, 10L);
+        }
+        write(local.resolve("data.txt" + MantaMirror.PARTIAL_SUFFIX), "0123");
+
+        SyncResult result = new MantaMirror(remote, local).call();
+        Assert.assertEquals(result.getTransferred(), 1L);
+        Assert.assertEquals(result.getBytesTransferred(), 6L);
+        Assert.assertEquals(read(local.resolve("data.txt")), "0123456789");
+    }
+
+    private static String read(final Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private static void write(final Path file, final String contents) throws IOException {
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
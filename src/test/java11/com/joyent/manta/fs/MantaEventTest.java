@@ -0,0 +1,131 @@
+package com.joyent.manta.fs;
+
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Checks the flight recorder event built by the <code>java11</code> profile.
+ * Tests run from a directory of classes rather than the multi-release jar,
+ * so the Java 11 variant of the event is loaded explicitly.
+ */
+public class MantaEventTest {
+    private static final String EVENT_CLASS = "com.joyent.manta.fs.driver.MantaEvent";
+    private static final String EVENT_NAME = "com.joyent.manta.Operation";
+
+    private static Class<?> java11Event() throws Exception {
+        final String resource = "META-INF/versions/11/"
+                + EVENT_CLASS.replace('.', '/') + ".class";
+        final URL url = MantaEventTest.class.getClassLoader().getResource(resource);
+        Assert.assertNotNull(url, "Java 11 classes weren't built");
+
+        final byte[] bytes;
+
+        try (InputStream in = url.openStream()) {
+            bytes = in.readAllBytes();
+        }
+
+        final ClassLoader loader = new ClassLoader(MantaEventTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(final String name, final boolean resolve)
+                    throws ClassNotFoundException {
+                if (!name.equals(EVENT_CLASS)) {
+                    return super.loadClass(name, resolve);
+                }
+
+                synchronized (getClassLoadingLock(name)) {
+                    final Class<?> loaded = findLoadedClass(name);
+                    return loaded != null ? loaded : defineClass(name, bytes, 0, bytes.length);
+                }
+            }
+        };
+
+        return loader.loadClass(EVENT_CLASS);
+    }
+
+    private static Event record(final Class<?> type, final int status, final int attempts)
+            throws Exception {
+        final Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        final Event event = (Event) constructor.newInstance();
+        event.begin();
+
+        if (event.isEnabled()) {
+            set(type, event, "status", status);
+            set(type, event, "attempts", attempts);
+        }
+
+        final Method finish = type.getDeclaredMethod("finish",
+                String.class, String.class, long.class);
+        finish.setAccessible(true);
+        finish.invoke(event, "COPY", "/user/stor/a", 1024L);
+        return event;
+    }
+
+    private static void set(final Class<?> type, final Object event,
+                            final String name, final int value) throws Exception {
+        final Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        field.setInt(event, value);
+    }
+
+    @Test
+    public void recordsOperationStatusAndBytes() throws Exception {
+        final Class<?> type = java11Event();
+        Assert.assertTrue(Event.class.isAssignableFrom(type));
+
+        final Path file = Files.createTempFile("manta-events", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT_NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            record(type, 503, 2);
+            recording.stop();
+            recording.dump(file);
+
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            Assert.assertEquals(events.size(), 1);
+
+            final RecordedEvent event = events.get(0);
+            Assert.assertEquals(event.getEventType().getName(), EVENT_NAME);
+            Assert.assertEquals(event.getString("operation"), "COPY");
+            Assert.assertEquals(event.getString("path"), "/user/stor/a");
+            Assert.assertEquals(event.getLong("bytes"), 1024L);
+            Assert.assertEquals(event.getInt("status"), 503);
+            Assert.assertEquals(event.getInt("attempts"), 2);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void fastOperationsAreBelowTheDefaultThreshold() throws Exception {
+        final Class<?> type = java11Event();
+        final Path file = Files.createTempFile("manta-events", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT_NAME);
+            recording.start();
+            record(type, 0, 1);
+            recording.stop();
+            recording.dump(file);
+
+            Assert.assertTrue(RecordingFile.readAllEvents(file).isEmpty());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}